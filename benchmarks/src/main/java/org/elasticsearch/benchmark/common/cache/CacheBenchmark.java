@@ -0,0 +1,136 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.common.cache;
+
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up keys drawn from a Zipfian distribution from several threads, loading the keys that miss into the cache, and
+ * reports the throughput and the number of hits and misses of each eviction policy. A cache that is much smaller than
+ * the key space only gets a good hit rate if it retains the few frequently accessed keys.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class CacheBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    @Param({"lru", "tiny_lfu"})
+    public String evictionPolicy = "lru";
+
+    @Param({"10000"})
+    public int maximumWeight = 10000;
+
+    @Param({"1000000"})
+    public int numKeys = 1000000;
+
+    // the skew of the key distribution, the higher the more accesses go to the most frequent keys
+    @Param({"0.9"})
+    public double exponent = 0.9;
+
+    // number of keys in the access trace that all threads replay from different offsets
+    private static final int TRACE_SIZE = 1 << 20;
+
+    private Integer[] trace;
+    private Cache<Integer, Integer> cache;
+
+    @Setup
+    public void setUp() {
+        double[] cumulative = new double[numKeys];
+        double sum = 0;
+        for (int i = 0; i < numKeys; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        Random random = new Random(0);
+        trace = new Integer[TRACE_SIZE];
+        for (int i = 0; i < TRACE_SIZE; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            int rank = index >= 0 ? index : Math.min(-index - 1, numKeys - 1);
+            // scatter the ranks so that the frequent keys do not have neighbouring hash codes
+            trace[i] = rank * 0x9E3779B1;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpCache() {
+        cache = CacheBuilder.<Integer, Integer>builder()
+            .setMaximumWeight(maximumWeight)
+            .setEvictionPolicy(Cache.EvictionPolicy.parse(evictionPolicy))
+            .build();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Accesses {
+        public long hits;
+        public long misses;
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int position;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            position = ThreadLocalRandom.current().nextInt(TRACE_SIZE);
+        }
+    }
+
+    @Benchmark
+    public Integer getOrLoad(Cursor cursor, Accesses accesses) {
+        Integer key = trace[cursor.position];
+        cursor.position = (cursor.position + 1) & (TRACE_SIZE - 1);
+        Integer value = cache.get(key);
+        if (value == null) {
+            accesses.misses++;
+            value = key;
+            cache.put(key, value);
+        } else {
+            accesses.hits++;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.common.compress;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of compressing and decompressing payloads of JSON documents that look like log events, which
+ * is representative of what goes over the transport when indexing. The {@code ratio} of each compressor can be
+ * checked by running {@link #main(String[])}.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class CompressorBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    @Param({"deflate", "lz4"})
+    public String compressorName = "deflate";
+
+    // 1KB, 64KB and 8MB
+    @Param({"1024", "65536", "8388608"})
+    public int payloadSize = 1024;
+
+    private Compressor compressor;
+
+    private BytesReference payload;
+
+    private BytesReference compressedPayload;
+
+    private byte[] readBuffer = new byte[8192];
+
+    @Setup
+    public void setUp() throws IOException {
+        compressor = CompressorFactory.forName(compressorName);
+        payload = logEvents(payloadSize, new Random(42));
+        compressedPayload = compress();
+    }
+
+    @Benchmark
+    public BytesReference compress() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput(payload.length());
+        try (StreamOutput compressed = compressor.streamOutput(out)) {
+            payload.writeTo(compressed);
+        }
+        return out.bytes();
+    }
+
+    @Benchmark
+    public long decompress() throws IOException {
+        long checksum = 0;
+        try (StreamInput in = compressor.streamInput(compressedPayload.streamInput())) {
+            int read;
+            while ((read = in.read(readBuffer, 0, readBuffer.length)) != -1) {
+                checksum += readBuffer[read - 1];
+            }
+        }
+        return checksum;
+    }
+
+    private static BytesReference logEvents(int size, Random random) {
+        final String[] levels = new String[] { "INFO", "WARN", "DEBUG", "ERROR" };
+        final String[] hosts = new String[] { "web-01", "web-02", "db-01", "cache-01", "worker-07" };
+        final StringBuilder builder = new StringBuilder(size + 256);
+        long timestamp = 1480000000000L;
+        while (builder.length() < size) {
+            timestamp += random.nextInt(1000);
+            builder.append(String.format(Locale.ROOT,
+                "{\"@timestamp\":%d,\"level\":\"%s\",\"host\":\"%s\",\"pid\":%d,\"duration_ms\":%d,"
+                    + "\"message\":\"request %08x served in %d ms\"}\n",
+                timestamp, levels[random.nextInt(levels.length)], hosts[random.nextInt(hosts.length)], random.nextInt(32768),
+                random.nextInt(5000), random.nextInt(), random.nextInt(5000)));
+        }
+        builder.setLength(size);
+        return new BytesArray(builder.toString());
+    }
+
+    public static void main(String[] args) throws IOException {
+        for (String name : new String[] { "deflate", "lz4" }) {
+            for (int size : new int[] { 1024, 65536, 8388608 }) {
+                CompressorBenchmark benchmark = new CompressorBenchmark();
+                benchmark.compressorName = name;
+                benchmark.payloadSize = size;
+                benchmark.setUp();
+                System.out.println(String.format(Locale.ROOT, "%s %d bytes: ratio %.2f", name, size,
+                    (double) size / benchmark.compressedPayload.length()));
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.rounding;
+
+import org.elasticsearch.common.rounding.DateTimeUnit;
+import org.elasticsearch.common.rounding.Rounding;
+import org.elasticsearch.common.unit.TimeValue;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link Rounding#round(long)} with the rounding that <code>date_histogram</code> prepares for the range of the
+ * values of a shard, see {@link Rounding#prepare(long, long, int)}, on UTC, fixed offset and DST time zones.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class RoundingBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    @Param({"UTC", "+05:30", "America/New_York"})
+    public String timeZone = "UTC";
+
+    // calendar units or fixed intervals
+    @Param({"1h", "1d", "1M", "90m"})
+    public String interval = "1h";
+
+    // number of days between the smallest and the largest value
+    @Param({"1", "30", "365"})
+    public int rangeDays = 30;
+
+    public int numValues = 100000;
+
+    private Rounding rounding;
+    private Rounding.Prepared prepared;
+    private long[] values;
+
+    @Setup
+    public void setUp() {
+        DateTimeZone zone = DateTimeZone.forID(timeZone);
+        final Rounding.Builder builder;
+        switch (interval) {
+            case "1h":
+                builder = Rounding.builder(DateTimeUnit.HOUR_OF_DAY);
+                break;
+            case "1d":
+                builder = Rounding.builder(DateTimeUnit.DAY_OF_MONTH);
+                break;
+            case "1M":
+                builder = Rounding.builder(DateTimeUnit.MONTH_OF_YEAR);
+                break;
+            default:
+                builder = Rounding.builder(TimeValue.parseTimeValue(interval, "interval"));
+                break;
+        }
+        rounding = builder.timeZone(zone).build();
+        long min = 1483228800000L; // 2017-01-01T00:00:00Z
+        long max = min + TimeUnit.DAYS.toMillis(rangeDays);
+        prepared = rounding.prepare(min, max, 8192);
+        Random random = new Random(0);
+        values = new long[numValues];
+        for (int i = 0; i < numValues; i++) {
+            values[i] = min + (long) (random.nextDouble() * (max - min));
+        }
+    }
+
+    @Benchmark
+    public long round() {
+        long sum = 0;
+        for (long value : values) {
+            sum += rounding.round(value);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long roundPrepared() {
+        long sum = 0;
+        for (long value : values) {
+            sum += prepared.round(value);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.index;
+
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.ParsedDocument;
+import org.elasticsearch.index.mapper.SourceToParse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast a document source is turned into Lucene documents for mappings and documents of various sizes.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class DocumentParserBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    // number of fields in the mapping
+    @Param({"10", "100", "1000"})
+    public int mappedFields = 10;
+
+    // number of fields in each document, picked among the mapped fields
+    @Param({"10"})
+    public int docFields = 10;
+
+    // approximate length of each text and keyword value
+    @Param({"10", "1000"})
+    public int valueLength = 10;
+
+    public int numDocs = 1000;
+
+    private Path home;
+    private MapperService mapperService;
+    private DocumentMapper documentMapper;
+    private BytesReference[] sources;
+    private int doc;
+
+    @Setup
+    public void setUp() throws Exception {
+        home = Files.createTempDirectory("document-parser-benchmark");
+        mapperService = IndexingFixtures.mapperService(home, IndexingFixtures.indexSettings(Settings.EMPTY), mappedFields);
+        documentMapper = mapperService.documentMapper(IndexingFixtures.TYPE);
+        Random random = new Random(0);
+        sources = new BytesReference[numDocs];
+        for (int i = 0; i < numDocs; i++) {
+            sources[i] = IndexingFixtures.source(random, mappedFields, docFields, valueLength);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        IOUtils.rm(home);
+    }
+
+    @Benchmark
+    public ParsedDocument parseDocument() {
+        int i = doc++ % numDocs;
+        return documentMapper.parse(SourceToParse.source(IndexingFixtures.INDEX, IndexingFixtures.TYPE, Integer.toString(i), sources[i]));
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.index;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.KeepOnlyLastCommitDeletionPolicy;
+import org.apache.lucene.index.SnapshotDeletionPolicy;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.CompressedXContent;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.env.Environment;
+import org.elasticsearch.env.ShardLock;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.analysis.AnalysisService;
+import org.elasticsearch.index.codec.CodecService;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.engine.EngineConfig;
+import org.elasticsearch.index.engine.InternalEngine;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.shard.TranslogRecoveryPerformer;
+import org.elasticsearch.index.similarity.SimilarityService;
+import org.elasticsearch.index.store.DirectoryService;
+import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogConfig;
+import org.elasticsearch.indices.IndicesModule;
+import org.elasticsearch.indices.analysis.AnalysisModule;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Builds the components of the indexing path (mappings, documents, store, translog and engine) in-process, the same way an index shard
+ * wires them, but without any cluster or node infrastructure.
+ */
+public final class IndexingFixtures {
+
+    public static final String INDEX = "benchmark";
+    public static final String TYPE = "doc";
+
+    private static final String[] FIELD_TYPES = {"text", "keyword", "long"};
+
+    private IndexingFixtures() {
+        throw new AssertionError("Do not instantiate");
+    }
+
+    public static ShardId shardId() {
+        return new ShardId(INDEX, "_na_", 0);
+    }
+
+    public static IndexSettings indexSettings(Settings settings) {
+        Settings indexSettings = Settings.builder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+            .put(settings)
+            .build();
+        IndexMetaData metaData = IndexMetaData.builder(INDEX).settings(indexSettings).build();
+        return new IndexSettings(metaData, Settings.EMPTY);
+    }
+
+    /**
+     * Creates a mapper service with a mapping for {@link #TYPE} that has <code>numFields</code> fields named <code>field_0</code> to
+     * <code>field_{numFields - 1}</code>, alternating between text, keyword and long fields.
+     */
+    public static MapperService mapperService(Path home, IndexSettings indexSettings, int numFields) throws IOException {
+        Environment environment = new Environment(Settings.builder().put(Environment.PATH_HOME_SETTING.getKey(), home).build());
+        AnalysisService analysisService = new AnalysisModule(environment, Collections.emptyList()).getAnalysisRegistry()
+            .build(indexSettings);
+        SimilarityService similarityService = new SimilarityService(indexSettings, Collections.emptyMap());
+        MapperService mapperService = new MapperService(indexSettings, analysisService, similarityService,
+            new IndicesModule(Collections.emptyList()).getMapperRegistry(), () -> null);
+        XContentBuilder mapping = XContentFactory.jsonBuilder().startObject().startObject(TYPE).startObject("properties");
+        for (int i = 0; i < numFields; i++) {
+            mapping.startObject(fieldName(i)).field("type", FIELD_TYPES[i % FIELD_TYPES.length]).endObject();
+        }
+        mapping.endObject().endObject().endObject();
+        mapperService.merge(TYPE, new CompressedXContent(mapping.bytes()), MapperService.MergeReason.MAPPING_UPDATE, false);
+        return mapperService;
+    }
+
+    /**
+     * Creates the source of a document with <code>docFields</code> fields randomly picked among the <code>numFields</code> mapped fields.
+     * Text and keyword values are made of words and are about <code>valueLength</code> chars long.
+     */
+    public static BytesReference source(Random random, int numFields, int docFields, int valueLength) throws IOException {
+        XContentBuilder source = XContentFactory.jsonBuilder().startObject();
+        int first = random.nextInt(numFields);
+        for (int i = 0; i < Math.min(docFields, numFields); i++) {
+            int field = (first + i) % numFields;
+            switch (FIELD_TYPES[field % FIELD_TYPES.length]) {
+                case "long":
+                    source.field(fieldName(field), random.nextLong());
+                    break;
+                default:
+                    source.field(fieldName(field), value(random, valueLength));
+                    break;
+            }
+        }
+        return source.endObject().bytes();
+    }
+
+    private static String fieldName(int i) {
+        return "field_" + i;
+    }
+
+    private static String value(Random random, int length) {
+        StringBuilder value = new StringBuilder(length + 10);
+        while (value.length() < length) {
+            if (value.length() > 0) {
+                value.append(' ');
+            }
+            int wordLength = 2 + random.nextInt(8);
+            for (int i = 0; i < wordLength; i++) {
+                value.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return value.toString();
+    }
+
+    public static Store store(Path path, IndexSettings indexSettings) throws IOException {
+        final ShardId shardId = shardId();
+        final Directory directory = FSDirectory.open(path);
+        DirectoryService directoryService = new DirectoryService(shardId, indexSettings) {
+            @Override
+            public Directory newDirectory() throws IOException {
+                return directory;
+            }
+
+            @Override
+            public long throttleTimeInNanos() {
+                return 0;
+            }
+        };
+        return new Store(shardId, indexSettings, directoryService, new ShardLock(shardId) {
+            @Override
+            protected void closeInternal() {
+            }
+        });
+    }
+
+    public static Translog translog(Path path, IndexSettings indexSettings) throws IOException {
+        return new Translog(new TranslogConfig(shardId(), path, indexSettings, BigArrays.NON_RECYCLING_INSTANCE), null);
+    }
+
+    /** Creates an engine that creates a new index and translog, configured like an index shard would configure it. */
+    public static InternalEngine engine(ThreadPool threadPool, IndexSettings indexSettings, MapperService mapperService, Store store,
+                                        Path translogPath) throws IOException {
+        final ShardId shardId = shardId();
+        final Logger logger = Loggers.getLogger(IndexingFixtures.class);
+        TranslogConfig translogConfig = new TranslogConfig(shardId, translogPath, indexSettings, BigArrays.NON_RECYCLING_INSTANCE);
+        EngineConfig config = new EngineConfig(EngineConfig.OpenMode.CREATE_INDEX_AND_TRANSLOG, shardId, threadPool, indexSettings,
+            null, store, new SnapshotDeletionPolicy(new KeepOnlyLastCommitDeletionPolicy()), indexSettings.getMergePolicy(),
+            mapperService.indexAnalyzer(), new SimilarityService(indexSettings, Collections.emptyMap()).similarity(mapperService),
+            new CodecService(mapperService, logger), new Engine.EventListener() {}, new TranslogRecoveryPerformer(shardId, mapperService,
+            logger) {}, IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy(), translogConfig,
+            TimeValue.timeValueMinutes(5), null);
+        return new InternalEngine(config);
+    }
+}
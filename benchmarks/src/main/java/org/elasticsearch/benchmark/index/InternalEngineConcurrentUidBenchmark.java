@@ -0,0 +1,141 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.index;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.VersionType;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.engine.InternalEngine;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.ParsedDocument;
+import org.elasticsearch.index.mapper.SourceToParse;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.mapper.UidFieldMapper;
+import org.elasticsearch.index.store.Store;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures concurrent {@link InternalEngine#index(Engine.Index)} and {@link InternalEngine#delete(Engine.Delete)} calls on a small,
+ * shared set of ids so that threads regularly compete for the same per-uid locks. Compare the <code>uid_lock_contention_total</code>
+ * indexing stat reported at the end of each trial with the throughput to see how much time is lost to lock contention.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Threads(8)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class InternalEngineConcurrentUidBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    // number of distinct ids that all threads index and delete
+    @Param({"16", "1024", "65536"})
+    public int numIds = 1024;
+
+    // percentage of operations that are deletes
+    @Param({"0", "50"})
+    public int deletePercentage = 50;
+
+    public int mappedFields = 10;
+
+    public int docFields = 10;
+
+    public int valueLength = 10;
+
+    private Path home;
+    private ThreadPool threadPool;
+    private MapperService mapperService;
+    private Store store;
+    private InternalEngine engine;
+    private String[] ids;
+    private ParsedDocument[] docs;
+    private Term[] uids;
+
+    @Setup
+    public void setUp() throws Exception {
+        home = Files.createTempDirectory("internal-engine-concurrent-uid-benchmark");
+        threadPool = new ThreadPool(Settings.builder().put("node.name", "benchmark").build());
+        IndexSettings indexSettings = IndexingFixtures.indexSettings(Settings.EMPTY);
+        mapperService = IndexingFixtures.mapperService(home, indexSettings, mappedFields);
+        DocumentMapper documentMapper = mapperService.documentMapper(IndexingFixtures.TYPE);
+        Random random = new Random(0);
+        ids = new String[numIds];
+        docs = new ParsedDocument[numIds];
+        uids = new Term[numIds];
+        for (int i = 0; i < numIds; i++) {
+            ids[i] = Integer.toString(i);
+            docs[i] = documentMapper.parse(SourceToParse.source(IndexingFixtures.INDEX, IndexingFixtures.TYPE, ids[i],
+                IndexingFixtures.source(random, mappedFields, docFields, valueLength)));
+            uids[i] = new Term(UidFieldMapper.NAME, Uid.createUidAsBytes(IndexingFixtures.TYPE, ids[i]));
+        }
+        store = IndexingFixtures.store(Files.createDirectory(home.resolve("index")), indexSettings);
+        engine = IndexingFixtures.engine(threadPool, indexSettings, mapperService, store, home.resolve("translog"));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        System.out.println("uid lock contention: " + engine.getUidLockContentionCount());
+        IOUtils.close(engine, store);
+        ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        IOUtils.rm(home);
+    }
+
+    @Benchmark
+    public Engine.Operation indexOrDelete() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int i = random.nextInt(numIds);
+        if (random.nextInt(100) < deletePercentage) {
+            Engine.Delete delete = new Engine.Delete(IndexingFixtures.TYPE, ids[i], uids[i]);
+            engine.delete(delete);
+            return delete;
+        }
+        Engine.Index index = new Engine.Index(uids[i], docs[i], Versions.MATCH_ANY, VersionType.INTERNAL,
+            Engine.Operation.Origin.PRIMARY, System.nanoTime(), -1, false);
+        engine.index(index);
+        return index;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.index;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.VersionType;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.engine.InternalEngine;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.ParsedDocument;
+import org.elasticsearch.index.mapper.SourceToParse;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.mapper.UidFieldMapper;
+import org.elasticsearch.index.store.Store;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link InternalEngine#index(Engine.Index)} for already parsed documents, including the version map lookups and the translog
+ * write. Documents are indexed round-robin so that, except for auto-generated ids, every pass after the first one updates documents.
+ * Run with <code>-prof gc</code> to also report the allocation rate. The sample time mode reports the percentiles of single calls.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class InternalEngineIndexBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    // number of fields in the mapping
+    @Param({"10", "1000"})
+    public int mappedFields = 10;
+
+    // approximate length of each text and keyword value
+    @Param({"10", "1000"})
+    public int valueLength = 10;
+
+    // auto_id: append-only with auto-generated ids, internal: internal versioning on user ids, external: external versioning on user ids
+    @Param({"auto_id", "internal", "external"})
+    public String versioning = "internal";
+
+    public int docFields = 10;
+
+    public int numDocs = 10000;
+
+    private Path home;
+    private ThreadPool threadPool;
+    private MapperService mapperService;
+    private Store store;
+    private InternalEngine engine;
+    private ParsedDocument[] docs;
+    private Term[] uids;
+    private long version;
+    private int doc;
+
+    @Setup
+    public void setUp() throws Exception {
+        home = Files.createTempDirectory("internal-engine-benchmark");
+        threadPool = new ThreadPool(Settings.builder().put("node.name", "benchmark").build());
+        IndexSettings indexSettings = IndexingFixtures.indexSettings(Settings.EMPTY);
+        mapperService = IndexingFixtures.mapperService(home, indexSettings, mappedFields);
+        DocumentMapper documentMapper = mapperService.documentMapper(IndexingFixtures.TYPE);
+        Random random = new Random(0);
+        docs = new ParsedDocument[numDocs];
+        uids = new Term[numDocs];
+        for (int i = 0; i < numDocs; i++) {
+            String id = "auto_id".equals(versioning) ? UUIDs.base64UUID() : Integer.toString(i);
+            docs[i] = documentMapper.parse(SourceToParse.source(IndexingFixtures.INDEX, IndexingFixtures.TYPE, id,
+                IndexingFixtures.source(random, mappedFields, docFields, valueLength)));
+            uids[i] = new Term(UidFieldMapper.NAME, Uid.createUidAsBytes(IndexingFixtures.TYPE, id));
+        }
+        store = IndexingFixtures.store(Files.createDirectory(home.resolve("index")), indexSettings);
+        engine = IndexingFixtures.engine(threadPool, indexSettings, mapperService, store, home.resolve("translog"));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        IOUtils.close(engine, store);
+        ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        IOUtils.rm(home);
+    }
+
+    @Benchmark
+    public Engine.Index index() {
+        final int i = doc++ % numDocs;
+        final Engine.Index index;
+        switch (versioning) {
+            case "auto_id":
+                index = new Engine.Index(uids[i], docs[i], Versions.MATCH_ANY, VersionType.INTERNAL, Engine.Operation.Origin.PRIMARY,
+                    System.nanoTime(), System.currentTimeMillis(), false);
+                break;
+            case "internal":
+                index = new Engine.Index(uids[i], docs[i], Versions.MATCH_ANY, VersionType.INTERNAL, Engine.Operation.Origin.PRIMARY,
+                    System.nanoTime(), -1, false);
+                break;
+            case "external":
+                index = new Engine.Index(uids[i], docs[i], ++version, VersionType.EXTERNAL, Engine.Operation.Origin.PRIMARY,
+                    System.nanoTime(), -1, false);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown versioning [" + versioning + "]");
+        }
+        engine.index(index);
+        return index;
+    }
+}
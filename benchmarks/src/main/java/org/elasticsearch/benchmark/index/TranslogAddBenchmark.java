@@ -0,0 +1,117 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.index;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.SourceToParse;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.mapper.UidFieldMapper;
+import org.elasticsearch.index.translog.Translog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures appending index operations to the translog, optionally fsyncing after every operation like the <code>request</code>
+ * durability does.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class TranslogAddBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    // approximate length of each text and keyword value
+    @Param({"10", "1000"})
+    public int valueLength = 10;
+
+    @Param({"false", "true"})
+    public boolean syncEveryOperation = false;
+
+    public int mappedFields = 10;
+
+    public int docFields = 10;
+
+    public int numDocs = 1000;
+
+    private Path home;
+    private MapperService mapperService;
+    private Translog translog;
+    private Translog.Index[] operations;
+    private int doc;
+
+    @Setup
+    public void setUp() throws Exception {
+        home = Files.createTempDirectory("translog-benchmark");
+        IndexSettings indexSettings = IndexingFixtures.indexSettings(Settings.EMPTY);
+        mapperService = IndexingFixtures.mapperService(home, indexSettings, mappedFields);
+        DocumentMapper documentMapper = mapperService.documentMapper(IndexingFixtures.TYPE);
+        Random random = new Random(0);
+        operations = new Translog.Index[numDocs];
+        for (int i = 0; i < numDocs; i++) {
+            String id = Integer.toString(i);
+            Engine.Index index = new Engine.Index(new Term(UidFieldMapper.NAME, Uid.createUidAsBytes(IndexingFixtures.TYPE, id)),
+                documentMapper.parse(SourceToParse.source(IndexingFixtures.INDEX, IndexingFixtures.TYPE, id,
+                    IndexingFixtures.source(random, mappedFields, docFields, valueLength))));
+            operations[i] = new Translog.Index(index);
+        }
+        translog = IndexingFixtures.translog(home.resolve("translog"), indexSettings);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        translog.close();
+        IOUtils.rm(home);
+    }
+
+    @Benchmark
+    public Translog.Location add() throws Exception {
+        Translog.Location location = translog.add(operations[doc++ % numDocs]);
+        if (syncEveryOperation) {
+            translog.ensureSynced(location);
+        }
+        return location;
+    }
+}
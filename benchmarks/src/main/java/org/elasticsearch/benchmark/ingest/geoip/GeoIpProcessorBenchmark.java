@@ -0,0 +1,121 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.benchmark.ingest.geoip;
+
+import com.maxmind.db.Reader;
+import com.maxmind.geoip2.DatabaseReader;
+import org.elasticsearch.ingest.IngestDocument;
+import org.elasticsearch.ingest.geoip.GeoIpCache;
+import org.elasticsearch.ingest.geoip.GeoIpProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Measures the cost of enriching a single document with the geoip processor, looking up addresses that are drawn from a
+ * pool of the given number of distinct addresses against the memory mapped GeoLite2 City database.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class GeoIpProcessorBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    @Param({"0", "1000"})
+    public long cacheSize = 1000;
+
+    @Param({"100", "100000"})
+    public int numAddresses = 100;
+
+    // number of addresses in the trace that is replayed by the benchmark
+    private static final int TRACE_SIZE = 1 << 16;
+
+    private Path databasePath;
+    private DatabaseReader databaseReader;
+    private GeoIpProcessor processor;
+    private String[] trace;
+    private int position;
+
+    @Setup
+    public void setUp() throws Exception {
+        databasePath = Files.createTempFile("GeoLite2-City", ".mmdb");
+        try (InputStream in = new GZIPInputStream(GeoIpProcessorBenchmark.class.getResourceAsStream("/GeoLite2-City.mmdb.gz"))) {
+            Files.copy(in, databasePath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        databaseReader = new DatabaseReader.Builder(databasePath.toFile()).fileMode(Reader.FileMode.MEMORY_MAPPED).build();
+        GeoIpProcessor.Factory factory = new GeoIpProcessor.Factory(Collections.singletonMap("GeoLite2-City.mmdb.gz", databaseReader),
+            new GeoIpCache(cacheSize));
+        Map<String, Object> config = new HashMap<>();
+        config.put("field", "ip");
+        processor = factory.create(Collections.emptyMap(), "geoip", config);
+
+        Random random = new Random(0);
+        String[] addresses = new String[numAddresses];
+        for (int i = 0; i < numAddresses; i++) {
+            addresses[i] = (1 + random.nextInt(223)) + "." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256);
+        }
+        trace = new String[TRACE_SIZE];
+        for (int i = 0; i < TRACE_SIZE; i++) {
+            trace[i] = addresses[random.nextInt(numAddresses)];
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        databaseReader.close();
+        Files.deleteIfExists(databasePath);
+    }
+
+    @Benchmark
+    public IngestDocument measureLookup() throws Exception {
+        Map<String, Object> source = new HashMap<>();
+        source.put("ip", trace[position++ & (TRACE_SIZE - 1)]);
+        IngestDocument document = new IngestDocument("index", "type", "id", null, null, null, null, source);
+        processor.execute(document);
+        return document;
+    }
+}
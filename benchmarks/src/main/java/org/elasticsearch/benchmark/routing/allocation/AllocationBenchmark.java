@@ -28,10 +28,15 @@ import org.elasticsearch.cluster.routing.RoutingTable;
 import org.elasticsearch.cluster.routing.ShardRoutingState;
 import org.elasticsearch.cluster.routing.allocation.AllocationService;
 import org.elasticsearch.cluster.routing.allocation.RoutingAllocation;
+import org.elasticsearch.cluster.routing.allocation.allocator.BalancedShardsAllocator;
+import org.elasticsearch.cluster.routing.allocation.decider.ClusterRebalanceAllocationDecider;
+import org.elasticsearch.cluster.routing.allocation.decider.ConcurrentRebalanceAllocationDecider;
+import org.elasticsearch.cluster.routing.allocation.decider.ThrottlingAllocationDecider;
 import org.elasticsearch.common.settings.Settings;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
@@ -152,10 +157,100 @@ public class AllocationBenchmark {
                 (nb).build();
     }
 
-    private int toInt(String v) {
+    /**
+     * A large cluster that is fully allocated and balanced, to which a new index is added before each reroute. Rebalancing
+     * is always allowed, so every reroute balances the whole cluster unless balancing incrementally.
+     */
+    @State(Scope.Benchmark)
+    public static class BalancedCluster {
+        @Param({
+            // indices, shards, replicas, nodes
+            "      500,     10,        1,   100",
+            "     5000,      5,        1,   500",
+            "     2500,     10,        1,   500"
+        })
+        public String clusterIndicesShardsReplicasNodes = "500,10,1,100";
+
+        @Param({"false", "true"})
+        public boolean incremental = false;
+
+        public int numTags = 2;
+
+        private AllocationService strategy;
+        private ClusterState balancedClusterState;
+        private ClusterState clusterState;
+        private int numShards;
+        private int numReplicas;
+        private int newIndices;
+
+        @Setup
+        public void setUp() throws Exception {
+            final String[] params = clusterIndicesShardsReplicasNodes.split(",");
+
+            int numIndices = toInt(params[0]);
+            numShards = toInt(params[1]);
+            numReplicas = toInt(params[2]);
+            int numNodes = toInt(params[3]);
+
+            strategy = Allocators.createAllocationService(Settings.builder()
+                    .put("cluster.routing.allocation.awareness.attributes", "tag")
+                    .put(ClusterRebalanceAllocationDecider.CLUSTER_ROUTING_ALLOCATION_ALLOW_REBALANCE_SETTING.getKey(), "always")
+                    .put(ConcurrentRebalanceAllocationDecider.CLUSTER_ROUTING_ALLOCATION_CLUSTER_CONCURRENT_REBALANCE_SETTING.getKey(), -1)
+                    .put(ThrottlingAllocationDecider.CLUSTER_ROUTING_ALLOCATION_NODE_CONCURRENT_RECOVERIES_SETTING.getKey(), 1000)
+                    .put(ThrottlingAllocationDecider.CLUSTER_ROUTING_ALLOCATION_NODE_INITIAL_PRIMARIES_RECOVERIES_SETTING.getKey(), 1000)
+                    .put(BalancedShardsAllocator.INCREMENTAL_SETTING.getKey(), incremental)
+                    .build());
+
+            MetaData.Builder mb = MetaData.builder();
+            RoutingTable.Builder rb = RoutingTable.builder();
+            for (int i = 1; i <= numIndices; i++) {
+                IndexMetaData indexMetaData = newIndex("test_" + i);
+                mb.put(indexMetaData, false);
+                rb.addAsNew(indexMetaData);
+            }
+            DiscoveryNodes.Builder nb = DiscoveryNodes.builder();
+            for (int i = 1; i <= numNodes; i++) {
+                nb.add(Allocators.newNode("node" + i, Collections.singletonMap("tag", "tag_" + (i % numTags))));
+            }
+            ClusterState state = ClusterState.builder(ClusterName.CLUSTER_NAME_SETTING.getDefault(Settings.EMPTY))
+                .metaData(mb).routingTable(rb.build()).nodes(nb).build();
+            RoutingAllocation.Result result = strategy.reroute(state, "reroute");
+            state = ClusterState.builder(state).routingResult(result).build();
+            while (result.changed()) {
+                result = strategy.applyStartedShards(state, state.getRoutingNodes().shardsWithState(ShardRoutingState.INITIALIZING));
+                state = ClusterState.builder(state).routingResult(result).build();
+            }
+            balancedClusterState = state;
+        }
+
+        @Setup(Level.Invocation)
+        public void createIndex() {
+            IndexMetaData indexMetaData = newIndex("new_test_" + (++newIndices));
+            clusterState = ClusterState.builder(balancedClusterState)
+                .metaData(MetaData.builder(balancedClusterState.metaData()).put(indexMetaData, false))
+                .routingTable(RoutingTable.builder(balancedClusterState.routingTable()).addAsNew(indexMetaData).build())
+                .build();
+        }
+
+        private IndexMetaData newIndex(String name) {
+            return IndexMetaData.builder(name)
+                .settings(Settings.builder().put("index.version.created", Version.CURRENT))
+                .numberOfShards(numShards)
+                .numberOfReplicas(numReplicas)
+                .build();
+        }
+    }
+
+    private static int toInt(String v) {
         return Integer.valueOf(v.trim());
     }
 
+    @Benchmark
+    public static ClusterState measureRerouteOfBalancedCluster(BalancedCluster cluster) {
+        RoutingAllocation.Result result = cluster.strategy.reroute(cluster.clusterState, "index created");
+        return ClusterState.builder(cluster.clusterState).routingResult(result).build();
+    }
+
     @Benchmark
     public ClusterState measureAllocation() {
         ClusterState clusterState = initialClusterState;
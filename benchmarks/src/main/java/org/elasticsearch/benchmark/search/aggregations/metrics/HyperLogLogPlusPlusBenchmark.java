@@ -0,0 +1,107 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.search.aggregations.metrics;
+
+import com.carrotsearch.hppc.BitMixer;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.search.aggregations.metrics.cardinality.HyperLogLogPlusPlus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link HyperLogLogPlusPlus#merge(long, HyperLogLogPlusPlus, long)} of many buckets, as done when reducing a
+ * <code>cardinality</code> aggregation under a <code>terms</code> aggregation. The memory used per bucket and the number of
+ * bytes a bucket takes on the wire are printed during setup.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class HyperLogLogPlusPlusBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    @Param({"14", "18"})
+    public int precision = 14;
+
+    // number of distinct values per bucket: linear counting, sparse registers and dense registers at the default precision
+    @Param({"10", "5000", "100000"})
+    public int valuesPerBucket = 10;
+
+    public int numBuckets = 1000;
+
+    private HyperLogLogPlusPlus counts;
+
+    @Setup
+    public void setUp() throws IOException {
+        counts = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, numBuckets);
+        Random random = new Random(0);
+        for (int bucket = 0; bucket < numBuckets; bucket++) {
+            for (int i = 0; i < valuesPerBucket; i++) {
+                counts.collect(bucket, BitMixer.mix64(random.nextLong()));
+            }
+        }
+        long serializedBytes = 0;
+        for (int bucket = 0; bucket < numBuckets; bucket++) {
+            try (BytesStreamOutput out = new BytesStreamOutput()) {
+                counts.writeTo(bucket, out);
+                serializedBytes += out.size();
+            }
+        }
+        System.out.println(String.format(Locale.ROOT, "precision %d, %d values per bucket: %d bytes in memory and %d bytes on the wire"
+            + " per bucket", precision, valuesPerBucket, counts.ramBytesUsed() / numBuckets, serializedBytes / numBuckets));
+    }
+
+    @TearDown
+    public void tearDown() {
+        counts.close();
+    }
+
+    @Benchmark
+    public long merge() {
+        try (HyperLogLogPlusPlus merged = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, numBuckets)) {
+            long cardinality = 0;
+            for (int bucket = 0; bucket < numBuckets; bucket++) {
+                merged.merge(bucket, counts, bucket);
+                cardinality += merged.cardinality(bucket);
+            }
+            return cardinality;
+        }
+    }
+}
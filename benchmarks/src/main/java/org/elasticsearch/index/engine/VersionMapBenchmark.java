@@ -0,0 +1,127 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.util.BigArrays;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the version map implementations for a burst of updates on distinct uids between two refreshes, which is what an update-heavy
+ * index with a long refresh interval sees. This benchmark lives in the engine package because the version maps are package-private.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class VersionMapBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    @Param({"concurrent", "paged"})
+    public String type = "concurrent";
+
+    @Param({"1000000"})
+    public int numUids = 1000000;
+
+    // percentage of operations that are deletes
+    @Param({"0", "10"})
+    public int deletePercentage = 0;
+
+    private BytesRef[] uids;
+    private Term[] terms;
+    private boolean[] deletes;
+    private VersionMap versionMap;
+
+    @Setup
+    public void setUp() throws Exception {
+        Random random = new Random(0);
+        uids = new BytesRef[numUids];
+        terms = new Term[numUids];
+        deletes = new boolean[numUids];
+        for (int i = 0; i < numUids; i++) {
+            // same shape as auto-generated ids
+            uids[i] = new BytesRef("type#" + UUIDs.base64UUID());
+            terms[i] = new Term("_uid", uids[i]);
+            deletes[i] = random.nextInt(100) < deletePercentage;
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpVersionMap() throws IOException {
+        switch (type) {
+            case "concurrent":
+                versionMap = new LiveVersionMap();
+                break;
+            case "paged":
+                versionMap = new PagedLiveVersionMap(BigArrays.NON_RECYCLING_INSTANCE);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown version map type [" + type + "]");
+        }
+        // pretend a refresh happened so that lookups also probe the old map, as they do in the engine
+        versionMap.beforeRefresh();
+        versionMap.afterRefresh(true);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownVersionMap() {
+        versionMap.clear();
+    }
+
+    /** A burst of updates: each uid is looked up, then its new version is recorded, and the burst is made visible by a refresh. */
+    @Benchmark
+    public long updateBurst() throws IOException {
+        for (int i = 0; i < numUids; i++) {
+            VersionValue current = versionMap.getUnderLock(terms[i]);
+            long version = current == null ? 1 : current.version() + 1;
+            if (deletes[i]) {
+                versionMap.putUnderLock(uids[i], new DeleteVersionValue(version, i));
+            } else {
+                versionMap.putUnderLock(uids[i], new VersionValue(version));
+            }
+        }
+        long ramBytesUsed = versionMap.ramBytesUsed();
+        versionMap.beforeRefresh();
+        versionMap.afterRefresh(true);
+        return ramBytesUsed;
+    }
+}
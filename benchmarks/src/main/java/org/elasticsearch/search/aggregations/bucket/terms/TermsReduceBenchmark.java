@@ -0,0 +1,154 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the coordinating node reduce of numeric terms aggregations, grouping the shard buckets either by their boxed key or
+ * by a primitive key in a paged hash. Run with <code>-prof gc</code> to compare allocation rates. The full scenario of 500k buckets
+ * from 200 shards needs a large heap, e.g. <code>-p bucketsPerShard=500000 -p numShards=200 -jvmArgs -Xmx16g</code>. This
+ * benchmark lives in the terms package because the bucket grouping hook is package-private.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class TermsReduceBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    @Param({"long", "double"})
+    public String type = "long";
+
+    @Param({"boxed", "paged"})
+    public String grouping = "paged";
+
+    @Param({"20", "200"})
+    public int numShards = 20;
+
+    @Param({"10000"})
+    public int bucketsPerShard = 10000;
+
+    // ratio of distinct terms to buckets per shard, the higher the fewer buckets share a term across shards
+    @Param({"2"})
+    public int termSpread = 2;
+
+    private List<InternalAggregation> shardResults;
+    private ReduceContext reduceContext;
+
+    @Setup
+    public void setUp() throws Exception {
+        Random random = new Random(0);
+        boolean boxed = "boxed".equals(grouping);
+        shardResults = new ArrayList<>(numShards);
+        for (int shard = 0; shard < numShards; shard++) {
+            // pick distinct terms for the shard by skipping through the term space
+            long term = random.nextInt(termSpread);
+            switch (type) {
+                case "long":
+                    List<LongTerms.Bucket> longBuckets = new ArrayList<>(bucketsPerShard);
+                    for (int i = 0; i < bucketsPerShard; i++) {
+                        longBuckets.add(new LongTerms.Bucket(term, 1 + random.nextInt(100), InternalAggregations.EMPTY, false, 0,
+                            DocValueFormat.RAW));
+                        term += 1 + random.nextInt(2 * termSpread - 1);
+                    }
+                    shardResults.add(boxed ? new BoxedLongTerms(bucketsPerShard, longBuckets) : new LongTerms("terms",
+                        Terms.Order.count(false), bucketsPerShard, 1, Collections.emptyList(), null, DocValueFormat.RAW, bucketsPerShard,
+                        false, 0, longBuckets, 0));
+                    break;
+                case "double":
+                    List<DoubleTerms.Bucket> doubleBuckets = new ArrayList<>(bucketsPerShard);
+                    for (int i = 0; i < bucketsPerShard; i++) {
+                        doubleBuckets.add(new DoubleTerms.Bucket(term / 8d, 1 + random.nextInt(100), InternalAggregations.EMPTY, false, 0,
+                            DocValueFormat.RAW));
+                        term += 1 + random.nextInt(2 * termSpread - 1);
+                    }
+                    shardResults.add(boxed ? new BoxedDoubleTerms(bucketsPerShard, doubleBuckets) : new DoubleTerms("terms",
+                        Terms.Order.count(false), bucketsPerShard, 1, Collections.emptyList(), null, DocValueFormat.RAW, bucketsPerShard,
+                        false, 0, doubleBuckets, 0));
+                    break;
+                default:
+                    throw new UnsupportedOperationException("unknown type [" + type + "]");
+            }
+        }
+        reduceContext = new ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, null, false);
+    }
+
+    @Benchmark
+    public InternalAggregation reduce() {
+        return shardResults.get(0).reduce(shardResults, reduceContext);
+    }
+
+    /**
+     * Long terms that group buckets by their boxed key, which is how every terms aggregation used to be reduced.
+     */
+    static class BoxedLongTerms extends LongTerms {
+        BoxedLongTerms(int size, List<Bucket> buckets) {
+            super("terms", Terms.Order.count(false), size, 1, Collections.<PipelineAggregator>emptyList(), null,
+                DocValueFormat.RAW, size, false, 0, buckets, 0);
+        }
+
+        @Override
+        BucketsByTerm<Bucket> newBucketsByTerm(ReduceContext reduceContext) {
+            return new ObjectBucketsByTerm<>();
+        }
+    }
+
+    /**
+     * Double terms that group buckets by their boxed key, which is how every terms aggregation used to be reduced.
+     */
+    static class BoxedDoubleTerms extends DoubleTerms {
+        BoxedDoubleTerms(int size, List<Bucket> buckets) {
+            super("terms", Terms.Order.count(false), size, 1, Collections.<PipelineAggregator>emptyList(), null,
+                DocValueFormat.RAW, size, false, 0, buckets, 0);
+        }
+
+        @Override
+        BucketsByTerm<Bucket> newBucketsByTerm(ReduceContext reduceContext) {
+            return new ObjectBucketsByTerm<>();
+        }
+    }
+}
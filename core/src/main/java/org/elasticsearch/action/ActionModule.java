@@ -177,10 +177,12 @@ import org.elasticsearch.action.ingest.SimulatePipelineTransportAction;
 import org.elasticsearch.action.main.MainAction;
 import org.elasticsearch.action.main.TransportMainAction;
 import org.elasticsearch.action.search.ClearScrollAction;
+import org.elasticsearch.action.search.ExportAction;
 import org.elasticsearch.action.search.MultiSearchAction;
 import org.elasticsearch.action.search.SearchAction;
 import org.elasticsearch.action.search.SearchScrollAction;
 import org.elasticsearch.action.search.TransportClearScrollAction;
+import org.elasticsearch.action.search.TransportExportAction;
 import org.elasticsearch.action.search.TransportMultiSearchAction;
 import org.elasticsearch.action.search.TransportSearchAction;
 import org.elasticsearch.action.search.TransportSearchScrollAction;
@@ -305,6 +307,7 @@ import org.elasticsearch.rest.action.ingest.RestPutPipelineAction;
 import org.elasticsearch.rest.action.ingest.RestSimulatePipelineAction;
 import org.elasticsearch.rest.action.search.RestClearScrollAction;
 import org.elasticsearch.rest.action.search.RestExplainAction;
+import org.elasticsearch.rest.action.search.RestExportAction;
 import org.elasticsearch.rest.action.search.RestMultiSearchAction;
 import org.elasticsearch.rest.action.search.RestSearchAction;
 import org.elasticsearch.rest.action.search.RestSearchScrollAction;
@@ -440,6 +443,7 @@ public class ActionModule extends AbstractModule {
         actions.register(MultiSearchAction.INSTANCE, TransportMultiSearchAction.class);
         actions.register(ExplainAction.INSTANCE, TransportExplainAction.class);
         actions.register(ClearScrollAction.INSTANCE, TransportClearScrollAction.class);
+        actions.register(ExportAction.INSTANCE, TransportExportAction.class);
         actions.register(RecoveryAction.INSTANCE, TransportRecoveryAction.class);
 
         //Indexed scripts
@@ -555,6 +559,7 @@ public class ActionModule extends AbstractModule {
         registerRestHandler(handlers, RestSearchAction.class);
         registerRestHandler(handlers, RestSearchScrollAction.class);
         registerRestHandler(handlers, RestClearScrollAction.class);
+        registerRestHandler(handlers, RestExportAction.class);
         registerRestHandler(handlers, RestMultiSearchAction.class);
 
         registerRestHandler(handlers, RestValidateQueryAction.class);
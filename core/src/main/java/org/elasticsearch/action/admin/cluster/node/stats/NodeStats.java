@@ -19,6 +19,8 @@
 
 package org.elasticsearch.action.admin.cluster.node.stats;
 
+import org.elasticsearch.Version;
+import org.elasticsearch.action.search.SearchResponseCacheStats;
 import org.elasticsearch.action.support.nodes.BaseNodeResponse;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.Nullable;
@@ -85,6 +87,9 @@ public class NodeStats extends BaseNodeResponse implements ToXContent {
     @Nullable
     private IngestStats ingestStats;
 
+    @Nullable
+    private SearchResponseCacheStats searchResponseCacheStats;
+
     NodeStats() {
     }
 
@@ -94,7 +99,8 @@ public class NodeStats extends BaseNodeResponse implements ToXContent {
                      @Nullable AllCircuitBreakerStats breaker,
                      @Nullable ScriptStats scriptStats,
                      @Nullable DiscoveryStats discoveryStats,
-                     @Nullable IngestStats ingestStats) {
+                     @Nullable IngestStats ingestStats,
+                     @Nullable SearchResponseCacheStats searchResponseCacheStats) {
         super(node);
         this.timestamp = timestamp;
         this.indices = indices;
@@ -109,6 +115,7 @@ public class NodeStats extends BaseNodeResponse implements ToXContent {
         this.scriptStats = scriptStats;
         this.discoveryStats = discoveryStats;
         this.ingestStats = ingestStats;
+        this.searchResponseCacheStats = searchResponseCacheStats;
     }
 
     public long getTimestamp() {
@@ -198,6 +205,11 @@ public class NodeStats extends BaseNodeResponse implements ToXContent {
         return ingestStats;
     }
 
+    @Nullable
+    public SearchResponseCacheStats getSearchResponseCacheStats() {
+        return searchResponseCacheStats;
+    }
+
     public static NodeStats readNodeStats(StreamInput in) throws IOException {
         NodeStats nodeInfo = new NodeStats();
         nodeInfo.readFrom(in);
@@ -236,6 +248,9 @@ public class NodeStats extends BaseNodeResponse implements ToXContent {
         scriptStats = in.readOptionalStreamable(ScriptStats::new);
         discoveryStats = in.readOptionalStreamable(() -> new DiscoveryStats(null));
         ingestStats = in.readOptionalWriteable(IngestStats::new);
+        if (in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            searchResponseCacheStats = in.readOptionalWriteable(SearchResponseCacheStats::new);
+        }
     }
 
     @Override
@@ -294,6 +309,9 @@ public class NodeStats extends BaseNodeResponse implements ToXContent {
         out.writeOptionalStreamable(scriptStats);
         out.writeOptionalStreamable(discoveryStats);
         out.writeOptionalWriteable(ingestStats);
+        if (out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            out.writeOptionalWriteable(searchResponseCacheStats);
+        }
     }
 
     @Override
@@ -359,6 +377,10 @@ public class NodeStats extends BaseNodeResponse implements ToXContent {
             getIngestStats().toXContent(builder, params);
         }
 
+        if (getSearchResponseCacheStats() != null) {
+            getSearchResponseCacheStats().toXContent(builder, params);
+        }
+
         return builder;
     }
 }
@@ -145,4 +145,12 @@ public class NodesStatsRequestBuilder extends NodesOperationRequestBuilder<Nodes
         request.ingest(ingest);
         return this;
     }
+
+    /**
+     * Should the statistics of the search response cache be returned.
+     */
+    public NodesStatsRequestBuilder setSearchResponseCache(boolean searchResponseCache) {
+        request.searchResponseCache(searchResponseCache);
+        return this;
+    }
 }
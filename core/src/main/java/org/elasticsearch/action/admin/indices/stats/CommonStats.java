@@ -170,7 +170,7 @@ public class CommonStats implements Streamable, ToXContent {
                     // skip
                     break;
                 case RequestCache:
-                    requestCache = indexShard.requestCache().stats();
+                    requestCache = indexShard.requestCache().stats().hitsCache(indexShard.hitsCache().stats());
                     break;
                 case Recovery:
                     recoveryStats = indexShard.recoveryStats();
@@ -269,11 +269,26 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
 
     public BulkRequest add(BytesReference data, @Nullable String defaultIndex, @Nullable String defaultType, @Nullable String defaultRouting, @Nullable String[] defaultFields, @Nullable String defaultPipeline, @Nullable Object payload, boolean allowExplicitIndex) throws Exception {
         XContent xContent = XContentFactory.xContent(data);
-        int line = 0;
+        add(xContent, data, 0, defaultIndex, defaultType, defaultRouting, defaultFields, defaultPipeline, payload, allowExplicitIndex);
+        return this;
+    }
+
+    /**
+     * Adds all complete action/source pairs found in the given data and returns the offset of the first byte that was not
+     * consumed. Anything after that offset is an incomplete trailing entry that should be retried once more data is available.
+     *
+     * @param lineOffset the number of lines that precede the data, so that errors report the line within the whole bulk body
+     */
+    int add(XContent xContent, BytesReference data, int lineOffset, @Nullable String defaultIndex, @Nullable String defaultType,
+            @Nullable String defaultRouting, @Nullable String[] defaultFields, @Nullable String defaultPipeline,
+            @Nullable Object payload, boolean allowExplicitIndex) throws Exception {
+        int line = lineOffset;
         int from = 0;
+        int consumed = 0;
         int length = data.length();
         byte marker = xContent.streamSeparator();
         while (true) {
+            consumed = from;
             int nextMarker = findNextMarker(marker, from, data, length);
             if (nextMarker == -1) {
                 break;
@@ -429,7 +444,7 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
                 }
             }
         }
-        return this;
+        return consumed;
     }
 
     /**
@@ -0,0 +1,155 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
+import org.elasticsearch.common.xcontent.XContent;
+import org.elasticsearch.common.xcontent.XContentFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses a bulk body that arrives in chunks. Every call to {@link #feed(BytesReference)} adds the action/source pairs that
+ * are complete so far to the target {@link BulkRequest} and only keeps the chunks of the incomplete trailing entry around, so
+ * the caller can start dispatching requests before the whole body has been received. Once the body is complete,
+ * {@link #finish()} makes sure that no truncated entry is left.
+ * <p>
+ * This is only the parsing building block of a streaming bulk path: the HTTP layer still aggregates the whole body before
+ * dispatching it, and the REST bulk action adds it to its {@link BulkRequest} in one go.
+ */
+public class IncrementalBulkRequestParser {
+
+    private final BulkRequest bulkRequest;
+    private final String defaultIndex;
+    private final String defaultType;
+    private final String defaultRouting;
+    private final String[] defaultFields;
+    private final String defaultPipeline;
+    private final Object payload;
+    private final boolean allowExplicitIndex;
+
+    private XContent xContent;
+    // the chunks that weren't entirely consumed yet, the first one is sliced at the first byte that wasn't consumed
+    private final List<BytesReference> pending = new ArrayList<>();
+    private int bufferedBytes;
+    // the number of lines that were consumed, so that errors report the line within the whole body
+    private int consumedLines;
+
+    public IncrementalBulkRequestParser(BulkRequest bulkRequest, @Nullable String defaultIndex, @Nullable String defaultType,
+                                        @Nullable String defaultRouting, @Nullable String[] defaultFields,
+                                        @Nullable String defaultPipeline, @Nullable Object payload, boolean allowExplicitIndex) {
+        this.bulkRequest = bulkRequest;
+        this.defaultIndex = defaultIndex;
+        this.defaultType = defaultType;
+        this.defaultRouting = defaultRouting;
+        this.defaultFields = defaultFields;
+        this.defaultPipeline = defaultPipeline;
+        this.payload = payload;
+        this.allowExplicitIndex = allowExplicitIndex;
+    }
+
+    /**
+     * Feeds the next chunk of the bulk body and returns the number of requests that were added to the bulk request.
+     */
+    public int feed(BytesReference chunk) throws Exception {
+        if (chunk.length() == 0) {
+            return 0;
+        }
+        if (xContent == null) {
+            xContent = XContentFactory.xContent(chunk);
+        }
+        pending.add(chunk);
+        bufferedBytes += chunk.length();
+        final byte marker = xContent.streamSeparator();
+        if (indexOf(marker, chunk, 0) == -1) {
+            // the chunk doesn't complete any line, so it can't complete an entry either
+            return 0;
+        }
+        final BytesReference data = pending.size() == 1 ? pending.get(0)
+            : new CompositeBytesReference(pending.toArray(new BytesReference[pending.size()]));
+        final int before = bulkRequest.numberOfActions();
+        final int consumed = bulkRequest.add(xContent, data, consumedLines, defaultIndex, defaultType, defaultRouting,
+            defaultFields, defaultPipeline, payload, allowExplicitIndex);
+        for (int i = indexOf(marker, data, 0); i != -1 && i < consumed; i = indexOf(marker, data, i + 1)) {
+            consumedLines++;
+        }
+        release(consumed);
+        return bulkRequest.numberOfActions() - before;
+    }
+
+    /**
+     * Signals that the whole bulk body was fed. Fails if the body ends with an incomplete entry, which would otherwise be
+     * silently dropped. Trailing whitespace is ignored.
+     */
+    public void finish() {
+        for (BytesReference chunk : pending) {
+            for (int i = 0; i < chunk.length(); i++) {
+                if (Character.isWhitespace(chunk.get(i)) == false) {
+                    throw new IllegalArgumentException("Malformed bulk request, the entry starting at line [" + (consumedLines + 1)
+                        + "] is incomplete, every line of a bulk request must be terminated by a newline");
+                }
+            }
+        }
+        pending.clear();
+        bufferedBytes = 0;
+    }
+
+    /**
+     * The number of bytes of an incomplete trailing entry that are waiting for more data.
+     */
+    public int bufferedBytes() {
+        return bufferedBytes;
+    }
+
+    public BulkRequest bulkRequest() {
+        return bulkRequest;
+    }
+
+    /**
+     * Drops the chunks that were entirely consumed and slices the first chunk that wasn't at the first byte that wasn't.
+     */
+    private void release(int consumed) {
+        bufferedBytes -= consumed;
+        int remaining = consumed;
+        while (remaining > 0) {
+            final BytesReference first = pending.get(0);
+            if (first.length() <= remaining) {
+                pending.remove(0);
+                remaining -= first.length();
+            } else {
+                pending.set(0, first.slice(remaining, first.length() - remaining));
+                remaining = 0;
+            }
+        }
+    }
+
+    private static int indexOf(byte marker, BytesReference data, int from) {
+        for (int i = from; i < data.length(); i++) {
+            if (data.get(i) == marker) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -654,7 +654,7 @@ public class IndexRequest extends ReplicatedWriteRequest<IndexRequest> implement
         parent = in.readOptionalString();
         timestamp = in.readOptionalString();
         ttl = in.readOptionalWriteable(TimeValue::new);
-        source = in.readBytesReference();
+        source = in.readSharedBytesReference();
         opType = OpType.fromId(in.readByte());
         version = in.readLong();
         versionType = VersionType.fromValue(in.readByte());
@@ -108,7 +108,7 @@ public final class IngestActionFilter extends AbstractComponent implements Actio
         BulkRequestModifier bulkRequestModifier = new BulkRequestModifier(original);
         executionService.executeBulkRequest(() -> bulkRequestModifier, (indexRequest, exception) -> {
             logger.debug((Supplier<?>) () -> new ParameterizedMessage("failed to execute pipeline [{}] for document [{}/{}/{}]", indexRequest.getPipeline(), indexRequest.index(), indexRequest.type(), indexRequest.id()), exception);
-            bulkRequestModifier.markCurrentItemAsFailed(exception);
+            bulkRequestModifier.markItemAsFailed(indexRequest, exception);
         }, (exception) -> {
             if (exception != null) {
                 logger.error("failed to execute pipeline for a bulk request", exception);
@@ -141,6 +141,7 @@ public final class IngestActionFilter extends AbstractComponent implements Actio
         final List<BulkItemResponse> itemResponses;
 
         int currentSlot = -1;
+        int lastFailedSlot = -1;
         int[] originalSlots;
 
         BulkRequestModifier(BulkRequest bulkRequest) {
@@ -200,14 +201,34 @@ public final class IngestActionFilter extends AbstractComponent implements Actio
         }
 
         void markCurrentItemAsFailed(Exception e) {
-            IndexRequest indexRequest = (IndexRequest) bulkRequest.requests().get(currentSlot);
+            markSlotAsFailed(currentSlot, e);
+        }
+
+        /**
+         * Marks the given request of the bulk as failed. Requests must be marked in the order they appear in the bulk.
+         */
+        void markItemAsFailed(IndexRequest indexRequest, Exception e) {
+            List<ActionRequest<?>> requests = bulkRequest.requests();
+            for (int slot = lastFailedSlot + 1; slot < requests.size(); slot++) {
+                if (requests.get(slot) == indexRequest) {
+                    markSlotAsFailed(slot, e);
+                    return;
+                }
+            }
+            throw new IllegalArgumentException("index request [" + indexRequest + "] is not part of the bulk request or was already " +
+                "marked as failed");
+        }
+
+        private void markSlotAsFailed(int slot, Exception e) {
+            IndexRequest indexRequest = (IndexRequest) bulkRequest.requests().get(slot);
             // We hit a error during preprocessing a request, so we:
             // 1) Remember the request item slot from the bulk, so that we're done processing all requests we know what failed
             // 2) Add a bulk item failure for this request
             // 3) Continue with the next request in the bulk.
-            failedSlots.add(currentSlot);
+            failedSlots.add(slot);
+            lastFailedSlot = slot;
             BulkItemResponse.Failure failure = new BulkItemResponse.Failure(indexRequest.index(), indexRequest.type(), indexRequest.id(), e);
-            itemResponses.add(new BulkItemResponse(currentSlot, indexRequest.opType().lowercase(), failure));
+            itemResponses.add(new BulkItemResponse(slot, indexRequest.opType().lowercase(), failure));
         }
 
     }
@@ -76,6 +76,8 @@ abstract class AbstractSearchAsyncAction<FirstResult extends SearchPhaseResult>
     private volatile AtomicArray<ShardSearchFailure> shardFailures;
     private final Object shardFailuresMutex = new Object();
     protected volatile ScoreDoc[] sortedShardDocs;
+    // whether any shard is searched through an alias with a filter, the filter isn't part of the request
+    protected volatile boolean filteredByAliases;
 
     protected AbstractSearchAsyncAction(Logger logger, SearchTransportService searchTransportService, ClusterService clusterService,
                                         IndexNameExpressionResolver indexNameExpressionResolver,
@@ -107,7 +109,8 @@ abstract class AbstractSearchAsyncAction<FirstResult extends SearchPhaseResult>
         Map<String, Set<String>> routingMap = indexNameExpressionResolver.resolveSearchRouting(clusterState, request.routing(),
             request.indices());
 
-        shardsIts = clusterService.operationRouting().searchShards(clusterState, concreteIndices, routingMap, request.preference());
+        shardsIts = clusterService.operationRouting().searchShards(clusterState, concreteIndices, routingMap, request.preference(),
+            searchTransportService.getResponseCollectorService());
         final int shardCount = shardsIts.size();
         failIfOverShardCountLimit(clusterService, shardCount);
         expectedSuccessfulOps = shardCount;
@@ -160,6 +163,9 @@ abstract class AbstractSearchAsyncAction<FirstResult extends SearchPhaseResult>
             } else {
                 String[] filteringAliases = indexNameExpressionResolver.filteringAliases(clusterState,
                     shard.index().getName(), request.indices());
+                if (filteringAliases != null && filteringAliases.length > 0) {
+                    filteredByAliases = true;
+                }
                 sendExecuteFirstPhase(node, internalSearchRequest(shard, shardsIts.size(), request, filteringAliases,
                     startTime()), new ActionListener<FirstResult>() {
                         @Override
@@ -385,6 +391,14 @@ abstract class AbstractSearchAsyncAction<FirstResult extends SearchPhaseResult>
         if (shardFailures != null) {
             shardFailures.set(shardIndex, null);
         }
+        onFirstPhaseResultProcessed(shardIndex, result);
+    }
+
+    /**
+     * Called once the successful first phase result of the given shard has been stored in {@link #firstResults}. Subclasses can
+     * override this to consume parts of the result before all shards have responded. The default implementation does nothing.
+     */
+    protected void onFirstPhaseResultProcessed(int shardIndex, FirstResult result) {
     }
 
     final void innerMoveToSecondPhase() throws Exception {
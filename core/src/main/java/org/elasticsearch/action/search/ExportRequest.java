@@ -0,0 +1,222 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.IndicesRequest;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import static org.elasticsearch.action.ValidateActions.addValidationError;
+
+/**
+ * A request to export the doc values of the documents that match a query. The first request of an export names the indices,
+ * the query and the fields to export, the next ones only carry the {@link #cursor()} returned by the previous page.
+ */
+public class ExportRequest extends ActionRequest<ExportRequest> implements IndicesRequest.Replaceable {
+
+    public static final int DEFAULT_SIZE = 1000;
+    public static final TimeValue DEFAULT_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+
+    private String[] indices = Strings.EMPTY_ARRAY;
+    private IndicesOptions indicesOptions = SearchRequest.DEFAULT_INDICES_OPTIONS;
+    private String[] types = Strings.EMPTY_ARRAY;
+    @Nullable
+    private String routing;
+    @Nullable
+    private String preference;
+    private QueryBuilder query = QueryBuilders.matchAllQuery();
+    private String[] fields = Strings.EMPTY_ARRAY;
+    private int size = DEFAULT_SIZE;
+    private TimeValue keepAlive = DEFAULT_KEEP_ALIVE;
+    @Nullable
+    private String cursor;
+
+    public ExportRequest() {
+    }
+
+    public ExportRequest(String... indices) {
+        indices(indices);
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        ActionRequestValidationException validationException = null;
+        if (cursor == null && fields.length == 0) {
+            validationException = addValidationError("fields are missing", validationException);
+        }
+        if (size <= 0) {
+            validationException = addValidationError("size must be positive but was [" + size + "]", validationException);
+        }
+        return validationException;
+    }
+
+    @Override
+    public ExportRequest indices(String... indices) {
+        Objects.requireNonNull(indices, "indices must not be null");
+        this.indices = indices;
+        return this;
+    }
+
+    @Override
+    public String[] indices() {
+        return indices;
+    }
+
+    @Override
+    public IndicesOptions indicesOptions() {
+        return indicesOptions;
+    }
+
+    public ExportRequest indicesOptions(IndicesOptions indicesOptions) {
+        this.indicesOptions = Objects.requireNonNull(indicesOptions, "indicesOptions must not be null");
+        return this;
+    }
+
+    /**
+     * The document types to export, all types if empty.
+     */
+    public String[] types() {
+        return types;
+    }
+
+    public ExportRequest types(String... types) {
+        this.types = Objects.requireNonNull(types, "types must not be null");
+        return this;
+    }
+
+    public String routing() {
+        return routing;
+    }
+
+    public ExportRequest routing(String routing) {
+        this.routing = routing;
+        return this;
+    }
+
+    public String preference() {
+        return preference;
+    }
+
+    public ExportRequest preference(String preference) {
+        this.preference = preference;
+        return this;
+    }
+
+    /**
+     * The query that the exported documents match, all documents by default.
+     */
+    public QueryBuilder query() {
+        return query;
+    }
+
+    public ExportRequest query(QueryBuilder query) {
+        this.query = Objects.requireNonNull(query, "query must not be null");
+        return this;
+    }
+
+    /**
+     * The fields whose doc values make up the columns of the exported rows.
+     */
+    public String[] fields() {
+        return fields;
+    }
+
+    public ExportRequest fields(String... fields) {
+        this.fields = Objects.requireNonNull(fields, "fields must not be null");
+        return this;
+    }
+
+    /**
+     * The maximum number of rows that each shard adds to a page, defaults to {@value #DEFAULT_SIZE}.
+     */
+    public int size() {
+        return size;
+    }
+
+    public ExportRequest size(int size) {
+        this.size = size;
+        return this;
+    }
+
+    /**
+     * How long the shards keep the cursor of the export open between two pages.
+     */
+    public TimeValue keepAlive() {
+        return keepAlive;
+    }
+
+    public ExportRequest keepAlive(TimeValue keepAlive) {
+        this.keepAlive = Objects.requireNonNull(keepAlive, "keepAlive must not be null");
+        return this;
+    }
+
+    /**
+     * The cursor returned by the previous page, {@code null} to export the first page.
+     */
+    public String cursor() {
+        return cursor;
+    }
+
+    public ExportRequest cursor(String cursor) {
+        this.cursor = cursor;
+        return this;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        indices = in.readStringArray();
+        indicesOptions = IndicesOptions.readIndicesOptions(in);
+        types = in.readStringArray();
+        routing = in.readOptionalString();
+        preference = in.readOptionalString();
+        query = in.readNamedWriteable(QueryBuilder.class);
+        fields = in.readStringArray();
+        size = in.readInt();
+        keepAlive = new TimeValue(in);
+        cursor = in.readOptionalString();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeStringArray(indices);
+        indicesOptions.writeIndicesOptions(out);
+        out.writeStringArray(types);
+        out.writeOptionalString(routing);
+        out.writeOptionalString(preference);
+        out.writeNamedWriteable(query);
+        out.writeStringArray(fields);
+        out.writeInt(size);
+        keepAlive.writeTo(out);
+        out.writeOptionalString(cursor);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.rest.RestStatus;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.action.search.ShardSearchFailure.readShardSearchFailure;
+
+/**
+ * A page of exported rows. Each row holds one cell per exported field, which is {@code null} if the document has no value for
+ * the field, the value itself if it has a single one and a list of values otherwise.
+ */
+public class ExportResponse extends ActionResponse {
+
+    private String cursor;
+    private String[] fields;
+    private List<Object[]> rows;
+    private int totalShards;
+    private int successfulShards;
+    private ShardSearchFailure[] shardFailures;
+    private long tookInMillis;
+
+    ExportResponse() {
+    }
+
+    public ExportResponse(@Nullable String cursor, String[] fields, List<Object[]> rows, int totalShards, int successfulShards,
+                          ShardSearchFailure[] shardFailures, long tookInMillis) {
+        this.cursor = cursor;
+        this.fields = fields;
+        this.rows = rows;
+        this.totalShards = totalShards;
+        this.successfulShards = successfulShards;
+        this.shardFailures = shardFailures;
+        this.tookInMillis = tookInMillis;
+    }
+
+    /**
+     * The cursor to export the next page with, {@code null} once all shards are exhausted.
+     */
+    @Nullable
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * The exported fields, in the order of the cells of the rows. Only the first page of an export knows them, the next pages
+     * return an empty array.
+     */
+    public String[] getFields() {
+        return fields;
+    }
+
+    public List<Object[]> getRows() {
+        return rows;
+    }
+
+    public int getTotalShards() {
+        return totalShards;
+    }
+
+    public int getSuccessfulShards() {
+        return successfulShards;
+    }
+
+    public int getFailedShards() {
+        return shardFailures.length;
+    }
+
+    public ShardSearchFailure[] getShardFailures() {
+        return shardFailures;
+    }
+
+    public TimeValue getTook() {
+        return new TimeValue(tookInMillis);
+    }
+
+    public RestStatus status() {
+        return RestStatus.status(successfulShards, totalShards, shardFailures);
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        cursor = in.readOptionalString();
+        fields = in.readStringArray();
+        int size = in.readVInt();
+        rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Object[] row = new Object[in.readVInt()];
+            for (int j = 0; j < row.length; j++) {
+                row[j] = in.readGenericValue();
+            }
+            rows.add(row);
+        }
+        totalShards = in.readVInt();
+        successfulShards = in.readVInt();
+        shardFailures = new ShardSearchFailure[in.readVInt()];
+        for (int i = 0; i < shardFailures.length; i++) {
+            shardFailures[i] = readShardSearchFailure(in);
+        }
+        tookInMillis = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeOptionalString(cursor);
+        out.writeStringArray(fields);
+        out.writeVInt(rows.size());
+        for (Object[] row : rows) {
+            out.writeVInt(row.length);
+            for (Object cell : row) {
+                out.writeGenericValue(cell);
+            }
+        }
+        out.writeVInt(totalShards);
+        out.writeVInt(successfulShards);
+        out.writeVInt(shardFailures.length);
+        for (ShardSearchFailure shardFailure : shardFailures) {
+            shardFailure.writeTo(out);
+        }
+        out.writeVLong(tookInMillis);
+    }
+}
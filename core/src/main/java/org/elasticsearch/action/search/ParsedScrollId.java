@@ -28,6 +28,8 @@ class ParsedScrollId {
 
     public static final String QUERY_AND_FETCH_TYPE = "queryAndFetch";
 
+    public static final String EXPORT_TYPE = "export";
+
     private final String source;
 
     private final String type;
@@ -36,12 +36,15 @@ import java.io.IOException;
 
 class SearchQueryAndFetchAsyncAction extends AbstractSearchAsyncAction<QueryFetchSearchResult> {
 
+    private final SearchPhaseController.QueryPhaseResultConsumer resultConsumer;
+
     SearchQueryAndFetchAsyncAction(Logger logger, SearchTransportService searchTransportService,
                                            ClusterService clusterService, IndexNameExpressionResolver indexNameExpressionResolver,
                                            SearchPhaseController searchPhaseController, ThreadPool threadPool,
                                            SearchRequest request, ActionListener<SearchResponse> listener) {
         super(logger, searchTransportService, clusterService, indexNameExpressionResolver, searchPhaseController, threadPool,
                 request, listener);
+        resultConsumer = searchPhaseController.newQueryPhaseResultConsumer(request, firstResults.length());
     }
 
     @Override
@@ -55,6 +58,13 @@ class SearchQueryAndFetchAsyncAction extends AbstractSearchAsyncAction<QueryFetc
         searchTransportService.sendExecuteFetch(node, request, listener);
     }
 
+    @Override
+    protected void onFirstPhaseResultProcessed(int shardIndex, QueryFetchSearchResult result) {
+        if (resultConsumer != null) {
+            resultConsumer.consume(result);
+        }
+    }
+
     @Override
     protected void moveToSecondPhase() throws Exception {
         threadPool.executor(ThreadPool.Names.SEARCH).execute(new ActionRunnable<SearchResponse>(listener) {
@@ -63,7 +73,7 @@ class SearchQueryAndFetchAsyncAction extends AbstractSearchAsyncAction<QueryFetc
                 final boolean isScrollRequest = request.scroll() != null;
                 sortedShardDocs = searchPhaseController.sortDocs(isScrollRequest, firstResults);
                 final InternalSearchResponse internalResponse = searchPhaseController.merge(isScrollRequest, sortedShardDocs, firstResults,
-                    firstResults);
+                    resultConsumer, firstResults);
                 String scrollId = isScrollRequest ? TransportSearchHelper.buildScrollId(request.searchType(), firstResults) : null;
                 listener.onResponse(new SearchResponse(internalResponse, scrollId, expectedSuccessfulOps, successfulOps.get(),
                     buildTookInMillis(), buildShardFailures()));
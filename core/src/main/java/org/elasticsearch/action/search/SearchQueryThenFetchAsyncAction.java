@@ -29,6 +29,7 @@ import org.elasticsearch.action.ActionRunnable;
 import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.action.SearchTransportService;
@@ -47,14 +48,20 @@ class SearchQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<QuerySea
 
     final AtomicArray<FetchSearchResult> fetchResults;
     final AtomicArray<IntArrayList> docIdsToLoad;
+    private final SearchPhaseController.QueryPhaseResultConsumer resultConsumer;
+    private final SearchResponseCache searchResponseCache;
+    // the key to cache the reduced response under, null if it must not be cached
+    private volatile BytesReference responseCacheKey;
 
     SearchQueryThenFetchAsyncAction(Logger logger, SearchTransportService searchService,
                                             ClusterService clusterService, IndexNameExpressionResolver indexNameExpressionResolver,
-                                            SearchPhaseController searchPhaseController, ThreadPool threadPool,
-                                            SearchRequest request, ActionListener<SearchResponse> listener) {
+                                            SearchPhaseController searchPhaseController, SearchResponseCache searchResponseCache,
+                                            ThreadPool threadPool, SearchRequest request, ActionListener<SearchResponse> listener) {
         super(logger, searchService, clusterService, indexNameExpressionResolver, searchPhaseController, threadPool, request, listener);
+        this.searchResponseCache = searchResponseCache;
         fetchResults = new AtomicArray<>(firstResults.length());
         docIdsToLoad = new AtomicArray<>(firstResults.length());
+        resultConsumer = searchPhaseController.newQueryPhaseResultConsumer(request, firstResults.length());
     }
 
     @Override
@@ -68,8 +75,26 @@ class SearchQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<QuerySea
         searchTransportService.sendExecuteQuery(node, request, listener);
     }
 
+    @Override
+    protected void onFirstPhaseResultProcessed(int shardIndex, QuerySearchResultProvider result) {
+        if (resultConsumer != null) {
+            resultConsumer.consume(result);
+        }
+    }
+
     @Override
     protected void moveToSecondPhase() throws Exception {
+        responseCacheKey = searchResponseCache.cacheKey(request, filteredByAliases, firstResults, nodes);
+        if (responseCacheKey != null) {
+            final InternalSearchResponse cachedResponse = searchResponseCache.get(responseCacheKey);
+            if (cachedResponse != null) {
+                listener.onResponse(new SearchResponse(cachedResponse, null, expectedSuccessfulOps, successfulOps.get(),
+                    buildTookInMillis(), buildShardFailures()));
+                // nothing is fetched, so all search contexts are released
+                releaseIrrelevantSearchContexts(firstResults, docIdsToLoad);
+                return;
+            }
+        }
         final boolean isScrollRequest = request.scroll() != null;
         sortedShardDocs = searchPhaseController.sortDocs(isScrollRequest, firstResults);
         searchPhaseController.fillDocIdsToLoad(docIdsToLoad, sortedShardDocs);
@@ -132,7 +157,10 @@ class SearchQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<QuerySea
             public void doRun() throws IOException {
                 final boolean isScrollRequest = request.scroll() != null;
                 final InternalSearchResponse internalResponse = searchPhaseController.merge(isScrollRequest, sortedShardDocs, firstResults,
-                    fetchResults);
+                    resultConsumer, fetchResults);
+                if (responseCacheKey != null && internalResponse.timedOut() == false && successfulOps.get() == expectedSuccessfulOps) {
+                    searchResponseCache.put(responseCacheKey, internalResponse);
+                }
                 String scrollId = isScrollRequest ? TransportSearchHelper.buildScrollId(request.searchType(), firstResults) : null;
                 listener.onResponse(new SearchResponse(internalResponse, scrollId, expectedSuccessfulOps,
                     successfulOps.get(), buildTookInMillis(), buildShardFailures()));
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.search;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.ActionRequestValidationException;
 import org.elasticsearch.action.IndicesRequest;
@@ -66,6 +67,10 @@ public final class SearchRequest extends ActionRequest<SearchRequest> implements
 
     private String[] types = Strings.EMPTY_ARRAY;
 
+    public static final int DEFAULT_BATCHED_REDUCE_SIZE = 512;
+
+    private int batchedReduceSize = DEFAULT_BATCHED_REDUCE_SIZE;
+
     public static final IndicesOptions DEFAULT_INDICES_OPTIONS = IndicesOptions.strictExpandOpenAndForbidClosed();
 
     private IndicesOptions indicesOptions = DEFAULT_INDICES_OPTIONS;
@@ -268,6 +273,28 @@ public final class SearchRequest extends ActionRequest<SearchRequest> implements
         return this.requestCache;
     }
 
+    /**
+     * Sets the number of shard results that should be reduced at once on the coordinating node. This value should be used as a
+     * protection mechanism to reduce the memory overhead per search request if the potential number of shards in the request can
+     * be large.
+     */
+    public SearchRequest setBatchedReduceSize(int batchedReduceSize) {
+        if (batchedReduceSize <= 1) {
+            throw new IllegalArgumentException("batchedReduceSize must be >= 2");
+        }
+        this.batchedReduceSize = batchedReduceSize;
+        return this;
+    }
+
+    /**
+     * Returns the number of shard results that should be reduced at once on the coordinating node. This value should be used as a
+     * protection mechanism to reduce the memory overhead per search request if the potential number of shards in the request can
+     * be large.
+     */
+    public int getBatchedReduceSize() {
+        return batchedReduceSize;
+    }
+
     /**
      * @return true if the request only has suggest
      */
@@ -290,6 +317,9 @@ public final class SearchRequest extends ActionRequest<SearchRequest> implements
         types = in.readStringArray();
         indicesOptions = IndicesOptions.readIndicesOptions(in);
         requestCache = in.readOptionalBoolean();
+        if (in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            batchedReduceSize = in.readVInt();
+        }
     }
 
     @Override
@@ -307,6 +337,9 @@ public final class SearchRequest extends ActionRequest<SearchRequest> implements
         out.writeStringArray(types);
         indicesOptions.writeIndicesOptions(out);
         out.writeOptionalBoolean(requestCache);
+        if (out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            out.writeVInt(batchedReduceSize);
+        }
     }
 
     @Override
@@ -326,13 +359,14 @@ public final class SearchRequest extends ActionRequest<SearchRequest> implements
                 Objects.equals(requestCache, that.requestCache)  &&
                 Objects.equals(scroll, that.scroll) &&
                 Arrays.equals(types, that.types) &&
-                Objects.equals(indicesOptions, that.indicesOptions);
+                Objects.equals(indicesOptions, that.indicesOptions) &&
+                Objects.equals(batchedReduceSize, that.batchedReduceSize);
     }
 
     @Override
     public int hashCode() {
         return Objects.hash(searchType, Arrays.hashCode(indices), routing, preference, source, requestCache,
-                scroll, Arrays.hashCode(types), indicesOptions);
+                scroll, Arrays.hashCode(types), indicesOptions, batchedReduceSize);
     }
 
     @Override
@@ -346,6 +380,7 @@ public final class SearchRequest extends ActionRequest<SearchRequest> implements
                 ", preference='" + preference + '\'' +
                 ", requestCache=" + requestCache +
                 ", scroll=" + scroll +
+                ", batchedReduceSize=" + batchedReduceSize +
                 ", source=" + source + '}';
     }
 }
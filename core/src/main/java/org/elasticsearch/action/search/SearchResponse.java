@@ -106,6 +106,13 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
         return internalResponse.terminatedEarly();
     }
 
+    /**
+     * Returns the number of reduce phases applied to obtain this search response
+     */
+    public int getNumReducePhases() {
+        return internalResponse.getNumReducePhases();
+    }
+
     /**
      * How long the search took.
      */
@@ -177,6 +184,7 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
         static final String TOOK = "took";
         static final String TIMED_OUT = "timed_out";
         static final String TERMINATED_EARLY = "terminated_early";
+        static final String NUM_REDUCE_PHASES = "num_reduce_phases";
     }
 
     @Override
@@ -189,6 +197,9 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
         if (isTerminatedEarly() != null) {
             builder.field(Fields.TERMINATED_EARLY, isTerminatedEarly());
         }
+        if (getNumReducePhases() != 1) {
+            builder.field(Fields.NUM_REDUCE_PHASES, getNumReducePhases());
+        }
         RestActions.buildBroadcastShardsHeader(builder, params, getTotalShards(), getSuccessfulShards(), getFailedShards(), getShardFailures());
         internalResponse.toXContent(builder, params);
         return builder;
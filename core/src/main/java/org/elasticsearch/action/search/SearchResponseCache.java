@@ -0,0 +1,146 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.search.query.QuerySearchResultProvider;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A node level cache of the reduced responses of query_then_fetch searches on the coordinating node. Responses are keyed by
+ * the search request and by the point-in-time readers that the shards executed the query phase on, so a cache hit still
+ * requires the query phase to find out whether any shard changed, but skips the reduce and the fetch phase.
+ * <p>
+ * The cache is disabled unless {@link #SEARCH_RESPONSE_CACHE_SIZE_SETTING} is set. Requests that disable the request
+ * cache, scroll, are profiled, go through filtered aliases, or whose results depend on the current time on any shard are
+ * never cached, and neither are responses that are partial because of shard failures or timeouts.
+ */
+public class SearchResponseCache extends AbstractComponent {
+
+    public static final Setting<ByteSizeValue> SEARCH_RESPONSE_CACHE_SIZE_SETTING =
+        Setting.byteSizeSetting("search.response_cache.size", new ByteSizeValue(0), Property.NodeScope);
+
+    private final NamedWriteableRegistry namedWriteableRegistry;
+    private final Cache<BytesReference, BytesReference> cache;
+
+    @Inject
+    public SearchResponseCache(Settings settings, NamedWriteableRegistry namedWriteableRegistry) {
+        super(settings);
+        this.namedWriteableRegistry = namedWriteableRegistry;
+        final long sizeInBytes = SEARCH_RESPONSE_CACHE_SIZE_SETTING.get(settings).bytes();
+        this.cache = sizeInBytes == 0 ? null : CacheBuilder.<BytesReference, BytesReference>builder()
+            .setMaximumWeight(sizeInBytes).weigher((k, v) -> k.length() + v.length()).build();
+    }
+
+    /**
+     * Returns the key of the reduced response of the given request over the given results of the query phase, or <code>null</code>
+     * if the response must not be cached. Responses of searches through filtered aliases are not cached as the alias filters
+     * are resolved per shard and aren't part of the request, so the same request through another alias would hit them.
+     */
+    @Nullable
+    BytesReference cacheKey(SearchRequest request, boolean filteredByAliases,
+                            AtomicArray<? extends QuerySearchResultProvider> queryResults, DiscoveryNodes nodes) throws IOException {
+        if (cache == null || filteredByAliases || request.requestCache() == Boolean.FALSE || request.scroll() != null
+                || (request.source() != null && request.source().profile())) {
+            return null;
+        }
+        final List<QuerySearchResult> results = new ArrayList<>(queryResults.length());
+        for (AtomicArray.Entry<? extends QuerySearchResultProvider> entry : queryResults.asList()) {
+            final QuerySearchResult result = entry.value.queryResult();
+            if (result.readerId() < 0 || result.searchTimedOut()) {
+                return null;
+            }
+            results.add(result);
+        }
+        if (results.size() != queryResults.length()) {
+            // some shards failed
+            return null;
+        }
+        results.sort(Comparator.comparing(QuerySearchResult::shardTarget));
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.writeByte(request.searchType().id());
+            out.writeStringArray(request.types());
+            out.writeOptionalWriteable(request.source());
+            out.writeVInt(results.size());
+            for (QuerySearchResult result : results) {
+                final DiscoveryNode node = nodes.get(result.shardTarget().nodeId());
+                if (node == null) {
+                    return null;
+                }
+                result.shardTarget().shardId().writeTo(out);
+                // reader ids are only unique within a node's lifetime
+                out.writeString(node.getEphemeralId());
+                out.writeZLong(result.readerId());
+            }
+            return out.bytes();
+        }
+    }
+
+    /**
+     * Returns the cached response for the given key, or <code>null</code> if it isn't cached.
+     */
+    @Nullable
+    InternalSearchResponse get(BytesReference key) throws IOException {
+        final BytesReference cached = cache.get(key);
+        if (cached == null) {
+            return null;
+        }
+        try (StreamInput in = new NamedWriteableAwareStreamInput(cached.streamInput(), namedWriteableRegistry)) {
+            return InternalSearchResponse.readInternalSearchResponse(in);
+        }
+    }
+
+    void put(BytesReference key, InternalSearchResponse response) throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            response.writeTo(out);
+            cache.put(key, out.bytes());
+        }
+    }
+
+    public SearchResponseCacheStats stats() {
+        if (cache == null) {
+            return new SearchResponseCacheStats(0, 0, 0, 0, 0);
+        }
+        final Cache.CacheStats stats = cache.stats();
+        return new SearchResponseCacheStats(cache.count(), cache.weight(), stats.getHits(), stats.getMisses(), stats.getEvictions());
+    }
+}
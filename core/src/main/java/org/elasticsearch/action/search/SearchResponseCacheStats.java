@@ -0,0 +1,112 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+
+/**
+ * Statistics of the {@link SearchResponseCache} of a node.
+ */
+public class SearchResponseCacheStats implements Writeable, ToXContent {
+
+    private final long count;
+    private final long memorySize;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictions;
+
+    public SearchResponseCacheStats(long count, long memorySize, long hitCount, long missCount, long evictions) {
+        this.count = count;
+        this.memorySize = memorySize;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictions = evictions;
+    }
+
+    public SearchResponseCacheStats(StreamInput in) throws IOException {
+        count = in.readVLong();
+        memorySize = in.readVLong();
+        hitCount = in.readVLong();
+        missCount = in.readVLong();
+        evictions = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(count);
+        out.writeVLong(memorySize);
+        out.writeVLong(hitCount);
+        out.writeVLong(missCount);
+        out.writeVLong(evictions);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMemorySizeInBytes() {
+        return memorySize;
+    }
+
+    public ByteSizeValue getMemorySize() {
+        return new ByteSizeValue(memorySize);
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.SEARCH_RESPONSE_CACHE);
+        builder.field(Fields.COUNT, count);
+        builder.byteSizeField(Fields.MEMORY_SIZE_IN_BYTES, Fields.MEMORY_SIZE, memorySize);
+        builder.field(Fields.HIT_COUNT, hitCount);
+        builder.field(Fields.MISS_COUNT, missCount);
+        builder.field(Fields.EVICTIONS, evictions);
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final String SEARCH_RESPONSE_CACHE = "search_response_cache";
+        static final String COUNT = "count";
+        static final String MEMORY_SIZE = "memory_size";
+        static final String MEMORY_SIZE_IN_BYTES = "memory_size_in_bytes";
+        static final String HIT_COUNT = "hit_count";
+        static final String MISS_COUNT = "miss_count";
+        static final String EVICTIONS = "evictions";
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.util.Supplier;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.NoShardAvailableActionException;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.HandledTransportAction;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.block.ClusterBlockLevel;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.GroupShardsIterator;
+import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.common.util.concurrent.CountDown;
+import org.elasticsearch.search.Scroll;
+import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.action.SearchTransportService;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.export.ExportSearchResult;
+import org.elasticsearch.search.internal.InternalScrollSearchRequest;
+import org.elasticsearch.search.internal.ShardSearchTransportRequest;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.elasticsearch.action.search.TransportSearchHelper.buildScrollId;
+import static org.elasticsearch.action.search.TransportSearchHelper.parseScrollId;
+
+/**
+ * Exports a page of rows from every shard that matches the request. The first page opens a scroll context on a copy of each
+ * shard, which keeps the position of the shard in its doc id order between pages. The cursor of the response lists the
+ * contexts of the shards that have rows left, in the format of a scroll id, so that clearing it as a scroll frees them.
+ */
+public class TransportExportAction extends HandledTransportAction<ExportRequest, ExportResponse> {
+
+    private final ClusterService clusterService;
+    private final SearchTransportService searchTransportService;
+
+    @Inject
+    public TransportExportAction(Settings settings, ThreadPool threadPool, TransportService transportService,
+                                 ClusterService clusterService, SearchTransportService searchTransportService,
+                                 ActionFilters actionFilters, IndexNameExpressionResolver indexNameExpressionResolver) {
+        super(settings, ExportAction.NAME, threadPool, transportService, actionFilters, indexNameExpressionResolver,
+                ExportRequest::new);
+        this.clusterService = clusterService;
+        this.searchTransportService = searchTransportService;
+    }
+
+    @Override
+    protected void doExecute(ExportRequest request, ActionListener<ExportResponse> listener) {
+        try {
+            if (request.cursor() == null) {
+                new FirstPageAsyncAction(request, listener).start();
+            } else {
+                new NextPageAsyncAction(request, listener).start();
+            }
+        } catch (Exception e) {
+            listener.onFailure(e);
+        }
+    }
+
+    private abstract class AsyncAction {
+
+        protected final ExportRequest request;
+        protected final ClusterState clusterState = clusterService.state();
+        private final ActionListener<ExportResponse> listener;
+        private final long startTime = System.currentTimeMillis();
+        private AtomicArray<ExportSearchResult> results;
+        private AtomicArray<ShardSearchFailure> shardFailures;
+        private CountDown counter;
+
+        AsyncAction(ExportRequest request, ActionListener<ExportResponse> listener) {
+            this.request = request;
+            this.listener = listener;
+        }
+
+        protected void start(int shardCount) {
+            if (shardCount == 0) {
+                listener.onResponse(new ExportResponse(null, request.fields(), new ArrayList<>(), 0, 0, ShardSearchFailure.EMPTY_ARRAY,
+                        buildTookInMillis()));
+                return;
+            }
+            results = new AtomicArray<>(shardCount);
+            shardFailures = new AtomicArray<>(shardCount);
+            counter = new CountDown(shardCount);
+        }
+
+        protected void onShardResult(int shardIndex, ExportSearchResult result) {
+            results.set(shardIndex, result);
+            if (counter.countDown()) {
+                finish();
+            }
+        }
+
+        protected void onShardFailure(int shardIndex, SearchShardTarget shardTarget, Exception e) {
+            logger.debug((Supplier<?>) () -> new ParameterizedMessage("[{}] failed to export", shardTarget), e);
+            shardFailures.set(shardIndex, new ShardSearchFailure(e, shardTarget));
+            if (counter.countDown()) {
+                finish();
+            }
+        }
+
+        private void finish() {
+            final List<ShardSearchFailure> failureList = new ArrayList<>();
+            for (AtomicArray.Entry<ShardSearchFailure> entry : shardFailures.asList()) {
+                failureList.add(entry.value);
+            }
+            final ShardSearchFailure[] failures = failureList.toArray(new ShardSearchFailure[failureList.size()]);
+            if (results.asList().isEmpty()) {
+                listener.onFailure(new SearchPhaseExecutionException("export", "all shards failed", failures));
+                return;
+            }
+            try {
+                final List<Object[]> rows = new ArrayList<>();
+                final AtomicArray<ExportSearchResult> openShards = new AtomicArray<>(results.length());
+                for (AtomicArray.Entry<ExportSearchResult> entry : results.asList()) {
+                    rows.addAll(entry.value.rows());
+                    if (entry.value.exhausted() == false) {
+                        openShards.set(entry.index, entry.value);
+                    }
+                }
+                final String cursor = openShards.asList().isEmpty() ? null : buildScrollId(ParsedScrollId.EXPORT_TYPE, openShards);
+                listener.onResponse(new ExportResponse(cursor, request.fields(), rows, results.length(), results.asList().size(), failures,
+                        buildTookInMillis()));
+            } catch (Exception e) {
+                listener.onFailure(e);
+            }
+        }
+
+        private long buildTookInMillis() {
+            return Math.max(1, System.currentTimeMillis() - startTime);
+        }
+    }
+
+    private class FirstPageAsyncAction extends AsyncAction {
+
+        private final GroupShardsIterator shardsIts;
+        private final SearchRequest searchRequest;
+
+        FirstPageAsyncAction(ExportRequest request, ActionListener<ExportResponse> listener) {
+            super(request, listener);
+            clusterState.blocks().globalBlockedRaiseException(ClusterBlockLevel.READ);
+            String[] concreteIndices = indexNameExpressionResolver.concreteIndexNames(clusterState, request);
+            for (String index : concreteIndices) {
+                clusterState.blocks().indexBlockedRaiseException(ClusterBlockLevel.READ, index);
+            }
+            Map<String, Set<String>> routingMap = indexNameExpressionResolver.resolveSearchRouting(clusterState, request.routing(),
+                    request.indices());
+            shardsIts = clusterService.operationRouting().searchShards(clusterState, concreteIndices, routingMap,
+                    request.preference(), searchTransportService.getResponseCollectorService());
+
+            // the shards parse the export as a scroll whose doc value fields are the columns of the rows
+            SearchSourceBuilder source = new SearchSourceBuilder().query(request.query()).size(request.size());
+            for (String field : request.fields()) {
+                source.docValueField(field);
+            }
+            searchRequest = new SearchRequest(request.indices()).types(request.types()).indicesOptions(request.indicesOptions())
+                    .routing(request.routing()).preference(request.preference()).scroll(new Scroll(request.keepAlive())).source(source);
+        }
+
+        void start() {
+            start(shardsIts.size());
+            int shardIndex = -1;
+            for (ShardIterator shardIt : shardsIts) {
+                shardIndex++;
+                performExport(shardIndex, shardIt, shardIt.nextOrNull());
+            }
+        }
+
+        private void performExport(int shardIndex, ShardIterator shardIt, ShardRouting shard) {
+            if (shard == null) {
+                onShardFailure(shardIndex, new SearchShardTarget(null, shardIt.shardId()),
+                        new NoShardAvailableActionException(shardIt.shardId()));
+                return;
+            }
+            final DiscoveryNode node = clusterState.nodes().get(shard.currentNodeId());
+            if (node == null) {
+                performExport(shardIndex, shardIt, shardIt.nextOrNull());
+                return;
+            }
+            String[] filteringAliases = indexNameExpressionResolver.filteringAliases(clusterState, shard.index().getName(),
+                    request.indices());
+            ShardSearchTransportRequest shardRequest = new ShardSearchTransportRequest(searchRequest, shard, shardsIts.size(),
+                    filteringAliases, System.currentTimeMillis());
+            searchTransportService.sendExecuteExport(node, shardRequest, new ActionListener<ExportSearchResult>() {
+                @Override
+                public void onResponse(ExportSearchResult result) {
+                    onShardResult(shardIndex, result);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    ShardRouting nextShard = shardIt.nextOrNull();
+                    if (nextShard == null) {
+                        onShardFailure(shardIndex, new SearchShardTarget(node.getId(), shardIt.shardId()), e);
+                    } else {
+                        // no context was opened on the failed copy, so the export can start over on the next one
+                        performExport(shardIndex, shardIt, nextShard);
+                    }
+                }
+            });
+        }
+    }
+
+    private class NextPageAsyncAction extends AsyncAction {
+
+        private final ScrollIdForNode[] contexts;
+
+        NextPageAsyncAction(ExportRequest request, ActionListener<ExportResponse> listener) {
+            super(request, listener);
+            ParsedScrollId cursor = parseScrollId(request.cursor());
+            if (ParsedScrollId.EXPORT_TYPE.equals(cursor.getType()) == false) {
+                throw new IllegalArgumentException("Cursor type [" + cursor.getType() + "] is not an export cursor");
+            }
+            contexts = cursor.getContext();
+        }
+
+        void start() {
+            start(contexts.length);
+            SearchScrollRequest scrollRequest = new SearchScrollRequest(request.cursor()).scroll(request.keepAlive());
+            for (int i = 0; i < contexts.length; i++) {
+                final int shardIndex = i;
+                final ScrollIdForNode target = contexts[i];
+                final DiscoveryNode node = clusterState.nodes().get(target.getNode());
+                if (node == null) {
+                    onShardFailure(shardIndex, null,
+                            new IllegalStateException("node [" + target.getNode() + "] of the export cursor is not available"));
+                    continue;
+                }
+                InternalScrollSearchRequest shardRequest = new InternalScrollSearchRequest(scrollRequest, target.getScrollId());
+                searchTransportService.sendExecuteExport(node, shardRequest, new ActionListener<ExportSearchResult>() {
+                    @Override
+                    public void onResponse(ExportSearchResult result) {
+                        onShardResult(shardIndex, result);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        onShardFailure(shardIndex, null, e);
+                    }
+                });
+            }
+        }
+    }
+}
@@ -51,14 +51,16 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
     private final ClusterService clusterService;
     private final SearchTransportService searchTransportService;
     private final SearchPhaseController searchPhaseController;
+    private final SearchResponseCache searchResponseCache;
 
     @Inject
     public TransportSearchAction(Settings settings, ThreadPool threadPool, SearchPhaseController searchPhaseController,
-                                 TransportService transportService, SearchTransportService searchTransportService,
-                                 ClusterService clusterService, ActionFilters actionFilters, IndexNameExpressionResolver
-                                             indexNameExpressionResolver) {
+                                 SearchResponseCache searchResponseCache, TransportService transportService,
+                                 SearchTransportService searchTransportService, ClusterService clusterService,
+                                 ActionFilters actionFilters, IndexNameExpressionResolver indexNameExpressionResolver) {
         super(settings, SearchAction.NAME, threadPool, transportService, actionFilters, indexNameExpressionResolver, SearchRequest::new);
         this.searchPhaseController = searchPhaseController;
+        this.searchResponseCache = searchResponseCache;
         this.searchTransportService = searchTransportService;
         this.clusterService = clusterService;
     }
@@ -105,7 +107,7 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
                 break;
             case QUERY_THEN_FETCH:
                 searchAsyncAction = new SearchQueryThenFetchAsyncAction(logger, searchTransportService, clusterService,
-                        indexNameExpressionResolver, searchPhaseController, threadPool, searchRequest, listener);
+                        indexNameExpressionResolver, searchPhaseController, searchResponseCache, threadPool, searchRequest, listener);
                 break;
             case DFS_QUERY_AND_FETCH:
                 searchAsyncAction = new SearchDfsQueryAndFetchAsyncAction(logger, searchTransportService, clusterService,
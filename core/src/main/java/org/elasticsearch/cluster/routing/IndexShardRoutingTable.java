@@ -28,16 +28,19 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.OptionalDouble;
 import java.util.Set;
 
 import static java.util.Collections.emptyMap;
@@ -245,6 +248,48 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
         return new PlainShardIterator(shardId, ordered);
     }
 
+    /**
+     * Returns an iterator over active and initializing shards, ordered by the rank of their node as computed by the given
+     * {@link ResponseCollectorService}, the best ranked first. Shards on nodes that were not ranked yet come first so that
+     * their node gets ranked, ties are broken randomly, and initializing shards are the last to iterate through.
+     */
+    public ShardIterator activeInitializingShardsRankedIt(ResponseCollectorService collector) {
+        final int seed = shuffler.nextSeed();
+        if (allInitializingShards.isEmpty()) {
+            return new PlainShardIterator(shardId, rankShards(shuffler.shuffle(activeShards, seed), collector));
+        }
+        ArrayList<ShardRouting> ordered = new ArrayList<>(activeShards.size() + allInitializingShards.size());
+        ordered.addAll(rankShards(shuffler.shuffle(activeShards, seed), collector));
+        ordered.addAll(rankShards(allInitializingShards, collector));
+        return new PlainShardIterator(shardId, ordered);
+    }
+
+    private static List<ShardRouting> rankShards(List<ShardRouting> shards, ResponseCollectorService collector) {
+        if (shards.size() <= 1) {
+            return shards;
+        }
+        final Map<String, OptionalDouble> ranks = new HashMap<>(shards.size());
+        for (ShardRouting shard : shards) {
+            ranks.computeIfAbsent(shard.currentNodeId(), collector::rank);
+        }
+        final List<ShardRouting> ranked = new ArrayList<>(shards);
+        // a stable sort, so that shards whose node has the same rank keep their random order
+        ranked.sort((s1, s2) -> {
+            final OptionalDouble rank1 = ranks.get(s1.currentNodeId());
+            final OptionalDouble rank2 = ranks.get(s2.currentNodeId());
+            if (rank1.isPresent() && rank2.isPresent()) {
+                return Double.compare(rank1.getAsDouble(), rank2.getAsDouble());
+            }
+            return Boolean.compare(rank1.isPresent(), rank2.isPresent());
+        });
+        // the nodes that were not picked would otherwise never get a chance to show that they became faster
+        final String bestNodeId = ranked.get(0).currentNodeId();
+        for (int i = 1; i < ranked.size(); ++i) {
+            collector.adjustTowards(ranked.get(i).currentNodeId(), bestNodeId);
+        }
+        return ranked;
+    }
+
     /**
      * Returns true if no primaries are active or initializing for this shard
      */
@@ -19,9 +19,12 @@
 
 package org.elasticsearch.cluster.routing.allocation.allocator;
 
+import com.carrotsearch.hppc.BitMixer;
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.IntroSorter;
+import org.elasticsearch.cluster.ClusterInfo;
+import org.elasticsearch.cluster.DiskUsage;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
@@ -35,6 +38,8 @@ import org.elasticsearch.cluster.routing.allocation.decider.AllocationDeciders;
 import org.elasticsearch.cluster.routing.allocation.decider.Decision;
 import org.elasticsearch.cluster.routing.allocation.decider.Decision.Type;
 import org.elasticsearch.cluster.routing.allocation.decider.DiskThresholdDecider;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
@@ -44,12 +49,14 @@ import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.gateway.PriorityComparator;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -65,6 +72,8 @@ import static org.elasticsearch.cluster.routing.ShardRoutingState.RELOCATING;
  * of {@link org.elasticsearch.cluster.routing.ShardRouting}s per index allocated on a specific node</li>
  * <li><code>cluster.routing.allocation.balance.threshold</code> - A <b>threshold</b> to set the minimal optimization
  * value of operations that should be performed</li>
+ * <li><code>cluster.routing.allocation.balance.incremental</code> - Whether to only <b>rebalance</b> the nodes whose
+ * shards changed since the last allocation, which assumes that the last allocation left the cluster balanced</li>
  * </ul>
  * <p>
  * These parameters are combined in a {@link WeightFunction} that allows calculation of node weights which
@@ -79,9 +88,14 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
     public static final Setting<Float> THRESHOLD_SETTING =
         Setting.floatSetting("cluster.routing.allocation.balance.threshold", 1.0f, 0.0f,
             Property.Dynamic, Property.NodeScope);
+    public static final Setting<Boolean> INCREMENTAL_SETTING =
+        Setting.boolSetting("cluster.routing.allocation.balance.incremental", false, Property.Dynamic, Property.NodeScope);
 
     private volatile WeightFunction weightFunction;
     private volatile float threshold;
+    private volatile boolean incremental;
+    // the model the last allocation left behind, only kept when balancing incrementally
+    private volatile BalancedState lastBalancedState;
 
     public BalancedShardsAllocator(Settings settings) {
         this(settings, new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
@@ -92,8 +106,10 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
         super(settings);
         setWeightFunction(INDEX_BALANCE_FACTOR_SETTING.get(settings), SHARD_BALANCE_FACTOR_SETTING.get(settings));
         setThreshold(THRESHOLD_SETTING.get(settings));
+        setIncremental(INCREMENTAL_SETTING.get(settings));
         clusterSettings.addSettingsUpdateConsumer(INDEX_BALANCE_FACTOR_SETTING, SHARD_BALANCE_FACTOR_SETTING, this::setWeightFunction);
         clusterSettings.addSettingsUpdateConsumer(THRESHOLD_SETTING, this::setThreshold);
+        clusterSettings.addSettingsUpdateConsumer(INCREMENTAL_SETTING, this::setIncremental);
     }
 
     private void setWeightFunction(float indexBalance, float shardBalanceFactor) {
@@ -104,6 +120,11 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
         this.threshold = threshold;
     }
 
+    private void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        this.lastBalancedState = null;
+    }
+
     @Override
     public Map<DiscoveryNode, Float> weighShard(RoutingAllocation allocation, ShardRouting shard) {
         final Balancer balancer = new Balancer(logger, allocation, weightFunction, threshold);
@@ -116,10 +137,19 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
             /* with no nodes this is pointless */
             return;
         }
-        final Balancer balancer = new Balancer(logger, allocation, weightFunction, threshold);
+        final boolean incremental = this.incremental;
+        final Balancer balancer = new Balancer(logger, allocation, weightFunction, threshold, incremental ? lastBalancedState : null);
         balancer.allocateUnassigned();
         balancer.moveShards();
         balancer.balance();
+        lastBalancedState = incremental ? balancer.balancedState() : null;
+    }
+
+    /**
+     * Returns whether only the nodes whose shards changed since the last allocation are rebalanced
+     */
+    public boolean isIncremental() {
+        return incremental;
     }
 
     /**
@@ -218,14 +248,29 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
         private final float threshold;
         private final MetaData metaData;
         private final float avgShardsPerNode;
+        private final BalancedState previousState;
+        // whether balancing ran over all indices, only then the next allocation can balance incrementally
+        private boolean balanced = false;
+        // the nodes whose shards changed since the previous allocation, null unless balancing incrementally
+        private List<ModelNode> affectedNodes;
 
         public Balancer(Logger logger, RoutingAllocation allocation, WeightFunction weight, float threshold) {
+            this(logger, allocation, weight, threshold, null);
+        }
+
+        /**
+         * Creates a balancer that only rebalances the nodes whose shards changed since the given state of a previous
+         * allocation, as long as nothing else that affects the balance changed in the meantime.
+         */
+        public Balancer(Logger logger, RoutingAllocation allocation, WeightFunction weight, float threshold,
+                        @Nullable BalancedState previousState) {
             this.logger = logger;
             this.allocation = allocation;
             this.weight = weight;
             this.threshold = threshold;
             this.routingNodes = allocation.routingNodes();
             this.metaData = allocation.metaData();
+            this.previousState = previousState;
             avgShardsPerNode = ((float) metaData.getTotalNumberOfShards()) / routingNodes.size();
             buildModelFromAssigned();
         }
@@ -300,7 +345,54 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
                 logger.trace("skipping rebalance as single node only");
                 return;
             }
-            balanceByWeights();
+            if (canBalanceIncrementally()) {
+                balanceIncrementally();
+            } else {
+                balanceByWeights();
+            }
+            balanced = true;
+        }
+
+        /**
+         * Returns the state of the model that the next allocation can balance incrementally against
+         */
+        public BalancedState balancedState() {
+            final Map<DiscoveryNode, Long> nodeFingerprints = new HashMap<>(nodes.size());
+            for (ModelNode node : nodes.values()) {
+                nodeFingerprints.put(node.getRoutingNode().node(), node.fingerprint());
+            }
+            return new BalancedState(weight, threshold, balanced, nodeFingerprints, metaData, allocation.clusterInfo());
+        }
+
+        /**
+         * Balancing incrementally requires that the previous allocation left the cluster balanced and that nothing but the
+         * shards on the nodes changed since, as the deciders may otherwise allow moves that were not possible before.
+         */
+        private boolean canBalanceIncrementally() {
+            if (previousState == null || previousState.balanced == false) {
+                return false;
+            }
+            if (previousState.weight != weight || previousState.threshold != threshold) {
+                return false;
+            }
+            if (previousState.persistentSettings.equals(metaData.persistentSettings()) == false
+                || previousState.transientSettings.equals(metaData.transientSettings()) == false) {
+                return false;
+            }
+            final ClusterInfo clusterInfo = allocation.clusterInfo();
+            if (previousState.leastAvailableDiskUsages != clusterInfo.getNodeLeastAvailableDiskUsages()
+                || previousState.mostAvailableDiskUsages != clusterInfo.getNodeMostAvailableDiskUsages()) {
+                return false;
+            }
+            if (previousState.nodeFingerprints.size() != nodes.size()) {
+                return false;
+            }
+            for (ModelNode node : nodes.values()) {
+                if (previousState.nodeFingerprints.containsKey(node.getRoutingNode().node()) == false) {
+                    return false;
+                }
+            }
+            return true;
         }
 
         public Map<DiscoveryNode, Float> weighShard(ShardRouting shard) {
@@ -339,98 +431,182 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
          */
         private void balanceByWeights() {
             final NodeSorter sorter = newNodeSorter();
+            for (String index : buildWeightOrderedIndices(sorter)) {
+                balanceIndex(sorter, index);
+            }
+        }
+
+        /**
+         * Balances the shards of the given index over the nodes of the given sorter, see {@link #balanceByWeights()}
+         */
+        private void balanceIndex(NodeSorter sorter, String index) {
             final AllocationDeciders deciders = allocation.deciders();
             final ModelNode[] modelNodes = sorter.modelNodes;
             final float[] weights = sorter.weights;
-            for (String index : buildWeightOrderedIndices(sorter)) {
-                IndexMetaData indexMetaData = metaData.index(index);
-
-                // find nodes that have a shard of this index or where shards of this index are allowed to stay
-                // move these nodes to the front of modelNodes so that we can only balance based on these nodes
-                int relevantNodes = 0;
-                for (int i = 0; i < modelNodes.length; i++) {
-                    ModelNode modelNode = modelNodes[i];
-                    if (modelNode.getIndex(index) != null
-                        || deciders.canAllocate(indexMetaData, modelNode.getRoutingNode(), allocation).type() != Type.NO) {
-                        // swap nodes at position i and relevantNodes
-                        modelNodes[i] = modelNodes[relevantNodes];
-                        modelNodes[relevantNodes] = modelNode;
-                        relevantNodes++;
-                    }
-                }
+            IndexMetaData indexMetaData = metaData.index(index);
 
-                if (relevantNodes < 2) {
-                    continue;
+            // find nodes that have a shard of this index or where shards of this index are allowed to stay
+            // move these nodes to the front of modelNodes so that we can only balance based on these nodes
+            int relevantNodes = 0;
+            for (int i = 0; i < modelNodes.length; i++) {
+                ModelNode modelNode = modelNodes[i];
+                if (modelNode.getIndex(index) != null
+                    || deciders.canAllocate(indexMetaData, modelNode.getRoutingNode(), allocation).type() != Type.NO) {
+                    // swap nodes at position i and relevantNodes
+                    modelNodes[i] = modelNodes[relevantNodes];
+                    modelNodes[relevantNodes] = modelNode;
+                    relevantNodes++;
                 }
+            }
 
-                sorter.reset(index, 0, relevantNodes);
-                int lowIdx = 0;
-                int highIdx = relevantNodes - 1;
-                while (true) {
-                    final ModelNode minNode = modelNodes[lowIdx];
-                    final ModelNode maxNode = modelNodes[highIdx];
-                    advance_range:
-                    if (maxNode.numShards(index) > 0) {
-                        final float delta = absDelta(weights[lowIdx], weights[highIdx]);
-                        if (lessThan(delta, threshold)) {
-                            if (lowIdx > 0 && highIdx-1 > 0 // is there a chance for a higher delta?
-                                && (absDelta(weights[0], weights[highIdx-1]) > threshold) // check if we need to break at all
-                                ) {
-                                /* This is a special case if allocations from the "heaviest" to the "lighter" nodes is not possible
-                                 * due to some allocation decider restrictions like zone awareness. if one zone has for instance
-                                 * less nodes than another zone. so one zone is horribly overloaded from a balanced perspective but we
-                                 * can't move to the "lighter" shards since otherwise the zone would go over capacity.
-                                 *
-                                 * This break jumps straight to the condition below were we start moving from the high index towards
-                                 * the low index to shrink the window we are considering for balance from the other direction.
-                                 * (check shrinking the window from MAX to MIN)
-                                 * See #3580
-                                 */
-                                break advance_range;
-                            }
-                            if (logger.isTraceEnabled()) {
-                                logger.trace("Stop balancing index [{}]  min_node [{}] weight: [{}]  max_node [{}] weight: [{}]  delta: [{}]",
-                                        index, maxNode.getNodeId(), weights[highIdx], minNode.getNodeId(), weights[lowIdx], delta);
-                            }
-                            break;
+            if (relevantNodes < 2) {
+                return;
+            }
+
+            sorter.reset(index, 0, relevantNodes);
+            int lowIdx = 0;
+            int highIdx = relevantNodes - 1;
+            while (true) {
+                final ModelNode minNode = modelNodes[lowIdx];
+                final ModelNode maxNode = modelNodes[highIdx];
+                advance_range:
+                if (maxNode.numShards(index) > 0) {
+                    final float delta = absDelta(weights[lowIdx], weights[highIdx]);
+                    if (lessThan(delta, threshold)) {
+                        if (lowIdx > 0 && highIdx-1 > 0 // is there a chance for a higher delta?
+                            && (absDelta(weights[0], weights[highIdx-1]) > threshold) // check if we need to break at all
+                            ) {
+                            /* This is a special case if allocations from the "heaviest" to the "lighter" nodes is not possible
+                             * due to some allocation decider restrictions like zone awareness. if one zone has for instance
+                             * less nodes than another zone. so one zone is horribly overloaded from a balanced perspective but we
+                             * can't move to the "lighter" shards since otherwise the zone would go over capacity.
+                             *
+                             * This break jumps straight to the condition below were we start moving from the high index towards
+                             * the low index to shrink the window we are considering for balance from the other direction.
+                             * (check shrinking the window from MAX to MIN)
+                             * See #3580
+                             */
+                            break advance_range;
                         }
                         if (logger.isTraceEnabled()) {
-                            logger.trace("Balancing from node [{}] weight: [{}] to node [{}] weight: [{}]  delta: [{}]",
-                                    maxNode.getNodeId(), weights[highIdx], minNode.getNodeId(), weights[lowIdx], delta);
-                        }
-                        /* pass the delta to the replication function to prevent relocations that only swap the weights of the two nodes.
-                         * a relocation must bring us closer to the balance if we only achieve the same delta the relocation is useless */
-                        if (tryRelocateShard(minNode, maxNode, index, delta)) {
-                            /*
-                             * TODO we could be a bit smarter here, we don't need to fully sort necessarily
-                             * we could just find the place to insert linearly but the win might be minor
-                             * compared to the added complexity
-                             */
-                            weights[lowIdx] = sorter.weight(modelNodes[lowIdx]);
-                            weights[highIdx] = sorter.weight(modelNodes[highIdx]);
-                            sorter.sort(0, relevantNodes);
-                            lowIdx = 0;
-                            highIdx = relevantNodes - 1;
-                            continue;
+                            logger.trace("Stop balancing index [{}]  min_node [{}] weight: [{}]  max_node [{}] weight: [{}]  delta: [{}]",
+                                    index, maxNode.getNodeId(), weights[highIdx], minNode.getNodeId(), weights[lowIdx], delta);
                         }
+                        break;
                     }
-                    if (lowIdx < highIdx - 1) {
-                        /* Shrinking the window from MIN to MAX
-                         * we can't move from any shard from the min node lets move on to the next node
-                         * and see if the threshold still holds. We either don't have any shard of this
-                         * index on this node of allocation deciders prevent any relocation.*/
-                        lowIdx++;
-                    } else if (lowIdx > 0) {
-                        /* Shrinking the window from MAX to MIN
-                         * now we go max to min since obviously we can't move anything to the max node
-                         * lets pick the next highest */
+                    if (logger.isTraceEnabled()) {
+                        logger.trace("Balancing from node [{}] weight: [{}] to node [{}] weight: [{}]  delta: [{}]",
+                                maxNode.getNodeId(), weights[highIdx], minNode.getNodeId(), weights[lowIdx], delta);
+                    }
+                    /* pass the delta to the replication function to prevent relocations that only swap the weights of the two nodes.
+                     * a relocation must bring us closer to the balance if we only achieve the same delta the relocation is useless */
+                    if (tryRelocateShard(minNode, maxNode, index, delta)) {
+                        /*
+                         * TODO we could be a bit smarter here, we don't need to fully sort necessarily
+                         * we could just find the place to insert linearly but the win might be minor
+                         * compared to the added complexity
+                         */
+                        weights[lowIdx] = sorter.weight(modelNodes[lowIdx]);
+                        weights[highIdx] = sorter.weight(modelNodes[highIdx]);
+                        sorter.sort(0, relevantNodes);
                         lowIdx = 0;
-                        highIdx--;
-                    } else {
-                        /* we are done here, we either can't relocate anymore or we are balanced */
-                        break;
+                        highIdx = relevantNodes - 1;
+                        continue;
                     }
                 }
+                if (lowIdx < highIdx - 1) {
+                    /* Shrinking the window from MIN to MAX
+                     * we can't move from any shard from the min node lets move on to the next node
+                     * and see if the threshold still holds. We either don't have any shard of this
+                     * index on this node of allocation deciders prevent any relocation.*/
+                    lowIdx++;
+                } else if (lowIdx > 0) {
+                    /* Shrinking the window from MAX to MIN
+                     * now we go max to min since obviously we can't move anything to the max node
+                     * lets pick the next highest */
+                    lowIdx = 0;
+                    highIdx--;
+                } else {
+                    /* we are done here, we either can't relocate anymore or we are balanced */
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Balances the nodes like {@link #balanceByWeights()}, assuming that the previous allocation left the cluster
+         * balanced. Indices whose metadata changed are balanced over all nodes. Any other index can only have become
+         * unbalanced through the nodes whose shards changed since, so it is only balanced over these nodes and the nodes
+         * that hold a shard of the index.
+         */
+        private void balanceIncrementally() {
+            affectedNodes = new ArrayList<>();
+            final Map<String, List<ModelNode>> nodesByIndex = new HashMap<>();
+            for (ModelNode node : nodes.values()) {
+                final Long fingerprint = previousState.nodeFingerprints.get(node.getRoutingNode().node());
+                if (fingerprint == null || fingerprint != node.fingerprint()) {
+                    markAffected(node);
+                }
+                for (ModelIndex index : node) {
+                    nodesByIndex.computeIfAbsent(index.getIndexId(), k -> new ArrayList<>()).add(node);
+                }
+            }
+            final String[] allIndices = allocation.routingTable().indicesRouting().keys().toArray(String.class);
+            final Set<String> changedIndices = new HashSet<>();
+            for (String index : allIndices) {
+                if (metaData.index(index) != previousState.indices.get(index)) {
+                    changedIndices.add(index);
+                }
+            }
+            if (affectedNodes.isEmpty() && changedIndices.isEmpty()) {
+                logger.trace("skipping rebalance as nothing changed since the cluster was last balanced");
+                return;
+            }
+            logger.trace("balancing incrementally, [{}] affected nodes, [{}] changed indices", affectedNodes.size(), changedIndices.size());
+
+            // without affected nodes, only the changed indices can have become unbalanced
+            final String[] indices = affectedNodes.isEmpty() ? changedIndices.toArray(new String[changedIndices.size()]) : allIndices;
+            final float[] deltas = new float[indices.length];
+            for (int i = 0; i < indices.length; i++) {
+                // only the delta between the lightest and the heaviest node is needed here, no need to sort the nodes
+                float minWeight = Float.POSITIVE_INFINITY;
+                float maxWeight = Float.NEGATIVE_INFINITY;
+                for (ModelNode node : candidateNodes(indices[i], changedIndices, nodesByIndex)) {
+                    final float nodeWeight = weight.weight(this, node, indices[i]);
+                    minWeight = Math.min(minWeight, nodeWeight);
+                    maxWeight = Math.max(maxWeight, nodeWeight);
+                }
+                deltas[i] = maxWeight - minWeight;
+            }
+            sortByDeltaDescending(indices, deltas);
+            for (String index : indices) {
+                // nodes may have been affected by balancing the previous indices, so the candidates are collected again
+                balanceIndex(new NodeSorter(candidateNodes(index, changedIndices, nodesByIndex), weight, this), index);
+            }
+        }
+
+        /**
+         * Returns the nodes that the shards of the given index may have to be balanced across
+         */
+        private ModelNode[] candidateNodes(String index, Set<String> changedIndices, Map<String, List<ModelNode>> nodesByIndex) {
+            if (changedIndices.contains(index)) {
+                return nodesArray();
+            }
+            final List<ModelNode> holders = nodesByIndex.getOrDefault(index, Collections.emptyList());
+            final List<ModelNode> candidates = new ArrayList<>(holders.size() + affectedNodes.size());
+            candidates.addAll(affectedNodes);
+            for (ModelNode node : holders) {
+                if (node.affected == false) {
+                    candidates.add(node);
+                }
+            }
+            return candidates.toArray(new ModelNode[candidates.size()]);
+        }
+
+        private void markAffected(ModelNode node) {
+            if (affectedNodes != null && node.affected == false) {
+                node.affected = true;
+                affectedNodes.add(node);
             }
         }
 
@@ -454,6 +630,11 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
                 sorter.reset(indices[i]);
                 deltas[i] = sorter.delta();
             }
+            sortByDeltaDescending(indices, deltas);
+            return indices;
+        }
+
+        private static void sortByDeltaDescending(String[] indices, float[] deltas) {
             new IntroSorter() {
 
                 float pivotWeight;
@@ -483,8 +664,6 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
                     return Float.compare(deltas[j], pivotWeight);
                 }
             }.sort(0, deltas.length);
-
-            return indices;
         }
 
         /**
@@ -739,6 +918,8 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
 
                 if (candidate != null) {
                     /* allocate on the model even if not throttled */
+                    markAffected(minNode);
+                    markAffected(maxNode);
                     maxNode.removeShard(candidate);
                     long shardSize = allocation.clusterInfo().getShardSize(candidate, ShardRouting.UNAVAILABLE_EXPECTED_SHARD_SIZE);
 
@@ -849,7 +1030,10 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
     static class ModelNode implements Iterable<ModelIndex> {
         private final Map<String, ModelIndex> indices = new HashMap<>();
         private int numShards = 0;
+        private long fingerprint = 0;
         private final RoutingNode routingNode;
+        // whether the shards of this node changed since the previous allocation, only used when balancing incrementally
+        boolean affected = false;
 
         public ModelNode(RoutingNode routingNode) {
             this.routingNode = routingNode;
@@ -876,6 +1060,13 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
             return index == null ? 0 : index.numShards();
         }
 
+        /**
+         * Returns a hash of the shards on this node that only depends on their ids, primary flags and states
+         */
+        public long fingerprint() {
+            return fingerprint;
+        }
+
         public int highestPrimary(String index) {
             ModelIndex idx = indices.get(index);
             if (idx != null) {
@@ -892,6 +1083,7 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
             }
             index.addShard(shard);
             numShards++;
+            fingerprint += fingerprint(shard);
         }
 
         public void removeShard(ShardRouting shard) {
@@ -903,6 +1095,12 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
                 }
             }
             numShards--;
+            fingerprint -= fingerprint(shard);
+        }
+
+        private static long fingerprint(ShardRouting shard) {
+            final long hash = 31L * (31L * shard.shardId().hashCode() + (shard.primary() ? 1 : 0)) + shard.state().ordinal();
+            return BitMixer.mix64(hash);
         }
 
         @Override
@@ -924,6 +1122,35 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
 
     }
 
+    /**
+     * What an allocation left the balancer model with: the shards per node, captured as a fingerprint per node, and
+     * everything else that decides whether the next allocation can balance incrementally against it.
+     */
+    public static final class BalancedState {
+        private final WeightFunction weight;
+        private final float threshold;
+        private final boolean balanced;
+        private final Map<DiscoveryNode, Long> nodeFingerprints;
+        private final ImmutableOpenMap<String, IndexMetaData> indices;
+        private final Settings persistentSettings;
+        private final Settings transientSettings;
+        private final ImmutableOpenMap<String, DiskUsage> leastAvailableDiskUsages;
+        private final ImmutableOpenMap<String, DiskUsage> mostAvailableDiskUsages;
+
+        BalancedState(WeightFunction weight, float threshold, boolean balanced, Map<DiscoveryNode, Long> nodeFingerprints,
+                      MetaData metaData, ClusterInfo clusterInfo) {
+            this.weight = weight;
+            this.threshold = threshold;
+            this.balanced = balanced;
+            this.nodeFingerprints = nodeFingerprints;
+            this.indices = metaData.indices();
+            this.persistentSettings = metaData.persistentSettings();
+            this.transientSettings = metaData.transientSettings();
+            this.leastAvailableDiskUsages = clusterInfo.getNodeLeastAvailableDiskUsages();
+            this.mostAvailableDiskUsages = clusterInfo.getNodeMostAvailableDiskUsages();
+        }
+    }
+
     static final class ModelIndex implements Iterable<ShardRouting> {
         private final String id;
         private final Set<ShardRouting> shards = new HashSet<>(4); // expect few shards of same index to be allocated on same node
@@ -25,15 +25,19 @@ import org.elasticsearch.common.util.concurrent.ReleasableLock;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.ToLongBiFunction;
 
 /**
@@ -49,18 +53,20 @@ import java.util.function.ToLongBiFunction;
  * without contention, and the segments gives us write throughput without impacting readers (so readers are blocked only
  * if they are reading a segment that a writer is writing to).
  * <p>
- * The LRU functionality is backed by a single doubly-linked list chaining the entries in order of insertion. This
- * LRU list is protected by a lock that serializes all writes to it. There are opportunities for improvements
- * here if write throughput is a concern.
- * <ol>
- * <li>LRU list mutations could be inserted into a blocking queue that a single thread is reading from
- * and applying to the LRU list.</li>
- * <li>Promotions could be deferred for entries that were "recently" promoted.</li>
- * <li>Locks on the list could be taken per node being modified instead of globally.</li>
- * </ol>
+ * The LRU functionality is backed by a single doubly-linked list chaining the entries in order of access. This
+ * LRU list is protected by a lock that serializes all writes to it. Cache hits do not take this lock: they record the
+ * access in a striped, lossy read buffer that is drained into the LRU list by the next writer, or by the reader that
+ * fills a buffer if the lock happens to be free. Under heavy contention some promotions may therefore be dropped,
+ * which only affects the eviction order and never the contents of the cache.
+ * <p>
+ * By default entries are evicted in LRU order. A cache with a maximum weight can instead use the
+ * {@link EvictionPolicy#TINY_LFU} policy, which admits new entries into a small LRU window and only moves an entry
+ * overflowing that window into the main LRU list if its estimated access frequency (tracked by a
+ * {@link FrequencySketch}) is higher than the one of the entry that would have to be evicted to make room for it. This
+ * keeps frequently accessed entries cached when the cache is polluted by a scan of entries that are accessed only once.
  * <p>
  * Evictions only occur after a mutation to the cache (meaning an entry promotion, a cache insertion, or a manual
- * invalidation) or an explicit call to {@link #refresh()}.
+ * invalidation), a drain of the read buffers or an explicit call to {@link #refresh()}.
  *
  * @param <K> The type of the keys
  * @param <V> The type of the values
@@ -94,6 +100,12 @@ public class Cache<K, V> {
     private RemovalListener<K, V> removalListener = notification -> {
     };
 
+    // the estimated access frequencies of the keys, only set if the TinyLFU eviction policy is used with a maximum weight
+    private FrequencySketch sketch;
+
+    // the maximum weight of the admission window of the TinyLFU eviction policy
+    private long maximumWindowWeight;
+
     // use CacheBuilder to construct
     Cache() {
     }
@@ -121,6 +133,18 @@ public class Cache<K, V> {
         this.maximumWeight = maximumWeight;
     }
 
+    void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+        Objects.requireNonNull(evictionPolicy);
+        // without a maximum weight nothing is ever evicted for size, so there is nothing to admit entries against
+        if (evictionPolicy == EvictionPolicy.TINY_LFU && maximumWeight != -1) {
+            this.sketch = new FrequencySketch();
+            this.maximumWindowWeight = Math.max(1, maximumWeight / 100);
+        } else {
+            this.sketch = null;
+            this.maximumWindowWeight = 0;
+        }
+    }
+
     void setWeigher(ToLongBiFunction<K, V> weigher) {
         Objects.requireNonNull(weigher);
         this.weigher = weigher;
@@ -142,6 +166,29 @@ public class Cache<K, V> {
         return entriesExpireAfterAccess || entriesExpireAfterWrite ? System.nanoTime() : 0;
     }
 
+    /**
+     * The policy used to choose the entries to evict once the cache exceeds its maximum weight.
+     */
+    public enum EvictionPolicy {
+        /**
+         * Evict the least recently used entry.
+         */
+        LRU,
+        /**
+         * Admit new entries into a small LRU window and only retain an entry leaving that window if it is estimated to
+         * be accessed more frequently than the least recently used entry of the main LRU list.
+         */
+        TINY_LFU;
+
+        public static EvictionPolicy parse(String policy) {
+            try {
+                return EvictionPolicy.valueOf(policy.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("unknown eviction policy [" + policy + "]");
+            }
+        }
+    }
+
     // the state of an entry in the LRU list
     enum State {
         NEW, EXISTING, DELETED
@@ -155,6 +202,8 @@ public class Cache<K, V> {
         Entry<K, V> before;
         Entry<K, V> after;
         State state = State.NEW;
+        // true if the entry is in the admission window rather than in the main LRU list
+        boolean inWindow;
 
         public Entry(K key, V value, long writeTime) {
             this.key = key;
@@ -276,6 +325,26 @@ public class Cache<K, V> {
             return entry;
         }
 
+        /**
+         * remove an entry from the segment iff it is still the entry the key is mapped to
+         *
+         * @param key   the key of the entry to remove from the cache
+         * @param entry the entry to remove from the cache
+         */
+        void remove(K key, Entry<K, V> entry) {
+            boolean removed = false;
+            try (ReleasableLock ignored = writeLock.acquire()) {
+                CompletableFuture<Entry<K, V>> future = map.get(key);
+                if (future != null && future.isDone() && future.isCompletedExceptionally() == false && future.getNow(null) == entry) {
+                    map.remove(key);
+                    removed = true;
+                }
+            }
+            if (removed) {
+                segmentStats.eviction();
+            }
+        }
+
         private static class SegmentStats {
             private final LongAdder hits = new LongAdder();
             private final LongAdder misses = new LongAdder();
@@ -304,12 +373,24 @@ public class Cache<K, V> {
         }
     }
 
-    Entry<K, V> head;
-    Entry<K, V> tail;
+    // the main LRU list holding all entries, except for those in the admission window of the TinyLFU eviction policy
+    private final LruList<K, V> main = new LruList<>();
+    private final LruList<K, V> window = new LruList<>();
 
-    // lock protecting mutations to the LRU list
+    // lock protecting mutations to the LRU lists
     private ReleasableLock lruLock = new ReleasableLock(new ReentrantLock());
 
+    // the buffers recording cache hits until they are applied to the LRU lists, striped by thread to reduce contention
+    @SuppressWarnings("unchecked") private final ReadBuffer<K, V>[] readBuffers = new ReadBuffer[numberOfReadBuffers()];
+
+    {
+        for (int i = 0; i < readBuffers.length; i++) {
+            readBuffers[i] = new ReadBuffer<>();
+        }
+    }
+
+    private final Consumer<Entry<K, V>> onAccess = this::onAccess;
+
     /**
      * Returns the value to which the specified key is mapped, or null if this map contains no mapping for the key.
      *
@@ -326,11 +407,31 @@ public class Cache<K, V> {
         if (entry == null || isExpired(entry, now)) {
             return null;
         } else {
-            promote(entry, now);
+            afterRead(entry, now);
             return entry.value;
         }
     }
 
+    /**
+     * Records a cache hit in the read buffer of the current thread. The buffer is drained if it is full and no other
+     * thread holds the LRU lock; otherwise the promotion is left to the next writer, or dropped if the buffer is full.
+     */
+    private void afterRead(Entry<K, V> entry, long now) {
+        ReadBuffer<K, V> buffer = readBuffers[(int) Thread.currentThread().getId() & (readBuffers.length - 1)];
+        boolean recorded = buffer.offer(entry);
+        if (recorded == false || buffer.isFull()) {
+            try (ReleasableLock locked = lruLock.tryAcquire()) {
+                if (locked != null) {
+                    drainReadBuffers();
+                    if (recorded == false) {
+                        onAccess(entry);
+                    }
+                    evict(now);
+                }
+            }
+        }
+    }
+
     /**
      * If the specified key is not already associated with a value (or is mapped to null), attempts to compute its
      * value using the given mapping function and enters it into this map unless null. The load method for a given key
@@ -424,7 +525,7 @@ public class Cache<K, V> {
         Tuple<Entry<K, V>, Entry<K, V>> tuple = segment.put(key, value, now);
         boolean replaced = false;
         try (ReleasableLock ignored = lruLock.acquire()) {
-            if (tuple.v2() != null && tuple.v2().state == State.EXISTING) {
+            if (tuple.v2() != null && tuple.v2().state != State.DELETED) {
                 if (unlink(tuple.v2())) {
                     replaced = true;
                 }
@@ -457,7 +558,8 @@ public class Cache<K, V> {
      * {@link org.elasticsearch.common.cache.RemovalNotification.RemovalReason} INVALIDATED.
      */
     public void invalidateAll() {
-        Entry<K, V> h;
+        Entry<K, V> windowHead;
+        Entry<K, V> mainHead;
 
         boolean[] haveSegmentLock = new boolean[NUMBER_OF_SEGMENTS];
         try {
@@ -466,14 +568,11 @@ public class Cache<K, V> {
                 haveSegmentLock[i] = true;
             }
             try (ReleasableLock ignored = lruLock.acquire()) {
-                h = head;
+                windowHead = window.head;
+                mainHead = main.head;
                 Arrays.stream(segments).forEach(segment -> segment.map = new HashMap<>());
-                Entry<K, V> current = head;
-                while (current != null) {
-                    current.state = State.DELETED;
-                    current = current.after;
-                }
-                head = tail = null;
+                window.clear();
+                main.clear();
                 count = 0;
                 weight = 0;
             }
@@ -484,6 +583,11 @@ public class Cache<K, V> {
                 }
             }
         }
+        notifyInvalidated(windowHead);
+        notifyInvalidated(mainHead);
+    }
+
+    private void notifyInvalidated(Entry<K, V> h) {
         while (h != null) {
             removalListener.onRemoval(new RemovalNotification<>(h.key, h.value, RemovalNotification.RemovalReason.INVALIDATED));
             h = h.after;
@@ -496,6 +600,7 @@ public class Cache<K, V> {
     public void refresh() {
         long now = now();
         try (ReleasableLock ignored = lruLock.acquire()) {
+            drainReadBuffers();
             evict(now);
         }
     }
@@ -521,13 +626,14 @@ public class Cache<K, V> {
     /**
      * An LRU sequencing of the keys in the cache that supports removal. This sequence is not protected from mutations
      * to the cache (except for {@link Iterator#remove()}. The result of iteration under any other mutation is
-     * undefined.
+     * undefined. Cache hits that are still buffered are not reflected in the order, and with the
+     * {@link EvictionPolicy#TINY_LFU} eviction policy the entries of the admission window come first.
      *
      * @return an LRU-ordered {@link Iterable} over the keys in the cache
      */
     public Iterable<K> keys() {
         return () -> new Iterator<K>() {
-            private CacheIterator iterator = new CacheIterator(head);
+            private CacheIterator iterator = new CacheIterator();
 
             @Override
             public boolean hasNext() {
@@ -554,7 +660,7 @@ public class Cache<K, V> {
      */
     public Iterable<V> values() {
         return () -> new Iterator<V>() {
-            private CacheIterator iterator = new CacheIterator(head);
+            private CacheIterator iterator = new CacheIterator();
 
             @Override
             public boolean hasNext() {
@@ -572,9 +678,9 @@ public class Cache<K, V> {
         private Entry<K, V> current;
         private Entry<K, V> next;
 
-        CacheIterator(Entry<K, V> head) {
+        CacheIterator() {
             current = null;
-            next = head;
+            next = window.head != null ? window.head : main.head;
         }
 
         @Override
@@ -586,6 +692,9 @@ public class Cache<K, V> {
         public Entry<K, V> next() {
             current = next;
             next = next.after;
+            if (next == null && current.inWindow) {
+                next = main.head;
+            }
             return current;
         }
 
@@ -648,15 +757,19 @@ public class Cache<K, V> {
     private boolean promote(Entry<K, V> entry, long now) {
         boolean promoted = true;
         try (ReleasableLock ignored = lruLock.acquire()) {
+            // apply the buffered cache hits first so that they are ordered before this promotion
+            drainReadBuffers();
             switch (entry.state) {
                 case DELETED:
                     promoted = false;
                     break;
                 case EXISTING:
                     relinkAtHead(entry);
+                    recordFrequency(entry);
                     break;
                 case NEW:
                     linkAtHead(entry);
+                    recordFrequency(entry);
                     break;
             }
             if (promoted) {
@@ -666,19 +779,82 @@ public class Cache<K, V> {
         return promoted;
     }
 
+    private void drainReadBuffers() {
+        assert lruLock.isHeldByCurrentThread();
+
+        for (ReadBuffer<K, V> readBuffer : readBuffers) {
+            readBuffer.drain(onAccess);
+        }
+    }
+
+    private void onAccess(Entry<K, V> entry) {
+        assert lruLock.isHeldByCurrentThread();
+
+        // the entry might have been removed since it was read
+        if (entry.state == State.EXISTING) {
+            relinkAtHead(entry);
+            recordFrequency(entry);
+        }
+    }
+
+    private void recordFrequency(Entry<K, V> entry) {
+        if (sketch != null) {
+            sketch.ensureCapacity(count);
+            sketch.increment(entry.key.hashCode());
+        }
+    }
+
     private void evict(long now) {
         assert lruLock.isHeldByCurrentThread();
 
-        while (tail != null && shouldPrune(tail, now)) {
-            CacheSegment<K, V> segment = getCacheSegment(tail.key);
-            Entry<K, V> entry = tail;
-            if (segment != null) {
-                segment.remove(tail.key);
+        if (sketch == null) {
+            while (main.tail != null && shouldPrune(main.tail, now)) {
+                evictEntry(main.tail);
+            }
+        } else {
+            while (window.tail != null && isExpired(window.tail, now)) {
+                evictEntry(window.tail);
+            }
+            while (main.tail != null && isExpired(main.tail, now)) {
+                evictEntry(main.tail);
+            }
+            // entries overflowing the admission window move to the main list, where they compete with its victim
+            while (window.weight > maximumWindowWeight) {
+                Entry<K, V> candidate = window.tail;
+                long entryWeight = weigher.applyAsLong(candidate.key, candidate.value);
+                window.unlink(candidate, entryWeight);
+                candidate.inWindow = false;
+                main.linkAtHead(candidate, entryWeight);
+                admit(candidate);
+            }
+            while (exceedsWeight()) {
+                evictEntry(main.tail != null ? main.tail : window.tail);
+            }
+        }
+    }
+
+    private void admit(Entry<K, V> candidate) {
+        assert lruLock.isHeldByCurrentThread();
+
+        while (exceedsWeight()) {
+            Entry<K, V> victim = main.tail;
+            if (victim == candidate || sketch.frequency(candidate.key.hashCode()) <= sketch.frequency(victim.key.hashCode())) {
+                evictEntry(candidate);
+                return;
             }
-            delete(entry, RemovalNotification.RemovalReason.EVICTED);
+            evictEntry(victim);
         }
     }
 
+    private void evictEntry(Entry<K, V> entry) {
+        CacheSegment<K, V> segment = getCacheSegment(entry.key);
+        if (segment != null) {
+            // a concurrent put might already have replaced the entry, in which case the new mapping must be kept
+            segment.remove(entry.key, entry);
+        }
+        delete(entry, RemovalNotification.RemovalReason.EVICTED);
+    }
+
     private void delete(Entry<K, V> entry, RemovalNotification.RemovalReason removalReason) {
         assert lruLock.isHeldByCurrentThread();
 
@@ -704,6 +880,77 @@ public class Cache<K, V> {
         assert lruLock.isHeldByCurrentThread();
 
         if (entry.state == State.EXISTING) {
+            long entryWeight = weigher.applyAsLong(entry.key, entry.value);
+            (entry.inWindow ? window : main).unlink(entry, entryWeight);
+            count--;
+            weight -= entryWeight;
+            entry.state = State.DELETED;
+            return true;
+        } else if (entry.state == State.NEW) {
+            // the entry was removed from its segment before the thread adding it got to link it, make sure it never will
+            entry.state = State.DELETED;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    private void linkAtHead(Entry<K, V> entry) {
+        assert lruLock.isHeldByCurrentThread();
+
+        long entryWeight = weigher.applyAsLong(entry.key, entry.value);
+        entry.inWindow = sketch != null;
+        (entry.inWindow ? window : main).linkAtHead(entry, entryWeight);
+        count++;
+        weight += entryWeight;
+        entry.state = State.EXISTING;
+    }
+
+    private void relinkAtHead(Entry<K, V> entry) {
+        assert lruLock.isHeldByCurrentThread();
+
+        LruList<K, V> list = entry.inWindow ? window : main;
+        if (list.head != entry) {
+            long entryWeight = weigher.applyAsLong(entry.key, entry.value);
+            list.unlink(entry, entryWeight);
+            list.linkAtHead(entry, entryWeight);
+        }
+    }
+
+    private CacheSegment<K, V> getCacheSegment(K key) {
+        return segments[key.hashCode() & 0xff];
+    }
+
+    private static int numberOfReadBuffers() {
+        int processors = Math.min(Runtime.getRuntime().availableProcessors(), 64);
+        // a power of two so that the buffer of a thread can be picked with a mask
+        return processors <= 1 ? 1 : Integer.highestOneBit(processors - 1) << 1;
+    }
+
+    /**
+     * A doubly-linked list of entries ordered by access, the most recently used entry being the head. All mutations
+     * must happen under the LRU lock.
+     */
+    private static final class LruList<K, V> {
+        Entry<K, V> head;
+        Entry<K, V> tail;
+        // the weight of the entries in this list
+        long weight;
+
+        void linkAtHead(Entry<K, V> entry, long entryWeight) {
+            Entry<K, V> h = head;
+            entry.before = null;
+            entry.after = head;
+            head = entry;
+            if (h == null) {
+                tail = entry;
+            } else {
+                h.before = entry;
+            }
+            weight += entryWeight;
+        }
+
+        void unlink(Entry<K, V> entry, long entryWeight) {
             final Entry<K, V> before = entry.before;
             final Entry<K, V> after = entry.after;
 
@@ -732,44 +979,70 @@ public class Cache<K, V> {
                 after.before = before;
                 entry.after = null;
             }
+            weight -= entryWeight;
+        }
 
-            count--;
-            weight -= weigher.applyAsLong(entry.key, entry.value);
-            entry.state = State.DELETED;
-            return true;
-        } else {
-            return false;
+        void clear() {
+            Entry<K, V> current = head;
+            while (current != null) {
+                current.state = State.DELETED;
+                current = current.after;
+            }
+            head = tail = null;
+            weight = 0;
         }
     }
 
-    private void linkAtHead(Entry<K, V> entry) {
-        assert lruLock.isHeldByCurrentThread();
+    /**
+     * A bounded ring buffer of cache hits that have not been applied to the LRU lists yet. Any thread can add to it
+     * without locking, while it is only drained under the LRU lock. Hits are dropped rather than blocking the reader
+     * when the buffer is full or when two readers race for the same slot.
+     */
+    static final class ReadBuffer<K, V> {
+        static final int SIZE = 16;
+        private static final int MASK = SIZE - 1;
 
-        Entry<K, V> h = head;
-        entry.before = null;
-        entry.after = head;
-        head = entry;
-        if (h == null) {
-            tail = entry;
-        } else {
-            h.before = entry;
-        }
+        private final AtomicReferenceArray<Entry<K, V>> entries = new AtomicReferenceArray<>(SIZE);
+        private final AtomicLong writeCounter = new AtomicLong();
+        // only written while holding the LRU lock
+        private volatile long readCounter;
 
-        count++;
-        weight += weigher.applyAsLong(entry.key, entry.value);
-        entry.state = State.EXISTING;
-    }
-
-    private void relinkAtHead(Entry<K, V> entry) {
-        assert lruLock.isHeldByCurrentThread();
+        /**
+         * Adds the given entry to the buffer.
+         *
+         * @return true if the entry was added, false if it was dropped
+         */
+        boolean offer(Entry<K, V> entry) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            if (tail - head >= SIZE) {
+                return false;
+            }
+            if (writeCounter.compareAndSet(tail, tail + 1)) {
+                entries.lazySet((int) (tail & MASK), entry);
+                return true;
+            }
+            return false;
+        }
 
-        if (head != entry) {
-            unlink(entry);
-            linkAtHead(entry);
+        boolean isFull() {
+            return writeCounter.get() - readCounter >= SIZE;
         }
-    }
 
-    private CacheSegment<K, V> getCacheSegment(K key) {
-        return segments[key.hashCode() & 0xff];
+        void drain(Consumer<Entry<K, V>> consumer) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            for (; head < tail; head++) {
+                int index = (int) (head & MASK);
+                Entry<K, V> entry = entries.get(index);
+                if (entry == null) {
+                    // the slot was claimed by a reader that has not published its entry yet
+                    break;
+                }
+                entries.lazySet(index, null);
+                consumer.accept(entry);
+            }
+            readCounter = head;
+        }
     }
 }
@@ -26,6 +26,7 @@ public class CacheBuilder<K, V> {
     private long maximumWeight = -1;
     private long expireAfterAccess = -1;
     private long expireAfterWrite = -1;
+    private Cache.EvictionPolicy evictionPolicy = Cache.EvictionPolicy.LRU;
     private ToLongBiFunction<K, V> weigher;
     private RemovalListener<K, V> removalListener;
 
@@ -60,6 +61,12 @@ public class CacheBuilder<K, V> {
         return this;
     }
 
+    public CacheBuilder<K, V> setEvictionPolicy(Cache.EvictionPolicy evictionPolicy) {
+        Objects.requireNonNull(evictionPolicy);
+        this.evictionPolicy = evictionPolicy;
+        return this;
+    }
+
     public CacheBuilder<K, V> weigher(ToLongBiFunction<K, V> weigher) {
         Objects.requireNonNull(weigher);
         this.weigher = weigher;
@@ -89,6 +96,8 @@ public class CacheBuilder<K, V> {
         if (removalListener != null) {
             cache.setRemovalListener(removalListener);
         }
+        // the admission window is sized relative to the maximum weight, so this must come after setting it
+        cache.setEvictionPolicy(evictionPolicy);
         return cache;
     }
 }
@@ -0,0 +1,131 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.common.cache;
+
+/**
+ * A probabilistic estimate of how often keys were accessed, used by the TinyLFU eviction policy of {@link Cache}.
+ * <p>
+ * This is a count-min sketch with four hash functions and 4-bit counters, sixteen of which are packed into each long of
+ * the table. A key's four counters live in the same long, which keeps an update to a single cache line. Once the
+ * number of increments reaches ten times the size of the table all counters are halved so that the estimates favor
+ * recent accesses over old ones. Instances are not thread-safe and are guarded by the LRU lock of the cache.
+ */
+final class FrequencySketch {
+    // the seeds of the four hash functions
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    // masks to halve all the counters of a long at once
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+    private static final int MAXIMUM_CAPACITY = 1 << 24;
+
+    private long[] table = new long[0];
+    private int tableMask;
+    private int sampleSize;
+    private int size;
+
+    /**
+     * Grows the sketch so that it can estimate the frequencies of the given number of keys accurately.
+     */
+    void ensureCapacity(long expectedKeys) {
+        int capacity = (int) Math.min(Math.max(expectedKeys, 16), MAXIMUM_CAPACITY);
+        if (table.length >= capacity) {
+            return;
+        }
+        long[] grown = new long[Integer.highestOneBit(capacity - 1) << 1];
+        // the counters of a key are picked by the low bits of its hashes, so copying the table into each part of the
+        // grown table keeps the estimates collected so far rather than forgetting them as the cache fills up
+        for (int i = 0; table.length > 0 && i < grown.length; i += table.length) {
+            System.arraycopy(table, 0, grown, i, table.length);
+        }
+        table = grown;
+        tableMask = table.length - 1;
+        sampleSize = 10 * table.length;
+    }
+
+    /**
+     * The estimated number of accesses to the key with the given hash code, at most 15.
+     */
+    int frequency(int hashCode) {
+        if (table.length == 0) {
+            return 0;
+        }
+        int hash = spread(hashCode);
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Records an access to the key with the given hash code.
+     */
+    void increment(int hashCode) {
+        if (table.length == 0) {
+            return;
+        }
+        int hash = spread(hashCode);
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    // halves all counters, correcting the size for the counters that were truncated from odd values
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size >>> 1) - (odd >>> 2);
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return ((int) h) & tableMask;
+    }
+
+    // spreads the bits of hash codes that might only differ in their upper or lower bits
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
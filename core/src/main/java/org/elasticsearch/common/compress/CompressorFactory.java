@@ -19,6 +19,7 @@
 
 package org.elasticsearch.common.compress;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.Streams;
@@ -33,7 +34,42 @@ import java.io.IOException;
  */
 public class CompressorFactory {
 
-    public static final Compressor COMPRESSOR = new DeflateCompressor();
+    public static final Compressor DEFLATE = new DeflateCompressor();
+
+    public static final Compressor LZ4 = new LZ4Compressor();
+
+    /** The compressor to use where no specific compressor was configured. */
+    public static final Compressor COMPRESSOR = DEFLATE;
+
+    private static final Compressor[] COMPRESSORS = new Compressor[] { DEFLATE, LZ4 };
+
+    /** The first version that is able to read bytes that were compressed with {@link #LZ4}. */
+    private static final Version LZ4_VERSION = Version.V_6_0_0_alpha1_UNRELEASED;
+
+    /**
+     * Returns the compressor with the given name, either {@code deflate} or {@code lz4}.
+     */
+    public static Compressor forName(String name) {
+        switch (name) {
+            case "deflate":
+                return DEFLATE;
+            case "lz4":
+                return LZ4;
+            default:
+                throw new IllegalArgumentException("unknown compressor [" + name + "], must be one of [deflate, lz4]");
+        }
+    }
+
+    /**
+     * Returns the given compressor if a node of the given version can decompress its output, and {@link #COMPRESSOR}
+     * otherwise. Bytes that are sent to other nodes must be compressed with the compressor returned by this method.
+     */
+    public static Compressor compressorForVersion(Compressor compressor, Version version) {
+        if (compressor == LZ4 && version.before(LZ4_VERSION)) {
+            return COMPRESSOR;
+        }
+        return compressor;
+    }
 
     public static boolean isCompressed(BytesReference bytes) {
         return compressor(bytes) != null;
@@ -41,13 +77,15 @@ public class CompressorFactory {
 
     @Nullable
     public static Compressor compressor(BytesReference bytes) {
-            if (COMPRESSOR.isCompressed(bytes)) {
+        for (Compressor compressor : COMPRESSORS) {
+            if (compressor.isCompressed(bytes)) {
                 // bytes should be either detected as compressed or as xcontent,
                 // if we have bytes that can be either detected as compressed or
                 // as a xcontent, we have a problem
                 assert XContentFactory.xContentType(bytes) == null;
-                return COMPRESSOR;
+                return compressor;
             }
+        }
 
         XContentType contentType = XContentFactory.xContentType(bytes);
         if (contentType == null) {
@@ -0,0 +1,469 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * {@link Compressor} implementation based on the LZ4 block format. It trades compression ratio for speed: it only looks
+ * for repetitions of at least four bytes and encodes them without any entropy coding, which makes it several times faster
+ * than {@link DeflateCompressor} both when compressing and when decompressing.
+ * <p>
+ * The compressed stream is a sequence of blocks that each hold up to {@link #BLOCK_SIZE} bytes of uncompressed data,
+ * terminated by an empty block. Every block starts with its uncompressed length and its compressed length as vints. Blocks
+ * that don't get smaller when compressed are stored as-is, which is signalled by both lengths being equal.
+ */
+public class LZ4Compressor implements Compressor {
+
+    // An arbitrary header that we use to identify compressed streams
+    // It needs to be different from other compressors and to not be specific
+    // enough so that no stream starting with these bytes could be detected as
+    // a XContent
+    private static final byte[] HEADER = new byte[] { 'L', 'Z', '4', '\0' };
+
+    // the maximum number of uncompressed bytes in a block, matches the maximum distance of a match
+    static final int BLOCK_SIZE = 1 << 16;
+    // the initial size of the buffer of uncompressed bytes, which grows up to the block size so that small payloads stay cheap
+    private static final int INITIAL_BUFFER_SIZE = 1 << 10;
+
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_DISTANCE = (1 << 16) - 1;
+    // the last 5 bytes of a block are always literals and the last match must start at least 12 bytes before the end of the block
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+
+    private static final int ML_BITS = 4;
+    private static final int ML_MASK = (1 << ML_BITS) - 1;
+    private static final int RUN_MASK = (1 << (8 - ML_BITS)) - 1;
+
+    private static final int HASH_LOG = 12;
+    // the higher, the less aggressively incompressible data is skipped
+    private static final int SKIP_STRENGTH = 6;
+
+    @Override
+    public boolean isCompressed(BytesReference bytes) {
+        if (bytes.length() < HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; ++i) {
+            if (bytes.get(i) != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public StreamInput streamInput(StreamInput in) throws IOException {
+        final byte[] headerBytes = new byte[HEADER.length];
+        int len = 0;
+        while (len < headerBytes.length) {
+            final int read = in.read(headerBytes, len, headerBytes.length - len);
+            if (read == -1) {
+                break;
+            }
+            len += read;
+        }
+        if (len != HEADER.length || Arrays.equals(headerBytes, HEADER) == false) {
+            throw new IllegalArgumentException("Input stream is not compressed with LZ4!");
+        }
+        return new InputStreamStreamInput(new LZ4InputStream(in));
+    }
+
+    @Override
+    public StreamOutput streamOutput(StreamOutput out) throws IOException {
+        out.writeBytes(HEADER);
+        return new OutputStreamStreamOutput(new LZ4OutputStream(out));
+    }
+
+    /**
+     * Returns the maximum number of bytes that compressing the given number of bytes can produce.
+     */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compresses {@code srcLength} bytes of {@code src} into {@code dest}, which must have room for at least
+     * {@link #maxCompressedLength(int)} bytes, and returns the number of bytes written.
+     *
+     * @param hashTable scratch space that maps hashes of 4 bytes to their last position, must have a size of {@code 1 << HASH_LOG}
+     */
+    static int compress(byte[] src, int srcOffset, int srcLength, byte[] dest, int destOffset, int[] hashTable) {
+        assert hashTable.length == 1 << HASH_LOG;
+        assert srcLength <= BLOCK_SIZE;
+        final int srcEnd = srcOffset + srcLength;
+        final int matchLimit = srcEnd - LAST_LITERALS;
+        final int mfLimit = srcEnd - MF_LIMIT;
+
+        Arrays.fill(hashTable, -1);
+        int sOff = srcOffset;
+        int anchor = srcOffset;
+        int dOff = destOffset;
+        while (sOff < mfLimit) {
+            final int sequence = readInt(src, sOff);
+            final int h = hash(sequence);
+            int ref = hashTable[h];
+            hashTable[h] = sOff;
+            if (ref < 0 || sOff - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+                // skip faster over data that does not seem to compress
+                sOff += 1 + ((sOff - anchor) >>> SKIP_STRENGTH);
+                continue;
+            }
+
+            // extend the match in both directions
+            while (sOff > anchor && ref > srcOffset && src[sOff - 1] == src[ref - 1]) {
+                sOff--;
+                ref--;
+            }
+            int matchLength = MIN_MATCH;
+            while (sOff + matchLength < matchLimit && src[sOff + matchLength] == src[ref + matchLength]) {
+                matchLength++;
+            }
+
+            dOff = writeSequence(src, anchor, sOff - anchor, sOff - ref, matchLength, dest, dOff);
+            sOff += matchLength;
+            anchor = sOff;
+            if (sOff < mfLimit) {
+                // the bytes right before the end of a match are likely to be repeated too
+                hashTable[hash(readInt(src, sOff - 2))] = sOff - 2;
+            }
+        }
+        dOff = writeLastLiterals(src, anchor, srcEnd - anchor, dest, dOff);
+        return dOff - destOffset;
+    }
+
+    /**
+     * Decompresses the {@code srcLength} bytes of {@code src} into exactly {@code destLength} bytes of {@code dest}.
+     *
+     * @throws IOException if the compressed bytes are corrupted
+     */
+    static void decompress(byte[] src, int srcOffset, int srcLength, byte[] dest, int destOffset, int destLength) throws IOException {
+        final int srcEnd = srcOffset + srcLength;
+        final int destEnd = destOffset + destLength;
+        int sOff = srcOffset;
+        int dOff = destOffset;
+        while (true) {
+            if (sOff == srcEnd) {
+                throw new IOException("Corrupted LZ4 block: missing token at offset [" + (sOff - srcOffset) + "]");
+            }
+            final int token = src[sOff++] & 0xFF;
+
+            int literalLength = token >>> ML_BITS;
+            if (literalLength == RUN_MASK) {
+                int b;
+                do {
+                    if (sOff == srcEnd) {
+                        throw new IOException("Corrupted LZ4 block: truncated literal length");
+                    }
+                    b = src[sOff++] & 0xFF;
+                    literalLength += b;
+                } while (b == 0xFF);
+            }
+            if (literalLength > srcEnd - sOff || literalLength > destEnd - dOff) {
+                throw new IOException("Corrupted LZ4 block: literal length [" + literalLength + "] exceeds the block");
+            }
+            System.arraycopy(src, sOff, dest, dOff, literalLength);
+            sOff += literalLength;
+            dOff += literalLength;
+            if (sOff == srcEnd) {
+                // the last sequence only holds literals
+                break;
+            }
+
+            if (srcEnd - sOff < 2) {
+                throw new IOException("Corrupted LZ4 block: truncated match offset");
+            }
+            final int offset = (src[sOff++] & 0xFF) | ((src[sOff++] & 0xFF) << 8);
+            int matchLength = token & ML_MASK;
+            if (matchLength == ML_MASK) {
+                int b;
+                do {
+                    if (sOff == srcEnd) {
+                        throw new IOException("Corrupted LZ4 block: truncated match length");
+                    }
+                    b = src[sOff++] & 0xFF;
+                    matchLength += b;
+                } while (b == 0xFF);
+            }
+            matchLength += MIN_MATCH;
+            final int ref = dOff - offset;
+            if (offset == 0 || ref < destOffset || matchLength > destEnd - dOff) {
+                throw new IOException("Corrupted LZ4 block: invalid match of length [" + matchLength + "] at offset [" + offset + "]");
+            }
+            if (offset >= matchLength) {
+                System.arraycopy(dest, ref, dest, dOff, matchLength);
+            } else {
+                // overlapping copy, which repeats the last offset bytes
+                for (int i = 0; i < matchLength; ++i) {
+                    dest[dOff + i] = dest[ref + i];
+                }
+            }
+            dOff += matchLength;
+        }
+        if (dOff != destEnd) {
+            throw new IOException("Corrupted LZ4 block: expected [" + destLength + "] bytes but got [" + (dOff - destOffset) + "]");
+        }
+    }
+
+    private static int writeSequence(byte[] src, int anchor, int literalLength, int offset, int matchLength, byte[] dest, int dOff) {
+        final int tokenOffset = dOff++;
+        int token;
+        if (literalLength >= RUN_MASK) {
+            token = RUN_MASK << ML_BITS;
+            dOff = writeLength(literalLength - RUN_MASK, dest, dOff);
+        } else {
+            token = literalLength << ML_BITS;
+        }
+        System.arraycopy(src, anchor, dest, dOff, literalLength);
+        dOff += literalLength;
+
+        dest[dOff++] = (byte) offset;
+        dest[dOff++] = (byte) (offset >>> 8);
+        final int encodedMatchLength = matchLength - MIN_MATCH;
+        if (encodedMatchLength >= ML_MASK) {
+            token |= ML_MASK;
+            dOff = writeLength(encodedMatchLength - ML_MASK, dest, dOff);
+        } else {
+            token |= encodedMatchLength;
+        }
+        dest[tokenOffset] = (byte) token;
+        return dOff;
+    }
+
+    private static int writeLastLiterals(byte[] src, int anchor, int literalLength, byte[] dest, int dOff) {
+        if (literalLength >= RUN_MASK) {
+            dest[dOff++] = (byte) (RUN_MASK << ML_BITS);
+            dOff = writeLength(literalLength - RUN_MASK, dest, dOff);
+        } else {
+            dest[dOff++] = (byte) (literalLength << ML_BITS);
+        }
+        System.arraycopy(src, anchor, dest, dOff, literalLength);
+        return dOff + literalLength;
+    }
+
+    private static int writeLength(int length, byte[] dest, int dOff) {
+        while (length >= 0xFF) {
+            dest[dOff++] = (byte) 0xFF;
+            length -= 0xFF;
+        }
+        dest[dOff++] = (byte) length;
+        return dOff;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16) | ((bytes[offset + 2] & 0xFF) << 8)
+            | (bytes[offset + 3] & 0xFF);
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static final class LZ4OutputStream extends OutputStream {
+
+        private final StreamOutput out;
+        private final int[] hashTable = new int[1 << HASH_LOG];
+        private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+        private int count;
+        private byte[] compressed = BytesRef.EMPTY_BYTES;
+        private boolean closed;
+
+        LZ4OutputStream(StreamOutput out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureWritable();
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == 0 && len >= BLOCK_SIZE) {
+                    // compress straight from the given bytes rather than copying them to the buffer first
+                    writeBlock(b, off, BLOCK_SIZE);
+                    off += BLOCK_SIZE;
+                    len -= BLOCK_SIZE;
+                    continue;
+                }
+                ensureWritable();
+                final int toCopy = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, toCopy);
+                count += toCopy;
+                off += toCopy;
+                len -= toCopy;
+            }
+        }
+
+        private void ensureWritable() throws IOException {
+            if (count == buffer.length) {
+                if (buffer.length == BLOCK_SIZE) {
+                    writeBlock(buffer, 0, count);
+                    count = 0;
+                } else {
+                    buffer = Arrays.copyOf(buffer, Math.min(BLOCK_SIZE, buffer.length << 1));
+                }
+            }
+        }
+
+        private void writeBlock(byte[] b, int off, int len) throws IOException {
+            final int maxLength = maxCompressedLength(len);
+            if (compressed.length < maxLength) {
+                compressed = new byte[maxLength];
+            }
+            final int compressedLength = compress(b, off, len, compressed, 0, hashTable);
+            out.writeVInt(len);
+            if (compressedLength < len) {
+                out.writeVInt(compressedLength);
+                out.writeBytes(compressed, 0, compressedLength);
+            } else {
+                out.writeVInt(len);
+                out.writeBytes(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count > 0) {
+                writeBlock(buffer, 0, count);
+                count = 0;
+            }
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (count > 0) {
+                    writeBlock(buffer, 0, count);
+                    count = 0;
+                }
+                // an empty block marks the end of the stream
+                out.writeVInt(0);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private static final class LZ4InputStream extends InputStream {
+
+        private final StreamInput in;
+        private byte[] buffer = BytesRef.EMPTY_BYTES;
+        private int position;
+        private int limit;
+        private byte[] compressed = BytesRef.EMPTY_BYTES;
+        private boolean eof;
+
+        LZ4InputStream(StreamInput in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position == limit && fill() == false) {
+                return -1;
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position == limit && fill() == false) {
+                return -1;
+            }
+            final int toCopy = Math.min(len, limit - position);
+            System.arraycopy(buffer, position, b, off, toCopy);
+            position += toCopy;
+            return toCopy;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            while (skipped < n && (position < limit || fill())) {
+                final int toSkip = (int) Math.min(n - skipped, limit - position);
+                position += toSkip;
+                skipped += toSkip;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return limit - position;
+        }
+
+        private boolean fill() throws IOException {
+            if (eof) {
+                return false;
+            }
+            final int length = in.readVInt();
+            if (length == 0) {
+                eof = true;
+                return false;
+            }
+            final int compressedLength = in.readVInt();
+            if (length < 0 || length > BLOCK_SIZE || compressedLength <= 0 || compressedLength > length) {
+                throw new IOException("Corrupted LZ4 stream: invalid block lengths [" + length + "] and [" + compressedLength + "]");
+            }
+            if (buffer.length < length) {
+                buffer = new byte[Math.min(BLOCK_SIZE, Math.max(length, buffer.length << 1))];
+            }
+            if (compressedLength == length) {
+                in.readBytes(buffer, 0, length);
+            } else {
+                if (compressed.length < compressedLength) {
+                    compressed = new byte[Math.min(BLOCK_SIZE, Math.max(compressedLength, compressed.length << 1))];
+                }
+                in.readBytes(compressed, 0, compressedLength);
+                decompress(compressed, 0, compressedLength, buffer, 0, length);
+            }
+            position = 0;
+            limit = length;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -20,6 +20,7 @@
 package org.elasticsearch.common.io.stream;
 
 import org.elasticsearch.Version;
+import org.elasticsearch.common.bytes.BytesReference;
 
 import java.io.IOException;
 
@@ -44,6 +45,11 @@ public abstract class FilterStreamInput extends StreamInput {
         delegate.readBytes(b, offset, len);
     }
 
+    @Override
+    public BytesReference readSharedBytesReference() throws IOException {
+        return delegate.readSharedBytesReference();
+    }
+
     @Override
     public void reset() throws IOException {
         delegate.reset();
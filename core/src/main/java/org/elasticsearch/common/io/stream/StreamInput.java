@@ -115,6 +115,15 @@ public abstract class StreamInput extends InputStream {
         return readBytesReference(length);
     }
 
+    /**
+     * Reads a bytes reference like {@link #readBytesReference()}, but lets streams over a network buffer return a slice of that
+     * buffer instead of a copy. Such a slice is only valid while the transport keeps the buffer, which for a request is until a
+     * response has been sent on its channel, so this must only be used for request payloads that are not used after that.
+     */
+    public BytesReference readSharedBytesReference() throws IOException {
+        return readBytesReference();
+    }
+
     /**
      * Reads an optional bytes reference from this stream. It might hold an actual reference to the underlying bytes of the stream. Use this
      * only if you must differentiate null from empty. Use {@link StreamInput#readBytesReference()} and
@@ -26,6 +26,7 @@ import org.elasticsearch.common.SuppressForbidden;
 import org.elasticsearch.index.shard.ShardId;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A {@link org.apache.lucene.index.FilterDirectoryReader} that exposes
@@ -33,8 +34,11 @@ import java.io.IOException;
  */
 public final class ElasticsearchDirectoryReader extends FilterDirectoryReader {
 
+    private static final AtomicLong READER_IDS = new AtomicLong();
+
     private final ShardId shardId;
     private final FilterDirectoryReader.SubReaderWrapper wrapper;
+    private final long readerId = READER_IDS.getAndIncrement();
 
     private ElasticsearchDirectoryReader(DirectoryReader in, FilterDirectoryReader.SubReaderWrapper wrapper, ShardId shardId) throws IOException {
         super(in, wrapper);
@@ -49,6 +53,15 @@ public final class ElasticsearchDirectoryReader extends FilterDirectoryReader {
         return this.shardId;
     }
 
+    /**
+     * Returns an id that is unique to this point-in-time reader within this JVM. Unlike the {@link #getVersion() version},
+     * it is never shared by readers of different shard copies or by readers that were opened by an earlier instance of the
+     * same shard copy.
+     */
+    public long readerId() {
+        return this.readerId;
+    }
+
     @Override
     protected DirectoryReader doWrapDirectoryReader(DirectoryReader in) throws IOException {
         return new ElasticsearchDirectoryReader(in, wrapper, shardId);
@@ -0,0 +1,62 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An exponentially weighted moving average of a series of values, where each new value has a weight of {@code alpha}
+ * and the previous average a weight of {@code 1 - alpha}. Unlike {@link EWMA}, which averages a rate over fixed time
+ * intervals, values are folded into the average as they come. This class is thread-safe.
+ */
+public class ExponentiallyWeightedMovingAverage {
+
+    private final double alpha;
+    // the bits of the current average, so that it can be updated atomically
+    private final AtomicLong averageBits;
+
+    /**
+     * Creates a new moving average.
+     *
+     * @param alpha          the weight of new values, between 0 and 1, the higher the faster older values are forgotten
+     * @param initialAverage the average before the first value is added
+     */
+    public ExponentiallyWeightedMovingAverage(double alpha, double initialAverage) {
+        if (alpha < 0 || alpha > 1) {
+            throw new IllegalArgumentException("alpha must be between 0 and 1, got [" + alpha + "]");
+        }
+        this.alpha = alpha;
+        this.averageBits = new AtomicLong(Double.doubleToLongBits(initialAverage));
+    }
+
+    public double getAverage() {
+        return Double.longBitsToDouble(averageBits.get());
+    }
+
+    public void addValue(double value) {
+        boolean updated = false;
+        while (updated == false) {
+            final long currentBits = averageBits.get();
+            final double currentAverage = Double.longBitsToDouble(currentBits);
+            final double newAverage = alpha * value + (1 - alpha) * currentAverage;
+            updated = averageBits.compareAndSet(currentBits, Double.doubleToLongBits(newAverage));
+        }
+    }
+}
@@ -18,6 +18,7 @@
  */
 package org.elasticsearch.common.rounding;
 
+import org.apache.lucene.util.ArrayUtil;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -28,6 +29,7 @@ import org.joda.time.DateTimeZone;
 import org.joda.time.IllegalInstantException;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Objects;
 
 /**
@@ -51,6 +53,124 @@ public abstract class Rounding implements Streamable {
      */
     public abstract long nextRoundingValue(long value);
 
+    /**
+     * A rounding that is only used locally, see {@link #prepare(long, long, int)}.
+     */
+    @FunctionalInterface
+    public interface Prepared {
+
+        /**
+         * Rounds the given value.
+         */
+        long round(long utcMillis);
+    }
+
+    /**
+     * Return a rounding that returns the same values as this one but is faster on values in
+     * <code>[minUtcMillis, maxUtcMillis]</code>, typically the range of the values of a field on a shard. The default
+     * implementation precomputes the rounded values within that range so that rounding becomes a binary search over a
+     * <code>long[]</code> instead of time zone lookups. If the range spans more than <code>maxRoundedValues</code>
+     * rounded values, this rounding is used as-is. Values outside of the range are always delegated to this rounding.
+     */
+    public Prepared prepare(long minUtcMillis, long maxUtcMillis, int maxRoundedValues) {
+        if (minUtcMillis > maxUtcMillis || maxRoundedValues < 1) {
+            return this::round;
+        }
+        long[] values = new long[Math.min(16, maxRoundedValues)];
+        int size = 0;
+        long current = round(minUtcMillis);
+        if (round(current) != current) {
+            return this::round;
+        }
+        while (true) {
+            if (size == maxRoundedValues) {
+                return this::round;
+            }
+            final long next = nextRoundingValue(current);
+            // the lookup table relies on the rounding being monotonic, which makes [current, next) round to current
+            if (next <= current || round(next) != next || round(next - 1) != current) {
+                return this::round;
+            }
+            values = ArrayUtil.grow(values, size + 2);
+            values[size++] = current;
+            if (next > maxUtcMillis) {
+                values[size++] = next;
+                return new LookupTable(this, Arrays.copyOf(values, size));
+            }
+            current = next;
+        }
+    }
+
+    /**
+     * Rounds values by looking up the greatest precomputed rounded value that is less than or equal to them. The range of the
+     * table is split into slots of <code>2^shift</code> millis, which is no more than the shortest interval between two
+     * rounded values, so that a slot contains at most one rounded value and a lookup is an array access and a comparison.
+     */
+    static final class LookupTable implements Prepared {
+
+        // slots are only used if there are not many more of them than rounded values, otherwise this falls back to binary search
+        private static final int MAX_SLOTS_PER_VALUE = 4;
+
+        private final Rounding delegate;
+        private final long[] values;
+        private final long min;
+        private final long max;
+        private final int shift;
+        private final int[] slots;
+
+        /**
+         * @param values the sorted rounded values, followed by the next rounded value which is the exclusive upper bound of
+         *               the values that this table can round
+         */
+        LookupTable(Rounding delegate, long[] values) {
+            assert values.length > 1;
+            this.delegate = delegate;
+            this.values = values;
+            this.min = values[0];
+            this.max = values[values.length - 1];
+            long minInterval = Long.MAX_VALUE;
+            for (int i = 1; i < values.length; i++) {
+                minInterval = Math.min(minInterval, values[i] - values[i - 1]);
+            }
+            shift = 63 - Long.numberOfLeadingZeros(minInterval);
+            final long numSlots = ((max - 1 - min) >>> shift) + 1;
+            if (numSlots <= (long) values.length * MAX_SLOTS_PER_VALUE) {
+                slots = new int[(int) numSlots];
+                for (int slot = 0, index = 0; slot < slots.length; slot++) {
+                    final long slotStart = min + ((long) slot << shift);
+                    while (values[index + 1] <= slotStart) {
+                        index++;
+                    }
+                    slots[slot] = index;
+                }
+            } else {
+                slots = null;
+            }
+        }
+
+        @Override
+        public long round(long utcMillis) {
+            if (utcMillis < min || utcMillis >= max) {
+                return delegate.round(utcMillis);
+            }
+            if (slots == null) {
+                final int index = Arrays.binarySearch(values, utcMillis);
+                return index >= 0 ? values[index] : values[-2 - index];
+            }
+            // the upper bound at the end of the values makes it safe to look at the next value, which is selected if it is less
+            // than or equal to utcMillis without a branch since this is hard to predict on random values
+            final int index = slots[(int) ((utcMillis - min) >>> shift)];
+            return values[index + (int) ((values[index + 1] - utcMillis - 1) >>> 63)];
+        }
+
+        /**
+         * Return the number of precomputed rounded values.
+         */
+        int size() {
+            return values.length - 1;
+        }
+    }
+
     @Override
     public abstract boolean equals(Object obj);
 
@@ -239,6 +359,21 @@ public abstract class Rounding implements Streamable {
             return roundedUTC;
         }
 
+        @Override
+        public Prepared prepare(long minUtcMillis, long maxUtcMillis, int maxRoundedValues) {
+            if (timeZone.isFixed() == false) {
+                return super.prepare(minUtcMillis, maxUtcMillis, maxRoundedValues);
+            }
+            // without transitions, rounding is plain arithmetic on the local time which is cheaper than a lookup
+            final long offset = timeZone.getOffset(0);
+            return utcMillis -> {
+                if (utcMillis < minUtcMillis || utcMillis > maxUtcMillis) {
+                    return round(utcMillis);
+                }
+                return roundKey(utcMillis + offset, interval) * interval - offset;
+            };
+        }
+
         private static long roundKey(long value, long interval) {
             if (value < 0) {
                 return (value - interval + 1) / interval;
@@ -0,0 +1,102 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.common.util.concurrent;
+
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.metrics.CounterMetric;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed number of locks that keys are mapped to by their hash code. Unlike {@link KeyedLock} acquiring a lock doesn't
+ * allocate anything, at the expense of keys sharing locks: holding the lock of a key blocks other keys of the same stripe.
+ * Locks are reentrant, so a thread may hold the locks of several keys even if they map to the same stripe, but threads that
+ * hold several locks at once must acquire them in a consistent order to not deadlock.
+ */
+public final class StripedLock<T> {
+
+    private final StripeLock[] stripes;
+    private final int mask;
+    private final CounterMetric contended = new CounterMetric();
+
+    /**
+     * @param numStripes the minimum number of locks, which is rounded up to the next power of two
+     */
+    public StripedLock(int numStripes) {
+        if (numStripes < 1) {
+            throw new IllegalArgumentException("number of stripes must be at least 1 but was [" + numStripes + "]");
+        }
+        int size = numStripes == 1 ? 1 : Integer.highestOneBit(numStripes - 1) << 1;
+        stripes = new StripeLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new StripeLock();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Acquires the lock of the given key, blocking until it is available. The lock is released by closing the returned releasable.
+     */
+    public Releasable acquire(T key) {
+        StripeLock lock = stripe(key);
+        if (lock.tryLock() == false) {
+            contended.inc();
+            lock.lock();
+        }
+        return lock;
+    }
+
+    /**
+     * Returns <code>true</code> if the current thread holds the lock of the given key.
+     */
+    public boolean isHeldByCurrentThread(T key) {
+        return stripe(key).isHeldByCurrentThread();
+    }
+
+    /**
+     * Returns the number of times a lock was acquired while it was held by another thread.
+     */
+    public long getContendedCount() {
+        return contended.count();
+    }
+
+    /**
+     * Returns the number of locks keys are mapped to.
+     */
+    public int getNumStripes() {
+        return stripes.length;
+    }
+
+    private StripeLock stripe(T key) {
+        int hash = key.hashCode();
+        // spread the high bits, as only the low bits select the stripe
+        return stripes[(hash ^ (hash >>> 16)) & mask];
+    }
+
+    @SuppressWarnings("serial")
+    private static final class StripeLock extends ReentrantLock implements Releasable {
+
+        @Override
+        public void close() {
+            unlock();
+        }
+    }
+}
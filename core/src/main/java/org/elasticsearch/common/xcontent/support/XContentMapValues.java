@@ -21,8 +21,8 @@ package org.elasticsearch.common.xcontent.support;
 
 import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.common.Strings;
-import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.support.filtering.StreamingXContentFilter;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -154,51 +154,14 @@ public class XContentMapValues {
             sb.append(key);
             String path = sb.toString();
 
-            if (Regex.simpleMatch(excludes, path)) {
-                sb.setLength(mark);
-                continue;
-            }
-
-            boolean exactIncludeMatch = false; // true if the current position was specifically mentioned
-            boolean pathIsPrefixOfAnInclude = false; // true if potentially a sub scope can be included
-            if (includes.length == 0) {
-                // implied match anything
-                exactIncludeMatch = true;
-            } else {
-                for (String include : includes) {
-                    // check for prefix matches as well to see if we need to zero in, something like: obj1.arr1.* or *.field
-                    // note, this does not work well with middle matches, like obj1.*.obj3
-                    if (include.charAt(0) == '*') {
-                        if (Regex.simpleMatch(include, path)) {
-                            exactIncludeMatch = true;
-                            break;
-                        }
-                        pathIsPrefixOfAnInclude = true;
-                        continue;
-                    }
-                    if (include.startsWith(path)) {
-                        if (include.length() == path.length()) {
-                            exactIncludeMatch = true;
-                            break;
-                        } else if (include.length() > path.length() && include.charAt(path.length()) == '.') {
-                            // include might may match deeper paths. Dive deeper.
-                            pathIsPrefixOfAnInclude = true;
-                            continue;
-                        }
-                    }
-                    if (Regex.simpleMatch(include, path)) {
-                        exactIncludeMatch = true;
-                        break;
-                    }
-                }
-            }
-
-            if (!(pathIsPrefixOfAnInclude || exactIncludeMatch)) {
+            StreamingXContentFilter.Match match = StreamingXContentFilter.match(path, includes, excludes);
+            if (match == StreamingXContentFilter.Match.NONE) {
                 // skip subkeys, not interesting.
                 sb.setLength(mark);
                 continue;
             }
-
+            // true if the current position was specifically mentioned
+            boolean exactIncludeMatch = match == StreamingXContentFilter.Match.EXACT;
 
             if (entry.getValue() instanceof Map) {
                 Map<String, Object> innerInto = new HashMap<>();
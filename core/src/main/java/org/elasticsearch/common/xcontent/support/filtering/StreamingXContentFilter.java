@@ -0,0 +1,240 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.common.xcontent.support.filtering;
+
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+
+import java.io.IOException;
+
+/**
+ * Filters an object read from a {@link XContentParser} with include and exclude patterns while writing it to a
+ * {@link XContentBuilder}, without materializing it as a map first. The patterns are applied exactly like
+ * {@link XContentMapValues#filter(java.util.Map, String[], String[])} does, so that a filtered object has the same
+ * content whichever way it was filtered, though its keys keep the order of the parsed object.
+ */
+public final class StreamingXContentFilter {
+
+    /**
+     * How a path relates to include and exclude patterns.
+     */
+    public enum Match {
+        /** Neither the path nor anything below it is included. */
+        NONE,
+        /** The path itself isn't included but objects below it might be. */
+        PREFIX,
+        /** The path is included, together with everything below it that isn't excluded. */
+        EXACT
+    }
+
+    private StreamingXContentFilter() {
+    }
+
+    /**
+     * Returns how the given path relates to the given patterns. An empty list of includes includes everything.
+     */
+    public static Match match(String path, String[] includes, String[] excludes) {
+        if (Regex.simpleMatch(excludes, path)) {
+            return Match.NONE;
+        }
+        if (includes.length == 0) {
+            // implied match anything
+            return Match.EXACT;
+        }
+        boolean pathIsPrefixOfAnInclude = false; // true if potentially a sub scope can be included
+        for (String include : includes) {
+            // check for prefix matches as well to see if we need to zero in, something like: obj1.arr1.* or *.field
+            // note, this does not work well with middle matches, like obj1.*.obj3
+            if (include.charAt(0) == '*') {
+                if (Regex.simpleMatch(include, path)) {
+                    return Match.EXACT;
+                }
+                pathIsPrefixOfAnInclude = true;
+                continue;
+            }
+            if (include.startsWith(path)) {
+                if (include.length() == path.length()) {
+                    return Match.EXACT;
+                } else if (include.length() > path.length() && include.charAt(path.length()) == '.') {
+                    // include might may match deeper paths. Dive deeper.
+                    pathIsPrefixOfAnInclude = true;
+                    continue;
+                }
+            }
+            if (Regex.simpleMatch(include, path)) {
+                return Match.EXACT;
+            }
+        }
+        return pathIsPrefixOfAnInclude ? Match.PREFIX : Match.NONE;
+    }
+
+    /**
+     * Writes the object the parser is positioned on, or the next object if the parser has no current token, filtered by the
+     * given patterns to the builder. The filtered object is always written, even if it ends up empty.
+     */
+    public static void filter(XContentParser parser, XContentBuilder builder, String[] includes, String[] excludes) throws IOException {
+        XContentParser.Token token = parser.currentToken();
+        if (token == null) {
+            token = parser.nextToken();
+        }
+        if (token != XContentParser.Token.START_OBJECT) {
+            throw new IllegalArgumentException("expected an object to filter but got [" + token + "]");
+        }
+        Frame root = new Frame(null, null, false);
+        root.write(builder);
+        filterObject(parser, builder, includes == null ? Strings.EMPTY_ARRAY : includes,
+            excludes == null ? Strings.EMPTY_ARRAY : excludes, new StringBuilder(), root);
+        builder.endObject();
+    }
+
+    private static void filterObject(XContentParser parser, XContentBuilder builder, String[] includes, String[] excludes,
+                                     StringBuilder sb, Frame frame) throws IOException {
+        if (includes.length == 0 && excludes.length == 0) {
+            copyObject(parser, builder, frame);
+            return;
+        }
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            String key = parser.currentName();
+            token = parser.nextToken();
+            int mark = sb.length();
+            if (sb.length() > 0) {
+                sb.append('.');
+            }
+            sb.append(key);
+
+            Match match = match(sb.toString(), includes, excludes);
+            if (match == Match.NONE) {
+                // skip subkeys, not interesting.
+                parser.skipChildren();
+            } else if (token == XContentParser.Token.START_OBJECT) {
+                Frame inner = new Frame(frame, key, false);
+                if (match == Match.EXACT) {
+                    inner.write(builder);
+                }
+                // if we had an exact match, we want give deeper excludes their chance
+                filterObject(parser, builder, match == Match.EXACT ? Strings.EMPTY_ARRAY : includes, excludes, sb, inner);
+                inner.end(builder);
+            } else if (token == XContentParser.Token.START_ARRAY) {
+                // arrays are kept even if they end up empty
+                Frame inner = new Frame(frame, key, true);
+                inner.write(builder);
+                // if we had an exact match, we want give deeper excludes their chance
+                filterArray(parser, builder, match == Match.EXACT ? Strings.EMPTY_ARRAY : includes, excludes, sb, inner);
+                inner.end(builder);
+            } else if (match == Match.EXACT) {
+                frame.write(builder);
+                builder.field(key);
+                builder.copyCurrentStructure(parser);
+            }
+            sb.setLength(mark);
+        }
+    }
+
+    private static void filterArray(XContentParser parser, XContentBuilder builder, String[] includes, String[] excludes,
+                                    StringBuilder sb, Frame frame) throws IOException {
+        if (includes.length == 0 && excludes.length == 0) {
+            copyArray(parser, builder, frame);
+            return;
+        }
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+            if (token == XContentParser.Token.START_OBJECT) {
+                // objects and arrays within arrays are dropped if they end up empty
+                Frame inner = new Frame(frame, null, false);
+                filterObject(parser, builder, includes, excludes, sb, inner);
+                inner.end(builder);
+            } else if (token == XContentParser.Token.START_ARRAY) {
+                Frame inner = new Frame(frame, null, true);
+                filterArray(parser, builder, includes, excludes, sb, inner);
+                inner.end(builder);
+            } else {
+                frame.write(builder);
+                builder.copyCurrentStructure(parser);
+            }
+        }
+    }
+
+    private static void copyObject(XContentParser parser, XContentBuilder builder, Frame frame) throws IOException {
+        while (parser.nextToken() != XContentParser.Token.END_OBJECT) {
+            String key = parser.currentName();
+            parser.nextToken();
+            frame.write(builder);
+            builder.field(key);
+            builder.copyCurrentStructure(parser);
+        }
+    }
+
+    private static void copyArray(XContentParser parser, XContentBuilder builder, Frame frame) throws IOException {
+        while (parser.nextToken() != XContentParser.Token.END_ARRAY) {
+            frame.write(builder);
+            builder.copyCurrentStructure(parser);
+        }
+    }
+
+    /**
+     * An object or array of the parsed content that is only written once it turns out to have content, or when it has to
+     * be written regardless.
+     */
+    private static final class Frame {
+        private final Frame parent;
+        private final String key;
+        private final boolean array;
+        private boolean written;
+
+        Frame(Frame parent, String key, boolean array) {
+            this.parent = parent;
+            this.key = key;
+            this.array = array;
+        }
+
+        void write(XContentBuilder builder) throws IOException {
+            if (written) {
+                return;
+            }
+            if (parent != null) {
+                parent.write(builder);
+            }
+            if (key != null) {
+                builder.field(key);
+            }
+            if (array) {
+                builder.startArray();
+            } else {
+                builder.startObject();
+            }
+            written = true;
+        }
+
+        void end(XContentBuilder builder) throws IOException {
+            if (written) {
+                if (array) {
+                    builder.endArray();
+                } else {
+                    builder.endObject();
+                }
+            }
+        }
+    }
+}
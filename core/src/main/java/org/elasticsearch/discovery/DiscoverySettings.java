@@ -22,6 +22,8 @@ package org.elasticsearch.discovery;
 import org.elasticsearch.cluster.block.ClusterBlock;
 import org.elasticsearch.cluster.block.ClusterBlockLevel;
 import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
@@ -60,6 +62,18 @@ public class DiscoverySettings extends AbstractComponent {
             Property.Dynamic, Property.NodeScope);
     public static final Setting<Boolean> PUBLISH_DIFF_ENABLE_SETTING =
         Setting.boolSetting("discovery.zen.publish_diff.enable", true, Property.Dynamic, Property.NodeScope);
+    /**
+     * sets the compressor that is used for published cluster states and diffs, either deflate or lz4
+     */
+    public static final Setting<Compressor> PUBLISH_COMPRESSION_TYPE_SETTING =
+        new Setting<>("discovery.zen.publish_compression_type", "deflate", CompressorFactory::forName,
+            Property.Dynamic, Property.NodeScope);
+    /**
+     * sets how many committed cluster states the master may still be waiting on nodes to process while it moves on to
+     * the next cluster state update. 0 means the master waits for every published state before processing the next update.
+     */
+    public static final Setting<Integer> PUBLISH_MAX_IN_FLIGHT_SETTING =
+        Setting.intSetting("discovery.zen.publish_max_in_flight", 0, 0, Property.Dynamic, Property.NodeScope);
     public static final Setting<TimeValue> INITIAL_STATE_TIMEOUT_SETTING =
         Setting.positiveTimeSetting("discovery.initial_state_timeout", TimeValue.timeValueSeconds(30), Property.NodeScope);
 
@@ -68,6 +82,8 @@ public class DiscoverySettings extends AbstractComponent {
 
     private volatile TimeValue commitTimeout;
     private volatile boolean publishDiff;
+    private volatile Compressor publishCompressor;
+    private volatile int publishMaxInFlight;
 
     public DiscoverySettings(Settings settings, ClusterSettings clusterSettings) {
         super(settings);
@@ -75,10 +91,14 @@ public class DiscoverySettings extends AbstractComponent {
         clusterSettings.addSettingsUpdateConsumer(PUBLISH_DIFF_ENABLE_SETTING, this::setPublishDiff);
         clusterSettings.addSettingsUpdateConsumer(COMMIT_TIMEOUT_SETTING, this::setCommitTimeout);
         clusterSettings.addSettingsUpdateConsumer(PUBLISH_TIMEOUT_SETTING, this::setPublishTimeout);
+        clusterSettings.addSettingsUpdateConsumer(PUBLISH_COMPRESSION_TYPE_SETTING, this::setPublishCompressor);
+        clusterSettings.addSettingsUpdateConsumer(PUBLISH_MAX_IN_FLIGHT_SETTING, this::setPublishMaxInFlight);
         this.noMasterBlock = NO_MASTER_BLOCK_SETTING.get(settings);
         this.publishTimeout = PUBLISH_TIMEOUT_SETTING.get(settings);
         this.commitTimeout = COMMIT_TIMEOUT_SETTING.get(settings);
         this.publishDiff = PUBLISH_DIFF_ENABLE_SETTING.get(settings);
+        this.publishCompressor = PUBLISH_COMPRESSION_TYPE_SETTING.get(settings);
+        this.publishMaxInFlight = PUBLISH_MAX_IN_FLIGHT_SETTING.get(settings);
     }
 
     /**
@@ -112,8 +132,30 @@ public class DiscoverySettings extends AbstractComponent {
         this.commitTimeout = commitTimeout;
     }
 
+    private void setPublishCompressor(Compressor publishCompressor) {
+        this.publishCompressor = publishCompressor;
+    }
+
+    private void setPublishMaxInFlight(int publishMaxInFlight) {
+        this.publishMaxInFlight = publishMaxInFlight;
+    }
+
     public boolean getPublishDiff() { return publishDiff;}
 
+    /**
+     * Returns the compressor to publish cluster states with
+     */
+    public Compressor getPublishCompressor() {
+        return publishCompressor;
+    }
+
+    /**
+     * Returns how many committed cluster states may still be processed by other nodes while the next one is published
+     */
+    public int getPublishMaxInFlight() {
+        return publishMaxInFlight;
+    }
+
     private static ClusterBlock parseNoMasterBlock(String value) {
         switch (value) {
             case "all":
@@ -55,7 +55,9 @@ import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Locale;
@@ -88,6 +90,8 @@ public class PublishClusterStateAction extends AbstractComponent {
     private final DiscoverySettings discoverySettings;
     private final ClusterName clusterName;
     private final PendingClusterStatesQueue pendingStatesQueue;
+    // committed cluster states that nodes may still be processing, oldest first. Only accessed by the publishing thread.
+    private final Deque<InFlightPublication> inFlightPublications = new ArrayDeque<>();
 
     public PublishClusterStateAction(
             Settings settings,
@@ -195,20 +199,26 @@ public class PublishClusterStateAction extends AbstractComponent {
 
         sendingController.waitForCommit(discoverySettings.getCommitTimeout());
 
-        try {
-            long timeLeftInNanos = Math.max(0, publishTimeout.nanos() - (System.nanoTime() - publishingStartInNanos));
-            final BlockingClusterStatePublishResponseHandler publishResponseHandler = sendingController.getPublishResponseHandler();
-            sendingController.setPublishingTimedOut(!publishResponseHandler.awaitAllNodes(TimeValue.timeValueNanos(timeLeftInNanos)));
-            if (sendingController.getPublishingTimedOut()) {
-                DiscoveryNode[] pendingNodes = publishResponseHandler.pendingNodes();
-                // everyone may have just responded
-                if (pendingNodes.length > 0) {
-                    logger.warn("timed out waiting for all nodes to process published state [{}] (timeout [{}], pending nodes: {})", clusterState.version(), publishTimeout, pendingNodes);
-                }
+        // the state is committed, we only have to wait for the nodes to process it. Nodes receive and apply cluster states
+        // in the order they were sent, so we can move on to the next update while a few of them are still being processed
+        inFlightPublications.addLast(new InFlightPublication(sendingController, publishTimeout, publishingStartInNanos));
+        awaitInFlightPublications(discoverySettings.getPublishMaxInFlight());
+    }
+
+    /**
+     * waits, oldest first, for the nodes to process committed cluster states until at most maxInFlight of them are left
+     */
+    private void awaitInFlightPublications(int maxInFlight) {
+        inFlightPublications.removeIf(InFlightPublication::isDone);
+        while (inFlightPublications.size() > maxInFlight) {
+            try {
+                inFlightPublications.peekFirst().awaitAllNodes();
+            } catch (InterruptedException e) {
+                // ignore & restore interrupt
+                Thread.currentThread().interrupt();
+                return;
             }
-        } catch (InterruptedException e) {
-            // ignore & restore interrupt
-            Thread.currentThread().interrupt();
+            inFlightPublications.removeFirst();
         }
     }
 
@@ -220,7 +230,8 @@ public class PublishClusterStateAction extends AbstractComponent {
                 if (sendFullVersion || !previousState.nodes().nodeExists(node)) {
                     // will send a full reference
                     if (serializedStates.containsKey(node.getVersion()) == false) {
-                        serializedStates.put(node.getVersion(), serializeFullClusterState(clusterState, node.getVersion()));
+                        serializedStates.put(node.getVersion(),
+                            serializeFullClusterState(clusterState, node.getVersion(), publishCompressor(node)));
                     }
                 } else {
                     // will send a diff
@@ -228,7 +239,7 @@ public class PublishClusterStateAction extends AbstractComponent {
                         diff = clusterState.diff(previousState);
                     }
                     if (serializedDiffs.containsKey(node.getVersion()) == false) {
-                        serializedDiffs.put(node.getVersion(), serializeDiffClusterState(diff, node.getVersion()));
+                        serializedDiffs.put(node.getVersion(), serializeDiffClusterState(diff, node.getVersion(), publishCompressor(node)));
                     }
                 }
             } catch (IOException e) {
@@ -242,7 +253,7 @@ public class PublishClusterStateAction extends AbstractComponent {
         BytesReference bytes = serializedStates.get(node.getVersion());
         if (bytes == null) {
             try {
-                bytes = serializeFullClusterState(clusterState, node.getVersion());
+                bytes = serializeFullClusterState(clusterState, node.getVersion(), publishCompressor(node));
                 serializedStates.put(node.getVersion(), bytes);
             } catch (Exception e) {
                 logger.warn(
@@ -336,9 +347,18 @@ public class PublishClusterStateAction extends AbstractComponent {
     }
 
 
+    private Compressor publishCompressor(DiscoveryNode node) {
+        return CompressorFactory.compressorForVersion(discoverySettings.getPublishCompressor(), node.getVersion());
+    }
+
     public static BytesReference serializeFullClusterState(ClusterState clusterState, Version nodeVersion) throws IOException {
+        return serializeFullClusterState(clusterState, nodeVersion, CompressorFactory.COMPRESSOR);
+    }
+
+    public static BytesReference serializeFullClusterState(ClusterState clusterState, Version nodeVersion,
+                                                           Compressor compressor) throws IOException {
         BytesStreamOutput bStream = new BytesStreamOutput();
-        try (StreamOutput stream = CompressorFactory.COMPRESSOR.streamOutput(bStream)) {
+        try (StreamOutput stream = compressor.streamOutput(bStream)) {
             stream.setVersion(nodeVersion);
             stream.writeBoolean(true);
             clusterState.writeTo(stream);
@@ -347,8 +367,12 @@ public class PublishClusterStateAction extends AbstractComponent {
     }
 
     public static BytesReference serializeDiffClusterState(Diff diff, Version nodeVersion) throws IOException {
+        return serializeDiffClusterState(diff, nodeVersion, CompressorFactory.COMPRESSOR);
+    }
+
+    public static BytesReference serializeDiffClusterState(Diff diff, Version nodeVersion, Compressor compressor) throws IOException {
         BytesStreamOutput bStream = new BytesStreamOutput();
-        try (StreamOutput stream = CompressorFactory.COMPRESSOR.streamOutput(bStream)) {
+        try (StreamOutput stream = compressor.streamOutput(bStream)) {
             stream.setVersion(nodeVersion);
             stream.writeBoolean(false);
             diff.writeTo(stream);
@@ -492,6 +516,44 @@ public class PublishClusterStateAction extends AbstractComponent {
     }
 
 
+    /**
+     * a committed cluster state that is published to nodes which have not all processed it yet
+     */
+    class InFlightPublication {
+
+        private final SendingController sendingController;
+        private final TimeValue publishTimeout;
+        private final long publishingStartInNanos;
+
+        InFlightPublication(SendingController sendingController, TimeValue publishTimeout, long publishingStartInNanos) {
+            this.sendingController = sendingController;
+            this.publishTimeout = publishTimeout;
+            this.publishingStartInNanos = publishingStartInNanos;
+        }
+
+        boolean isDone() {
+            return sendingController.getPublishResponseHandler().pendingNodes().length == 0;
+        }
+
+        /**
+         * waits for all nodes to process the cluster state, up to the publish timeout measured from the start of the publishing
+         */
+        void awaitAllNodes() throws InterruptedException {
+            final ClusterState clusterState = sendingController.clusterState;
+            long timeLeftInNanos = Math.max(0, publishTimeout.nanos() - (System.nanoTime() - publishingStartInNanos));
+            final BlockingClusterStatePublishResponseHandler publishResponseHandler = sendingController.getPublishResponseHandler();
+            sendingController.setPublishingTimedOut(!publishResponseHandler.awaitAllNodes(TimeValue.timeValueNanos(timeLeftInNanos)));
+            if (sendingController.getPublishingTimedOut()) {
+                DiscoveryNode[] pendingNodes = publishResponseHandler.pendingNodes();
+                // everyone may have just responded
+                if (pendingNodes.length > 0) {
+                    logger.warn("timed out waiting for all nodes to process published state [{}] (timeout [{}], pending nodes: {})",
+                        clusterState.version(), publishTimeout, pendingNodes);
+                }
+            }
+        }
+    }
+
     /**
      * Coordinates acknowledgments of the sent cluster state from the different nodes. Commits the change
      * after `minimum_master_nodes` have successfully responded or fails the entire change. After committing
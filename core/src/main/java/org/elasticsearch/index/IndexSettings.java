@@ -128,6 +128,12 @@ public final class IndexSettings {
     public static final Setting<Integer> MAX_SLICES_PER_SCROLL = Setting.intSetting("index.max_slices_per_scroll",
         1024, 1, Property.Dynamic, Property.IndexScope);
 
+    /**
+     * Whether the query phase searches slices of the segments of a shard concurrently on the search worker thread pool
+     */
+    public static final Setting<Boolean> CONCURRENT_SEGMENT_SEARCH_SETTING =
+        Setting.boolSetting("index.search.concurrent_segment_search", false, Property.Dynamic, Property.IndexScope);
+
     private final Index index;
     private final Version version;
     private final Logger logger;
@@ -165,6 +171,7 @@ public final class IndexSettings {
      * The maximum number of slices allowed in a scroll request.
      */
     private volatile int maxSlicesPerScroll;
+    private volatile boolean concurrentSegmentSearch;
 
 
     /**
@@ -252,6 +259,7 @@ public final class IndexSettings {
         TTLPurgeDisabled = scopedSettings.get(INDEX_TTL_DISABLE_PURGE_SETTING);
         maxRefreshListeners = scopedSettings.get(MAX_REFRESH_LISTENERS_PER_SHARD);
         maxSlicesPerScroll = scopedSettings.get(MAX_SLICES_PER_SCROLL);
+        concurrentSegmentSearch = scopedSettings.get(CONCURRENT_SEGMENT_SEARCH_SETTING);
         this.mergePolicyConfig = new MergePolicyConfig(logger, this);
         assert indexNameMatcher.test(indexMetaData.getIndex().getName());
 
@@ -276,6 +284,7 @@ public final class IndexSettings {
         scopedSettings.addSettingsUpdateConsumer(INDEX_REFRESH_INTERVAL_SETTING, this::setRefreshInterval);
         scopedSettings.addSettingsUpdateConsumer(MAX_REFRESH_LISTENERS_PER_SHARD, this::setMaxRefreshListeners);
         scopedSettings.addSettingsUpdateConsumer(MAX_SLICES_PER_SCROLL, this::setMaxSlicesPerScroll);
+        scopedSettings.addSettingsUpdateConsumer(CONCURRENT_SEGMENT_SEARCH_SETTING, this::setConcurrentSegmentSearch);
 
     }
 
@@ -547,5 +556,16 @@ public final class IndexSettings {
         this.maxSlicesPerScroll = value;
     }
 
+    /**
+     * Returns <code>true</code> if the segments of a shard may be searched concurrently in the query phase.
+     */
+    public boolean isConcurrentSegmentSearch() {
+        return concurrentSegmentSearch;
+    }
+
+    private void setConcurrentSegmentSearch(boolean concurrentSegmentSearch) {
+        this.concurrentSegmentSearch = concurrentSegmentSearch;
+    }
+
     public IndexScopedSettings getScopedSettings() { return scopedSettings;}
 }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.cache.request;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -36,6 +37,11 @@ public class RequestCacheStats implements Streamable, ToXContent {
     long evictions;
     long hitCount;
     long missCount;
+    // stats of the opt-in cache of search hits, see IndicesRequestCache#INDEX_CACHE_HITS_ENABLED_SETTING
+    long hitsMemorySize;
+    long hitsEvictions;
+    long hitsHitCount;
+    long hitsMissCount;
 
     public RequestCacheStats() {
     }
@@ -52,6 +58,21 @@ public class RequestCacheStats implements Streamable, ToXContent {
         this.evictions += stats.evictions;
         this.hitCount += stats.hitCount;
         this.missCount += stats.missCount;
+        this.hitsMemorySize += stats.hitsMemorySize;
+        this.hitsEvictions += stats.hitsEvictions;
+        this.hitsHitCount += stats.hitsHitCount;
+        this.hitsMissCount += stats.hitsMissCount;
+    }
+
+    /**
+     * Sets the stats of the cache of search hits from the stats of the shard level cache of hits.
+     */
+    public RequestCacheStats hitsCache(RequestCacheStats hitsCache) {
+        this.hitsMemorySize = hitsCache.memorySize;
+        this.hitsEvictions = hitsCache.evictions;
+        this.hitsHitCount = hitsCache.hitCount;
+        this.hitsMissCount = hitsCache.missCount;
+        return this;
     }
 
     public long getMemorySizeInBytes() {
@@ -74,12 +95,38 @@ public class RequestCacheStats implements Streamable, ToXContent {
         return this.missCount;
     }
 
+    public long getHitsMemorySizeInBytes() {
+        return this.hitsMemorySize;
+    }
+
+    public ByteSizeValue getHitsMemorySize() {
+        return new ByteSizeValue(hitsMemorySize);
+    }
+
+    public long getHitsEvictions() {
+        return this.hitsEvictions;
+    }
+
+    public long getHitsHitCount() {
+        return this.hitsHitCount;
+    }
+
+    public long getHitsMissCount() {
+        return this.hitsMissCount;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         memorySize = in.readVLong();
         evictions = in.readVLong();
         hitCount = in.readVLong();
         missCount = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            hitsMemorySize = in.readVLong();
+            hitsEvictions = in.readVLong();
+            hitsHitCount = in.readVLong();
+            hitsMissCount = in.readVLong();
+        }
     }
 
     @Override
@@ -88,6 +135,12 @@ public class RequestCacheStats implements Streamable, ToXContent {
         out.writeVLong(evictions);
         out.writeVLong(hitCount);
         out.writeVLong(missCount);
+        if (out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            out.writeVLong(hitsMemorySize);
+            out.writeVLong(hitsEvictions);
+            out.writeVLong(hitsHitCount);
+            out.writeVLong(hitsMissCount);
+        }
     }
 
     @Override
@@ -97,12 +150,19 @@ public class RequestCacheStats implements Streamable, ToXContent {
         builder.field(Fields.EVICTIONS, getEvictions());
         builder.field(Fields.HIT_COUNT, getHitCount());
         builder.field(Fields.MISS_COUNT, getMissCount());
+        builder.startObject(Fields.HITS_CACHE_STATS);
+        builder.byteSizeField(Fields.MEMORY_SIZE_IN_BYTES, Fields.MEMORY_SIZE, hitsMemorySize);
+        builder.field(Fields.EVICTIONS, getHitsEvictions());
+        builder.field(Fields.HIT_COUNT, getHitsHitCount());
+        builder.field(Fields.MISS_COUNT, getHitsMissCount());
+        builder.endObject();
         builder.endObject();
         return builder;
     }
 
     static final class Fields {
         static final String REQUEST_CACHE_STATS = "request_cache";
+        static final String HITS_CACHE_STATS = "hits_cache";
         static final String MEMORY_SIZE = "memory_size";
         static final String MEMORY_SIZE_IN_BYTES = "memory_size_in_bytes";
         static final String EVICTIONS = "evictions";
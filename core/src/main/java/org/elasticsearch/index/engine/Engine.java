@@ -237,6 +237,13 @@ public abstract class Engine implements Closeable {
         return 0;
     }
 
+    /**
+     * Returns the number of operations that had to wait for the lock of their uid because another operation held it.
+     */
+    public long getUidLockContentionCount() {
+        return 0;
+    }
+
     /**
      * Returns the <code>true</code> iff this engine is currently under index throttling.
      * @see #getIndexThrottleTimeInMillis()
@@ -99,6 +99,24 @@ public final class EngineConfig {
     public static final Setting<Boolean> INDEX_OPTIMIZE_AUTO_GENERATED_IDS = Setting.boolSetting("index.optimize_auto_generated_id", true,
         Property.IndexScope, Property.Dynamic);
 
+    /**
+     * Index setting to choose how the engine keeps track of the versions of recently indexed or deleted documents until they are
+     * visible to searches. <code>concurrent</code> (the default) uses a concurrent hash map of uid to version, while <code>paged</code>
+     * stores uids and versions in paged primitive hash tables, which creates much less garbage for indices that see many distinct
+     * uids between refreshes.
+     * This setting is <b>not</b> realtime updateable.
+     */
+    public static final Setting<String> INDEX_VERSION_MAP_TYPE_SETTING = new Setting<>("index.version_map.type", "concurrent", s -> {
+        switch (s) {
+            case "concurrent":
+            case "paged":
+                return s;
+            default:
+                throw new IllegalArgumentException(
+                    "unknown value for [index.version_map.type] must be one of [concurrent, paged] but was: " + s);
+        }
+    }, Property.IndexScope);
+
     private final TranslogConfig translogConfig;
     private final OpenMode openMode;
 
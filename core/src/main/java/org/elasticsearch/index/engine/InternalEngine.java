@@ -52,9 +52,10 @@ import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
-import org.elasticsearch.common.util.concurrent.KeyedLock;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
+import org.elasticsearch.common.util.concurrent.StripedLock;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.mapper.Uid;
@@ -104,9 +105,13 @@ public class InternalEngine extends Engine {
 
     // A uid (in the form of BytesRef) to the version map
     // we use the hashed variant since we iterate over it and check removal and additions on existing keys
-    private final LiveVersionMap versionMap;
+    private final VersionMap versionMap;
 
-    private final KeyedLock<BytesRef> keyedLock = new KeyedLock<>();
+    // the number of locks the uids of operations are striped over, which is well above the number of concurrent
+    // indexing threads so that operations on different uids rarely wait for each other
+    static final int UID_LOCK_STRIPES = 256;
+
+    private final StripedLock<BytesRef> uidLock = new StripedLock<>(UID_LOCK_STRIPES);
 
     private final AtomicBoolean versionMapRefreshPending = new AtomicBoolean();
 
@@ -132,7 +137,7 @@ public class InternalEngine extends Engine {
             // no optimization for pre 5.0.0.alpha6 since translog might not have all information needed
             maxUnsafeAutoIdTimestamp.set(Long.MAX_VALUE);
         }
-        this.versionMap = new LiveVersionMap();
+        this.versionMap = newVersionMap(engineConfig);
         store.incRef();
         IndexWriter writer = null;
         Translog translog = null;
@@ -235,6 +240,18 @@ public class InternalEngine extends Engine {
         }
     }
 
+    private static VersionMap newVersionMap(EngineConfig engineConfig) {
+        switch (engineConfig.getIndexSettings().getValue(EngineConfig.INDEX_VERSION_MAP_TYPE_SETTING)) {
+            case "paged":
+                // the pages only live until the next refresh and must not be accounted against the request circuit breaker
+                return new PagedLiveVersionMap(BigArrays.NON_RECYCLING_INSTANCE);
+            case "concurrent":
+                return new LiveVersionMap();
+            default:
+                throw new AssertionError("unknown version map type");
+        }
+    }
+
     private Translog openTranslog(EngineConfig engineConfig, IndexWriter writer) throws IOException {
         final TranslogConfig translogConfig = engineConfig.getTranslogConfig();
         Translog.TranslogGeneration generation = null;
@@ -1064,7 +1081,7 @@ public class InternalEngine extends Engine {
     }
 
     private Releasable acquireLock(BytesRef uid) {
-        return keyedLock.acquire(uid);
+        return uidLock.acquire(uid);
     }
 
     private Releasable acquireLock(Term uid) {
@@ -1166,6 +1183,11 @@ public class InternalEngine extends Engine {
         return throttle.getThrottleTimeInMillis();
     }
 
+    @Override
+    public long getUidLockContentionCount() {
+        return uidLock.getContendedCount();
+    }
+
     long getGcDeletesInMillis() {
         return engineConfig.getIndexSettings().getGcDeletesInMillis();
     }
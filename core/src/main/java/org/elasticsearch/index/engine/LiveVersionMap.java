@@ -23,7 +23,6 @@ import org.apache.lucene.index.Term;
 import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.BytesRef;
-import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 
 import java.io.IOException;
@@ -33,7 +32,7 @@ import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
 /** Maps _uid value to its version information. */
-class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
+class LiveVersionMap extends VersionMap {
 
     private static class Maps {
 
@@ -61,36 +60,6 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
 
     private ReferenceManager<?> mgr;
 
-    /** Bytes consumed for each BytesRef UID:
-     * In this base value, we account for the {@link BytesRef} object itself as
-     * well as the header of the byte[] array it holds, and some lost bytes due
-     * to object alignment. So consumers of this constant just have to add the
-     * length of the byte[] (assuming it is not shared between multiple
-     * instances). */
-    private static final long BASE_BYTES_PER_BYTESREF =
-            // shallow memory usage of the BytesRef object
-            RamUsageEstimator.shallowSizeOfInstance(BytesRef.class) +
-            // header of the byte[] array
-            RamUsageEstimator.NUM_BYTES_ARRAY_HEADER +
-            // with an alignment size (-XX:ObjectAlignmentInBytes) of 8 (default),
-            // there could be between 0 and 7 lost bytes, so we account for 3
-            // lost bytes on average
-            3;
-
-    /** Bytes used by having CHM point to a key/value. */
-    private static final long BASE_BYTES_PER_CHM_ENTRY;
-    static {
-        // use the same impl as the Maps does
-        Map<Integer, Integer> map = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
-        map.put(0, 0);
-        long chmEntryShallowSize = RamUsageEstimator.shallowSizeOf(map.entrySet().iterator().next());
-        // assume a load factor of 50%
-        // for each entry, we need two object refs, one for the entry itself
-        // and one for the free space that is due to the fact hash tables can
-        // not be fully loaded
-        BASE_BYTES_PER_CHM_ENTRY = chmEntryShallowSize + 2 * RamUsageEstimator.NUM_BYTES_OBJECT_REF;
-    }
-
     /** Tracks bytes used by current map, i.e. what is freed on refresh. For deletes, which are also added to tombstones, we only account
      *  for the CHM entry here, and account for BytesRef/VersionValue against the tombstones, since refresh would not clear this RAM. */
     final AtomicLong ramBytesUsedCurrent = new AtomicLong();
@@ -99,6 +68,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
     final AtomicLong ramBytesUsedTombstones = new AtomicLong();
 
     /** Sync'd because we replace old mgr. */
+    @Override
     synchronized void setManager(ReferenceManager<?> newMgr) {
         if (mgr != null) {
             mgr.removeListener(this);
@@ -138,6 +108,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
     }
 
     /** Returns the live version (add or delete) for this uid. */
+    @Override
     VersionValue getUnderLock(final Term uid) {
         Maps currentMaps = maps;
 
@@ -156,6 +127,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
     }
 
     /** Adds this uid/version to the pending adds map. */
+    @Override
     void putUnderLock(BytesRef uid, VersionValue version) {
         assert uid.bytes.length == uid.length : "Oversized _uid! UID length: " + uid.length + ", bytes length: " + uid.bytes.length;
         long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
@@ -205,6 +177,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
     }
 
     /** Removes this uid from the pending deletes map. */
+    @Override
     void removeTombstoneUnderLock(BytesRef uid) {
 
         long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
@@ -225,16 +198,19 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
     }
 
     /** Caller has a lock, so that this uid will not be concurrently added/deleted by another thread. */
+    @Override
     VersionValue getTombstoneUnderLock(BytesRef uid) {
         return tombstones.get(uid);
     }
 
     /** Iterates over all deleted versions, including new ones (not yet exposed via reader) and old ones (exposed via reader but not yet GC'd). */
+    @Override
     Iterable<Map.Entry<BytesRef,VersionValue>> getAllTombstones() {
         return tombstones.entrySet();
     }
 
     /** Called when this index is closed. */
+    @Override
     synchronized void clear() {
         maps = new Maps();
         tombstones.clear();
@@ -258,6 +234,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
 
     /** Returns how much RAM would be freed up by refreshing. This is {@link #ramBytesUsed} except does not include tombstones because they
      *  don't clear on refresh. */
+    @Override
     long ramBytesUsedForRefresh() {
         return ramBytesUsedCurrent.get();
     }
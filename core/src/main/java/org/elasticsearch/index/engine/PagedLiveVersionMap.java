@@ -0,0 +1,350 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link VersionMap} that keeps the live (not yet refreshed) adds and deletes in primitive open-addressing hash tables backed by
+ * {@link BigArrays} pages rather than in a {@link java.util.concurrent.ConcurrentHashMap} of {@link BytesRef} to {@link VersionValue}.
+ * This trades a small lookup overhead for not creating several objects per indexed uid, which matters for update-heavy indices that
+ * see many distinct uids between two refreshes. The live tables are striped into segments that are each guarded by their own monitor.
+ * Delete tombstones need removal and iteration, and outlive refreshes, so they are kept in a concurrent map like {@link LiveVersionMap}
+ * does.
+ */
+final class PagedLiveVersionMap extends VersionMap {
+
+    /** Initial capacity of each segment, segments grow on demand. */
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+    /** Value stored in the times array for uids whose latest operation was an index operation. */
+    private static final long NO_DELETE_TIME = -1L;
+
+    private static final Segment[] EMPTY = new Segment[0];
+
+    /** Maps a uid to its latest version (and the time of the delete if the latest operation was a delete). Not thread-safe on its own,
+     *  all access is synchronized on the segment. */
+    private static final class Segment implements Releasable {
+
+        private final BigArrays bigArrays;
+        private final BytesRefHash uids;
+        private LongArray versions;
+        private LongArray times;
+        private long keyBytes;
+        private long ramBytesUsed;
+        private boolean closed;
+
+        Segment(BigArrays bigArrays) {
+            this.bigArrays = bigArrays;
+            boolean success = false;
+            try {
+                uids = new BytesRefHash(INITIAL_SEGMENT_CAPACITY, bigArrays);
+                versions = bigArrays.newLongArray(INITIAL_SEGMENT_CAPACITY, false);
+                times = bigArrays.newLongArray(INITIAL_SEGMENT_CAPACITY, false);
+                success = true;
+            } finally {
+                if (success == false) {
+                    close();
+                }
+            }
+            ramBytesUsed = computeRamBytesUsed();
+        }
+
+        synchronized VersionValue get(BytesRef uid, int code) {
+            if (closed) {
+                // the segment was released after a refresh, which means that its operations are now visible via the searcher:
+                return null;
+            }
+            final long id = uids.find(uid, code);
+            if (id < 0) {
+                return null;
+            }
+            final long time = times.get(id);
+            if (time == NO_DELETE_TIME) {
+                return new VersionValue(versions.get(id));
+            }
+            return new DeleteVersionValue(versions.get(id), time);
+        }
+
+        /** Records the version and returns by how many bytes the RAM usage of this segment changed. */
+        synchronized long put(BytesRef uid, int code, VersionValue version) {
+            if (closed) {
+                // a concurrent refresh already dropped this segment, same as adding to a map that is not referenced anymore
+                return 0;
+            }
+            long id = uids.add(uid, code);
+            if (id < 0) {
+                id = -1 - id;
+            } else {
+                keyBytes += uid.length;
+                versions = bigArrays.grow(versions, id + 1);
+                times = bigArrays.grow(times, id + 1);
+            }
+            versions.set(id, version.version());
+            times.set(id, version.delete() ? version.time() : NO_DELETE_TIME);
+            final long previousRamBytesUsed = ramBytesUsed;
+            ramBytesUsed = computeRamBytesUsed();
+            return ramBytesUsed - previousRamBytesUsed;
+        }
+
+        private long computeRamBytesUsed() {
+            // BytesRefHash does not expose its memory usage: it holds one slot per bucket, and a start offset and a cached hash per key,
+            // in addition to the key bytes themselves
+            return uids.capacity() * Long.BYTES + uids.size() * (Long.BYTES + Integer.BYTES) + keyBytes
+                + versions.ramBytesUsed() + times.ramBytesUsed();
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed == false) {
+                closed = true;
+                Releasables.close(uids, versions, times);
+            }
+        }
+    }
+
+    private static final class Maps {
+
+        // All writes (adds and deletes) go into here:
+        final Segment[] current;
+
+        // Used while refresh is running, and to hold adds/deletes until refresh finishes.  We read from both current and old on lookup:
+        final Segment[] old;
+
+        Maps(Segment[] current, Segment[] old) {
+            this.current = current;
+            this.old = old;
+        }
+    }
+
+    private final BigArrays bigArrays;
+
+    private final int numSegments;
+
+    // All deletes also go here, and delete "tombstones" are retained after refresh:
+    private final Map<BytesRef,VersionValue> tombstones = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+
+    private volatile Maps maps;
+
+    private ReferenceManager<?> mgr;
+
+    /** Tracks bytes used by the current segments, i.e. what is freed on refresh. */
+    final AtomicLong ramBytesUsedCurrent = new AtomicLong();
+
+    /** Tracks bytes used by tombstones (deletes) */
+    final AtomicLong ramBytesUsedTombstones = new AtomicLong();
+
+    PagedLiveVersionMap(BigArrays bigArrays) {
+        this(bigArrays, Math.max(Runtime.getRuntime().availableProcessors() * 2, 16));
+    }
+
+    PagedLiveVersionMap(BigArrays bigArrays, int numSegments) {
+        if (numSegments < 1) {
+            throw new IllegalArgumentException("numSegments must be >= 1 but was [" + numSegments + "]");
+        }
+        this.bigArrays = bigArrays;
+        this.numSegments = numSegments;
+        this.maps = new Maps(newSegments(), EMPTY);
+    }
+
+    private Segment[] newSegments() {
+        final Segment[] segments = new Segment[numSegments];
+        boolean success = false;
+        try {
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = new Segment(bigArrays);
+            }
+            success = true;
+        } finally {
+            if (success == false) {
+                Releasables.close(segments);
+            }
+        }
+        return segments;
+    }
+
+    private static Segment segment(Segment[] segments, int code) {
+        return segments[Math.floorMod(code, segments.length)];
+    }
+
+    private static VersionValue get(Segment[] segments, BytesRef uid, int code) {
+        if (segments.length == 0) {
+            return null;
+        }
+        return segment(segments, code).get(uid, code);
+    }
+
+    @Override
+    synchronized void setManager(ReferenceManager<?> newMgr) {
+        if (mgr != null) {
+            mgr.removeListener(this);
+        }
+        mgr = newMgr;
+
+        // In case InternalEngine closes & opens a new IndexWriter/SearcherManager, all deletes are made visible, so we clear old and
+        // current here.  This is safe because caller holds writeLock here (so no concurrent adds/deletes can be happening):
+        final Maps previous = maps;
+        maps = new Maps(newSegments(), EMPTY);
+        release(previous);
+        ramBytesUsedCurrent.set(0);
+
+        // So we are notified when reopen starts and finishes
+        mgr.addListener(this);
+    }
+
+    @Override
+    public void beforeRefresh() throws IOException {
+        // Start sending all updates after this point to the new segments.  While reopen is running, any lookup will first try the new
+        // segments, then fallback to old, then to the current searcher:
+        final Maps previous = maps;
+        maps = new Maps(newSegments(), previous.current);
+        Releasables.close(previous.old);
+        // Same as LiveVersionMap, concurrent indexing ops may still account against the segments that just became old, which is minor:
+        ramBytesUsedCurrent.set(0);
+    }
+
+    @Override
+    public void afterRefresh(boolean didRefresh) throws IOException {
+        // We can now release old because these operations are now visible via the newly opened searcher, see LiveVersionMap for why
+        // this is safe even if didRefresh is false. Lookups that still hold on to the old segments find them closed and fall back to
+        // the searcher. We don't touch tombstones here: they expire on their own index.gc_deletes timeframe:
+        final Maps previous = maps;
+        maps = new Maps(previous.current, EMPTY);
+        Releasables.close(previous.old);
+    }
+
+    @Override
+    VersionValue getUnderLock(final Term uid) {
+        final BytesRef bytes = uid.bytes();
+        final int code = bytes.hashCode();
+        final Maps currentMaps = maps;
+
+        // First try to get the "live" value:
+        VersionValue value = get(currentMaps.current, bytes, code);
+        if (value != null) {
+            return value;
+        }
+
+        value = get(currentMaps.old, bytes, code);
+        if (value != null) {
+            return value;
+        }
+
+        return tombstones.get(bytes);
+    }
+
+    @Override
+    void putUnderLock(BytesRef uid, VersionValue version) {
+        assert uid.bytes.length == uid.length : "Oversized _uid! UID length: " + uid.length + ", bytes length: " + uid.bytes.length;
+        final Segment[] current = maps.current;
+        assert current.length > 0 : "version map was cleared";
+        final int code = uid.hashCode();
+        ramBytesUsedCurrent.addAndGet(segment(current, code).put(uid, code, version));
+
+        long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
+        final VersionValue prevTombstone;
+        if (version.delete()) {
+            // Also enroll the delete into tombstones, and account for its RAM too:
+            prevTombstone = tombstones.put(uid, version);
+            ramBytesUsedTombstones.addAndGet(BASE_BYTES_PER_CHM_ENTRY + version.ramBytesUsed() + uidRAMBytesUsed);
+        } else {
+            // UID came back to life so we remove the tombstone:
+            prevTombstone = tombstones.remove(uid);
+        }
+
+        // Deduct tombstones bytes used for the version we just removed or replaced:
+        if (prevTombstone != null) {
+            long v = ramBytesUsedTombstones.addAndGet(-(BASE_BYTES_PER_CHM_ENTRY + prevTombstone.ramBytesUsed() + uidRAMBytesUsed));
+            assert v >= 0: "bytes=" + v;
+        }
+    }
+
+    @Override
+    void removeTombstoneUnderLock(BytesRef uid) {
+        final VersionValue prev = tombstones.remove(uid);
+        if (prev != null) {
+            assert prev.delete();
+            long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
+            long v = ramBytesUsedTombstones.addAndGet(-(BASE_BYTES_PER_CHM_ENTRY + prev.ramBytesUsed() + uidRAMBytesUsed));
+            assert v >= 0: "bytes=" + v;
+        }
+    }
+
+    @Override
+    VersionValue getTombstoneUnderLock(BytesRef uid) {
+        return tombstones.get(uid);
+    }
+
+    @Override
+    Iterable<Map.Entry<BytesRef,VersionValue>> getAllTombstones() {
+        return tombstones.entrySet();
+    }
+
+    @Override
+    synchronized void clear() {
+        // Unlike on refresh, we don't allocate new segments here: the index is being closed and no more adds/deletes will come in
+        final Maps previous = maps;
+        maps = new Maps(EMPTY, EMPTY);
+        release(previous);
+        tombstones.clear();
+        ramBytesUsedCurrent.set(0);
+
+        // NOTE: we can't zero ramBytesUsedTombstones here, see LiveVersionMap#clear
+
+        if (mgr != null) {
+            mgr.removeListener(this);
+            mgr = null;
+        }
+    }
+
+    private static void release(Maps maps) {
+        Releasables.close(Releasables.wrap(maps.current), Releasables.wrap(maps.old));
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return ramBytesUsedCurrent.get() + ramBytesUsedTombstones.get();
+    }
+
+    @Override
+    long ramBytesUsedForRefresh() {
+        return ramBytesUsedCurrent.get();
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.util.Map;
+
+/**
+ * Maps _uid value to its version information. Implementations swap their live maps on refresh and retain delete tombstones until they
+ * are pruned by the engine.
+ */
+abstract class VersionMap implements ReferenceManager.RefreshListener, Accountable {
+
+    /** Bytes consumed for each BytesRef UID:
+     * In this base value, we account for the {@link BytesRef} object itself as
+     * well as the header of the byte[] array it holds, and some lost bytes due
+     * to object alignment. So consumers of this constant just have to add the
+     * length of the byte[] (assuming it is not shared between multiple
+     * instances). */
+    static final long BASE_BYTES_PER_BYTESREF =
+            // shallow memory usage of the BytesRef object
+            RamUsageEstimator.shallowSizeOfInstance(BytesRef.class) +
+            // header of the byte[] array
+            RamUsageEstimator.NUM_BYTES_ARRAY_HEADER +
+            // with an alignment size (-XX:ObjectAlignmentInBytes) of 8 (default),
+            // there could be between 0 and 7 lost bytes, so we account for 3
+            // lost bytes on average
+            3;
+
+    /** Bytes used by having CHM point to a key/value. */
+    static final long BASE_BYTES_PER_CHM_ENTRY;
+    static {
+        // use the same impl as the Maps does
+        Map<Integer, Integer> map = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+        map.put(0, 0);
+        long chmEntryShallowSize = RamUsageEstimator.shallowSizeOf(map.entrySet().iterator().next());
+        // assume a load factor of 50%
+        // for each entry, we need two object refs, one for the entry itself
+        // and one for the free space that is due to the fact hash tables can
+        // not be fully loaded
+        BASE_BYTES_PER_CHM_ENTRY = chmEntryShallowSize + 2 * RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+    }
+
+    /** Registers this map as a refresh listener of the given manager, replacing the previous one, and drops all live adds/deletes. */
+    abstract void setManager(ReferenceManager<?> newMgr);
+
+    /** Returns the live version (add or delete) for this uid. */
+    abstract VersionValue getUnderLock(Term uid);
+
+    /** Adds this uid/version to the pending adds map. */
+    abstract void putUnderLock(BytesRef uid, VersionValue version);
+
+    /** Removes this uid from the pending deletes map. */
+    abstract void removeTombstoneUnderLock(BytesRef uid);
+
+    /** Caller has a lock, so that this uid will not be concurrently added/deleted by another thread. */
+    abstract VersionValue getTombstoneUnderLock(BytesRef uid);
+
+    /** Iterates over all deleted versions, including new ones (not yet exposed via reader) and old ones (exposed via reader but not yet
+     *  GC'd). */
+    abstract Iterable<Map.Entry<BytesRef,VersionValue>> getAllTombstones();
+
+    /** Called when this index is closed. */
+    abstract void clear();
+
+    /** Returns how much RAM would be freed up by refreshing. This is {@link #ramBytesUsed} except does not include tombstones because they
+     *  don't clear on refresh. */
+    abstract long ramBytesUsedForRefresh();
+}
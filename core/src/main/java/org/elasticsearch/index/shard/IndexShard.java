@@ -114,6 +114,7 @@ import org.elasticsearch.index.warmer.ShardIndexWarmerService;
 import org.elasticsearch.index.warmer.WarmerStats;
 import org.elasticsearch.indices.IndexingMemoryController;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.TranslogGroupCommitScheduler;
 import org.elasticsearch.indices.cluster.IndicesClusterStateService;
 import org.elasticsearch.indices.recovery.RecoveryFailedException;
 import org.elasticsearch.indices.recovery.RecoveryState;
@@ -147,6 +148,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class IndexShard extends AbstractIndexShardComponent implements IndicesClusterStateService.Shard {
 
@@ -159,6 +161,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
     private final ShardGetService getService;
     private final ShardIndexWarmerService shardWarmerService;
     private final ShardRequestCache requestCacheStats;
+    private final ShardRequestCache hitsCacheStats;
     private final ShardFieldData shardFieldData;
     private final IndexFieldDataService indexFieldDataService;
     private final ShardBitsetFilterCache shardBitsetFilterCache;
@@ -224,12 +227,15 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
      */
     @Nullable
     private final RefreshListeners refreshListeners;
+    @Nullable
+    private final TranslogGroupCommitScheduler translogGroupCommitScheduler;
 
     public IndexShard(ShardRouting shardRouting, IndexSettings indexSettings, ShardPath path, Store store, IndexCache indexCache,
                       MapperService mapperService, SimilarityService similarityService, IndexFieldDataService indexFieldDataService,
                       @Nullable EngineFactory engineFactory,
                       IndexEventListener indexEventListener, IndexSearcherWrapper indexSearcherWrapper, ThreadPool threadPool, BigArrays bigArrays,
-                      Engine.Warmer warmer, List<SearchOperationListener> searchOperationListener, List<IndexingOperationListener> listeners) throws IOException {
+                      Engine.Warmer warmer, @Nullable TranslogGroupCommitScheduler translogGroupCommitScheduler,
+                      List<SearchOperationListener> searchOperationListener, List<IndexingOperationListener> listeners) throws IOException {
         super(shardRouting.shardId(), indexSettings);
         assert shardRouting.initializing();
         this.shardRouting = shardRouting;
@@ -243,6 +249,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         this.store = store;
         this.indexEventListener = indexEventListener;
         this.threadPool = threadPool;
+        this.translogGroupCommitScheduler = translogGroupCommitScheduler;
         this.mapperService = mapperService;
         this.indexCache = indexCache;
         this.internalIndexingStats = new InternalIndexingStats();
@@ -255,6 +262,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         this.getService = new ShardGetService(indexSettings, this, mapperService);
         this.shardWarmerService = new ShardIndexWarmerService(shardId, indexSettings);
         this.requestCacheStats = new ShardRequestCache();
+        this.hitsCacheStats = new ShardRequestCache();
         this.shardFieldData = new ShardFieldData();
         this.indexFieldDataService = indexFieldDataService;
         this.shardBitsetFilterCache = new ShardBitsetFilterCache(shardId, indexSettings);
@@ -319,6 +327,14 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         return this.requestCacheStats;
     }
 
+    /**
+     * The stats of the cache of search hits, which is separate from the request cache, see
+     * {@link org.elasticsearch.indices.IndicesRequestCache#INDEX_CACHE_HITS_ENABLED_SETTING}.
+     */
+    public ShardRequestCache hitsCache() {
+        return this.hitsCacheStats;
+    }
+
     public ShardFieldData fieldData() {
         return this.shardFieldData;
     }
@@ -666,14 +682,17 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         Engine engine = getEngineOrNull();
         final boolean throttled;
         final long throttleTimeInMillis;
+        final long uidLockContentionCount;
         if (engine == null) {
             throttled = false;
             throttleTimeInMillis = 0;
+            uidLockContentionCount = 0;
         } else {
             throttled = engine.isThrottled();
             throttleTimeInMillis = engine.getIndexThrottleTimeInMillis();
+            uidLockContentionCount = engine.getUidLockContentionCount();
         }
-        return internalIndexingStats.stats(throttled, throttleTimeInMillis, types);
+        return internalIndexingStats.stats(throttled, throttleTimeInMillis, uidLockContentionCount, types);
     }
 
     public SearchStats searchStats(String... groups) {
@@ -1646,31 +1665,43 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
     private final AsyncIOProcessor<Translog.Location> translogSyncProcessor = new AsyncIOProcessor<Translog.Location>(logger, 1024) {
         @Override
         protected void write(List<Tuple<Translog.Location, Consumer<Exception>>> candidates) throws IOException {
-                try {
-                    final Engine engine = getEngine();
-                    engine.getTranslog().ensureSynced(candidates.stream().map(Tuple::v1));
-                } catch (EngineClosedException ex) {
-                    // that's fine since we already synced everything on engine close - this also is conform with the methods
-                    // documentation
-                } catch (IOException ex) { // if this fails we are in deep shit - fail the request
-                    logger.debug("failed to sync translog", ex);
-                    throw ex;
-                }
+            ensureTranslogSynced(candidates.stream().map(Tuple::v1));
         }
     };
 
+    // a single instance since the group commit scheduler uses it to identify the translog of this shard
+    private final TranslogGroupCommitScheduler.TranslogSyncer translogSyncer = locations -> ensureTranslogSynced(locations.stream());
+
+    private void ensureTranslogSynced(Stream<Translog.Location> locations) throws IOException {
+        try {
+            final Engine engine = getEngine();
+            engine.getTranslog().ensureSynced(locations);
+        } catch (EngineClosedException ex) {
+            // that's fine since we already synced everything on engine close - this also is conform with the methods
+            // documentation
+        } catch (IOException ex) { // if this fails we are in deep shit - fail the request
+            logger.debug("failed to sync translog", ex);
+            throw ex;
+        }
+    }
+
     /**
      * Syncs the given location with the underlying storage unless already synced. This method might return immediately without
      * actually fsyncing the location until the sync listener is called. Yet, unless there is already another thread fsyncing
      * the transaction log the caller thread will be hijacked to run the fsync for all pending fsync operations.
      * This method allows indexing threads to continue indexing without blocking on fsync calls. We ensure that there is only
-     * one thread blocking on the sync an all others can continue indexing.
+     * one thread blocking on the sync an all others can continue indexing. If translog group commits are enabled, the sync is
+     * instead deferred to the next group commit of this shard's data path, see {@link TranslogGroupCommitScheduler}.
      * NOTE: if the syncListener throws an exception when it's processed the exception will only be logged. Users should make sure that the
      * listener handles all exception cases internally.
      */
     public final void sync(Translog.Location location, Consumer<Exception> syncListener) {
         verifyNotClosed();
-        translogSyncProcessor.put(location, syncListener);
+        if (translogGroupCommitScheduler != null && translogGroupCommitScheduler.isEnabled()) {
+            translogGroupCommitScheduler.sync(path.getRootDataPath(), translogSyncer, location, syncListener);
+        } else {
+            translogSyncProcessor.put(location, syncListener);
+        }
     }
 
     /**
@@ -48,6 +48,7 @@ public class IndexingStats implements Streamable, ToXContent {
         private long noopUpdateCount;
         private long throttleTimeInMillis;
         private boolean isThrottled;
+        private long uidLockContentionCount;
 
         Stats() {}
 
@@ -64,6 +65,14 @@ public class IndexingStats implements Streamable, ToXContent {
             this.throttleTimeInMillis = throttleTimeInMillis;
         }
 
+        public Stats(long indexCount, long indexTimeInMillis, long indexCurrent, long indexFailedCount, long deleteCount,
+                     long deleteTimeInMillis, long deleteCurrent, long noopUpdateCount, boolean isThrottled, long throttleTimeInMillis,
+                     long uidLockContentionCount) {
+            this(indexCount, indexTimeInMillis, indexCurrent, indexFailedCount, deleteCount, deleteTimeInMillis, deleteCurrent,
+                noopUpdateCount, isThrottled, throttleTimeInMillis);
+            this.uidLockContentionCount = uidLockContentionCount;
+        }
+
         public void add(Stats stats) {
             indexCount += stats.indexCount;
             indexTimeInMillis += stats.indexTimeInMillis;
@@ -79,6 +88,7 @@ public class IndexingStats implements Streamable, ToXContent {
             if (isThrottled != stats.isThrottled) {
                 isThrottled = true; //When combining if one is throttled set result to throttled.
             }
+            uidLockContentionCount += stats.uidLockContentionCount;
         }
 
         /**
@@ -134,6 +144,14 @@ public class IndexingStats implements Streamable, ToXContent {
             return noopUpdateCount;
         }
 
+        /**
+         * Returns the number of index and delete operations that waited for another operation holding the lock of their uid.
+         * This is counted per shard rather than per type, so it is always 0 on the stats of a type.
+         */
+        public long getUidLockContentionCount() {
+            return uidLockContentionCount;
+        }
+
         public static Stats readStats(StreamInput in) throws IOException {
             Stats stats = new Stats();
             stats.readFrom(in);
@@ -156,6 +174,9 @@ public class IndexingStats implements Streamable, ToXContent {
             noopUpdateCount = in.readVLong();
             isThrottled = in.readBoolean();
             throttleTimeInMillis = in.readLong();
+            if (in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+                uidLockContentionCount = in.readVLong();
+            }
         }
 
         @Override
@@ -174,6 +195,9 @@ public class IndexingStats implements Streamable, ToXContent {
             out.writeVLong(noopUpdateCount);
             out.writeBoolean(isThrottled);
             out.writeLong(throttleTimeInMillis);
+            if (out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+                out.writeVLong(uidLockContentionCount);
+            }
 
         }
 
@@ -192,6 +216,7 @@ public class IndexingStats implements Streamable, ToXContent {
 
             builder.field(Fields.IS_THROTTLED, isThrottled);
             builder.timeValueField(Fields.THROTTLED_TIME_IN_MILLIS, Fields.THROTTLED_TIME, throttleTimeInMillis);
+            builder.field(Fields.UID_LOCK_CONTENTION_TOTAL, uidLockContentionCount);
             return builder;
         }
     }
@@ -283,6 +308,7 @@ public class IndexingStats implements Streamable, ToXContent {
         static final String IS_THROTTLED = "is_throttled";
         static final String THROTTLED_TIME_IN_MILLIS = "throttle_time_in_millis";
         static final String THROTTLED_TIME = "throttle_time";
+        static final String UID_LOCK_CONTENTION_TOTAL = "uid_lock_contention_total";
     }
 
     public static IndexingStats readIndexingStats(StreamInput in) throws IOException {
@@ -25,6 +25,7 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.cache.Cache;
 import org.elasticsearch.common.cache.CacheBuilder;
@@ -75,6 +76,18 @@ public final class IndicesRequestCache extends AbstractComponent implements Remo
         Setting.byteSizeSetting("indices.requests.cache.size", "1%", Property.NodeScope);
     public static final Setting<TimeValue> INDICES_CACHE_QUERY_EXPIRE =
         Setting.positiveTimeSetting("indices.requests.cache.expire", new TimeValue(0), Property.NodeScope);
+    public static final Setting<Cache.EvictionPolicy> INDICES_CACHE_QUERY_EVICTION_POLICY =
+        new Setting<>("indices.requests.cache.eviction_policy", Cache.EvictionPolicy.LRU.name(), Cache.EvictionPolicy::parse,
+            Property.NodeScope);
+    /**
+     * A setting to enable caching of the top docs and fetched hits of search requests with {@code size > 0} on an index level.
+     * Unlike the request cache this is opt-in since the entries are considerably bigger and only pay off for indices that
+     * receive the same searches repeatedly between refreshes.
+     */
+    public static final Setting<Boolean> INDEX_CACHE_HITS_ENABLED_SETTING =
+        Setting.boolSetting("index.requests.cache.hits.enable", false, Property.Dynamic, Property.IndexScope);
+    public static final Setting<ByteSizeValue> INDICES_CACHE_HITS_SIZE =
+        Setting.byteSizeSetting("indices.requests.cache.hits.size", "1%", Property.NodeScope);
 
     private final ConcurrentMap<CleanupKey, Boolean> registeredClosedListeners = ConcurrentCollections.newConcurrentMap();
     private final Set<CleanupKey> keysToClean = ConcurrentCollections.newConcurrentSet();
@@ -83,12 +96,18 @@ public final class IndicesRequestCache extends AbstractComponent implements Remo
     private final Cache<Key, Value> cache;
 
     IndicesRequestCache(Settings settings) {
+        this(settings, INDICES_CACHE_QUERY_SIZE.get(settings),
+            INDICES_CACHE_QUERY_EXPIRE.exists(settings) ? INDICES_CACHE_QUERY_EXPIRE.get(settings) : null);
+    }
+
+    IndicesRequestCache(Settings settings, ByteSizeValue size, @Nullable TimeValue expire) {
         super(settings);
-        this.size = INDICES_CACHE_QUERY_SIZE.get(settings);
-        this.expire = INDICES_CACHE_QUERY_EXPIRE.exists(settings) ? INDICES_CACHE_QUERY_EXPIRE.get(settings) : null;
+        this.size = size;
+        this.expire = expire;
         long sizeInBytes = size.bytes();
         CacheBuilder<Key, Value> cacheBuilder = CacheBuilder.<Key, Value>builder()
-            .setMaximumWeight(sizeInBytes).weigher((k, v) -> k.ramBytesUsed() + v.ramBytesUsed()).removalListener(this);
+            .setMaximumWeight(sizeInBytes).weigher((k, v) -> k.ramBytesUsed() + v.ramBytesUsed()).removalListener(this)
+            .setEvictionPolicy(INDICES_CACHE_QUERY_EVICTION_POLICY.get(settings));
         if (expire != null) {
             cacheBuilder.setExpireAfterAccess(TimeUnit.MILLISECONDS.toNanos(expire.millis()));
         }
@@ -130,6 +149,16 @@ public final class IndicesRequestCache extends AbstractComponent implements Remo
         return value.reference;
     }
 
+    /**
+     * Invalidates the cache entry for the given key and reader, e.g. because the result it holds turned out to be partial
+     * @param cacheEntity the cache entity to invalidate for
+     * @param reader the reader to invalidate the cache entry for
+     * @param cacheKey the cache key to invalidate
+     */
+    void invalidate(CacheEntity cacheEntity, DirectoryReader reader, BytesReference cacheKey) {
+        cache.invalidate(new Key(cacheEntity, reader.getVersion(), cacheKey));
+    }
+
     private static class Loader implements CacheLoader<Key, Value> {
 
         private final CacheEntity entity;
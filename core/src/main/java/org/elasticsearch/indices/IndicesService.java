@@ -48,6 +48,7 @@ import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -103,6 +104,9 @@ import org.elasticsearch.indices.recovery.PeerRecoveryTargetService;
 import org.elasticsearch.indices.recovery.RecoveryState;
 import org.elasticsearch.plugins.PluginsService;
 import org.elasticsearch.repositories.RepositoriesService;
+import org.elasticsearch.search.fetch.FetchPhase;
+import org.elasticsearch.search.internal.InternalSearchHits;
+import org.elasticsearch.search.internal.InternalSearchHits.StreamContext;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.query.QueryPhase;
@@ -161,6 +165,7 @@ public class IndicesService extends AbstractLifecycleComponent
     private final IndexingMemoryController indexingMemoryController;
     private final TimeValue cleanInterval;
     private final IndicesRequestCache indicesRequestCache;
+    private final IndicesRequestCache indicesHitsCache;
     private final IndicesQueryCache indicesQueryCache;
     private final MetaStateService metaStateService;
 
@@ -186,6 +191,7 @@ public class IndicesService extends AbstractLifecycleComponent
         this.indicesQueriesRegistry = indicesQueriesRegistry;
         this.indexNameExpressionResolver = indexNameExpressionResolver;
         this.indicesRequestCache = new IndicesRequestCache(settings);
+        this.indicesHitsCache = new IndicesRequestCache(settings, IndicesRequestCache.INDICES_CACHE_HITS_SIZE.get(settings), null);
         this.indicesQueryCache = new IndicesQueryCache(settings);
         this.mapperRegistry = mapperRegistry;
         this.namedWriteableRegistry = namedWriteableRegistry;
@@ -204,7 +210,8 @@ public class IndicesService extends AbstractLifecycleComponent
             }
         });
         this.cleanInterval = INDICES_CACHE_CLEAN_INTERVAL_SETTING.get(settings);
-        this.cacheCleaner = new CacheCleaner(indicesFieldDataCache, indicesRequestCache,  logger, threadPool, this.cleanInterval);
+        this.cacheCleaner = new CacheCleaner(indicesFieldDataCache, indicesRequestCache, indicesHitsCache, logger, threadPool,
+            this.cleanInterval);
         this.metaStateService = metaStateService;
     }
 
@@ -239,7 +246,8 @@ public class IndicesService extends AbstractLifecycleComponent
 
     @Override
     protected void doClose() {
-        IOUtils.closeWhileHandlingException(analysisRegistry, indexingMemoryController, indicesFieldDataCache, cacheCleaner, indicesRequestCache, indicesQueryCache);
+        IOUtils.closeWhileHandlingException(analysisRegistry, indexingMemoryController, indicesFieldDataCache, cacheCleaner,
+            indicesRequestCache, indicesHitsCache, indicesQueryCache);
     }
 
     /**
@@ -1007,10 +1015,13 @@ public class IndicesService extends AbstractLifecycleComponent
         private final TimeValue interval;
         private final AtomicBoolean closed = new AtomicBoolean(false);
         private final IndicesRequestCache requestCache;
+        private final IndicesRequestCache hitsCache;
 
-        public CacheCleaner(IndicesFieldDataCache cache, IndicesRequestCache requestCache, Logger logger, ThreadPool threadPool, TimeValue interval) {
+        public CacheCleaner(IndicesFieldDataCache cache, IndicesRequestCache requestCache, IndicesRequestCache hitsCache, Logger logger,
+                            ThreadPool threadPool, TimeValue interval) {
             this.cache = cache;
             this.requestCache = requestCache;
+            this.hitsCache = hitsCache;
             this.logger = logger;
             this.threadPool = threadPool;
             this.interval = interval;
@@ -1036,6 +1047,11 @@ public class IndicesService extends AbstractLifecycleComponent
             } catch (Exception e) {
                 logger.warn("Exception during periodic request cache cleanup:", e);
             }
+            try {
+                this.hitsCache.cleanCache();
+            } catch (Exception e) {
+                logger.warn("Exception during periodic hits cache cleanup:", e);
+            }
             // Reschedule itself to run again if not closed
             if (closed.get() == false) {
                 threadPool.schedule(interval, ThreadPool.Names.SAME, this);
@@ -1089,11 +1105,39 @@ public class IndicesService extends AbstractLifecycleComponent
 
     }
 
+    /**
+     * Can the top docs and the fetched hits of the shard request be cached? This is the case for requests with {@code size > 0}
+     * on indices that opted in with {@link IndicesRequestCache#INDEX_CACHE_HITS_ENABLED_SETTING}, unless the request
+     * explicitly disables the request cache.
+     */
+    public boolean canCacheHits(ShardSearchRequest request, SearchContext context) {
+        // see #canCache for why DFS can't be cached
+        if (CACHEABLE_SEARCH_TYPES.contains(context.searchType()) == false) {
+            return false;
+        }
+        IndexSettings settings = context.indexShard().indexSettings();
+        if (settings.getValue(IndicesRequestCache.INDEX_CACHE_HITS_ENABLED_SETTING) == false) {
+            return false;
+        }
+        if (request.requestCache() == Boolean.FALSE || context.size() == 0) {
+            return false;
+        }
+        // scroll requests depend on the state of the scroll context, profiled requests need to run for real
+        if (context.scrollContext() != null || context.getProfilers() != null) {
+            return false;
+        }
+        if ((context.searcher().getIndexReader() instanceof DirectoryReader) == false) {
+            return false;
+        }
+        return context.nowInMillisUsed() == false;
+    }
+
     public void clearRequestCache(IndexShard shard) {
         if (shard == null) {
             return;
         }
         indicesRequestCache.clear(new IndexShardCacheEntity(shard, null));
+        indicesHitsCache.clear(new IndexShardCacheEntity(shard, null));
         logger.trace("{} explicit cache clear", shard.shardId());
     }
 
@@ -1120,6 +1164,70 @@ public class IndicesService extends AbstractLifecycleComponent
         }
     }
 
+    /**
+     * Like {@link #loadIntoContext(ShardSearchRequest, SearchContext, QueryPhase)} but for requests with {@code size > 0}, whose
+     * query results are kept in the cache of search hits. Results of searches that timed out are not kept since they are partial.
+     */
+    public void loadHitsIntoContext(ShardSearchRequest request, SearchContext context, QueryPhase queryPhase) throws Exception {
+        assert canCacheHits(request, context);
+        final IndexShardCacheEntity entity = new IndexShardHitsCacheEntity(context.indexShard(), out -> {
+            queryPhase.execute(context);
+            context.queryResult().writeToNoId(out);
+        });
+        final DirectoryReader directoryReader = context.searcher().getDirectoryReader();
+        final BytesReference cacheKey = hitsCacheKey(request, null);
+        final BytesReference bytesReference = indicesHitsCache.getOrCompute(entity, directoryReader, cacheKey);
+        if (entity.loadedFromCache()) {
+            final QuerySearchResult result = context.queryResult();
+            StreamInput in = new NamedWriteableAwareStreamInput(bytesReference.streamInput(), namedWriteableRegistry);
+            result.readFromWithId(context.id(), in);
+            result.shardTarget(context.shardTarget());
+        } else if (context.queryResult().searchTimedOut()) {
+            indicesHitsCache.invalidate(entity, directoryReader, cacheKey);
+        }
+    }
+
+    /**
+     * Loads the hits for the {@link SearchContext#docIdsToLoad() doc ids to load} from the cache of search hits, computing them
+     * if needed by executing the fetch phase, and otherwise deserializing the cached hits into the
+     * {@link SearchContext#fetchResult() context's fetch result}.
+     */
+    public void loadFetchResultIntoContext(SearchContext context, FetchPhase fetchPhase) throws Exception {
+        assert canCacheHits(context.request(), context);
+        // the shard target is set on the hits by the coordinating node, so it is not part of the cached value
+        final StreamContext streamContext = InternalSearchHits.streamContext().streamShardTarget(StreamContext.ShardTargetType.NO_STREAM);
+        final IndexShardCacheEntity entity = new IndexShardHitsCacheEntity(context.indexShard(), out -> {
+            fetchPhase.execute(context);
+            context.fetchResult().hits().writeTo(out, streamContext);
+        });
+        final DirectoryReader directoryReader = context.searcher().getDirectoryReader();
+        final BytesReference cacheKey = hitsCacheKey(context.request(), context);
+        final BytesReference bytesReference = indicesHitsCache.getOrCompute(entity, directoryReader, cacheKey);
+        if (entity.loadedFromCache()) {
+            StreamInput in = new NamedWriteableAwareStreamInput(bytesReference.streamInput(), namedWriteableRegistry);
+            context.fetchResult().hits(InternalSearchHits.readSearchHits(in, streamContext));
+        }
+    }
+
+    /**
+     * The key of the query result, or of the fetched hits if a context is given, of a request in the cache of search hits.
+     */
+    private static BytesReference hitsCacheKey(ShardSearchRequest request, @Nullable SearchContext fetchContext) throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.writeBoolean(fetchContext != null);
+            out.writeBytesReference(request.cacheKey());
+            if (fetchContext != null) {
+                final int from = fetchContext.docIdsToLoadFrom();
+                final int size = fetchContext.docIdsToLoadSize();
+                out.writeVInt(size);
+                for (int i = from; i < from + size; i++) {
+                    out.writeVInt(fetchContext.docIdsToLoad()[i]);
+                }
+            }
+            return out.bytes();
+        }
+    }
+
     /**
      * Fetch {@linkplain FieldStats} for a field. These stats are cached until the shard changes.
      * @param shard the shard to use with the cache key
@@ -1162,7 +1270,7 @@ public class IndicesService extends AbstractLifecycleComponent
         return indicesRequestCache.getOrCompute(cacheEntity, reader, cacheKey);
     }
 
-    static final class IndexShardCacheEntity extends AbstractIndexShardCacheEntity {
+    static class IndexShardCacheEntity extends AbstractIndexShardCacheEntity {
         private final IndexShard indexShard;
 
         protected IndexShardCacheEntity(IndexShard indexShard, Loader loader) {
@@ -1175,6 +1283,10 @@ public class IndicesService extends AbstractLifecycleComponent
             return indexShard.requestCache();
         }
 
+        protected IndexShard indexShard() {
+            return indexShard;
+        }
+
         @Override
         public boolean isOpen() {
             return indexShard.state() != IndexShardState.CLOSED;
@@ -1186,6 +1298,18 @@ public class IndicesService extends AbstractLifecycleComponent
         }
     }
 
+    static final class IndexShardHitsCacheEntity extends IndexShardCacheEntity {
+
+        IndexShardHitsCacheEntity(IndexShard indexShard, Loader loader) {
+            super(indexShard, loader);
+        }
+
+        @Override
+        protected ShardRequestCache stats() {
+            return indexShard().hitsCache();
+        }
+    }
+
     @FunctionalInterface
     interface IndexDeletionAllowedPredicate {
         boolean apply(Index index, IndexSettings indexSettings);
@@ -0,0 +1,206 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.util.Supplier;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces the translog fsyncs that shards request for <code>index.translog.durability=request</code> per data path. Instead of every
+ * shard fsyncing its translog as soon as an operation asks for it, sync requests of all shards on the same data path are collected for
+ * up to {@link #MAX_LATENCY_SETTING} and then executed in a single group commit: every shard that has pending requests fsyncs its
+ * translog once, and all of its pending requests are acknowledged. There is at most one group commit in flight per data path, so the
+ * device sees a bounded number of concurrent fsyncs no matter how many shards are indexing on it. Requests that arrive while a group
+ * commit is running are committed right after it completes since they already waited for that long.
+ */
+public class TranslogGroupCommitScheduler extends AbstractComponent {
+
+    /** Whether translog fsyncs of shards on the same data path are group committed (default: false). */
+    public static final Setting<Boolean> ENABLED_SETTING =
+        Setting.boolSetting("indices.translog.group_commit.enabled", false, Property.NodeScope);
+
+    /** How long a sync request may wait for requests of other shards to join its group commit (default: 5ms). */
+    public static final Setting<TimeValue> MAX_LATENCY_SETTING = Setting.timeSetting("indices.translog.group_commit.max_latency",
+        TimeValue.timeValueMillis(5), TimeValue.timeValueMillis(0), Property.NodeScope);
+
+    /**
+     * Makes the given locations of a shard's translog durable.
+     */
+    @FunctionalInterface
+    public interface TranslogSyncer {
+        void sync(List<Translog.Location> locations) throws IOException;
+    }
+
+    private final ThreadPool threadPool;
+    private final boolean enabled;
+    private final TimeValue maxLatency;
+    private final ConcurrentMap<Path, GroupCommitter> committers = ConcurrentCollections.newConcurrentMap();
+
+    public TranslogGroupCommitScheduler(Settings settings, ThreadPool threadPool) {
+        super(settings);
+        this.threadPool = threadPool;
+        this.enabled = ENABLED_SETTING.get(settings);
+        this.maxLatency = MAX_LATENCY_SETTING.get(settings);
+        logger.debug("using [translog_group_commit] with enabled [{}], max_latency [{}]", enabled, maxLatency);
+    }
+
+    /**
+     * Returns <code>true</code> if shards should route their translog syncs through this scheduler.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Schedules the given location to be synced with the next group commit of the given data path. The listener is notified once the
+     * location is durable, or with the exception that made the fsync fail. The given syncer is used to identify the translog, so it must
+     * be the same instance for all locations of a shard.
+     */
+    public void sync(Path dataPath, TranslogSyncer syncer, Translog.Location location, Consumer<Exception> listener) {
+        committers.computeIfAbsent(dataPath, GroupCommitter::new).add(new PendingSync(syncer, location, listener));
+    }
+
+    /** Returns the number of group commits that have been executed for the given data path. */
+    long groupCommits(Path dataPath) {
+        final GroupCommitter committer = committers.get(dataPath);
+        return committer == null ? 0 : committer.groupCommits;
+    }
+
+    private static final class PendingSync {
+        final TranslogSyncer syncer;
+        final Translog.Location location;
+        final Consumer<Exception> listener;
+
+        PendingSync(TranslogSyncer syncer, Translog.Location location, Consumer<Exception> listener) {
+            this.syncer = syncer;
+            this.location = location;
+            this.listener = listener;
+        }
+    }
+
+    /** Collects the sync requests of a single data path and executes them in group commits, one at a time. */
+    private final class GroupCommitter implements Runnable {
+
+        private final Path dataPath;
+
+        private List<PendingSync> pending = new ArrayList<>(); // guarded by this
+
+        private boolean scheduled = false; // guarded by this
+
+        private volatile long groupCommits;
+
+        GroupCommitter(Path dataPath) {
+            this.dataPath = dataPath;
+        }
+
+        void add(PendingSync sync) {
+            final boolean schedule;
+            synchronized (this) {
+                pending.add(sync);
+                schedule = scheduled == false;
+                scheduled = true;
+            }
+            if (schedule) {
+                schedule(maxLatency);
+            }
+        }
+
+        private void schedule(TimeValue delay) {
+            try {
+                if (delay.nanos() == 0) {
+                    threadPool.executor(ThreadPool.Names.GENERIC).execute(this);
+                } else {
+                    threadPool.schedule(delay, ThreadPool.Names.GENERIC, this);
+                }
+            } catch (EsRejectedExecutionException e) {
+                // the node is shutting down, we still have to answer the pending requests
+                run();
+            }
+        }
+
+        @Override
+        public void run() {
+            final List<PendingSync> batch;
+            synchronized (this) {
+                assert scheduled;
+                batch = pending;
+                pending = new ArrayList<>();
+            }
+            try {
+                commit(batch);
+            } finally {
+                final boolean reschedule;
+                synchronized (this) {
+                    reschedule = pending.isEmpty() == false;
+                    scheduled = reschedule;
+                }
+                if (reschedule) {
+                    schedule(TimeValue.timeValueMillis(0));
+                }
+            }
+        }
+
+        private void commit(List<PendingSync> batch) {
+            groupCommits++;
+            final Map<TranslogSyncer, List<PendingSync>> syncsPerTranslog = new IdentityHashMap<>();
+            for (PendingSync sync : batch) {
+                syncsPerTranslog.computeIfAbsent(sync.syncer, k -> new ArrayList<>()).add(sync);
+            }
+            for (Map.Entry<TranslogSyncer, List<PendingSync>> entry : syncsPerTranslog.entrySet()) {
+                final List<Translog.Location> locations = new ArrayList<>(entry.getValue().size());
+                for (PendingSync sync : entry.getValue()) {
+                    locations.add(sync.location);
+                }
+                Exception exception = null;
+                try {
+                    entry.getKey().sync(locations);
+                } catch (Exception e) {
+                    logger.debug((Supplier<?>) () -> new ParameterizedMessage("failed to sync translog on [{}]", dataPath), e);
+                    exception = e;
+                }
+                for (PendingSync sync : entry.getValue()) {
+                    try {
+                        sync.listener.accept(exception);
+                    } catch (Exception e) {
+                        logger.warn("failed to notify callback", e);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -115,6 +115,71 @@ public class CompoundProcessor implements Processor {
         }
     }
 
+    /**
+     * Executes the processors stage by stage over all the given documents, so that each processor runs over every
+     * document before the next processor starts. This keeps the code and data of a single processor hot while it handles
+     * the documents, which are otherwise processed exactly as if they were passed to {@link #execute(IngestDocument)} one
+     * by one: a failing document runs through the on failure processors right away and isn't handed to the next stages.
+     *
+     * @param stageListener notified once every processor has run over the documents that reached it
+     * @return the failure of each document, <code>null</code> for documents that were processed successfully
+     */
+    public Exception[] execute(List<IngestDocument> ingestDocuments, StageListener stageListener) {
+        final Exception[] failures = new Exception[ingestDocuments.size()];
+        // the documents that still have to run through the next stages
+        boolean[] done = new boolean[ingestDocuments.size()];
+        int remaining = ingestDocuments.size();
+        for (int stage = 0; stage < processors.size() && remaining > 0; stage++) {
+            final Processor processor = processors.get(stage);
+            final long startTimeInNanos = System.nanoTime();
+            final int documents = remaining;
+            int failed = 0;
+            for (int i = 0; i < ingestDocuments.size(); i++) {
+                if (done[i]) {
+                    continue;
+                }
+                IngestDocument ingestDocument = ingestDocuments.get(i);
+                try {
+                    processor.execute(ingestDocument);
+                } catch (Exception e) {
+                    if (ignoreFailure) {
+                        continue;
+                    }
+                    failed++;
+                    done[i] = true;
+                    remaining--;
+                    ElasticsearchException compoundProcessorException =
+                        newCompoundProcessorException(e, processor.getType(), processor.getTag());
+                    if (onFailureProcessors.isEmpty()) {
+                        failures[i] = compoundProcessorException;
+                    } else {
+                        try {
+                            executeOnFailure(ingestDocument, compoundProcessorException);
+                        } catch (Exception onFailureException) {
+                            failures[i] = onFailureException;
+                        }
+                    }
+                }
+            }
+            stageListener.onStage(stage, processor, documents, failed, System.nanoTime() - startTimeInNanos);
+        }
+        return failures;
+    }
+
+    /**
+     * Listens to the stages of a batch execution.
+     */
+    @FunctionalInterface
+    public interface StageListener {
+
+        /**
+         * Called once the processor of the given stage has run over all documents that reached it.
+         *
+         * @param failed the number of documents the processor failed on, which didn't continue to the next stages
+         */
+        void onStage(int stage, Processor processor, int documents, int failed, long tookInNanos);
+    }
+
     void executeOnFailure(IngestDocument ingestDocument, ElasticsearchException exception) throws Exception {
         try {
             putFailureMetadata(ingestDocument, exception);
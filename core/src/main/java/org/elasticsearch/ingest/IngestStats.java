@@ -19,6 +19,7 @@
 
 package org.elasticsearch.ingest;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -26,17 +27,27 @@ import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 public class IngestStats implements Writeable, ToXContent {
     private final Stats totalStats;
     private final Map<String, Stats> statsPerPipeline;
+    private final Map<String, List<ProcessorStats>> processorStatsPerPipeline;
 
     public IngestStats(Stats totalStats, Map<String, Stats> statsPerPipeline) {
+        this(totalStats, statsPerPipeline, Collections.emptyMap());
+    }
+
+    public IngestStats(Stats totalStats, Map<String, Stats> statsPerPipeline,
+                       Map<String, List<ProcessorStats>> processorStatsPerPipeline) {
         this.totalStats = totalStats;
         this.statsPerPipeline = statsPerPipeline;
+        this.processorStatsPerPipeline = processorStatsPerPipeline;
     }
 
     /**
@@ -49,6 +60,21 @@ public class IngestStats implements Writeable, ToXContent {
         for (int i = 0; i < size; i++) {
             statsPerPipeline.put(in.readString(), new Stats(in));
         }
+        if (in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            size = in.readVInt();
+            this.processorStatsPerPipeline = new HashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                String pipelineId = in.readString();
+                int numProcessors = in.readVInt();
+                List<ProcessorStats> processorStats = new ArrayList<>(numProcessors);
+                for (int j = 0; j < numProcessors; j++) {
+                    processorStats.add(new ProcessorStats(in));
+                }
+                processorStatsPerPipeline.put(pipelineId, processorStats);
+            }
+        } else {
+            this.processorStatsPerPipeline = Collections.emptyMap();
+        }
     }
 
     @Override
@@ -59,6 +85,16 @@ public class IngestStats implements Writeable, ToXContent {
             out.writeString(entry.getKey());
             entry.getValue().writeTo(out);
         }
+        if (out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            out.writeVInt(processorStatsPerPipeline.size());
+            for (Map.Entry<String, List<ProcessorStats>> entry : processorStatsPerPipeline.entrySet()) {
+                out.writeString(entry.getKey());
+                out.writeVInt(entry.getValue().size());
+                for (ProcessorStats processorStats : entry.getValue()) {
+                    processorStats.writeTo(out);
+                }
+            }
+        }
     }
 
 
@@ -76,6 +112,14 @@ public class IngestStats implements Writeable, ToXContent {
         return statsPerPipeline;
     }
 
+    /**
+     * @return The stats of each top-level processor of a pipeline, in the order of the processors. Only pipelines that
+     * ran through a bulk request have processor stats.
+     */
+    public Map<String, List<ProcessorStats>> getProcessorStatsPerPipeline() {
+        return processorStatsPerPipeline;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject("ingest");
@@ -86,6 +130,16 @@ public class IngestStats implements Writeable, ToXContent {
         for (Map.Entry<String, Stats> entry : statsPerPipeline.entrySet()) {
             builder.startObject(entry.getKey());
             entry.getValue().toXContent(builder, params);
+            List<ProcessorStats> processorStats = processorStatsPerPipeline.get(entry.getKey());
+            if (processorStats != null && processorStats.isEmpty() == false) {
+                builder.startArray("processors");
+                for (ProcessorStats processorStat : processorStats) {
+                    builder.startObject();
+                    processorStat.toXContent(builder, params);
+                    builder.endObject();
+                }
+                builder.endArray();
+            }
             builder.endObject();
         }
         builder.endObject();
@@ -163,4 +217,91 @@ public class IngestStats implements Writeable, ToXContent {
             return builder;
         }
     }
+
+    /**
+     * The stats of a single processor stage of a pipeline.
+     */
+    public static class ProcessorStats implements Writeable, ToXContent {
+
+        private final String type;
+        private final String tag;
+        private final long count;
+        private final long timeInMillis;
+        private final long failedCount;
+
+        public ProcessorStats(String type, String tag, long count, long timeInMillis, long failedCount) {
+            this.type = type;
+            this.tag = tag;
+            this.count = count;
+            this.timeInMillis = timeInMillis;
+            this.failedCount = failedCount;
+        }
+
+        /**
+         * Read from a stream.
+         */
+        public ProcessorStats(StreamInput in) throws IOException {
+            type = in.readString();
+            tag = in.readOptionalString();
+            count = in.readVLong();
+            timeInMillis = in.readVLong();
+            failedCount = in.readVLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeString(type);
+            out.writeOptionalString(tag);
+            out.writeVLong(count);
+            out.writeVLong(timeInMillis);
+            out.writeVLong(failedCount);
+        }
+
+        /**
+         * @return The type of the processor.
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * @return The tag of the processor, may be <code>null</code>.
+         */
+        public String getTag() {
+            return tag;
+        }
+
+        /**
+         * @return The number of documents that ran through the processor.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return The total time the processor spent on documents in millis.
+         */
+        public long getTimeInMillis() {
+            return timeInMillis;
+        }
+
+        /**
+         * @return The number of documents the processor failed on.
+         */
+        public long getFailedCount() {
+            return failedCount;
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.field("type", type);
+            if (tag != null) {
+                builder.field("tag", tag);
+            }
+            builder.field("count", count);
+            builder.timeValueField("time_in_millis", "time", timeInMillis, TimeUnit.MILLISECONDS);
+            builder.field("failed", failedCount);
+            return builder;
+        }
+    }
 }
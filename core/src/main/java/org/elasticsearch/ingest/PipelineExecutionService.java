@@ -25,30 +25,49 @@ import org.elasticsearch.cluster.ClusterChangedEvent;
 import org.elasticsearch.cluster.ClusterStateListener;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.metrics.CounterMetric;
-import org.elasticsearch.common.metrics.MeanMetric;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 public class PipelineExecutionService implements ClusterStateListener {
 
+    /**
+     * The maximum number of documents of a bulk request that a pipeline processes as one batch. The batches of a bulk
+     * request are processed concurrently on the bulk thread pool.
+     */
+    public static final Setting<Integer> BULK_BATCH_SIZE_SETTING =
+        Setting.intSetting("ingest.bulk.batch_size", 256, 1, Setting.Property.NodeScope);
+
     private final PipelineStore store;
     private final ThreadPool threadPool;
+    private final int bulkBatchSize;
 
     private final StatsHolder totalStats = new StatsHolder();
-    private volatile Map<String, StatsHolder> statsHolderPerPipeline = Collections.emptyMap();
+    private volatile Map<String, PipelineStatsHolder> statsHolderPerPipeline = Collections.emptyMap();
 
     public PipelineExecutionService(PipelineStore store, ThreadPool threadPool) {
+        this(Settings.EMPTY, store, threadPool);
+    }
+
+    public PipelineExecutionService(Settings settings, PipelineStore store, ThreadPool threadPool) {
         this.store = store;
         this.threadPool = threadPool;
+        this.bulkBatchSize = BULK_BATCH_SIZE_SETTING.get(settings);
     }
 
     public void executeIndexRequest(IndexRequest request, Consumer<Exception> failureHandler, Consumer<Boolean> completionHandler) {
@@ -68,6 +87,15 @@ public class PipelineExecutionService implements ClusterStateListener {
         });
     }
 
+    /**
+     * Runs the index requests of a bulk request through their pipelines. The documents of a pipeline are processed in
+     * batches of up to {@link #BULK_BATCH_SIZE_SETTING} documents, see
+     * {@link CompoundProcessor#execute(List, CompoundProcessor.StageListener)}, and up to as many batches as the bulk thread
+     * pool has threads run concurrently on it.
+     *
+     * @param itemFailureHandler invoked for each failed index request once all batches completed, in the order of the
+     *                           requests and never concurrently
+     */
     public void executeBulkRequest(Iterable<ActionRequest<?>> actionRequests,
                                    BiConsumer<IndexRequest, Exception> itemFailureHandler,
                                    Consumer<Exception> completionHandler) {
@@ -80,35 +108,34 @@ public class PipelineExecutionService implements ClusterStateListener {
 
             @Override
             protected void doRun() throws Exception {
+                List<IndexRequest> indexRequests = new ArrayList<>();
                 for (ActionRequest actionRequest : actionRequests) {
                     if ((actionRequest instanceof IndexRequest)) {
                         IndexRequest indexRequest = (IndexRequest) actionRequest;
                         if (Strings.hasText(indexRequest.getPipeline())) {
-                            try {
-                                innerExecute(indexRequest, getPipeline(indexRequest.getPipeline()));
-                                //this shouldn't be needed here but we do it for consistency with index api
-                                // which requires it to prevent double execution
-                                indexRequest.setPipeline(null);
-                            } catch (Exception e) {
-                                itemFailureHandler.accept(indexRequest, e);
-                            }
+                            indexRequests.add(indexRequest);
                         }
                     }
                 }
-                completionHandler.accept(null);
+                new BulkExecution(indexRequests, itemFailureHandler, completionHandler).run();
             }
         });
     }
 
     public IngestStats stats() {
-        Map<String, StatsHolder> statsHolderPerPipeline = this.statsHolderPerPipeline;
+        Map<String, PipelineStatsHolder> statsHolderPerPipeline = this.statsHolderPerPipeline;
 
         Map<String, IngestStats.Stats> statsPerPipeline = new HashMap<>(statsHolderPerPipeline.size());
-        for (Map.Entry<String, StatsHolder> entry : statsHolderPerPipeline.entrySet()) {
+        Map<String, List<IngestStats.ProcessorStats>> processorStatsPerPipeline = new HashMap<>();
+        for (Map.Entry<String, PipelineStatsHolder> entry : statsHolderPerPipeline.entrySet()) {
             statsPerPipeline.put(entry.getKey(), entry.getValue().createStats());
+            List<IngestStats.ProcessorStats> processorStats = entry.getValue().createProcessorStats();
+            if (processorStats.isEmpty() == false) {
+                processorStatsPerPipeline.put(entry.getKey(), processorStats);
+            }
         }
 
-        return new IngestStats(totalStats.createStats(), statsPerPipeline);
+        return new IngestStats(totalStats.createStats(), statsPerPipeline, processorStatsPerPipeline);
     }
 
     @Override
@@ -121,7 +148,7 @@ public class PipelineExecutionService implements ClusterStateListener {
 
     void updatePipelineStats(IngestMetadata ingestMetadata) {
         boolean changed = false;
-        Map<String, StatsHolder> newStatsPerPipeline = new HashMap<>(statsHolderPerPipeline);
+        Map<String, PipelineStatsHolder> newStatsPerPipeline = new HashMap<>(statsHolderPerPipeline);
         Iterator<String> iterator = newStatsPerPipeline.keySet().iterator();
         while (iterator.hasNext()) {
             String pipeline = iterator.next();
@@ -132,7 +159,7 @@ public class PipelineExecutionService implements ClusterStateListener {
         }
         for (String pipeline : ingestMetadata.getPipelines().keySet()) {
             if (newStatsPerPipeline.containsKey(pipeline) == false) {
-                newStatsPerPipeline.put(pipeline, new StatsHolder());
+                newStatsPerPipeline.put(pipeline, new PipelineStatsHolder());
                 changed = true;
             }
         }
@@ -150,43 +177,50 @@ public class PipelineExecutionService implements ClusterStateListener {
         long startTimeInNanos = System.nanoTime();
         // the pipeline specific stat holder may not exist and that is fine:
         // (e.g. the pipeline may have been removed while we're ingesting a document
-        Optional<StatsHolder> pipelineStats = Optional.ofNullable(statsHolderPerPipeline.get(pipeline.getId()));
+        Optional<PipelineStatsHolder> pipelineStats = Optional.ofNullable(statsHolderPerPipeline.get(pipeline.getId()));
         try {
-            totalStats.preIngest();
-            pipelineStats.ifPresent(StatsHolder::preIngest);
-            String index = indexRequest.index();
-            String type = indexRequest.type();
-            String id = indexRequest.id();
-            String routing = indexRequest.routing();
-            String parent = indexRequest.parent();
-            String timestamp = indexRequest.timestamp();
-            String ttl = indexRequest.ttl() == null ? null : indexRequest.ttl().toString();
-            Map<String, Object> sourceAsMap = indexRequest.sourceAsMap();
-            IngestDocument ingestDocument = new IngestDocument(index, type, id, routing, parent, timestamp, ttl, sourceAsMap);
+            totalStats.preIngest(1);
+            pipelineStats.ifPresent(statsHolder -> statsHolder.preIngest(1));
+            IngestDocument ingestDocument = toIngestDocument(indexRequest);
             pipeline.execute(ingestDocument);
-
-            Map<IngestDocument.MetaData, String> metadataMap = ingestDocument.extractMetadata();
-            //it's fine to set all metadata fields all the time, as ingest document holds their starting values
-            //before ingestion, which might also get modified during ingestion.
-            indexRequest.index(metadataMap.get(IngestDocument.MetaData.INDEX));
-            indexRequest.type(metadataMap.get(IngestDocument.MetaData.TYPE));
-            indexRequest.id(metadataMap.get(IngestDocument.MetaData.ID));
-            indexRequest.routing(metadataMap.get(IngestDocument.MetaData.ROUTING));
-            indexRequest.parent(metadataMap.get(IngestDocument.MetaData.PARENT));
-            indexRequest.timestamp(metadataMap.get(IngestDocument.MetaData.TIMESTAMP));
-            indexRequest.ttl(metadataMap.get(IngestDocument.MetaData.TTL));
-            indexRequest.source(ingestDocument.getSourceAndMetadata());
+            updateIndexRequest(indexRequest, ingestDocument);
         } catch (Exception e) {
-            totalStats.ingestFailed();
-            pipelineStats.ifPresent(StatsHolder::ingestFailed);
+            totalStats.ingestFailed(1);
+            pipelineStats.ifPresent(statsHolder -> statsHolder.ingestFailed(1));
             throw e;
         } finally {
             long ingestTimeInMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeInNanos);
-            totalStats.postIngest(ingestTimeInMillis);
-            pipelineStats.ifPresent(statsHolder -> statsHolder.postIngest(ingestTimeInMillis));
+            totalStats.postIngest(1, ingestTimeInMillis);
+            pipelineStats.ifPresent(statsHolder -> statsHolder.postIngest(1, ingestTimeInMillis));
         }
     }
 
+    private static IngestDocument toIngestDocument(IndexRequest indexRequest) {
+        String index = indexRequest.index();
+        String type = indexRequest.type();
+        String id = indexRequest.id();
+        String routing = indexRequest.routing();
+        String parent = indexRequest.parent();
+        String timestamp = indexRequest.timestamp();
+        String ttl = indexRequest.ttl() == null ? null : indexRequest.ttl().toString();
+        Map<String, Object> sourceAsMap = indexRequest.sourceAsMap();
+        return new IngestDocument(index, type, id, routing, parent, timestamp, ttl, sourceAsMap);
+    }
+
+    private static void updateIndexRequest(IndexRequest indexRequest, IngestDocument ingestDocument) {
+        Map<IngestDocument.MetaData, String> metadataMap = ingestDocument.extractMetadata();
+        //it's fine to set all metadata fields all the time, as ingest document holds their starting values
+        //before ingestion, which might also get modified during ingestion.
+        indexRequest.index(metadataMap.get(IngestDocument.MetaData.INDEX));
+        indexRequest.type(metadataMap.get(IngestDocument.MetaData.TYPE));
+        indexRequest.id(metadataMap.get(IngestDocument.MetaData.ID));
+        indexRequest.routing(metadataMap.get(IngestDocument.MetaData.ROUTING));
+        indexRequest.parent(metadataMap.get(IngestDocument.MetaData.PARENT));
+        indexRequest.timestamp(metadataMap.get(IngestDocument.MetaData.TIMESTAMP));
+        indexRequest.ttl(metadataMap.get(IngestDocument.MetaData.TTL));
+        indexRequest.source(ingestDocument.getSourceAndMetadata());
+    }
+
     private Pipeline getPipeline(String pipelineId) {
         Pipeline pipeline = store.get(pipelineId);
         if (pipeline == null) {
@@ -195,29 +229,290 @@ public class PipelineExecutionService implements ClusterStateListener {
         return pipeline;
     }
 
+    /**
+     * The execution of the index requests of a single bulk request, which are split into batches of the same pipeline.
+     */
+    private final class BulkExecution {
+
+        private final List<IndexRequest> indexRequests;
+        private final BiConsumer<IndexRequest, Exception> itemFailureHandler;
+        private final Consumer<Exception> completionHandler;
+        // the failure of each index request, written by the batch of the request before the pending batches are counted down
+        private final Exception[] failures;
+        private final List<Batch> batches = new ArrayList<>();
+        private final AtomicInteger pendingBatches = new AtomicInteger();
+        // the index of the next batch that a worker processes
+        private final AtomicInteger nextBatch = new AtomicInteger();
+
+        BulkExecution(List<IndexRequest> indexRequests, BiConsumer<IndexRequest, Exception> itemFailureHandler,
+                      Consumer<Exception> completionHandler) {
+            this.indexRequests = indexRequests;
+            this.itemFailureHandler = itemFailureHandler;
+            this.completionHandler = completionHandler;
+            this.failures = new Exception[indexRequests.size()];
+            // a pipeline that is updated while the requests are grouped is a different pipeline instance
+            Map<Pipeline, Batch> openBatches = new IdentityHashMap<>();
+            for (int slot = 0; slot < indexRequests.size(); slot++) {
+                final Pipeline pipeline;
+                try {
+                    pipeline = getPipeline(indexRequests.get(slot).getPipeline());
+                } catch (Exception e) {
+                    failures[slot] = e;
+                    continue;
+                }
+                Batch batch = openBatches.get(pipeline);
+                if (batch == null || batch.slots.size() >= bulkBatchSize) {
+                    batch = new Batch(pipeline);
+                    openBatches.put(pipeline, batch);
+                    batches.add(batch);
+                }
+                batch.slots.add(slot);
+            }
+        }
+
+        void run() {
+            if (batches.isEmpty()) {
+                onCompletion();
+                return;
+            }
+            pendingBatches.set(batches.size());
+            // a bulk request must not flood the bulk thread pool with its batches: at most as many workers as the pool
+            // has threads process the batches, each worker takes the next pending batch once it is done with one
+            final ThreadPool.Info info = threadPool.info(ThreadPool.Names.BULK);
+            final int numWorkers = info == null || info.getMax() <= 0 ? batches.size() : Math.min(batches.size(), info.getMax());
+            for (int i = 1; i < numWorkers; i++) {
+                threadPool.executor(ThreadPool.Names.BULK).execute(new AbstractRunnable() {
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        assert false : "the failures of batches are recorded per index request: " + e;
+                    }
+
+                    @Override
+                    public void onRejection(Exception e) {
+                        // the bulk thread pool is busy, the other workers process the batches
+                    }
+
+                    @Override
+                    protected void doRun() throws Exception {
+                        executeBatches();
+                    }
+                });
+            }
+            executeBatches();
+        }
+
+        /**
+         * Processes pending batches until there are none left.
+         */
+        private void executeBatches() {
+            for (int i = nextBatch.getAndIncrement(); i < batches.size(); i = nextBatch.getAndIncrement()) {
+                final Batch batch = batches.get(i);
+                try {
+                    execute(batch);
+                } catch (Exception e) {
+                    for (int slot : batch.slots) {
+                        failures[slot] = e;
+                    }
+                }
+                onBatchCompletion();
+            }
+        }
+
+        private void execute(Batch batch) {
+            final Pipeline pipeline = batch.pipeline;
+            if (pipeline.getProcessors().isEmpty()) {
+                return;
+            }
+            final int numDocuments = batch.slots.size();
+            final long startTimeInNanos = System.nanoTime();
+            // the pipeline specific stat holder may not exist and that is fine:
+            // (e.g. the pipeline may have been removed while we're ingesting a document
+            final PipelineStatsHolder pipelineStats = statsHolderPerPipeline.get(pipeline.getId());
+            totalStats.preIngest(numDocuments);
+            if (pipelineStats != null) {
+                pipelineStats.preIngest(numDocuments);
+            }
+            int failed = 0;
+            try {
+                List<IngestDocument> ingestDocuments = new ArrayList<>(numDocuments);
+                List<Integer> documentSlots = new ArrayList<>(numDocuments);
+                for (int slot : batch.slots) {
+                    try {
+                        ingestDocuments.add(toIngestDocument(indexRequests.get(slot)));
+                        documentSlots.add(slot);
+                    } catch (Exception e) {
+                        failures[slot] = e;
+                        failed++;
+                    }
+                }
+                final CompoundProcessor.StageListener stageListener;
+                if (pipelineStats == null) {
+                    stageListener = (stage, processor, documents, failedDocuments, tookInNanos) -> {};
+                } else {
+                    ProcessorStatsHolder[] processorStats = pipelineStats.processorStats(pipeline.getProcessors());
+                    stageListener = (stage, processor, documents, failedDocuments, tookInNanos) ->
+                        processorStats[stage].onStage(documents, failedDocuments, tookInNanos);
+                }
+                Exception[] documentFailures = pipeline.getCompoundProcessor().execute(ingestDocuments, stageListener);
+                for (int i = 0; i < ingestDocuments.size(); i++) {
+                    int slot = documentSlots.get(i);
+                    if (documentFailures[i] != null) {
+                        failures[slot] = documentFailures[i];
+                        failed++;
+                        continue;
+                    }
+                    try {
+                        updateIndexRequest(indexRequests.get(slot), ingestDocuments.get(i));
+                    } catch (Exception e) {
+                        failures[slot] = e;
+                        failed++;
+                    }
+                }
+            } finally {
+                long ingestTimeInMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeInNanos);
+                totalStats.ingestFailed(failed);
+                totalStats.postIngest(numDocuments, ingestTimeInMillis);
+                if (pipelineStats != null) {
+                    pipelineStats.ingestFailed(failed);
+                    pipelineStats.postIngest(numDocuments, ingestTimeInMillis);
+                }
+            }
+        }
+
+        private void onBatchCompletion() {
+            if (pendingBatches.decrementAndGet() == 0) {
+                onCompletion();
+            }
+        }
+
+        private void onCompletion() {
+            for (int slot = 0; slot < indexRequests.size(); slot++) {
+                IndexRequest indexRequest = indexRequests.get(slot);
+                if (failures[slot] == null) {
+                    //this shouldn't be needed here but we do it for consistency with index api
+                    // which requires it to prevent double execution
+                    indexRequest.setPipeline(null);
+                } else {
+                    itemFailureHandler.accept(indexRequest, failures[slot]);
+                }
+            }
+            completionHandler.accept(null);
+        }
+    }
+
+    private static final class Batch {
+
+        private final Pipeline pipeline;
+        // the positions of the index requests of this batch within the bulk request
+        private final List<Integer> slots = new ArrayList<>();
+
+        Batch(Pipeline pipeline) {
+            this.pipeline = pipeline;
+        }
+    }
+
     static class StatsHolder {
 
-        private final MeanMetric ingestMetric = new MeanMetric();
+        private final CounterMetric ingestCount = new CounterMetric();
+        private final CounterMetric ingestTimeInMillis = new CounterMetric();
         private final CounterMetric ingestCurrent = new CounterMetric();
         private final CounterMetric ingestFailed = new CounterMetric();
 
-        void preIngest() {
-            ingestCurrent.inc();
+        void preIngest(int documents) {
+            ingestCurrent.inc(documents);
         }
 
-        void postIngest(long ingestTimeInMillis) {
-            ingestCurrent.dec();
-            ingestMetric.inc(ingestTimeInMillis);
+        void postIngest(int documents, long ingestTimeInMillis) {
+            ingestCurrent.dec(documents);
+            ingestCount.inc(documents);
+            this.ingestTimeInMillis.inc(ingestTimeInMillis);
         }
 
-        void ingestFailed() {
-            ingestFailed.inc();
+        void ingestFailed(int documents) {
+            ingestFailed.inc(documents);
         }
 
         IngestStats.Stats createStats() {
-            return new IngestStats.Stats(ingestMetric.count(), ingestMetric.sum(), ingestCurrent.count(), ingestFailed.count());
+            return new IngestStats.Stats(ingestCount.count(), ingestTimeInMillis.count(), ingestCurrent.count(), ingestFailed.count());
+        }
+
+    }
+
+    static class PipelineStatsHolder extends StatsHolder {
+
+        private volatile ProcessorStatsHolder[] processorStats = new ProcessorStatsHolder[0];
+
+        /**
+         * Returns the stats of the given processors, which are reset if the processors of the pipeline changed.
+         */
+        ProcessorStatsHolder[] processorStats(List<Processor> processors) {
+            ProcessorStatsHolder[] current = processorStats;
+            if (matches(current, processors)) {
+                return current;
+            }
+            synchronized (this) {
+                current = processorStats;
+                if (matches(current, processors) == false) {
+                    current = new ProcessorStatsHolder[processors.size()];
+                    for (int i = 0; i < current.length; i++) {
+                        current[i] = new ProcessorStatsHolder(processors.get(i).getType(), processors.get(i).getTag());
+                    }
+                    processorStats = current;
+                }
+                return current;
+            }
         }
 
+        private static boolean matches(ProcessorStatsHolder[] processorStats, List<Processor> processors) {
+            if (processorStats.length != processors.size()) {
+                return false;
+            }
+            for (int i = 0; i < processorStats.length; i++) {
+                if (processorStats[i].matches(processors.get(i)) == false) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        List<IngestStats.ProcessorStats> createProcessorStats() {
+            ProcessorStatsHolder[] processorStats = this.processorStats;
+            List<IngestStats.ProcessorStats> stats = new ArrayList<>(processorStats.length);
+            for (ProcessorStatsHolder processorStat : processorStats) {
+                stats.add(processorStat.createStats());
+            }
+            return stats;
+        }
+    }
+
+    static class ProcessorStatsHolder {
+
+        private final String type;
+        private final String tag;
+        private final CounterMetric count = new CounterMetric();
+        private final CounterMetric timeInNanos = new CounterMetric();
+        private final CounterMetric failed = new CounterMetric();
+
+        ProcessorStatsHolder(String type, String tag) {
+            this.type = type;
+            this.tag = tag;
+        }
+
+        boolean matches(Processor processor) {
+            return type.equals(processor.getType()) && Objects.equals(tag, processor.getTag());
+        }
+
+        void onStage(int documents, int failedDocuments, long tookInNanos) {
+            count.inc(documents);
+            timeInNanos.inc(tookInNanos);
+            failed.inc(failedDocuments);
+        }
+
+        IngestStats.ProcessorStats createStats() {
+            return new IngestStats.ProcessorStats(type, tag, count.count(), TimeUnit.NANOSECONDS.toMillis(timeInNanos.count()),
+                failed.count());
+        }
     }
 
 }
@@ -0,0 +1,144 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.node;
+
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.metrics.ExponentiallyWeightedMovingAverage;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.util.OptionalDouble;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects statistics about the shard-level search requests that this node sends to other nodes, in order to rank the
+ * copies of a shard by how fast their node is expected to answer. For every node it keeps moving averages of the
+ * response time as seen from this node, of the time the node spent executing requests (the service time) and of the
+ * size of its search queue, the last two being reported by the node itself, as well as the number of requests that are
+ * still waiting for a response.
+ */
+public final class ResponseCollectorService extends AbstractComponent implements ClusterStateListener {
+
+    // the weight of each new observation in the moving averages
+    private static final double ALPHA = 0.3;
+
+    private final ConcurrentMap<String, NodeStatistics> nodeStats = ConcurrentCollections.newConcurrentMap();
+
+    @Inject
+    public ResponseCollectorService(Settings settings, ClusterService clusterService) {
+        super(settings);
+        clusterService.add(this);
+    }
+
+    @Override
+    public void clusterChanged(ClusterChangedEvent event) {
+        if (event.nodesRemoved()) {
+            for (DiscoveryNode removedNode : event.nodesDelta().removedNodes()) {
+                nodeStats.remove(removedNode.getId());
+            }
+        }
+    }
+
+    /**
+     * Records that a request was sent to the given node.
+     */
+    public void onRequestSent(String nodeId) {
+        nodeStats.computeIfAbsent(nodeId, id -> new NodeStatistics()).outstandingRequests.incrementAndGet();
+    }
+
+    /**
+     * Records a response of the given node to a request that was previously recorded with {@link #onRequestSent(String)}.
+     *
+     * @param queueSize          the size of the search queue of the node when it answered, or -1 if unknown
+     * @param responseTimeNanos  the time between sending the request and receiving the response
+     * @param serviceTimeNanos   the average time the node spends executing a request, or -1 if unknown
+     */
+    public void onResponse(String nodeId, int queueSize, long responseTimeNanos, long serviceTimeNanos) {
+        final NodeStatistics stats = nodeStats.computeIfAbsent(nodeId, id -> new NodeStatistics());
+        stats.outstandingRequests.updateAndGet(outstanding -> Math.max(0, outstanding - 1));
+        if (stats.responseTime == null) {
+            // start the averages from the first observation rather than from zero
+            stats.queueSize = new ExponentiallyWeightedMovingAverage(ALPHA, Math.max(0, queueSize));
+            stats.responseTime = new ExponentiallyWeightedMovingAverage(ALPHA, responseTimeNanos);
+        } else {
+            if (queueSize >= 0) {
+                stats.queueSize.addValue(queueSize);
+            }
+            stats.responseTime.addValue(responseTimeNanos);
+        }
+        if (serviceTimeNanos >= 0) {
+            // the node already averages its service time
+            stats.serviceTime = serviceTimeNanos;
+        }
+    }
+
+    /**
+     * Records that a request that was previously recorded with {@link #onRequestSent(String)} failed.
+     */
+    public void onFailure(String nodeId) {
+        final NodeStatistics stats = nodeStats.get(nodeId);
+        if (stats != null) {
+            stats.outstandingRequests.updateAndGet(outstanding -> Math.max(0, outstanding - 1));
+        }
+    }
+
+    /**
+     * Returns the rank of the given node, the lower the faster the node is expected to answer the next request, or an
+     * empty value if no response of this node was recorded yet. This is the ranking function of C3 (Suresh et al., 2015)
+     * which heavily penalizes nodes that have many requests queued up, in flight or not, relative to their speed.
+     */
+    public OptionalDouble rank(String nodeId) {
+        final NodeStatistics stats = nodeStats.get(nodeId);
+        if (stats == null || stats.responseTime == null) {
+            return OptionalDouble.empty();
+        }
+        final double serviceTime = stats.serviceTime;
+        final double queueSize = 1 + stats.outstandingRequests.get() + stats.queueSize.getAverage();
+        return OptionalDouble.of(stats.responseTime.getAverage() - serviceTime + Math.pow(queueSize, 3) * serviceTime);
+    }
+
+    /**
+     * Moves the statistics of a node that was not picked towards the statistics of the node that was picked instead.
+     * Statistics are only updated when a node answers a request, so without this a node that was slow once would keep
+     * on being avoided even after it recovered.
+     */
+    public void adjustTowards(String nodeId, String bestNodeId) {
+        final NodeStatistics stats = nodeStats.get(nodeId);
+        final NodeStatistics bestStats = nodeStats.get(bestNodeId);
+        if (stats != null && bestStats != null && stats != bestStats && stats.responseTime != null && bestStats.responseTime != null) {
+            stats.responseTime.addValue(bestStats.responseTime.getAverage());
+            stats.queueSize.addValue(bestStats.queueSize.getAverage());
+        }
+    }
+
+    private static final class NodeStatistics {
+        final AtomicInteger outstandingRequests = new AtomicInteger();
+        // null until the node answered a first request
+        volatile ExponentiallyWeightedMovingAverage responseTime;
+        volatile ExponentiallyWeightedMovingAverage queueSize;
+        volatile double serviceTime;
+    }
+}
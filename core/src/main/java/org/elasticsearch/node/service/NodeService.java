@@ -27,6 +27,7 @@ import org.elasticsearch.Version;
 import org.elasticsearch.action.admin.cluster.node.info.NodeInfo;
 import org.elasticsearch.action.admin.cluster.node.stats.NodeStats;
 import org.elasticsearch.action.admin.indices.stats.CommonStatsFlags;
+import org.elasticsearch.action.search.SearchResponseCache;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractComponent;
@@ -55,6 +56,7 @@ public class NodeService extends AbstractComponent implements Closeable {
     private final PluginsService pluginService;
     private final CircuitBreakerService circuitBreakerService;
     private final IngestService ingestService;
+    private final SearchResponseCache searchResponseCache;
     private final SettingsFilter settingsFilter;
     private ScriptService scriptService;
 
@@ -67,7 +69,8 @@ public class NodeService extends AbstractComponent implements Closeable {
     public NodeService(Settings settings, ThreadPool threadPool, MonitorService monitorService, Discovery discovery,
                        TransportService transportService, IndicesService indicesService, PluginsService pluginService,
                        CircuitBreakerService circuitBreakerService, ScriptService scriptService, @Nullable HttpServer httpServer,
-                       IngestService ingestService, ClusterService clusterService, SettingsFilter settingsFilter) {
+                       IngestService ingestService, ClusterService clusterService, SettingsFilter settingsFilter,
+                       SearchResponseCache searchResponseCache) {
         super(settings);
         this.threadPool = threadPool;
         this.monitorService = monitorService;
@@ -80,6 +83,7 @@ public class NodeService extends AbstractComponent implements Closeable {
         this.ingestService = ingestService;
         this.settingsFilter = settingsFilter;
         this.scriptService = scriptService;
+        this.searchResponseCache = searchResponseCache;
         clusterService.add(ingestService.getPipelineStore());
         clusterService.add(ingestService.getPipelineExecutionService());
     }
@@ -102,7 +106,7 @@ public class NodeService extends AbstractComponent implements Closeable {
 
     public NodeStats stats(CommonStatsFlags indices, boolean os, boolean process, boolean jvm, boolean threadPool,
                            boolean fs, boolean transport, boolean http, boolean circuitBreaker,
-                           boolean script, boolean discoveryStats, boolean ingest) {
+                           boolean script, boolean discoveryStats, boolean ingest, boolean searchResponseCacheStats) {
         // for indices stats we want to include previous allocated shards stats as well (it will
         // only be applied to the sensible ones to use, like refresh/merge/flush/indexing stats)
         return new NodeStats(discovery.localNode(), System.currentTimeMillis(),
@@ -117,7 +121,8 @@ public class NodeService extends AbstractComponent implements Closeable {
                 circuitBreaker ? circuitBreakerService.stats() : null,
                 script ? scriptService.stats() : null,
                 discoveryStats ? discovery.stats() : null,
-                ingest ? ingestService.getPipelineExecutionService().stats() : null
+                ingest ? ingestService.getPipelineExecutionService().stats() : null,
+                searchResponseCacheStats ? searchResponseCache.stats() : null
         );
     }
 
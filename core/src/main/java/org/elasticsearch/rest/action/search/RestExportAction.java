@@ -0,0 +1,123 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.search;
+
+import org.elasticsearch.action.search.ExportAction;
+import org.elasticsearch.action.search.ExportRequest;
+import org.elasticsearch.action.search.ExportResponse;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.indices.query.IndicesQueriesRegistry;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestController;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestResponse;
+import org.elasticsearch.rest.action.RestActions;
+import org.elasticsearch.rest.action.RestResponseListener;
+
+import java.io.IOException;
+
+import static org.elasticsearch.common.unit.TimeValue.parseTimeValue;
+import static org.elasticsearch.rest.RestRequest.Method.GET;
+import static org.elasticsearch.rest.RestRequest.Method.POST;
+
+/**
+ * Exports the doc values of the documents that match a query as newline delimited JSON: a header line with the cursor of the
+ * next page and the exported fields, followed by one line per document that holds the array of its cells.
+ */
+public class RestExportAction extends BaseRestHandler {
+
+    private final IndicesQueriesRegistry indicesQueriesRegistry;
+
+    @Inject
+    public RestExportAction(Settings settings, RestController controller, IndicesQueriesRegistry indicesQueriesRegistry) {
+        super(settings);
+        this.indicesQueriesRegistry = indicesQueriesRegistry;
+        controller.registerHandler(GET, "/_export", this);
+        controller.registerHandler(POST, "/_export", this);
+        controller.registerHandler(GET, "/{index}/_export", this);
+        controller.registerHandler(POST, "/{index}/_export", this);
+        controller.registerHandler(GET, "/{index}/{type}/_export", this);
+        controller.registerHandler(POST, "/{index}/{type}/_export", this);
+    }
+
+    @Override
+    public void handleRequest(final RestRequest request, final RestChannel channel, final NodeClient client) {
+        ExportRequest exportRequest = new ExportRequest(Strings.splitStringByCommaToArray(request.param("index")));
+        exportRequest.types(Strings.splitStringByCommaToArray(request.param("type")));
+        exportRequest.indicesOptions(IndicesOptions.fromRequest(request, exportRequest.indicesOptions()));
+        exportRequest.routing(request.param("routing"));
+        exportRequest.preference(request.param("preference"));
+        exportRequest.fields(Strings.splitStringByCommaToArray(request.param("fields")));
+        exportRequest.size(request.paramAsInt("size", exportRequest.size()));
+        exportRequest.keepAlive(parseTimeValue(request.param("keep_alive"), exportRequest.keepAlive(), "keep_alive"));
+        exportRequest.cursor(request.param("cursor"));
+        if (RestActions.hasBodyContent(request)) {
+            exportRequest.query(RestActions.getQueryContent(RestActions.getRestContent(request), indicesQueriesRegistry,
+                    parseFieldMatcher));
+        } else {
+            QueryBuilder query = RestActions.urlParamsToQueryBuilder(request);
+            if (query != null) {
+                exportRequest.query(query);
+            }
+        }
+
+        client.execute(ExportAction.INSTANCE, exportRequest, new RestResponseListener<ExportResponse>(channel) {
+            @Override
+            public RestResponse buildResponse(ExportResponse response) throws Exception {
+                BytesStreamOutput out = new BytesStreamOutput();
+                try (XContentBuilder builder = XContentFactory.jsonBuilder(out)) {
+                    builder.startObject();
+                    builder.field("took", response.getTook().millis());
+                    RestActions.buildBroadcastShardsHeader(builder, request, response.getTotalShards(), response.getSuccessfulShards(),
+                            response.getFailedShards(), response.getShardFailures());
+                    builder.field("cursor", response.getCursor());
+                    builder.array("fields", response.getFields());
+                    builder.endObject();
+                }
+                out.writeByte((byte) '\n');
+                for (Object[] row : response.getRows()) {
+                    writeRow(out, row);
+                }
+                return new BytesRestResponse(response.status(), "application/x-ndjson", out.bytes());
+            }
+        });
+    }
+
+    private static void writeRow(BytesStreamOutput out, Object[] row) throws IOException {
+        try (XContentBuilder builder = XContentFactory.jsonBuilder(out)) {
+            builder.startArray();
+            for (Object cell : row) {
+                builder.value(cell);
+            }
+            builder.endArray();
+        }
+        out.writeByte((byte) '\n');
+    }
+}
@@ -21,6 +21,7 @@ package org.elasticsearch.search;
 
 import org.apache.lucene.search.BooleanQuery;
 import org.elasticsearch.Configurator;
+import org.elasticsearch.action.search.SearchResponseCache;
 import org.elasticsearch.common.NamedRegistry;
 import org.elasticsearch.common.geo.ShapesAvailability;
 import org.elasticsearch.common.geo.builders.ShapeBuilders;
@@ -33,6 +34,7 @@ import org.elasticsearch.common.xcontent.ParseFieldRegistry;
 import org.elasticsearch.index.query.*;
 import org.elasticsearch.index.query.functionscore.*;
 import org.elasticsearch.indices.query.IndicesQueriesRegistry;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.plugins.SearchPlugin;
 import org.elasticsearch.plugins.SearchPlugin.*;
 import org.elasticsearch.search.action.SearchTransportService;
@@ -471,7 +473,9 @@ public class SearchModule extends AbstractModule {
     protected void configureSearch() {
         // configure search private classes...
         bind(SearchPhaseController.class).asEagerSingleton();
+        bind(SearchResponseCache.class).asEagerSingleton();
         bind(FetchPhase.class).toInstance(new FetchPhase(fetchSubPhases));
+        bind(ResponseCollectorService.class).asEagerSingleton();
         bind(SearchTransportService.class).asEagerSingleton();
     }
 
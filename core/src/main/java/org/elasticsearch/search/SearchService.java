@@ -20,6 +20,7 @@
 package org.elasticsearch.search;
 
 import com.carrotsearch.hppc.ObjectFloatHashMap;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.TopDocs;
 import org.elasticsearch.ElasticsearchException;
@@ -31,6 +32,7 @@ import org.elasticsearch.common.ParseFieldMatcher;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
@@ -61,6 +63,8 @@ import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.dfs.DfsPhase;
 import org.elasticsearch.search.dfs.DfsSearchResult;
+import org.elasticsearch.search.export.ExportPhase;
+import org.elasticsearch.search.export.ExportSearchResult;
 import org.elasticsearch.search.fetch.*;
 import org.elasticsearch.search.fetch.subphase.DocValueFieldsContext;
 import org.elasticsearch.search.fetch.subphase.DocValueFieldsContext.DocValueField;
@@ -119,6 +123,8 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
 
     private final FetchPhase fetchPhase;
 
+    private final ExportPhase exportPhase = new ExportPhase();
+
     private final long defaultKeepAlive;
 
     private volatile TimeValue defaultSearchTimeout;
@@ -235,11 +241,44 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         final boolean canCache = indicesService.canCache(request, context);
         if (canCache) {
             indicesService.loadIntoContext(request, context, queryPhase);
+        } else if (indicesService.canCacheHits(request, context)) {
+            indicesService.loadHitsIntoContext(request, context, queryPhase);
         } else {
             queryPhase.execute(context);
         }
     }
 
+    /**
+     * Returns the id of the reader the context searches, which lets coordinating nodes recognize identical results of a request,
+     * or -1 if the results may change without the reader changing.
+     */
+    private static long readerId(SearchContext context) {
+        // coordinating nodes key on the original request, so the current time must not have been used by its rewrite either
+        if (context.nowInMillisEverUsed() || context.scrollContext() != null || context.getProfilers() != null) {
+            return -1;
+        }
+        // a wrapped reader, e.g. one that filters documents, may return different results for the same reader id
+        final DirectoryReader reader = context.searcher().getDirectoryReader();
+        return reader instanceof ElasticsearchDirectoryReader ? ((ElasticsearchDirectoryReader) reader).readerId() : -1;
+    }
+
+    /**
+     * Try to load the fetched hits from the cache of search hits or execute the fetch phase directly if the cache cannot be used.
+     */
+    private void loadOrExecuteFetchPhase(final SearchContext context) throws Exception {
+        if (indicesService.canCacheHits(context.request(), context)) {
+            try {
+                indicesService.loadFetchResultIntoContext(context, fetchPhase);
+            } catch (ExecutionException e) {
+                // execution exception can happen while loading the cache, strip it
+                throw (e.getCause() == null || e.getCause() instanceof Exception) ?
+                        (Exception) e.getCause() : new ElasticsearchException(e.getCause());
+            }
+        } else {
+            fetchPhase.execute(context);
+        }
+    }
+
     public QuerySearchResultProvider executeQueryPhase(ShardSearchRequest request) throws IOException {
         final SearchContext context = createAndPutContext(request);
         final SearchOperationListener operationListener = context.indexShard().getSearchOperationListener();
@@ -250,6 +289,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
             contextProcessing(context);
 
             loadOrExecuteQueryPhase(request, context);
+            context.queryResult().readerId(readerId(context));
 
             if (context.queryResult().hasHits() == false && context.scrollContext() == null) {
                 freeContext(context.id());
@@ -356,7 +396,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
             operationListener.onPreFetchPhase(context);
             try {
                 shortcutDocIdsToLoad(context);
-                fetchPhase.execute(context);
+                loadOrExecuteFetchPhase(context);
                 if (fetchPhaseShouldFreeContext(context)) {
                     freeContext(context.id());
                 } else {
@@ -471,7 +511,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
             context.docIdsToLoad(request.docIds(), 0, request.docIdsSize());
             operationListener.onPreFetchPhase(context);
             long time = System.nanoTime();
-            fetchPhase.execute(context);
+            loadOrExecuteFetchPhase(context);
             if (fetchPhaseShouldFreeContext(context)) {
                 freeContext(request.id());
             } else {
@@ -489,6 +529,48 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         }
     }
 
+    /**
+     * Exports the first page of the rows of the shard. The context stays open as the cursor of the next pages unless the shard
+     * has no more rows to export.
+     */
+    public ExportSearchResult executeExportPhase(ShardSearchRequest request) throws IOException {
+        if (request.scroll() == null) {
+            throw new IllegalArgumentException("exporting the rows of a shard requires a scroll");
+        }
+        return executeExportPhase(createAndPutContext(request));
+    }
+
+    public ExportSearchResult executeExportPhase(InternalScrollSearchRequest request) throws IOException {
+        final SearchContext context = findContext(request.id());
+        processScroll(request, context);
+        return executeExportPhase(context);
+    }
+
+    private ExportSearchResult executeExportPhase(SearchContext context) {
+        final SearchOperationListener operationListener = context.indexShard().getSearchOperationListener();
+        context.incRef();
+        try {
+            operationListener.onPreQueryPhase(context);
+            long time = System.nanoTime();
+            contextProcessing(context);
+            ExportSearchResult result = exportPhase.execute(context);
+            if (result.exhausted()) {
+                freeContext(context.id());
+            } else {
+                contextProcessedSuccessfully(context);
+            }
+            operationListener.onQueryPhase(context, System.nanoTime() - time);
+            return result;
+        } catch (Exception e) {
+            operationListener.onFailedQueryPhase(context);
+            logger.trace("Export phase failed", e);
+            processFailure(context, e);
+            throw ExceptionsHelper.convertToRuntime(e);
+        } finally {
+            cleanContext(context);
+        }
+    }
+
     private SearchContext findContext(long id) throws SearchContextMissingException {
         SearchContext context = activeContexts.get(id);
         if (context == null) {
@@ -527,6 +609,9 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
                 indexService,
                 indexShard, scriptService, bigArrays, threadPool.estimatedTimeInMillisCounter(), parseFieldMatcher,
                 defaultSearchTimeout, fetchPhase);
+        if (indexService.getIndexSettings().isConcurrentSegmentSearch()) {
+            context.searcher().setSliceExecutor(threadPool.executor(Names.SEARCH_WORKER));
+        }
         SearchContext.setCurrent(context);
         try {
             request.rewrite(context.getQueryShardContext());
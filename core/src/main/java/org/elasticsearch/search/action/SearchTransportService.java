@@ -30,9 +30,13 @@ import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.metrics.ExponentiallyWeightedMovingAverage;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsThreadPoolExecutor;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.dfs.DfsSearchResult;
+import org.elasticsearch.search.export.ExportSearchResult;
 import org.elasticsearch.search.fetch.FetchSearchResult;
 import org.elasticsearch.search.fetch.QueryFetchSearchResult;
 import org.elasticsearch.search.fetch.ScrollQueryFetchSearchResult;
@@ -52,6 +56,7 @@ import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
+import java.util.concurrent.Executor;
 
 /**
  * An encapsulation of {@link org.elasticsearch.search.SearchService} operations exposed through
@@ -71,15 +76,26 @@ public class SearchTransportService extends AbstractComponent {
     public static final String QUERY_FETCH_SCROLL_ACTION_NAME = "indices:data/read/search[phase/query+fetch/scroll]";
     public static final String FETCH_ID_SCROLL_ACTION_NAME = "indices:data/read/search[phase/fetch/id/scroll]";
     public static final String FETCH_ID_ACTION_NAME = "indices:data/read/search[phase/fetch/id]";
+    public static final String EXPORT_ACTION_NAME = "indices:data/read/search[phase/export]";
+    public static final String EXPORT_SCROLL_ACTION_NAME = "indices:data/read/search[phase/export/scroll]";
+
+    // the weight of each new query phase in the service time that is reported to coordinating nodes
+    private static final double SERVICE_TIME_ALPHA = 0.3;
 
     private final TransportService transportService;
     private final SearchService searchService;
+    private final ThreadPool threadPool;
+    private final ResponseCollectorService responseCollectorService;
+    private final ExponentiallyWeightedMovingAverage queryServiceTime = new ExponentiallyWeightedMovingAverage(SERVICE_TIME_ALPHA, 0);
 
     @Inject
-    public SearchTransportService(Settings settings, TransportService transportService, SearchService searchService) {
+    public SearchTransportService(Settings settings, TransportService transportService, SearchService searchService,
+                                  ThreadPool threadPool, ResponseCollectorService responseCollectorService) {
         super(settings);
         this.transportService = transportService;
         this.searchService = searchService;
+        this.threadPool = threadPool;
+        this.responseCollectorService = responseCollectorService;
         transportService.registerRequestHandler(FREE_CONTEXT_SCROLL_ACTION_NAME, ScrollFreeContextRequest::new, ThreadPool.Names.SAME,
                 new FreeContextTransportHandler<>());
         transportService.registerRequestHandler(FREE_CONTEXT_ACTION_NAME, SearchFreeContextRequest::new, ThreadPool.Names.SAME,
@@ -104,6 +120,10 @@ public class SearchTransportService extends AbstractComponent {
                 new FetchByIdTransportHandler<>());
         transportService.registerRequestHandler(FETCH_ID_ACTION_NAME, ShardFetchSearchRequest::new, ThreadPool.Names.SEARCH,
                 new FetchByIdTransportHandler<>());
+        transportService.registerRequestHandler(EXPORT_ACTION_NAME, ShardSearchTransportRequest::new, ThreadPool.Names.SEARCH,
+                new ExportTransportHandler());
+        transportService.registerRequestHandler(EXPORT_SCROLL_ACTION_NAME, InternalScrollSearchRequest::new, ThreadPool.Names.SEARCH,
+                new ExportScrollTransportHandler());
     }
 
     public void sendFreeContext(DiscoveryNode node, final long contextId, SearchRequest request) {
@@ -136,10 +156,14 @@ public class SearchTransportService extends AbstractComponent {
         transportService.sendRequest(node, DFS_ACTION_NAME, request, new ActionListenerResponseHandler<>(listener, DfsSearchResult::new));
     }
 
+    public ResponseCollectorService getResponseCollectorService() {
+        return responseCollectorService;
+    }
+
     public void sendExecuteQuery(DiscoveryNode node, final ShardSearchTransportRequest request,
                                  final ActionListener<QuerySearchResultProvider> listener) {
         transportService.sendRequest(node, QUERY_ACTION_NAME, request,
-                new ActionListenerResponseHandler<>(listener, QuerySearchResult::new));
+                new ActionListenerResponseHandler<>(collectResponseStatistics(node, listener), QuerySearchResult::new));
     }
 
     public void sendExecuteQuery(DiscoveryNode node, final QuerySearchRequest request, final ActionListener<QuerySearchResult> listener) {
@@ -156,7 +180,7 @@ public class SearchTransportService extends AbstractComponent {
     public void sendExecuteFetch(DiscoveryNode node, final ShardSearchTransportRequest request,
                                  final ActionListener<QueryFetchSearchResult> listener) {
         transportService.sendRequest(node, QUERY_FETCH_ACTION_NAME, request,
-                new ActionListenerResponseHandler<>(listener, QueryFetchSearchResult::new));
+                new ActionListenerResponseHandler<>(collectResponseStatistics(node, listener), QueryFetchSearchResult::new));
     }
 
     public void sendExecuteFetch(DiscoveryNode node, final QuerySearchRequest request,
@@ -186,6 +210,56 @@ public class SearchTransportService extends AbstractComponent {
         transportService.sendRequest(node, action, request, new ActionListenerResponseHandler<>(listener, FetchSearchResult::new));
     }
 
+    public void sendExecuteExport(DiscoveryNode node, final ShardSearchTransportRequest request,
+                                  final ActionListener<ExportSearchResult> listener) {
+        transportService.sendRequest(node, EXPORT_ACTION_NAME, request,
+                new ActionListenerResponseHandler<>(listener, ExportSearchResult::new));
+    }
+
+    public void sendExecuteExport(DiscoveryNode node, final InternalScrollSearchRequest request,
+                                  final ActionListener<ExportSearchResult> listener) {
+        transportService.sendRequest(node, EXPORT_SCROLL_ACTION_NAME, request,
+                new ActionListenerResponseHandler<>(listener, ExportSearchResult::new));
+    }
+
+    /**
+     * Wraps the given listener of the first query phase on a shard so that the response time and the statistics that the
+     * node piggybacked on its response are fed to the {@link ResponseCollectorService}.
+     */
+    private <T extends QuerySearchResultProvider> ActionListener<T> collectResponseStatistics(DiscoveryNode node,
+                                                                                           ActionListener<T> listener) {
+        final String nodeId = node.getId();
+        final long startNanos = System.nanoTime();
+        responseCollectorService.onRequestSent(nodeId);
+        return new ActionListener<T>() {
+            @Override
+            public void onResponse(T response) {
+                final QuerySearchResult queryResult = response.queryResult();
+                responseCollectorService.onResponse(nodeId, queryResult.nodeQueueSize(), System.nanoTime() - startNanos,
+                    queryResult.serviceTimeEWMA());
+                listener.onResponse(response);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                responseCollectorService.onFailure(nodeId);
+                listener.onFailure(e);
+            }
+        };
+    }
+
+    /**
+     * Adds the statistics that coordinating nodes use to rank this node to the result of a query phase that took the given time.
+     */
+    private void addNodeStatistics(QuerySearchResult result, long tookNanos) {
+        queryServiceTime.addValue(tookNanos);
+        result.serviceTimeEWMA((long) queryServiceTime.getAverage());
+        final Executor executor = threadPool.executor(ThreadPool.Names.SEARCH);
+        if (executor instanceof EsThreadPoolExecutor) {
+            result.nodeQueueSize(((EsThreadPoolExecutor) executor).getQueue().size());
+        }
+    }
+
     static class ScrollFreeContextRequest extends TransportRequest {
         private long id;
 
@@ -312,7 +386,9 @@ public class SearchTransportService extends AbstractComponent {
     class SearchQueryTransportHandler implements TransportRequestHandler<ShardSearchTransportRequest> {
         @Override
         public void messageReceived(ShardSearchTransportRequest request, TransportChannel channel) throws Exception {
+            final long startNanos = System.nanoTime();
             QuerySearchResultProvider result = searchService.executeQueryPhase(request);
+            addNodeStatistics(result.queryResult(), System.nanoTime() - startNanos);
             channel.sendResponse(result);
         }
     }
@@ -336,7 +412,9 @@ public class SearchTransportService extends AbstractComponent {
     class SearchQueryFetchTransportHandler implements TransportRequestHandler<ShardSearchTransportRequest> {
         @Override
         public void messageReceived(ShardSearchTransportRequest request, TransportChannel channel) throws Exception {
+            final long startNanos = System.nanoTime();
             QueryFetchSearchResult result = searchService.executeFetchPhase(request);
+            addNodeStatistics(result.queryResult(), System.nanoTime() - startNanos);
             channel.sendResponse(result);
         }
     }
@@ -364,4 +442,20 @@ public class SearchTransportService extends AbstractComponent {
             channel.sendResponse(result);
         }
     }
+
+    class ExportTransportHandler implements TransportRequestHandler<ShardSearchTransportRequest> {
+        @Override
+        public void messageReceived(ShardSearchTransportRequest request, TransportChannel channel) throws Exception {
+            ExportSearchResult result = searchService.executeExportPhase(request);
+            channel.sendResponse(result);
+        }
+    }
+
+    class ExportScrollTransportHandler implements TransportRequestHandler<InternalScrollSearchRequest> {
+        @Override
+        public void messageReceived(InternalScrollSearchRequest request, TransportChannel channel) throws Exception {
+            ExportSearchResult result = searchService.executeExportPhase(request);
+            channel.sendResponse(result);
+        }
+    }
 }
@@ -24,7 +24,9 @@ import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.Query;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.search.Queries;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.search.SearchPhase;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
 import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.pipeline.SiblingPipelineAggregator;
@@ -136,16 +138,20 @@ public class AggregationPhase implements SearchPhase {
             }
         }
 
-        List<InternalAggregation> aggregations = new ArrayList<>(aggregators.length);
-        for (Aggregator aggregator : context.aggregations().aggregators()) {
-            try {
-                aggregator.postCollection();
-                aggregations.add(aggregator.buildAggregation(0));
-            } catch (IOException e) {
-                throw new AggregationExecutionException("Failed to build aggregation [" + aggregator.name() + "]", e);
+        final List<Aggregator[]> sliceAggregators = context.aggregations().sliceAggregators();
+        if (sliceAggregators.isEmpty()) {
+            context.queryResult().aggregations(new InternalAggregations(buildAggregations(aggregators, true)));
+        } else {
+            // the slices were collected concurrently by aggregations that support it, and a partial reduce of their aggregations
+            // keeps everything that the final reduce on the coordinating node needs, just like a shard-level aggregation
+            List<InternalAggregations> sliceAggregations = new ArrayList<>(sliceAggregators.size());
+            for (Aggregator[] slice : sliceAggregators) {
+                // the collection of every slice was finished on the thread that searched it
+                sliceAggregations.add(new InternalAggregations(buildAggregations(slice, false)));
             }
+            ReduceContext reduceContext = new ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, context.scriptService(), null, false);
+            context.queryResult().aggregations(InternalAggregations.reduce(sliceAggregations, reduceContext));
         }
-        context.queryResult().aggregations(new InternalAggregations(aggregations));
         try {
             List<PipelineAggregator> pipelineAggregators = context.aggregations().factories().createPipelineAggregators();
             List<SiblingPipelineAggregator> siblingPipelineAggregators = new ArrayList<>(pipelineAggregators.size());
@@ -168,4 +174,19 @@ public class AggregationPhase implements SearchPhase {
         context.queryCollectors().remove(AggregationPhase.class);
     }
 
+    private static List<InternalAggregation> buildAggregations(Aggregator[] aggregators, boolean postCollection) {
+        List<InternalAggregation> aggregations = new ArrayList<>(aggregators.length);
+        for (Aggregator aggregator : aggregators) {
+            try {
+                if (postCollection) {
+                    aggregator.postCollection();
+                }
+                aggregations.add(aggregator.buildAggregation(0));
+            } catch (IOException e) {
+                throw new AggregationExecutionException("Failed to build aggregation [" + aggregator.name() + "]", e);
+            }
+        }
+        return aggregations;
+    }
+
 }
@@ -109,6 +109,19 @@ public class AggregatorFactories {
         return aggregators;
     }
 
+    /**
+     * Returns whether these aggregations and all their sub-aggregations can collect slices of the segments of a shard concurrently
+     * and be merged with a partial reduce. Pipeline aggregations only run on the final reduce, so they do not matter.
+     */
+    public boolean supportsConcurrentSlices() {
+        for (AggregatorFactory<?> factory : factories) {
+            if (factory.supportsConcurrentSlices() == false || factory.factories.supportsConcurrentSlices() == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * @return the number of sub-aggregator factories not including pipeline
      *         aggregator factories
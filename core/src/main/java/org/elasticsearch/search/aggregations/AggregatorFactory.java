@@ -225,6 +225,15 @@ public abstract class AggregatorFactory<AF extends AggregatorFactory<AF>> {
         return createInternal(parent, collectsFromSingleBucket, this.factories.createPipelineAggregators(), this.metaData);
     }
 
+    /**
+     * Returns whether aggregators of this factory can collect slices of the segments of a shard concurrently, one aggregator per
+     * slice, because a partial reduce of their aggregations is the same as the aggregation of the whole shard. Sub-aggregations are
+     * checked separately, see {@link AggregatorFactories#supportsConcurrentSlices()}.
+     */
+    protected boolean supportsConcurrentSlices() {
+        return false;
+    }
+
     public String getType() {
         return type.name();
     }
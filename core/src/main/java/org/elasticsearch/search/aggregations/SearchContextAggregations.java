@@ -20,6 +20,11 @@ package org.elasticsearch.search.aggregations;
 
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * The aggregation context that is part of the search context.
  */
@@ -27,6 +32,7 @@ public class SearchContextAggregations {
 
     private final AggregatorFactories factories;
     private Aggregator[] aggregators;
+    private final List<Aggregator[]> sliceAggregators = new ArrayList<>();
     private AggregationContext aggregationContext;
 
     /**
@@ -61,4 +67,33 @@ public class SearchContextAggregations {
         this.aggregators = aggregators;
     }
 
+    /**
+     * Whether the aggregations can collect slices of the segments concurrently, see {@link AggregatorFactories#supportsConcurrentSlices()}.
+     */
+    public boolean supportsConcurrentSlices() {
+        return factories.supportsConcurrentSlices();
+    }
+
+    /**
+     * Creates the top level aggregators that collect a single slice of the segments, and returns their collector. The aggregators
+     * are registered so that the aggregations of all slices are built and merged instead of those of {@link #aggregators()}. This
+     * must be called on the thread that executes the query phase, before the slice is searched, and
+     * {@link BucketCollector#postCollection()} must be called on the thread that searched the slice.
+     */
+    public BucketCollector createSliceCollector() throws IOException {
+        Aggregator[] aggregators = factories.createTopLevelAggregators();
+        BucketCollector collector = BucketCollector.wrap(Arrays.asList(aggregators));
+        collector.preCollection();
+        sliceAggregators.add(aggregators);
+        return collector;
+    }
+
+    /**
+     * Returns the top level aggregators of every slice of the segments that was collected concurrently, in slice order, or an
+     * empty list if the segments were collected sequentially by {@link #aggregators()}.
+     */
+    public List<Aggregator[]> sliceAggregators() {
+        return sliceAggregators;
+    }
+
 }
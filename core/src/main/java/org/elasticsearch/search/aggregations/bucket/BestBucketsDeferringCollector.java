@@ -23,8 +23,11 @@ import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Weight;
-import org.apache.lucene.util.packed.PackedInts;
-import org.apache.lucene.util.packed.PackedLongValues;
+import org.elasticsearch.common.bytes.ReleasablePagedBytesReference;
+import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.LongHash;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -32,6 +35,7 @@ import org.elasticsearch.search.aggregations.BucketCollector;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.internal.SearchContext.Lifetime;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -42,17 +46,27 @@ import java.util.List;
  * matches and then is able to replay a given subset of buckets which represent
  * the survivors from a pruning process performed by the aggregator that owns
  * this collector.
+ * <p>
+ * Matches are recorded per segment as variable-length (doc delta, bucket) pairs
+ * in pages of the {@link BigArrays} of the search, so that the buffer is
+ * accounted against the request circuit breaker and its pages are recycled.
+ * Replaying reads them back sequentially.
  */
-public class BestBucketsDeferringCollector extends DeferringBucketCollector {
-    private static class Entry {
+public class BestBucketsDeferringCollector extends DeferringBucketCollector implements Releasable {
+    private static class Entry implements Releasable {
         final LeafReaderContext context;
-        final PackedLongValues docDeltas;
-        final PackedLongValues buckets;
+        final ReleasablePagedBytesReference docDeltasAndBuckets;
+        final long size;
 
-        public Entry(LeafReaderContext context, PackedLongValues docDeltas, PackedLongValues buckets) {
+        Entry(LeafReaderContext context, ReleasablePagedBytesReference docDeltasAndBuckets, long size) {
             this.context = context;
-            this.docDeltas = docDeltas;
-            this.buckets = buckets;
+            this.docDeltasAndBuckets = docDeltasAndBuckets;
+            this.size = size;
+        }
+
+        @Override
+        public void close() {
+            docDeltasAndBuckets.close();
         }
     }
 
@@ -60,8 +74,8 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
     BucketCollector collector;
     final AggregationContext aggContext;
     LeafReaderContext context;
-    PackedLongValues.Builder docDeltas;
-    PackedLongValues.Builder buckets;
+    ReleasableBytesStreamOutput docDeltasAndBuckets;
+    long size;
     long maxBucket = -1;
     boolean finished = false;
     LongHash selectedBuckets;
@@ -69,6 +83,7 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
     /** Sole constructor. */
     public BestBucketsDeferringCollector(AggregationContext context) {
         this.aggContext = context;
+        context.searchContext().addReleasable(this, Lifetime.PHASE);
     }
 
     @Override
@@ -87,28 +102,28 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
 
     private void finishLeaf() {
         if (context != null) {
-            entries.add(new Entry(context, docDeltas.build(), buckets.build()));
+            entries.add(new Entry(context, docDeltasAndBuckets.bytes(), size));
         }
         context = null;
-        docDeltas = null;
-        buckets = null;
+        docDeltasAndBuckets = null;
+        size = 0;
     }
 
     @Override
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
         finishLeaf();
 
+        docDeltasAndBuckets = new ReleasableBytesStreamOutput(aggContext.bigArrays());
         context = ctx;
-        docDeltas = PackedLongValues.packedBuilder(PackedInts.DEFAULT);
-        buckets = PackedLongValues.packedBuilder(PackedInts.DEFAULT);
 
         return new LeafBucketCollector() {
             int lastDoc = 0;
 
             @Override
             public void collect(int doc, long bucket) throws IOException {
-                docDeltas.add(doc - lastDoc);
-                buckets.add(bucket);
+                docDeltasAndBuckets.writeVInt(doc - lastDoc);
+                docDeltasAndBuckets.writeVLong(bucket);
+                size++;
                 lastDoc = doc;
                 maxBucket = Math.max(maxBucket, bucket);
             }
@@ -153,19 +168,18 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
         for (Entry entry : entries) {
             final LeafBucketCollector leafCollector = collector.getLeafCollector(entry.context);
             DocIdSetIterator docIt = null;
-            if (needsScores && entry.docDeltas.size() > 0) {
+            if (needsScores && entry.size > 0) {
                 Scorer scorer = weight.scorer(entry.context);
                 // We don't need to check if the scorer is null
-                // since we are sure that there are documents to replay (entry.docDeltas it not empty).
+                // since we are sure that there are documents to replay (entry.size is not 0).
                 docIt = scorer.iterator();
                 leafCollector.setScorer(scorer);
             }
-            final PackedLongValues.Iterator docDeltaIterator = entry.docDeltas.iterator();
-            final PackedLongValues.Iterator buckets = entry.buckets.iterator();
+            final StreamInput docDeltasAndBuckets = entry.docDeltasAndBuckets.streamInput();
             int doc = 0;
-            for (long i = 0, end = entry.docDeltas.size(); i < end; ++i) {
-                doc += docDeltaIterator.next();
-                final long bucket = buckets.next();
+            for (long i = 0, end = entry.size; i < end; ++i) {
+                doc += docDeltasAndBuckets.readVInt();
+                final long bucket = docDeltasAndBuckets.readVLong();
                 final long rebasedBucket = hash.find(bucket);
                 if (rebasedBucket != -1) {
                     if (needsScores) {
@@ -181,6 +195,18 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
         }
 
         collector.postCollection();
+        // the recorded matches are not needed anymore, give their pages back
+        close();
+    }
+
+    @Override
+    public void close() {
+        Releasables.close(entries);
+        entries.clear();
+        if (docDeltasAndBuckets != null) {
+            Releasables.close(docDeltasAndBuckets.bytes());
+            docDeltasAndBuckets = null;
+        }
     }
 
     /**
@@ -46,6 +46,11 @@ public class FilterAggregatorFactory extends AggregatorFactory<FilterAggregatorF
         weight = contextSearcher.createNormalizedWeight(filter, false);
     }
 
+    @Override
+    protected boolean supportsConcurrentSlices() {
+        return true;
+    }
+
     @Override
     public Aggregator createInternal(Aggregator parent, boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
@@ -53,6 +53,7 @@ class DateHistogramAggregator extends BucketsAggregator {
     private final ValuesSource.Numeric valuesSource;
     private final DocValueFormat formatter;
     private final Rounding rounding;
+    private final Rounding.Prepared preparedRounding;
     private final InternalOrder order;
     private final boolean keyed;
 
@@ -62,14 +63,15 @@ class DateHistogramAggregator extends BucketsAggregator {
     private final LongHash bucketOrds;
     private long offset;
 
-    public DateHistogramAggregator(String name, AggregatorFactories factories, Rounding rounding, long offset, InternalOrder order,
-            boolean keyed,
+    public DateHistogramAggregator(String name, AggregatorFactories factories, Rounding rounding, Rounding.Prepared preparedRounding,
+            long offset, InternalOrder order, boolean keyed,
             long minDocCount, @Nullable ExtendedBounds extendedBounds, @Nullable ValuesSource.Numeric valuesSource,
             DocValueFormat formatter, AggregationContext aggregationContext,
             Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
 
         super(name, factories, aggregationContext, parent, pipelineAggregators, metaData);
         this.rounding = rounding;
+        this.preparedRounding = preparedRounding;
         this.offset = offset;
         this.order = order;
         this.keyed = keyed;
@@ -103,7 +105,7 @@ class DateHistogramAggregator extends BucketsAggregator {
                 long previousRounded = Long.MIN_VALUE;
                 for (int i = 0; i < valuesCount; ++i) {
                     long value = values.valueAt(i);
-                    long rounded = rounding.round(value - offset) + offset;
+                    long rounded = preparedRounding.round(value - offset) + offset;
                     assert rounded >= previousRounded;
                     if (rounded == previousRounded) {
                         continue;
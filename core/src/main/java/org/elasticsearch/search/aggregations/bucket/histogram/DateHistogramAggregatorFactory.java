@@ -19,9 +19,13 @@
 
 package org.elasticsearch.search.aggregations.bucket.histogram;
 
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.XPointValues;
 import org.elasticsearch.common.rounding.DateTimeUnit;
 import org.elasticsearch.common.rounding.Rounding;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.mapper.DateFieldMapper;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.AggregatorFactory;
@@ -67,6 +71,11 @@ public final class DateHistogramAggregatorFactory
         DATE_FIELD_UNITS = unmodifiableMap(dateFieldUnits);
     }
 
+    /**
+     * Maximum number of rounded values that are precomputed per shard, see {@link Rounding#prepare(long, long, int)}.
+     */
+    static final int MAX_PRECOMPUTED_ROUNDED_VALUES = 8192;
+
     private final DateHistogramInterval dateHistogramInterval;
     private final long interval;
     private final long offset;
@@ -74,6 +83,8 @@ public final class DateHistogramAggregatorFactory
     private final boolean keyed;
     private final long minDocCount;
     private final ExtendedBounds extendedBounds;
+    /** Prepared once per shard and shared by every aggregator this factory creates, see {@link #preparedRounding}. */
+    private Rounding.Prepared preparedRounding;
 
     public DateHistogramAggregatorFactory(String name, Type type, ValuesSourceConfig<Numeric> config, long interval,
             DateHistogramInterval dateHistogramInterval, long offset, InternalOrder order, boolean keyed, long minDocCount,
@@ -89,6 +100,11 @@ public final class DateHistogramAggregatorFactory
         this.extendedBounds = extendedBounds;
     }
 
+    @Override
+    protected boolean supportsConcurrentSlices() {
+        return true;
+    }
+
     public long minDocCount() {
         return minDocCount;
     }
@@ -115,6 +131,39 @@ public final class DateHistogramAggregatorFactory
         return rounding;
     }
 
+    /**
+     * Returns the rounding prepared for this shard, preparing it on first use. Aggregators under a multi-bucket parent are
+     * created once per parent bucket, and they would otherwise all rebuild the same table of rounded values. They are created while
+     * collecting, possibly by several slices of the segments concurrently.
+     */
+    private synchronized Rounding.Prepared preparedRounding(Rounding rounding, ValuesSource.Numeric valuesSource) throws IOException {
+        if (preparedRounding == null) {
+            preparedRounding = prepareRounding(rounding, valuesSource);
+        }
+        return preparedRounding;
+    }
+
+    /**
+     * Prepare the rounding for the range of values of the field on this shard, as given by its points.
+     */
+    private Rounding.Prepared prepareRounding(Rounding rounding, ValuesSource.Numeric valuesSource) throws IOException {
+        if (valuesSource == null || config.script() != null || config.fieldContext() == null
+                || config.fieldContext().fieldType() instanceof DateFieldMapper.DateFieldType == false) {
+            return rounding::round;
+        }
+        final IndexReader reader = context.searchContext().searcher().getIndexReader();
+        final String field = config.fieldContext().field();
+        final long numValues = XPointValues.size(reader, field);
+        if (numValues == 0) {
+            return rounding::round;
+        }
+        final long min = LongPoint.decodeDimension(XPointValues.getMinPackedValue(reader, field), 0);
+        final long max = LongPoint.decodeDimension(XPointValues.getMaxPackedValue(reader, field), 0);
+        // precomputing a rounded value costs a few roundings, so this is only worth it if there are many more values to round
+        final int maxRoundedValues = (int) Math.min(MAX_PRECOMPUTED_ROUNDED_VALUES, numValues / 4);
+        return rounding.prepare(min - offset, max - offset, maxRoundedValues);
+    }
+
     @Override
     protected Aggregator doCreateInternal(ValuesSource.Numeric valuesSource, Aggregator parent, boolean collectsFromSingleBucket,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
@@ -137,8 +186,9 @@ public final class DateHistogramAggregatorFactory
             // parse any string bounds to longs and round them
             roundedBounds = extendedBounds.parseAndValidate(name, context.searchContext(), config.format()).round(rounding);
         }
-        return new DateHistogramAggregator(name, factories, rounding, offset, order, keyed, minDocCount, roundedBounds, valuesSource,
-                config.format(), context, parent, pipelineAggregators, metaData);
+        Rounding.Prepared preparedRounding = preparedRounding(rounding, valuesSource);
+        return new DateHistogramAggregator(name, factories, rounding, preparedRounding, offset, order, keyed, minDocCount, roundedBounds,
+                valuesSource, config.format(), context, parent, pipelineAggregators, metaData);
     }
 
     @Override
@@ -56,6 +56,11 @@ public final class HistogramAggregatorFactory extends ValuesSourceAggregatorFact
         this.maxBound = maxBound;
     }
 
+    @Override
+    protected boolean supportsConcurrentSlices() {
+        return true;
+    }
+
     public long minDocCount() {
         return minDocCount;
     }
@@ -275,7 +275,7 @@ public final class InternalHistogram extends InternalMultiBucketAggregation<Inte
                 if (top.current.key != key) {
                     // the key changes, reduce what we already buffered and reset the buffer for current buckets
                     final Bucket reduced = currentBuckets.get(0).reduce(currentBuckets, reduceContext);
-                    if (reduced.getDocCount() >= minDocCount) {
+                    if (reduceContext.isFinalReduce() == false || reduced.getDocCount() >= minDocCount) {
                         reducedBuckets.add(reduced);
                     }
                     currentBuckets.clear();
@@ -296,7 +296,7 @@ public final class InternalHistogram extends InternalMultiBucketAggregation<Inte
 
             if (currentBuckets.isEmpty() == false) {
                 final Bucket reduced = currentBuckets.get(0).reduce(currentBuckets, reduceContext);
-                if (reduced.getDocCount() >= minDocCount) {
+                if (reduceContext.isFinalReduce() == false || reduced.getDocCount() >= minDocCount) {
                     reducedBuckets.add(reduced);
                 }
             }
@@ -362,23 +362,26 @@ public final class InternalHistogram extends InternalMultiBucketAggregation<Inte
     public InternalAggregation doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
         List<Bucket> reducedBuckets = reduceBuckets(aggregations, reduceContext);
 
-        // adding empty buckets if needed
-        if (minDocCount == 0) {
-            addEmptyBuckets(reducedBuckets, reduceContext);
-        }
+        // partial reduces must keep buckets sorted by key so that they can be merged again
+        if (reduceContext.isFinalReduce()) {
+            // adding empty buckets if needed
+            if (minDocCount == 0) {
+                addEmptyBuckets(reducedBuckets, reduceContext);
+            }
 
-        if (order == InternalOrder.KEY_ASC) {
-            // nothing to do, data are already sorted since shards return
-            // sorted buckets and the merge-sort performed by reduceBuckets
-            // maintains order
-        } else if (order == InternalOrder.KEY_DESC) {
-            // we just need to reverse here...
-            List<Bucket> reverse = new ArrayList<>(reducedBuckets);
-            Collections.reverse(reverse);
-            reducedBuckets = reverse;
-        } else {
-            // sorted by sub-aggregation, need to fall back to a costly n*log(n) sort
-            CollectionUtil.introSort(reducedBuckets, order.comparator());
+            if (order == InternalOrder.KEY_ASC) {
+                // nothing to do, data are already sorted since shards return
+                // sorted buckets and the merge-sort performed by reduceBuckets
+                // maintains order
+            } else if (order == InternalOrder.KEY_DESC) {
+                // we just need to reverse here...
+                List<Bucket> reverse = new ArrayList<>(reducedBuckets);
+                Collections.reverse(reverse);
+                reducedBuckets = reverse;
+            } else {
+                // sorted by sub-aggregation, need to fall back to a costly n*log(n) sort
+                CollectionUtil.introSort(reducedBuckets, order.comparator());
+            }
         }
 
         return new InternalHistogram(getName(), reducedBuckets, order, minDocCount, emptyBucketInfo, format, keyed, pipelineAggregators(),
@@ -40,6 +40,11 @@ public class MissingAggregatorFactory extends ValuesSourceAggregatorFactory<Valu
         super(name, type, config, context, parent, subFactoriesBuilder, metaData);
     }
 
+    @Override
+    protected boolean supportsConcurrentSlices() {
+        return true;
+    }
+
     @Override
     protected MissingAggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
@@ -52,6 +52,11 @@ public class AbstractRangeAggregatorFactory<AF extends AbstractRangeAggregatorFa
         this.rangeFactory = rangeFactory;
     }
 
+    @Override
+    protected boolean supportsConcurrentSlices() {
+        return true;
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
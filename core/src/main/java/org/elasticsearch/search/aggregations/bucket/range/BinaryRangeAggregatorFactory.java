@@ -49,6 +49,11 @@ public class BinaryRangeAggregatorFactory
         this.keyed = keyed;
     }
 
+    @Override
+    protected boolean supportsConcurrentSlices() {
+        return true;
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent,
             List<PipelineAggregator> pipelineAggregators,
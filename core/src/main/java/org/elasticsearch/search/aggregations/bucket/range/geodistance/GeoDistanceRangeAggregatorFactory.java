@@ -67,6 +67,11 @@ public class GeoDistanceRangeAggregatorFactory
         this.keyed = keyed;
     }
 
+    @Override
+    protected boolean supportsConcurrentSlices() {
+        return true;
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
@@ -130,6 +130,12 @@ public class DoubleTerms extends InternalMappedTerms<DoubleTerms, DoubleTerms.Bu
                 prototype.format);
     }
 
+    @Override
+    BucketsByTerm<Bucket> newBucketsByTerm(ReduceContext reduceContext) {
+        // doubleToLongBits is consistent with Double#equals which is what grouping by the boxed key used
+        return new LongBucketsByTerm<>(reduceContext.bigArrays(), bucket -> Double.doubleToLongBits(bucket.term));
+    }
+
     @Override
     protected DoubleTerms create(String name, List<Bucket> buckets, long docCountError, long otherDocCount) {
         return new DoubleTerms(name, order, requiredSize, minDocCount, pipelineAggregators(), getMetaData(), format,
@@ -20,6 +20,9 @@ package org.elasticsearch.search.aggregations.bucket.terms;
 
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.LongHash;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.AggregationExecutionException;
@@ -34,8 +37,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.ToLongFunction;
 
 import static java.util.Collections.unmodifiableList;
 
@@ -140,6 +145,12 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
     protected final Terms.Order order;
     protected final int requiredSize;
     protected final long minDocCount;
+    /**
+     * <code>true</code> iff this instance is the result of a partial reduce. In this case {@link #getDocCountError()} and the
+     * errors of the buckets are the errors accumulated over the shard results it was reduced from. Partially reduced aggregations
+     * only live on the coordinating node and are never serialized.
+     */
+    private boolean partiallyReduced;
 
     protected InternalTerms(String name, Terms.Order order, int requiredSize, long minDocCount,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) {
@@ -161,6 +172,7 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
 
     @Override
     protected final void doWriteTo(StreamOutput out) throws IOException {
+        assert partiallyReduced == false : "partially reduced aggregations must not be serialized";
         InternalOrder.Streams.writeOrder(order, out);
         writeSize(requiredSize, out);
         out.writeVLong(minDocCount);
@@ -181,7 +193,13 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
 
     @Override
     public InternalAggregation doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
-        Map<Object, List<B>> buckets = new HashMap<>();
+        try (BucketsByTerm<B> buckets = newBucketsByTerm(reduceContext)) {
+            return doReduce(aggregations, reduceContext, buckets);
+        }
+    }
+
+    private InternalAggregation doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext,
+                                         BucketsByTerm<B> buckets) {
         long sumDocCountError = 0;
         long otherDocCount = 0;
         InternalTerms<A, B> referenceTerms = null;
@@ -202,7 +220,11 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
             }
             otherDocCount += terms.getSumOfOtherDocCounts();
             final long thisAggDocCountError;
-            if (terms.getBucketsInternal().size() < getShardSize() || InternalOrder.isTermOrder(order)) {
+            if (terms.partiallyReduced) {
+                // the aggregation already carries the accumulated error of all the shard results it was reduced from,
+                // its number of buckets says nothing about whether any of these shards had more terms
+                thisAggDocCountError = terms.getDocCountError();
+            } else if (terms.getBucketsInternal().size() < getShardSize() || InternalOrder.isTermOrder(order)) {
                 thisAggDocCountError = 0;
             } else if (InternalOrder.isCountDesc(this.order)) {
                 thisAggDocCountError = terms.getBucketsInternal().get(terms.getBucketsInternal().size() - 1).docCount;
@@ -218,19 +240,20 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
             }
             setDocCountError(thisAggDocCountError);
             for (B bucket : terms.getBucketsInternal()) {
-                bucket.docCountError = thisAggDocCountError;
-                List<B> bucketList = buckets.get(bucket.getKey());
-                if (bucketList == null) {
-                    bucketList = new ArrayList<>();
-                    buckets.put(bucket.getKey(), bucketList);
+                if (terms.partiallyReduced && thisAggDocCountError != -1 && bucket.docCountError != -1) {
+                    // a partially reduced bucket already knows the error of the shards it was missing from, only
+                    // the error of the shards that returned it must be accounted as covered
+                    bucket.docCountError = thisAggDocCountError - bucket.docCountError;
+                } else {
+                    bucket.docCountError = thisAggDocCountError;
                 }
-                bucketList.add(bucket);
+                buckets.add(bucket);
             }
         }
 
-        final int size = Math.min(requiredSize, buckets.size());
+        final int size = reduceContext.isFinalReduce() == false ? buckets.size() : Math.min(requiredSize, buckets.size());
         BucketPriorityQueue<B> ordered = new BucketPriorityQueue<>(size, order.comparator(null));
-        for (List<B> sameTermBuckets : buckets.values()) {
+        for (List<B> sameTermBuckets : buckets) {
             final B b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext);
             if (b.docCountError != -1) {
                 if (sumDocCountError == -1) {
@@ -239,7 +262,7 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
                     b.docCountError = sumDocCountError - b.docCountError;
                 }
             }
-            if (b.docCount >= minDocCount) {
+            if (b.docCount >= minDocCount || reduceContext.isFinalReduce() == false) {
                 B removed = ordered.insertWithOverflow(b);
                 if (removed != null) {
                     otherDocCount += removed.getDocCount();
@@ -254,9 +277,106 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
         if (sumDocCountError == -1) {
             docCountError = -1;
         } else {
-            docCountError = aggregations.size() == 1 ? 0 : sumDocCountError;
+            docCountError = aggregations.size() == 1 && partiallyReduced == false ? 0 : sumDocCountError;
+        }
+        final InternalTerms<A, B> reduced = create(name, Arrays.asList(list), docCountError, otherDocCount);
+        reduced.partiallyReduced = reduceContext.isFinalReduce() == false;
+        return reduced;
+    }
+
+    /**
+     * Creates the structure that groups the buckets of the reduced aggregations by term. Terms with a numeric key should use
+     * {@link LongBucketsByTerm} so that reducing many buckets doesn't box a key per bucket.
+     */
+    BucketsByTerm<B> newBucketsByTerm(ReduceContext reduceContext) {
+        return new ObjectBucketsByTerm<>();
+    }
+
+    /**
+     * Groups buckets that share the same term.
+     */
+    abstract static class BucketsByTerm<B> implements Iterable<List<B>>, Releasable {
+
+        /**
+         * Adds the bucket to the list of buckets that have the same term.
+         */
+        abstract void add(B bucket);
+
+        /**
+         * The number of distinct terms.
+         */
+        abstract int size();
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Groups buckets by their {@link Bucket#getKey() key}.
+     */
+    static final class ObjectBucketsByTerm<B extends Bucket<B>> extends BucketsByTerm<B> {
+
+        private final Map<Object, List<B>> buckets = new HashMap<>();
+
+        @Override
+        void add(B bucket) {
+            buckets.computeIfAbsent(bucket.getKey(), k -> new ArrayList<>()).add(bucket);
+        }
+
+        @Override
+        int size() {
+            return buckets.size();
+        }
+
+        @Override
+        public Iterator<List<B>> iterator() {
+            return buckets.values().iterator();
+        }
+    }
+
+    /**
+     * Groups buckets by a primitive long representation of their term. Terms are mapped to dense ordinals with a {@link LongHash}
+     * so that a bucket is added with a single lookup and no boxed key.
+     */
+    static final class LongBucketsByTerm<B extends Bucket<B>> extends BucketsByTerm<B> {
+
+        private final LongHash ords;
+        private final List<List<B>> buckets = new ArrayList<>();
+        private final ToLongFunction<B> termToLong;
+
+        LongBucketsByTerm(BigArrays bigArrays, ToLongFunction<B> termToLong) {
+            this.ords = new LongHash(1, bigArrays);
+            this.termToLong = termToLong;
+        }
+
+        @Override
+        void add(B bucket) {
+            final long ord = ords.add(termToLong.applyAsLong(bucket));
+            if (ord < 0) {
+                buckets.get(Math.toIntExact(-1 - ord)).add(bucket);
+            } else {
+                assert ord == buckets.size();
+                List<B> sameTermBuckets = new ArrayList<>(2);
+                sameTermBuckets.add(bucket);
+                buckets.add(sameTermBuckets);
+            }
+        }
+
+        @Override
+        int size() {
+            return buckets.size();
+        }
+
+        @Override
+        public Iterator<List<B>> iterator() {
+            return buckets.iterator();
+        }
+
+        @Override
+        public void close() {
+            ords.close();
         }
-        return create(name, Arrays.asList(list), docCountError, otherDocCount);
     }
 
     protected abstract void setDocCountError(long docCountError);
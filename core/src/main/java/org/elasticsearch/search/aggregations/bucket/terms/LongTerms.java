@@ -130,6 +130,11 @@ public class LongTerms extends InternalMappedTerms<LongTerms, LongTerms.Bucket>
                 prototype.format);
     }
 
+    @Override
+    BucketsByTerm<Bucket> newBucketsByTerm(ReduceContext reduceContext) {
+        return new LongBucketsByTerm<>(reduceContext.bigArrays(), bucket -> bucket.term);
+    }
+
     @Override
     protected LongTerms create(String name, List<Bucket> buckets, long docCountError, long otherDocCount) {
         return new LongTerms(name, order, requiredSize, minDocCount, pipelineAggregators(), getMetaData(), format, shardSize,
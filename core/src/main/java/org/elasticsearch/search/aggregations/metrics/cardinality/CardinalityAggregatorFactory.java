@@ -44,6 +44,11 @@ public class CardinalityAggregatorFactory extends ValuesSourceAggregatorFactory<
         this.precisionThreshold = precisionThreshold;
     }
 
+    @Override
+    protected boolean supportsConcurrentSlices() {
+        return true;
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
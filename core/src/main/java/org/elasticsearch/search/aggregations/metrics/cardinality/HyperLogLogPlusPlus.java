@@ -19,8 +19,8 @@
 
 package org.elasticsearch.search.aggregations.metrics.cardinality;
 
-import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.LongBitSet;
+import org.elasticsearch.Version;
 import org.apache.lucene.util.packed.PackedInts;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -28,12 +28,11 @@ import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.ByteArray;
-import org.elasticsearch.common.util.ByteUtils;
 import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.ObjectArray;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.util.Arrays;
 
 /**
  * Hyperloglog++ counter, implemented based on pseudo code from
@@ -44,7 +43,15 @@ import java.nio.ByteOrder;
  * This implementation is different from the original implementation in that it
  * uses a hash table instead of a sorted list for linear counting. Although this
  * requires more space and makes hyperloglog (which is less accurate) used sooner,
- * this is also considerably faster.
+ * this is also considerably faster. This hash table plays the role of the sparse
+ * representation of the paper: it starts small and grows with the number of
+ * distinct values, and the dense registers of a bucket are only allocated once
+ * it would take more space than them. Buckets that only see a few values, which
+ * is typical under a high-cardinality <code>terms</code> aggregation, hence cost
+ * a few dozen bytes instead of <code>2^precision</code> bytes.
+ *
+ * On the wire, linear counting hashes are sorted and delta-encoded, and dense
+ * registers that are mostly zero are written as (index delta, run length) pairs.
  *
  * Trying to understand what this class does without having read the paper is
  * considered adventurous.
@@ -57,6 +64,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
     private static final boolean LINEAR_COUNTING = false;
     private static final boolean HYPERLOGLOG = true;
     private static final float MAX_LOAD_FACTOR = 0.75f;
+    private static final int INITIAL_HASH_TABLE_CAPACITY = 16;
     private static final int P2 = 25;
     private static final int BIAS_K = 6;
 
@@ -152,6 +160,9 @@ public final class HyperLogLogPlusPlus implements Releasable {
 
     private final BigArrays bigArrays;
     private final OpenBitSet algorithm;
+    // 1 + the slot of the registers of each bucket in runLens, 0 if the bucket has no registers yet
+    private IntArray registerSlots;
+    private int numRegisterSlots;
     private ByteArray runLens;
     private final Hashset hashSet;
     private final int p, m;
@@ -168,8 +179,17 @@ public final class HyperLogLogPlusPlus implements Releasable {
         m = 1 << p;
         this.bigArrays = bigArrays;
         algorithm = new OpenBitSet();
-        runLens = bigArrays.newByteArray(initialBucketCount << p);
-        hashSet = new Hashset(initialBucketCount);
+        boolean success = false;
+        try {
+            registerSlots = bigArrays.newIntArray(initialBucketCount);
+            runLens = bigArrays.newByteArray(0);
+            hashSet = new Hashset(initialBucketCount);
+            success = true;
+        } finally {
+            if (success == false) {
+                Releasables.close(registerSlots, runLens);
+            }
+        }
         final double alpha;
         switch (p) {
         case 4:
@@ -190,11 +210,28 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     public long maxBucket() {
-        return runLens.size() >>> p;
+        return registerSlots.size();
     }
 
     private void ensureCapacity(long numBuckets) {
-        runLens = bigArrays.grow(runLens, numBuckets << p);
+        registerSlots = bigArrays.grow(registerSlots, numBuckets);
+        hashSet.ensureCapacity(numBuckets);
+    }
+
+    /**
+     * Return the offset of the registers of <code>bucket</code> in {@link #runLens}.
+     */
+    private long registersStart(long bucket) {
+        final int slot = registerSlots.get(bucket);
+        assert slot > 0 : "bucket [" + bucket + "] has no registers";
+        return ((long) (slot - 1)) << p;
+    }
+
+    /**
+     * Return the memory used by this counter, in bytes.
+     */
+    public long ramBytesUsed() {
+        return registerSlots.ramBytesUsed() + runLens.ramBytesUsed() + hashSet.ramBytesUsed();
     }
 
     public void merge(long thisBucket, HyperLogLogPlusPlus other, long otherBucket) {
@@ -220,8 +257,8 @@ public final class HyperLogLogPlusPlus implements Releasable {
             if (algorithm.get(thisBucket) != HYPERLOGLOG) {
                 upgradeToHll(thisBucket);
             }
-            final long thisStart = thisBucket << p;
-            final long otherStart = otherBucket << p;
+            final long thisStart = registersStart(thisBucket);
+            final long otherStart = other.registersStart(otherBucket);
             for (int i = 0; i < m; ++i) {
                 runLens.set(thisStart + i, (byte) Math.max(runLens.get(thisStart + i), other.runLens.get(otherStart + i)));
             }
@@ -262,7 +299,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     private void collectHll(long bucket, long index, int runLen) {
-        final long bucketIndex = (bucket << p) + index;
+        final long bucketIndex = registersStart(bucket) + index;
         runLens.set(bucketIndex, (byte) Math.max(runLen, runLens.get(bucketIndex)));
     }
 
@@ -283,7 +320,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
     private long cardinalityHll(long bucket) {
         double inverseSum = 0;
         int zeros = 0;
-        for (long i = bucket << p, end = i + m; i < end; ++i) {
+        for (long i = registersStart(bucket), end = i + m; i < end; ++i) {
             final int runLen = runLens.get(i);
             inverseSum += 1. / (1L << runLen);
             if (runLen == 0) {
@@ -309,12 +346,16 @@ public final class HyperLogLogPlusPlus implements Releasable {
         ensureCapacity(bucket + 1);
         final IntArray values = hashSet.values(bucket);
         try {
-            runLens.fill(bucket << p, (bucket << p) + m, (byte) 0);
+            final long start = ((long) numRegisterSlots) << p;
+            runLens = bigArrays.grow(runLens, start + m);
+            runLens.fill(start, start + m, (byte) 0);
+            registerSlots.set(bucket, ++numRegisterSlots);
             for (long i = 0; i < values.size(); ++i) {
                 final int encoded = values.get(i);
                 collectHllEncoded(bucket, encoded);
             }
             algorithm.set(bucket);
+            hashSet.clear(bucket);
         } finally {
             Releasables.close(values);
         }
@@ -417,50 +458,45 @@ public final class HyperLogLogPlusPlus implements Releasable {
 
     @Override
     public void close() {
-        Releasables.close(runLens, hashSet.sizes);
+        Releasables.close(registerSlots, runLens, hashSet);
     }
 
     /**
-     * We are actually using HyperLogLog's runLens array but interpreting it as a hash set
-     * for linear counting.
+     * Per-bucket open-addressing hash sets of encoded hashes for linear counting. Each bucket gets its own table that starts
+     * with {@link #INITIAL_HASH_TABLE_CAPACITY} slots and doubles as values are added, up to <code>m / 4</code> slots so
+     * that a full table never takes more space than the registers it is eventually replaced with.
      */
-    private class Hashset {
+    private class Hashset implements Releasable {
 
         private final int capacity;
         private final int threshold;
-        private final int mask;
+        private ObjectArray<IntArray> tables;
         private IntArray sizes;
-        private final BytesRef readSpare;
-        private final ByteBuffer writeSpare;
 
-        public Hashset(long initialBucketCount) {
+        Hashset(long initialBucketCount) {
             capacity = m / 4; // because ints take 4 bytes
             threshold = (int) (capacity * MAX_LOAD_FACTOR);
-            mask = capacity - 1;
-            sizes = bigArrays.newIntArray(initialBucketCount);
-            readSpare = new BytesRef();
-            writeSpare = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
-        }
-
-        private long index (long bucket, int index) {
-            return (bucket << p) + (index << 2);
-        }
-
-        private int get(long bucket, int index) {
-            runLens.get(index(bucket, index), 4, readSpare);
-            return ByteUtils.readIntLE(readSpare.bytes, readSpare.offset);
+            boolean success = false;
+            try {
+                tables = bigArrays.newObjectArray(initialBucketCount);
+                sizes = bigArrays.newIntArray(initialBucketCount);
+                success = true;
+            } finally {
+                if (success == false) {
+                    Releasables.close(tables);
+                }
+            }
         }
 
-        private void set(long bucket, int index, int value) {
-            writeSpare.putInt(0, value);
-            runLens.set(index(bucket, index), writeSpare.array(), 0, 4);
+        void ensureCapacity(long numBuckets) {
+            tables = bigArrays.grow(tables, numBuckets);
+            sizes = bigArrays.grow(sizes, numBuckets);
         }
 
-        private int recomputedSize(long bucket) {
+        private int recomputedSize(IntArray table) {
             int size = 0;
-            for (int i = 0; i <= mask; ++i) {
-                final int v = get(bucket, i);
-                if (v != 0) {
+            for (long i = 0; i < table.size(); ++i) {
+                if (table.get(i) != 0) {
                     ++size;
                 }
             }
@@ -472,7 +508,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
                 return 0;
             }
             final int size = sizes.get(bucket);
-            assert size == recomputedSize(bucket);
+            assert size == 0 || size == recomputedSize(tables.get(bucket));
             return size;
         }
 
@@ -481,30 +517,72 @@ public final class HyperLogLogPlusPlus implements Releasable {
          * Return <tt>-1</tt> if the value was already in the set or the new set size if it was added.
          */
         public int add(long bucket, int k) {
-            sizes = bigArrays.grow(sizes, bucket + 1);
             assert k != 0;
+            ensureCapacity(bucket + 1);
+            IntArray table = tables.get(bucket);
+            if (table == null) {
+                table = bigArrays.newIntArray(Math.min(INITIAL_HASH_TABLE_CAPACITY, capacity));
+                tables.set(bucket, table);
+            } else if (table.size() < capacity && sizes.get(bucket) + 1 > table.size() * MAX_LOAD_FACTOR) {
+                table = rehash(bucket, table);
+            }
+            if (insert(table, k)) {
+                return sizes.increment(bucket, 1);
+            }
+            return -1;
+        }
+
+        private IntArray rehash(long bucket, IntArray table) {
+            final IntArray newTable = bigArrays.newIntArray(table.size() * 2);
+            for (long i = 0; i < table.size(); ++i) {
+                final int k = table.get(i);
+                if (k != 0) {
+                    insert(newTable, k);
+                }
+            }
+            tables.set(bucket, newTable);
+            Releasables.close(table);
+            return newTable;
+        }
+
+        /**
+         * Insert <code>k</code> into <code>table</code> and return whether it was not already present.
+         */
+        private boolean insert(IntArray table, int k) {
+            final int mask = (int) table.size() - 1;
             for (int i = (k & mask); ; i = (i + 1) & mask) {
-                final int v = get(bucket, i);
+                final int v = table.get(i);
                 if (v == 0) {
                     // means unused, take it!
-                    set(bucket, i, k);
-                    return sizes.increment(bucket, 1);
+                    table.set(i, k);
+                    return true;
                 } else if (v == k) {
                     // k is already in the set
-                    return -1;
+                    return false;
                 }
             }
         }
 
+        /**
+         * Release the table of <code>bucket</code> once it has been upgraded to hyperloglog.
+         */
+        void clear(long bucket) {
+            if (bucket < tables.size()) {
+                Releasables.close(tables.set(bucket, null));
+                sizes.set(bucket, 0);
+            }
+        }
+
         public IntArray values(final long bucket) {
             final int size = size(bucket);
             final IntArray values = bigArrays.newIntArray(size);
             if (size == 0) {
                 return values;
             }
+            final IntArray table = tables.get(bucket);
             int i = 0;
-            for (int j = 0; j < capacity; ++j) {
-                final int k = get(bucket, j);
+            for (long j = 0; j < table.size(); ++j) {
+                final int k = table.get(j);
                 if (k != 0) {
                     values.set(i++, k);
                 }
@@ -513,21 +591,81 @@ public final class HyperLogLogPlusPlus implements Releasable {
             return values;
         }
 
+        long ramBytesUsed() {
+            long ramBytesUsed = tables.ramBytesUsed() + sizes.ramBytesUsed();
+            for (long i = 0; i < tables.size(); ++i) {
+                final IntArray table = tables.get(i);
+                if (table != null) {
+                    ramBytesUsed += table.ramBytesUsed();
+                }
+            }
+            return ramBytesUsed;
+        }
+
+        @Override
+        public void close() {
+            if (tables != null) {
+                for (long i = 0; i < tables.size(); ++i) {
+                    Releasables.close(tables.get(i));
+                }
+            }
+            Releasables.close(tables, sizes);
+        }
     }
 
     public void writeTo(long bucket, StreamOutput out) throws IOException {
         out.writeVInt(p);
+        final boolean compact = out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED);
         if (algorithm.get(bucket) == LINEAR_COUNTING) {
             out.writeBoolean(LINEAR_COUNTING);
             try (IntArray hashes = hashSet.values(bucket)) {
                 out.writeVLong(hashes.size());
-                for (long i = 0; i < hashes.size(); ++i) {
-                    out.writeInt(hashes.get(i));
+                if (compact) {
+                    // sort the hashes as unsigned ints so that they can be written as small deltas
+                    final long[] sorted = new long[Math.toIntExact(hashes.size())];
+                    for (int i = 0; i < sorted.length; ++i) {
+                        sorted[i] = Integer.toUnsignedLong(hashes.get(i));
+                    }
+                    Arrays.sort(sorted);
+                    long previous = 0;
+                    for (long hash : sorted) {
+                        out.writeVLong(hash - previous);
+                        previous = hash;
+                    }
+                } else {
+                    for (long i = 0; i < hashes.size(); ++i) {
+                        out.writeInt(hashes.get(i));
+                    }
                 }
             }
         } else {
             out.writeBoolean(HYPERLOGLOG);
-            for (long i = bucket << p, end = i + m; i < end; ++i) {
+            final long start = registersStart(bucket);
+            if (compact) {
+                int nonZeroRegisters = 0;
+                for (long i = start, end = start + m; i < end; ++i) {
+                    if (runLens.get(i) != 0) {
+                        ++nonZeroRegisters;
+                    }
+                }
+                // a (delta, run length) pair takes 2 bytes in the common case and up to 4 bytes at the highest precisions
+                final boolean sparse = nonZeroRegisters * 3 < m;
+                out.writeBoolean(sparse);
+                if (sparse) {
+                    out.writeVInt(nonZeroRegisters);
+                    int previous = 0;
+                    for (int i = 0; i < m; ++i) {
+                        final byte runLen = runLens.get(start + i);
+                        if (runLen != 0) {
+                            out.writeVInt(i - previous);
+                            out.writeByte(runLen);
+                            previous = i;
+                        }
+                    }
+                    return;
+                }
+            }
+            for (long i = start, end = start + m; i < end; ++i) {
                 out.writeByte(runLens.get(i));
             }
         }
@@ -536,23 +674,41 @@ public final class HyperLogLogPlusPlus implements Releasable {
     public static HyperLogLogPlusPlus readFrom(StreamInput in, BigArrays bigArrays) throws IOException {
         final int precision = in.readVInt();
         HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, bigArrays, 1);
+        final boolean compact = in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED);
         final boolean algorithm = in.readBoolean();
         if (algorithm == LINEAR_COUNTING) {
             counts.algorithm.clear(0);
             final long size = in.readVLong();
+            long hash = 0;
             for (long i = 0; i < size; ++i) {
-                final int encoded = in.readInt();
+                final int encoded;
+                if (compact) {
+                    hash += in.readVLong();
+                    encoded = (int) hash;
+                } else {
+                    encoded = in.readInt();
+                }
                 counts.hashSet.add(0, encoded);
             }
         } else {
-            counts.algorithm.set(0);
-            for (int i = 0; i < counts.m; ++i) {
-                counts.runLens.set(i, in.readByte());
+            counts.upgradeToHll(0);
+            final long start = counts.registersStart(0);
+            if (compact && in.readBoolean()) {
+                final int nonZeroRegisters = in.readVInt();
+                int index = 0;
+                for (int i = 0; i < nonZeroRegisters; ++i) {
+                    index += in.readVInt();
+                    counts.runLens.set(start + index, in.readByte());
+                }
+            } else {
+                for (int i = 0; i < counts.m; ++i) {
+                    counts.runLens.set(start + i, in.readByte());
+                }
             }
         }
         return counts;
     }
-    
+
     /** looks and smells like the old openbitset. */
     static class OpenBitSet {
         LongBitSet impl = new LongBitSet(64);
@@ -44,6 +44,11 @@ public class GeoBoundsAggregatorFactory extends ValuesSourceAggregatorFactory<Va
         this.wrapLongitude = wrapLongitude;
     }
 
+    @Override
+    protected boolean supportsConcurrentSlices() {
+        return true;
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
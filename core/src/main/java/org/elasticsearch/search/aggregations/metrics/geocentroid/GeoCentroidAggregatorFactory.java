@@ -41,6 +41,11 @@ public class GeoCentroidAggregatorFactory extends ValuesSourceAggregatorFactory<
         super(name, type, config, context, parent, subFactoriesBuilder, metaData);
     }
 
+    @Override
+    protected boolean supportsConcurrentSlices() {
+        return true;
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
@@ -49,6 +49,11 @@ public class HDRPercentilesAggregatorFactory extends ValuesSourceAggregatorFacto
         this.keyed = keyed;
     }
 
+    @Override
+    protected boolean supportsConcurrentSlices() {
+        return true;
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
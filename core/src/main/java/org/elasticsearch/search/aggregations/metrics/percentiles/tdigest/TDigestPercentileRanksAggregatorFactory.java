@@ -50,6 +50,11 @@ public class TDigestPercentileRanksAggregatorFactory
         this.keyed = keyed;
     }
 
+    @Override
+    protected boolean supportsConcurrentSlices() {
+        return true;
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
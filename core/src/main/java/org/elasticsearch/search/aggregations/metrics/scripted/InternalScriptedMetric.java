@@ -40,12 +40,24 @@ import java.util.Map;
 public class InternalScriptedMetric extends InternalMetricsAggregation implements ScriptedMetric {
     private final Script reduceScript;
     private final Object aggregation;
+    /**
+     * <code>true</code> iff this instance is the result of a partial reduce. In this case {@link #aggregation} holds the list of
+     * all the shard level aggregation objects seen so far since the reduce script must only be executed once all shards are known.
+     * Partially reduced instances only exist on the coordinating node and are never serialized.
+     */
+    private final boolean partial;
 
     public InternalScriptedMetric(String name, Object aggregation, Script reduceScript, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) {
+        this(name, aggregation, reduceScript, false, pipelineAggregators, metaData);
+    }
+
+    private InternalScriptedMetric(String name, Object aggregation, Script reduceScript, boolean partial,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) {
         super(name, pipelineAggregators, metaData);
         this.aggregation = aggregation;
         this.reduceScript = reduceScript;
+        this.partial = partial;
     }
 
     /**
@@ -55,10 +67,12 @@ public class InternalScriptedMetric extends InternalMetricsAggregation implement
         super(in);
         reduceScript = in.readOptionalWriteable(Script::new);
         aggregation = in.readGenericValue();
+        partial = false;
     }
 
     @Override
     protected void doWriteTo(StreamOutput out) throws IOException {
+        assert partial == false : "partially reduced aggregations must not be serialized";
         out.writeOptionalWriteable(reduceScript);
         out.writeGenericValue(aggregation);
     }
@@ -78,9 +92,18 @@ public class InternalScriptedMetric extends InternalMetricsAggregation implement
         List<Object> aggregationObjects = new ArrayList<>();
         for (InternalAggregation aggregation : aggregations) {
             InternalScriptedMetric mapReduceAggregation = (InternalScriptedMetric) aggregation;
-            aggregationObjects.add(mapReduceAggregation.aggregation());
+            if (mapReduceAggregation.partial) {
+                aggregationObjects.addAll((List<?>) mapReduceAggregation.aggregation());
+            } else {
+                aggregationObjects.add(mapReduceAggregation.aggregation());
+            }
         }
         InternalScriptedMetric firstAggregation = ((InternalScriptedMetric) aggregations.get(0));
+        if (reduceContext.isFinalReduce() == false) {
+            // the reduce script needs to see the aggregation objects of all shards, so we only collect them until the final reduce
+            return new InternalScriptedMetric(firstAggregation.getName(), aggregationObjects, firstAggregation.reduceScript, true,
+                    pipelineAggregators(), getMetaData());
+        }
         Object aggregation;
         if (firstAggregation.reduceScript != null) {
             Map<String, Object> vars = new HashMap<>();
@@ -45,6 +45,11 @@ public class ExtendedStatsAggregatorFactory extends ValuesSourceAggregatorFactor
         this.sigma = sigma;
     }
 
+    @Override
+    protected boolean supportsConcurrentSlices() {
+        return true;
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
@@ -92,6 +92,17 @@ public class InternalTopHits extends InternalMetricsAggregation implements TopHi
 
         final TopDocs reducedTopDocs;
         final TopDocs[] shardDocs;
+        final int from;
+        final int size;
+        if (reduceContext.isFinalReduce()) {
+            from = this.from;
+            size = this.size;
+        } else {
+            // if we are not in the final reduce we need to ensure we maintain all possible elements during reduce
+            // hence for pagination we need to maintain all hits until we are in the final phase.
+            from = 0;
+            size = this.from + this.size;
+        }
 
         try {
             if (topDocs instanceof TopFieldDocs) {
@@ -123,7 +134,7 @@ public class InternalTopHits extends InternalMetricsAggregation implements TopHi
                 } while (shardDocs[scoreDoc.shardIndex].scoreDocs[position] != scoreDoc);
                 hits[i] = (InternalSearchHit) shardHits[scoreDoc.shardIndex].getAt(position);
             }
-            return new InternalTopHits(name, from, size, reducedTopDocs, new InternalSearchHits(hits, reducedTopDocs.totalHits,
+            return new InternalTopHits(name, this.from, this.size, reducedTopDocs, new InternalSearchHits(hits, reducedTopDocs.totalHits,
                     reducedTopDocs.getMaxScore()),
                     pipelineAggregators(), getMetaData());
         } catch (IOException e) {
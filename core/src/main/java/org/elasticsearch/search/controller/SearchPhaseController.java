@@ -30,7 +30,9 @@ import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermStatistics;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopFieldDocs;
+import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.collect.HppcMaps;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
@@ -43,6 +45,7 @@ import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
 import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.pipeline.SiblingPipelineAggregator;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.dfs.AggregatedDfs;
 import org.elasticsearch.search.dfs.DfsSearchResult;
 import org.elasticsearch.search.fetch.FetchSearchResult;
@@ -361,6 +364,18 @@ public class SearchPhaseController extends AbstractComponent {
     public InternalSearchResponse merge(boolean ignoreFrom, ScoreDoc[] sortedDocs,
                                         AtomicArray<? extends QuerySearchResultProvider> queryResultsArr,
                                         AtomicArray<? extends FetchSearchResultProvider> fetchResultsArr) {
+        return merge(ignoreFrom, sortedDocs, queryResultsArr, null, fetchResultsArr);
+    }
+
+    /**
+     * Same as {@link #merge(boolean, ScoreDoc[], AtomicArray, AtomicArray)} but takes the aggregations from the given
+     * {@link QueryPhaseResultConsumer} if not <code>null</code>. The consumer has already taken ownership of the shard level
+     * aggregations and might have partially reduced them while the shard results were coming in.
+     */
+    public InternalSearchResponse merge(boolean ignoreFrom, ScoreDoc[] sortedDocs,
+                                        AtomicArray<? extends QuerySearchResultProvider> queryResultsArr,
+                                        @Nullable QueryPhaseResultConsumer resultConsumer,
+                                        AtomicArray<? extends FetchSearchResultProvider> fetchResultsArr) {
 
         List<? extends AtomicArray.Entry<? extends QuerySearchResultProvider>> queryResults = queryResultsArr.asList();
         List<? extends AtomicArray.Entry<? extends FetchSearchResultProvider>> fetchResults = fetchResultsArr.asList();
@@ -443,24 +458,19 @@ public class SearchPhaseController extends AbstractComponent {
 
         // merge Aggregation
         InternalAggregations aggregations = null;
-        if (firstResult.aggregations() != null && firstResult.aggregations().asList() != null) {
+        int numReducePhases = 1;
+        if (resultConsumer != null) {
+            numReducePhases += resultConsumer.getNumReducePhases();
+            List<InternalAggregations> aggregationsList = resultConsumer.getRemaining();
+            if (aggregationsList.isEmpty() == false) {
+                aggregations = reduceAggs(aggregationsList, firstResult.pipelineAggregators());
+            }
+        } else if (firstResult.aggregations() != null && firstResult.aggregations().asList() != null) {
             List<InternalAggregations> aggregationsList = new ArrayList<>(queryResults.size());
             for (AtomicArray.Entry<? extends QuerySearchResultProvider> entry : queryResults) {
                 aggregationsList.add((InternalAggregations) entry.value.queryResult().aggregations());
             }
-            ReduceContext reduceContext = new ReduceContext(bigArrays, scriptService, clusterService.state());
-            aggregations = InternalAggregations.reduce(aggregationsList, reduceContext);
-            List<SiblingPipelineAggregator> pipelineAggregators = firstResult.pipelineAggregators();
-            if (pipelineAggregators != null) {
-                List<InternalAggregation> newAggs = StreamSupport.stream(aggregations.spliterator(), false)
-                    .map((p) -> (InternalAggregation) p)
-                    .collect(Collectors.toList());
-                for (SiblingPipelineAggregator pipelineAggregator : pipelineAggregators) {
-                    InternalAggregation newAgg = pipelineAggregator.doReduce(new InternalAggregations(newAggs), reduceContext);
-                    newAggs.add(newAgg);
-                }
-                aggregations = new InternalAggregations(newAggs);
-            }
+            aggregations = reduceAggs(aggregationsList, firstResult.pipelineAggregators());
         }
 
         //Collect profile results
@@ -476,7 +486,131 @@ public class SearchPhaseController extends AbstractComponent {
 
         InternalSearchHits searchHits = new InternalSearchHits(hits.toArray(new InternalSearchHit[hits.size()]), totalHits, maxScore);
 
-        return new InternalSearchResponse(searchHits, aggregations, suggest, shardResults, timedOut, terminatedEarly);
+        return new InternalSearchResponse(searchHits, aggregations, suggest, shardResults, timedOut, terminatedEarly, numReducePhases);
+    }
+
+    /**
+     * Performs the final reduce of the given shard level or partially reduced aggregations and applies the sibling
+     * pipeline aggregators on the result.
+     */
+    private InternalAggregations reduceAggs(List<InternalAggregations> aggregationsList,
+                                            @Nullable List<SiblingPipelineAggregator> pipelineAggregators) {
+        ReduceContext reduceContext = new ReduceContext(bigArrays, scriptService, clusterService.state(), true);
+        InternalAggregations aggregations = InternalAggregations.reduce(aggregationsList, reduceContext);
+        if (pipelineAggregators != null) {
+            List<InternalAggregation> newAggs = StreamSupport.stream(aggregations.spliterator(), false)
+                .map((p) -> (InternalAggregation) p)
+                .collect(Collectors.toList());
+            for (SiblingPipelineAggregator pipelineAggregator : pipelineAggregators) {
+                InternalAggregation newAgg = pipelineAggregator.doReduce(new InternalAggregations(newAggs), reduceContext);
+                newAggs.add(newAgg);
+            }
+            aggregations = new InternalAggregations(newAggs);
+        }
+        return aggregations;
+    }
+
+    /**
+     * Reduces the given aggregations without applying any of the operations that are only valid once all shard results are
+     * known, like pruning buckets or executing pipeline aggregators.
+     */
+    private InternalAggregations reduceAggsIncrementally(List<InternalAggregations> aggregationsList) {
+        ReduceContext reduceContext = new ReduceContext(bigArrays, scriptService, clusterService.state(), false);
+        return aggregationsList.isEmpty() ? null : InternalAggregations.reduce(aggregationsList, reduceContext);
+    }
+
+    /**
+     * Returns a new {@link QueryPhaseResultConsumer} that incrementally reduces the aggregations of the shard results for the given
+     * request or <code>null</code> if the request has no aggregations or targets no more shards than its batched reduce size, in
+     * which case all shard results are reduced at once.
+     */
+    @Nullable
+    public QueryPhaseResultConsumer newQueryPhaseResultConsumer(SearchRequest request, int numShards) {
+        SearchSourceBuilder source = request.source();
+        if (source != null && source.aggregations() != null && request.getBatchedReduceSize() < numShards) {
+            return new QueryPhaseResultConsumer(this, request.getBatchedReduceSize());
+        }
+        return null;
+    }
+
+    /**
+     * Consumes the aggregations of shard level query results as they arrive on the coordinating node. Once
+     * <code>bufferSize</code> shard results are buffered they are partially reduced into a single aggregation tree which takes
+     * the first slot of the buffer. This bounds the number of shard level aggregation trees that are held in memory at the same
+     * time to the size of the buffer. The final reduce is executed by
+     * {@link #merge(boolean, ScoreDoc[], AtomicArray, QueryPhaseResultConsumer, AtomicArray)} on the remaining buffer.
+     */
+    public static final class QueryPhaseResultConsumer {
+        private final SearchPhaseController controller;
+        private final InternalAggregations[] buffer;
+        private int index;
+        private int numReducePhases = 0;
+        private RuntimeException failure;
+
+        QueryPhaseResultConsumer(SearchPhaseController controller, int bufferSize) {
+            if (bufferSize < 2) {
+                throw new IllegalArgumentException("buffer size must be >= 2");
+            }
+            this.controller = controller;
+            this.buffer = new InternalAggregations[bufferSize];
+        }
+
+        /**
+         * Takes ownership of the aggregations of the given shard result, which are nulled out on the result itself.
+         */
+        public void consume(QuerySearchResultProvider result) {
+            consumeInternal(result.queryResult().consumeAggs());
+        }
+
+        private synchronized void consumeInternal(@Nullable InternalAggregations aggregations) {
+            if (aggregations == null) {
+                return;
+            }
+            if (failure != null) {
+                // a previous partial reduce failed, the search will be failed once all shards responded
+                return;
+            }
+            if (index == buffer.length) {
+                try {
+                    InternalAggregations reducedAggs = controller.reduceAggsIncrementally(Arrays.asList(buffer));
+                    Arrays.fill(buffer, null);
+                    numReducePhases++;
+                    buffer[0] = reducedAggs;
+                    index = 1;
+                } catch (RuntimeException e) {
+                    // free the buffered aggregations and report the failure during the final reduce
+                    Arrays.fill(buffer, null);
+                    index = 0;
+                    failure = e;
+                    return;
+                }
+            }
+            buffer[index++] = aggregations;
+        }
+
+        /**
+         * Returns the buffered aggregations that still need to be reduced in the final reduce phase.
+         */
+        synchronized List<InternalAggregations> getRemaining() {
+            if (failure != null) {
+                throw failure;
+            }
+            return Arrays.asList(buffer).subList(0, index);
+        }
+
+        /**
+         * Returns the number of partial reduce phases that have been executed so far.
+         */
+        synchronized int getNumReducePhases() {
+            return numReducePhases;
+        }
+
+        /**
+         * Returns the number of aggregations currently buffered.
+         */
+        synchronized int getNumBuffered() {
+            return index;
+        }
     }
 
     private Suggest processingGroupedSuggestions(ScoreDoc[] sortedDocs, AtomicArray<? extends FetchSearchResultProvider> fetchResultsArr, List<? extends AtomicArray.Entry<? extends FetchSearchResultProvider>> fetchResults, int numSearchHits, Map<String, List<Suggestion>> groupedSuggestions) {
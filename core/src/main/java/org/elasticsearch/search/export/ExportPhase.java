@@ -0,0 +1,132 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.export;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+import org.elasticsearch.index.fielddata.ScriptDocValues;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.search.fetch.subphase.DocValueFieldsContext.DocValueField;
+import org.elasticsearch.search.fetch.subphase.DocValueFieldsFetchSubPhase;
+import org.elasticsearch.search.internal.ScrollContext;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.query.QueryPhaseExecutionException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exports the doc values of the documents that match the query of a search context, one page at a time. The matching documents
+ * are visited in doc id order without scoring or sorting them, and the columns of the requested fields are read in batches of
+ * the documents of a page that fall in the same segment. The scroll context of the search context is the cursor of the shard:
+ * its last emitted doc is the last document that the previous pages visited.
+ */
+public class ExportPhase {
+
+    public ExportSearchResult execute(SearchContext context) {
+        final List<DocValueField> fields = context.getFetchSubPhaseContext(DocValueFieldsFetchSubPhase.CONTEXT_FACTORY).fields();
+        final ScrollContext scrollContext = context.scrollContext();
+        final int size = context.size();
+        final List<Object[]> rows = new ArrayList<>(size);
+        int next = scrollContext.lastEmittedDoc == null ? 0 : scrollContext.lastEmittedDoc.doc + 1;
+        try {
+            final IndexReader reader = context.searcher().getIndexReader();
+            if (next < reader.maxDoc()) {
+                final Weight weight = context.searcher().createNormalizedWeight(context.query(), false);
+                final List<LeafReaderContext> leaves = reader.leaves();
+                final int[] docs = new int[size];
+                for (int i = ReaderUtil.subIndex(next, leaves); i < leaves.size() && rows.size() < size; i++) {
+                    final LeafReaderContext leaf = leaves.get(i);
+                    final int max = size - rows.size();
+                    final int count = collectBatch(weight, leaf, next - leaf.docBase, docs, max);
+                    readBatch(context, fields, leaf, docs, count, rows);
+                    next = count < max ? leaf.docBase + leaf.reader().maxDoc() : leaf.docBase + docs[count - 1] + 1;
+                }
+            }
+        } catch (IOException e) {
+            throw new QueryPhaseExecutionException(context, "Failed to export documents", e);
+        }
+        scrollContext.lastEmittedDoc = new ScoreDoc(next - 1, Float.NaN);
+        return new ExportSearchResult(context.id(), context.shardTarget(), rows, rows.size() < size);
+    }
+
+    /**
+     * Collects the ids of up to {@code max} live documents of the segment that match and are not before {@code target}.
+     */
+    private static int collectBatch(Weight weight, LeafReaderContext leaf, int target, int[] docs, int max) throws IOException {
+        final Scorer scorer = weight.scorer(leaf);
+        if (scorer == null) {
+            return 0;
+        }
+        final Bits liveDocs = leaf.reader().getLiveDocs();
+        final DocIdSetIterator iterator = scorer.iterator();
+        int count = 0;
+        for (int doc = iterator.advance(target); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+            if (liveDocs == null || liveDocs.get(doc)) {
+                docs[count++] = doc;
+                if (count == max) {
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds a row per collected document, filling the rows column by column so that the values of a field are read sequentially.
+     */
+    private static void readBatch(SearchContext context, List<DocValueField> fields, LeafReaderContext leaf, int[] docs, int count,
+                                  List<Object[]> rows) {
+        final int offset = rows.size();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[fields.size()]);
+        }
+        for (int column = 0; column < fields.size(); column++) {
+            final MappedFieldType fieldType = context.mapperService().fullName(fields.get(column).name());
+            if (fieldType == null) {
+                continue;
+            }
+            final ScriptDocValues<?> values = context.fieldData().getForField(fieldType).load(leaf).getScriptValues();
+            for (int i = 0; i < count; i++) {
+                values.setNextDocId(docs[i]);
+                rows.get(offset + i)[column] = cell(values.getValues());
+            }
+        }
+    }
+
+    private static Object cell(List<?> values) {
+        switch (values.size()) {
+            case 0:
+                return null;
+            case 1:
+                return values.get(0);
+            default:
+                // the values are a view on the doc values of the current document
+                return new ArrayList<>(values);
+        }
+    }
+}
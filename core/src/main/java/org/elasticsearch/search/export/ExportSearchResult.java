@@ -0,0 +1,111 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.export;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.search.SearchPhaseResult;
+import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.transport.TransportResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of rows exported from a shard. Each row holds one cell per requested field, which is {@code null} if the document
+ * has no value for the field, the value itself if it has a single one and a list of values otherwise.
+ */
+public class ExportSearchResult extends TransportResponse implements SearchPhaseResult {
+
+    private long id;
+    private SearchShardTarget shardTarget;
+    private List<Object[]> rows;
+    private boolean exhausted;
+
+    public ExportSearchResult() {
+    }
+
+    public ExportSearchResult(long id, SearchShardTarget shardTarget, List<Object[]> rows, boolean exhausted) {
+        this.id = id;
+        this.shardTarget = shardTarget;
+        this.rows = rows;
+        this.exhausted = exhausted;
+    }
+
+    @Override
+    public long id() {
+        return id;
+    }
+
+    @Override
+    public SearchShardTarget shardTarget() {
+        return shardTarget;
+    }
+
+    @Override
+    public void shardTarget(SearchShardTarget shardTarget) {
+        this.shardTarget = shardTarget;
+    }
+
+    public List<Object[]> rows() {
+        return rows;
+    }
+
+    /**
+     * Whether the shard has no rows left to export, in which case its context has already been freed.
+     */
+    public boolean exhausted() {
+        return exhausted;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        id = in.readLong();
+        shardTarget = new SearchShardTarget(in);
+        int size = in.readVInt();
+        int columns = in.readVInt();
+        rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Object[] row = new Object[columns];
+            for (int j = 0; j < columns; j++) {
+                row[j] = in.readGenericValue();
+            }
+            rows.add(row);
+        }
+        exhausted = in.readBoolean();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeLong(id);
+        shardTarget.writeTo(out);
+        out.writeVInt(rows.size());
+        out.writeVInt(rows.isEmpty() ? 0 : rows.get(0).length);
+        for (Object[] row : rows) {
+            for (Object cell : row) {
+                out.writeGenericValue(cell);
+            }
+        }
+        out.writeBoolean(exhausted);
+    }
+}
@@ -55,6 +55,7 @@ import org.elasticsearch.search.lookup.SourceLookup;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -146,18 +147,39 @@ public class FetchPhase implements SearchPhase {
         }
 
         InternalSearchHit[] hits = new InternalSearchHit[context.docIdsToLoadSize()];
-        FetchSubPhase.HitContext hitContext = new FetchSubPhase.HitContext();
+        // the hits are loaded in doc id order, so that each segment is visited once and its stored fields are read
+        // sequentially, which lets consecutive hits of the same compressed block share the decoded block state
+        DocIdToIndex[] docs = new DocIdToIndex[context.docIdsToLoadSize()];
         for (int index = 0; index < context.docIdsToLoadSize(); index++) {
-            int docId = context.docIdsToLoad()[context.docIdsToLoadFrom() + index];
-            int readerIndex = ReaderUtil.subIndex(docId, context.searcher().getIndexReader().leaves());
-            LeafReaderContext subReaderContext = context.searcher().getIndexReader().leaves().get(readerIndex);
-            int subDocId = docId - subReaderContext.docBase;
+            docs[index] = new DocIdToIndex(context.docIdsToLoad()[context.docIdsToLoadFrom() + index], index);
+        }
+        Arrays.sort(docs);
 
+        List<LeafReaderContext> leaves = context.searcher().getIndexReader().leaves();
+        FetchSubPhase.HitContext hitContext = new FetchSubPhase.HitContext();
+        LeafReaderContext subReaderContext = null;
+        int endReaderDocId = -1;
+        BitSet rootDocs = null;
+        RootDocument rootDocument = null;
+        for (DocIdToIndex doc : docs) {
+            int docId = doc.docId;
             final InternalSearchHit searchHit;
             try {
-                int rootDocId = findRootDocumentIfNested(context, subReaderContext, subDocId);
+                if (docId >= endReaderDocId) {
+                    int readerIndex = ReaderUtil.subIndex(docId, leaves);
+                    subReaderContext = leaves.get(readerIndex);
+                    endReaderDocId = subReaderContext.docBase + subReaderContext.reader().maxDoc();
+                    rootDocs = getRootDocuments(context, subReaderContext);
+                }
+                int subDocId = docId - subReaderContext.docBase;
+                int rootDocId = findRootDocumentIfNested(rootDocs, subDocId);
                 if (rootDocId != -1) {
-                    searchHit = createNestedSearchHit(context, docId, subDocId, rootDocId, fieldNames, fieldNamePatterns, subReaderContext);
+                    // nested hits of the same root document are adjacent, so they share the loaded root document
+                    if (rootDocument == null || rootDocument.readerContext != subReaderContext || rootDocument.docId != rootDocId) {
+                        rootDocument = loadRootDocument(context, subReaderContext, rootDocId);
+                    }
+                    searchHit = createNestedSearchHit(context, docId, subDocId, rootDocument, fieldNames, fieldNamePatterns,
+                        subReaderContext);
                 } else {
                     searchHit = createSearchHit(context, fieldsVisitor, docId, subDocId, subReaderContext);
                 }
@@ -165,8 +187,8 @@ public class FetchPhase implements SearchPhase {
                 throw ExceptionsHelper.convertToElastic(e);
             }
 
-            hits[index] = searchHit;
-            hitContext.reset(searchHit, subReaderContext, subDocId, context.searcher());
+            hits[doc.index] = searchHit;
+            hitContext.reset(searchHit, subReaderContext, docId - subReaderContext.docBase, context.searcher());
             for (FetchSubPhase fetchSubPhase : fetchSubPhases) {
                 fetchSubPhase.hitExecute(context, hitContext);
             }
@@ -179,12 +201,19 @@ public class FetchPhase implements SearchPhase {
         context.fetchResult().hits(new InternalSearchHits(hits, context.queryResult().topDocs().totalHits, context.queryResult().topDocs().getMaxScore()));
     }
 
-    private int findRootDocumentIfNested(SearchContext context, LeafReaderContext subReaderContext, int subDocId) throws IOException {
+    /**
+     * Returns the root documents of the given segment, or <code>null</code> if there are no nested documents.
+     */
+    private BitSet getRootDocuments(SearchContext context, LeafReaderContext subReaderContext) throws IOException {
         if (context.mapperService().hasNested()) {
-            BitSet bits = context.bitsetFilterCache().getBitSetProducer(Queries.newNonNestedFilter()).getBitSet(subReaderContext);
-            if (!bits.get(subDocId)) {
-                return bits.nextSetBit(subDocId);
-            }
+            return context.bitsetFilterCache().getBitSetProducer(Queries.newNonNestedFilter()).getBitSet(subReaderContext);
+        }
+        return null;
+    }
+
+    private int findRootDocumentIfNested(BitSet rootDocs, int subDocId) {
+        if (rootDocs != null && !rootDocs.get(subDocId)) {
+            return rootDocs.nextSetBit(subDocId);
         }
         return -1;
     }
@@ -221,14 +250,20 @@ public class FetchPhase implements SearchPhase {
         return searchHit;
     }
 
-    private InternalSearchHit createNestedSearchHit(SearchContext context, int nestedTopDocId, int nestedSubDocId, int rootSubDocId, Set<String> fieldNames, List<String> fieldNamePatterns, LeafReaderContext subReaderContext) throws IOException {
+    private RootDocument loadRootDocument(SearchContext context, LeafReaderContext subReaderContext, int rootSubDocId) {
         // Also if highlighting is requested on nested documents we need to fetch the _source from the root document,
         // otherwise highlighting will attempt to fetch the _source from the nested doc, which will fail,
         // because the entire _source is only stored with the root document.
         final FieldsVisitor rootFieldsVisitor = new FieldsVisitor(context.sourceRequested() || context.highlight() != null);
         loadStoredFields(context, subReaderContext, rootFieldsVisitor, rootSubDocId);
         rootFieldsVisitor.postProcess(context.mapperService());
+        BytesReference source = rootFieldsVisitor.source();
+        Tuple<XContentType, Map<String, Object>> sourceAsMap = source == null ? null : XContentHelper.convertToMap(source, true);
+        return new RootDocument(subReaderContext, rootSubDocId, rootFieldsVisitor, sourceAsMap);
+    }
 
+    private InternalSearchHit createNestedSearchHit(SearchContext context, int nestedTopDocId, int nestedSubDocId, RootDocument rootDocument, Set<String> fieldNames, List<String> fieldNamePatterns, LeafReaderContext subReaderContext) throws IOException {
+        final FieldsVisitor rootFieldsVisitor = rootDocument.fieldsVisitor;
         Map<String, SearchHitField> searchFields = getSearchFields(context, nestedSubDocId, fieldNames, fieldNamePatterns, subReaderContext);
         DocumentMapper documentMapper = context.mapperService().documentMapper(rootFieldsVisitor.uid().type());
         SourceLookup sourceLookup = context.lookup().source();
@@ -238,9 +273,9 @@ public class FetchPhase implements SearchPhase {
         assert nestedObjectMapper != null;
         InternalSearchHit.InternalNestedIdentity nestedIdentity = getInternalNestedIdentity(context, nestedSubDocId, subReaderContext, documentMapper, nestedObjectMapper);
 
-        BytesReference source = rootFieldsVisitor.source();
-        if (source != null) {
-            Tuple<XContentType, Map<String, Object>> tuple = XContentHelper.convertToMap(source, true);
+        Tuple<XContentType, Map<String, Object>> tuple = rootDocument.sourceAsMap;
+        if (tuple != null) {
+            // the parsed source is shared by all nested hits of the root document, so it must not be modified
             Map<String, Object> sourceAsMap = tuple.v2();
 
             // Isolate the nested json array object that matches with nested hit and wrap it back into the same json
@@ -359,4 +394,40 @@ public class FetchPhase implements SearchPhase {
             throw new FetchPhaseExecutionException(searchContext, "Failed to fetch doc id [" + docId + "]", e);
         }
     }
+
+    /**
+     * A doc id to load together with the position of its hit in the response.
+     */
+    static final class DocIdToIndex implements Comparable<DocIdToIndex> {
+        final int docId;
+        final int index;
+
+        DocIdToIndex(int docId, int index) {
+            this.docId = docId;
+            this.index = index;
+        }
+
+        @Override
+        public int compareTo(DocIdToIndex o) {
+            return Integer.compare(docId, o.docId);
+        }
+    }
+
+    /**
+     * The stored fields and the parsed source of the root document of nested hits.
+     */
+    private static final class RootDocument {
+        final LeafReaderContext readerContext;
+        final int docId;
+        final FieldsVisitor fieldsVisitor;
+        final Tuple<XContentType, Map<String, Object>> sourceAsMap;
+
+        RootDocument(LeafReaderContext readerContext, int docId, FieldsVisitor fieldsVisitor,
+                     Tuple<XContentType, Map<String, Object>> sourceAsMap) {
+            this.readerContext = readerContext;
+            this.docId = docId;
+            this.fieldsVisitor = fieldsVisitor;
+            this.sourceAsMap = sourceAsMap;
+        }
+    }
 }
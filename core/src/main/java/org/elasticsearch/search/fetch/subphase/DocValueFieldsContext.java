@@ -18,6 +18,8 @@
  */
 package org.elasticsearch.search.fetch.subphase;
 
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.index.fielddata.ScriptDocValues;
 import org.elasticsearch.search.fetch.FetchSubPhaseContext;
 
 import java.util.ArrayList;
@@ -42,6 +44,12 @@ public class DocValueFieldsContext extends FetchSubPhaseContext {
 
     private List<DocValueField> fields = new ArrayList<>();
 
+    // the values of the fields for the segment of the last fetched hit, one entry per field or null if the field isn't mapped,
+    // and the thread that loaded them
+    private LeafReaderContext readerContext;
+    private ScriptDocValues<?>[] leafValues;
+    private Thread thread;
+
     public DocValueFieldsContext() {
     }
 
@@ -52,4 +60,31 @@ public class DocValueFieldsContext extends FetchSubPhaseContext {
     public List<DocValueField> fields() {
         return this.fields;
     }
+
+    /**
+     * Returns the values of the fields for the given segment if the current thread loaded them for it during the current fetch,
+     * or <code>null</code> otherwise.
+     */
+    ScriptDocValues<?>[] leafValues(LeafReaderContext readerContext) {
+        return this.readerContext == readerContext && thread == Thread.currentThread() ? leafValues : null;
+    }
+
+    /**
+     * Keeps the values of the fields of the given segment, so that the following hits of the segment reuse them.
+     */
+    void leafValues(LeafReaderContext readerContext, ScriptDocValues<?>[] leafValues) {
+        this.readerContext = readerContext;
+        this.leafValues = leafValues;
+        this.thread = Thread.currentThread();
+    }
+
+    /**
+     * Releases the values of the current segment. Doc values must not be used by another thread than the one that loaded them,
+     * while the next page of a scroll might be fetched on a different thread.
+     */
+    void clearLeafValues() {
+        this.readerContext = null;
+        this.leafValues = null;
+        this.thread = null;
+    }
 }
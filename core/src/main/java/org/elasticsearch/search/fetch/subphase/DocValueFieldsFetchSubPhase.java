@@ -23,11 +23,13 @@ import org.elasticsearch.index.fielddata.ScriptDocValues;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.search.SearchHitField;
 import org.elasticsearch.search.fetch.FetchSubPhase;
+import org.elasticsearch.search.internal.InternalSearchHit;
 import org.elasticsearch.search.internal.InternalSearchHitField;
 import org.elasticsearch.search.internal.SearchContext;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * Query sub phase which pulls data from doc values
@@ -52,10 +54,26 @@ public final class DocValueFieldsFetchSubPhase implements FetchSubPhase {
 
     @Override
     public void hitExecute(SearchContext context, HitContext hitContext) {
-        if (context.getFetchSubPhaseContext(CONTEXT_FACTORY).hitExecutionNeeded() == false) {
+        DocValueFieldsContext docValueFieldsContext = context.getFetchSubPhaseContext(CONTEXT_FACTORY);
+        if (docValueFieldsContext.hitExecutionNeeded() == false) {
             return;
         }
-        for (DocValueFieldsContext.DocValueField field : context.getFetchSubPhaseContext(CONTEXT_FACTORY).fields()) {
+        List<DocValueFieldsContext.DocValueField> fields = docValueFieldsContext.fields();
+        // hits are fetched in doc id order, so the values of a segment are loaded once and shared by all its hits
+        ScriptDocValues<?>[] leafValues = docValueFieldsContext.leafValues(hitContext.readerContext());
+        if (leafValues == null) {
+            leafValues = new ScriptDocValues<?>[fields.size()];
+            for (int i = 0; i < leafValues.length; i++) {
+                MappedFieldType fieldType = context.mapperService().fullName(fields.get(i).name());
+                if (fieldType != null) {
+                    AtomicFieldData data = context.fieldData().getForField(fieldType).load(hitContext.readerContext());
+                    leafValues[i] = data.getScriptValues();
+                }
+            }
+            docValueFieldsContext.leafValues(hitContext.readerContext(), leafValues);
+        }
+        for (int i = 0; i < leafValues.length; i++) {
+            DocValueFieldsContext.DocValueField field = fields.get(i);
             if (hitContext.hit().fieldsOrNull() == null) {
                 hitContext.hit().fields(new HashMap<>(2));
             }
@@ -64,13 +82,16 @@ public final class DocValueFieldsFetchSubPhase implements FetchSubPhase {
                 hitField = new InternalSearchHitField(field.name(), new ArrayList<>(2));
                 hitContext.hit().fields().put(field.name(), hitField);
             }
-            MappedFieldType fieldType = context.mapperService().fullName(field.name());
-            if (fieldType != null) {
-                AtomicFieldData data = context.fieldData().getForField(fieldType).load(hitContext.readerContext());
-                ScriptDocValues values = data.getScriptValues();
+            ScriptDocValues<?> values = leafValues[i];
+            if (values != null) {
                 values.setNextDocId(hitContext.docId());
                 hitField.values().addAll(values.getValues());
             }
         }
     }
+
+    @Override
+    public void hitsExecute(SearchContext context, InternalSearchHit[] hits) {
+        context.getFetchSubPhaseContext(CONTEXT_FACTORY).clearLeafValues();
+    }
 }
@@ -22,6 +22,9 @@ package org.elasticsearch.search.fetch.subphase;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.support.filtering.StreamingXContentFilter;
 import org.elasticsearch.search.fetch.FetchSubPhase;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.lookup.SourceLookup;
@@ -46,13 +49,22 @@ public final class FetchSourceSubPhase implements FetchSubPhase {
             return;
         }
 
-        Object value = source.filter(fetchSourceContext.includes(), fetchSourceContext.excludes());
         try {
             final int initialCapacity = Math.min(1024, source.internalSourceRef().length());
             BytesStreamOutput streamOutput = new BytesStreamOutput(initialCapacity);
-            XContentBuilder builder = new XContentBuilder(source.sourceContentType().xContent(), streamOutput);
-            builder.value(value);
-            hitContext.hit().sourceRef(builder.bytes());
+            if (source.source() == null) {
+                // the source hasn't been parsed by another sub phase, so filter it straight from its bytes
+                try (XContentParser parser = XContentHelper.createParser(source.internalSourceRef())) {
+                    XContentBuilder builder = new XContentBuilder(parser.contentType().xContent(), streamOutput);
+                    StreamingXContentFilter.filter(parser, builder, fetchSourceContext.includes(), fetchSourceContext.excludes());
+                    hitContext.hit().sourceRef(builder.bytes());
+                }
+            } else {
+                Object value = source.filter(fetchSourceContext.includes(), fetchSourceContext.excludes());
+                XContentBuilder builder = new XContentBuilder(source.sourceContentType().xContent(), streamOutput);
+                builder.value(value);
+                hitContext.hit().sourceRef(builder.bytes());
+            }
         } catch (IOException e) {
             throw new ElasticsearchException("Error filtering source", e);
         }
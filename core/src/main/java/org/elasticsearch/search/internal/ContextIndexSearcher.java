@@ -20,9 +20,12 @@
 package org.elasticsearch.search.internal;
 
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermContext;
 import org.apache.lucene.search.CollectionStatistics;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
@@ -30,7 +33,9 @@ import org.apache.lucene.search.QueryCache;
 import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.search.TermStatistics;
 import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.ThreadInterruptedException;
 import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.search.dfs.AggregatedDfs;
 import org.elasticsearch.search.profile.query.ProfileWeight;
@@ -39,12 +44,23 @@ import org.elasticsearch.search.profile.query.QueryProfiler;
 import org.elasticsearch.search.profile.query.QueryTimingType;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /**
  * Context-aware extension of {@link IndexSearcher}.
  */
 public class ContextIndexSearcher extends IndexSearcher implements Releasable {
 
+    /** Leaves are grouped into slices until a slice has at least that many documents... */
+    static final int MIN_DOCS_PER_SLICE = 250_000;
+    /** ... or that many leaves. */
+    static final int MAX_LEAVES_PER_SLICE = 5;
+
     /** The wrapped {@link IndexSearcher}. The reason why we sometimes prefer delegating to this searcher instead of <tt>super</tt> is that
      *  this instance may have more assertions, for example if it comes from MockInternalEngine which wraps the IndexSearcher into an
      *  AssertingIndexSearcher. */
@@ -57,6 +73,21 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
     // TODO revisit moving the profiler to inheritance or wrapping model in the future
     private QueryProfiler profiler;
 
+    private Executor sliceExecutor;
+    private List<List<LeafReaderContext>> slices;
+
+    /**
+     * A collector that finishes the collection of a slice on the thread that searched it, for instance because it keeps doc values
+     * of the last leaf until then, which must not be consumed on another thread.
+     */
+    public interface SliceCollector extends Collector {
+
+        /**
+         * Called on the thread that searched the slice once all its leaves were collected, or their collection failed.
+         */
+        void postSliceCollection() throws IOException;
+    }
+
     public ContextIndexSearcher(Engine.Searcher searcher,
             QueryCache queryCache, QueryCachingPolicy queryCachingPolicy) {
         super(searcher.reader());
@@ -79,6 +110,122 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         this.aggregatedDfs = aggregatedDfs;
     }
 
+    /**
+     * Sets the executor that {@link #search(Query, CollectorManager)} uses to search slices of the leaves concurrently.
+     */
+    public void setSliceExecutor(Executor sliceExecutor) {
+        this.sliceExecutor = sliceExecutor;
+        this.slices = sliceExecutor == null ? null : computeSlices(leafContexts);
+    }
+
+    /**
+     * Returns <code>true</code> if {@link #search(Query, CollectorManager)} searches more than one slice of the leaves concurrently.
+     */
+    public boolean hasConcurrentSlices() {
+        return slices != null && slices.size() > 1;
+    }
+
+    /**
+     * Groups the leaves into contiguous slices so that merging the per-slice results breaks ties on the slice index the same way a
+     * sequential search breaks them on the doc id.
+     */
+    static List<List<LeafReaderContext>> computeSlices(List<LeafReaderContext> leaves) {
+        List<List<LeafReaderContext>> slices = new ArrayList<>();
+        List<LeafReaderContext> current = new ArrayList<>();
+        long docs = 0;
+        for (LeafReaderContext leaf : leaves) {
+            current.add(leaf);
+            docs += leaf.reader().maxDoc();
+            if (docs >= MIN_DOCS_PER_SLICE || current.size() >= MAX_LEAVES_PER_SLICE) {
+                slices.add(current);
+                current = new ArrayList<>();
+                docs = 0;
+            }
+        }
+        if (current.isEmpty() == false) {
+            slices.add(current);
+        }
+        return slices;
+    }
+
+    /**
+     * Searches each slice with its own collector on the slice executor, or sequentially with a single collector if no executor is
+     * set. Collectors are created on the calling thread in slice order. The calling thread searches the last slice itself, and
+     * slices that the executor rejects. All slices are searched to completion before the first failure, if any, is rethrown, so
+     * that the collectors of the other slices can still be used for partial results on timeouts. A {@link SliceCollector} finishes
+     * the collection of its slice on the thread that searched it.
+     */
+    @Override
+    public <C extends Collector, T> T search(Query query, CollectorManager<C, T> collectorManager) throws IOException {
+        if (hasConcurrentSlices() == false) {
+            final C collector = collectorManager.newCollector();
+            searchSlice(leafContexts, createNormalizedWeight(query, collector.needsScores()), collector);
+            return collectorManager.reduce(Collections.singletonList(collector));
+        }
+        final List<C> collectors = new ArrayList<>(slices.size());
+        boolean needsScores = false;
+        for (int i = 0; i < slices.size(); i++) {
+            C collector = collectorManager.newCollector();
+            needsScores |= collector.needsScores();
+            collectors.add(collector);
+        }
+        final Weight weight = createNormalizedWeight(query, needsScores);
+        final List<FutureTask<Void>> tasks = new ArrayList<>(slices.size());
+        for (int i = 0; i < slices.size(); i++) {
+            final List<LeafReaderContext> leaves = slices.get(i);
+            final Collector collector = collectors.get(i);
+            final FutureTask<Void> task = new FutureTask<>(() -> {
+                searchSlice(leaves, weight, collector);
+                return null;
+            });
+            tasks.add(task);
+            if (i == slices.size() - 1) {
+                task.run();
+            } else {
+                try {
+                    sliceExecutor.execute(task);
+                } catch (EsRejectedExecutionException e) {
+                    task.run();
+                }
+            }
+        }
+        Throwable failure = null;
+        for (FutureTask<Void> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ThreadInterruptedException(e);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                } else {
+                    failure.addSuppressed(e.getCause());
+                }
+            }
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new RuntimeException(failure);
+        }
+        return collectorManager.reduce(collectors);
+    }
+
+    private void searchSlice(List<LeafReaderContext> leaves, Weight weight, Collector collector) throws IOException {
+        try {
+            search(leaves, weight, collector);
+        } finally {
+            if (collector instanceof SliceCollector) {
+                ((SliceCollector) collector).postSliceCollection();
+            }
+        }
+    }
+
     @Override
     public Query rewrite(Query original) throws IOException {
         if (profiler != null) {
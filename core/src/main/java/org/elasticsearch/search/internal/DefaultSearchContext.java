@@ -760,6 +760,11 @@ public class DefaultSearchContext extends SearchContext {
         return searchLookup;
     }
 
+    @Override
+    public boolean hasLookup() {
+        return searchLookup != null;
+    }
+
     @Override
     public DfsSearchResult dfsResult() {
         return dfsResult;
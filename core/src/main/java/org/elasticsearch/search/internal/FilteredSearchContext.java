@@ -476,6 +476,11 @@ public abstract class FilteredSearchContext extends SearchContext {
         return in.lookup();
     }
 
+    @Override
+    public boolean hasLookup() {
+        return in.hasLookup();
+    }
+
     @Override
     public DfsSearchResult dfsResult() {
         return in.dfsResult();
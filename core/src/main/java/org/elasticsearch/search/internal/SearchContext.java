@@ -122,6 +122,7 @@ public abstract class SearchContext extends AbstractRefCounted implements Releas
     }
 
     private boolean nowInMillisUsed;
+    private boolean nowInMillisUsedBeforeReset;
 
     @Override
     protected final void closeInternal() {
@@ -174,9 +175,18 @@ public abstract class SearchContext extends AbstractRefCounted implements Releas
     }
 
     public final void resetNowInMillisUsed() {
+        this.nowInMillisUsedBeforeReset |= nowInMillisUsed;
         this.nowInMillisUsed = false;
     }
 
+    /**
+     * Returns whether the current time was used at all, including before the last {@link #resetNowInMillisUsed() reset}, e.g.
+     * by a rewrite of the request whose result only holds for the current time and the current reader.
+     */
+    public final boolean nowInMillisEverUsed() {
+        return nowInMillisUsed || nowInMillisUsedBeforeReset;
+    }
+
     protected abstract long nowInMillisImpl();
 
     public abstract ScrollContext scrollContext();
@@ -335,6 +345,12 @@ public abstract class SearchContext extends AbstractRefCounted implements Releas
 
     public abstract SearchLookup lookup();
 
+    /**
+     * Returns <code>true</code> iff the {@link #lookup()} of this context was created, for instance by a script of the query or
+     * of the sort. The lookup and its current document are shared by everything that uses it.
+     */
+    public abstract boolean hasLookup();
+
     public abstract DfsSearchResult dfsResult();
 
     public abstract QuerySearchResult queryResult();
@@ -350,9 +366,10 @@ public abstract class SearchContext extends AbstractRefCounted implements Releas
 
     /**
      * Schedule the release of a resource. The time when {@link Releasable#close()} will be called on this object
-     * is function of the provided {@link Lifetime}.
+     * is function of the provided {@link Lifetime}. Aggregators register themselves while collecting, which can happen on several
+     * threads when slices of the segments are searched concurrently.
      */
-    public void addReleasable(Releasable releasable, Lifetime lifetime) {
+    public synchronized void addReleasable(Releasable releasable, Lifetime lifetime) {
         if (clearables == null) {
             clearables = new HashMap<>();
         }
@@ -364,7 +381,7 @@ public abstract class SearchContext extends AbstractRefCounted implements Releas
         releasables.add(releasable);
     }
 
-    public void clearReleasables(Lifetime lifetime) {
+    public synchronized void clearReleasables(Lifetime lifetime) {
         if (clearables != null) {
             List<List<Releasable>>releasables = new ArrayList<>();
             for (Lifetime lc : Lifetime.values()) {
@@ -341,6 +341,11 @@ public class SubSearchContext extends FilteredSearchContext {
         return searchLookup;
     }
 
+    @Override
+    public boolean hasLookup() {
+        return searchLookup != null;
+    }
+
     @Override
     public Counter timeEstimateCounter() {
         throw new UnsupportedOperationException("Not supported");
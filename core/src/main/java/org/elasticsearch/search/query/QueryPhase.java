@@ -25,8 +25,10 @@ import org.apache.lucene.queries.MinDocQuery;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.FilterCollector;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MultiCollector;
@@ -38,6 +40,7 @@ import org.apache.lucene.search.TimeLimitingCollector;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopDocsCollector;
 import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.Weight;
@@ -50,6 +53,9 @@ import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchPhase;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.aggregations.AggregationPhase;
+import org.elasticsearch.search.aggregations.BucketCollector;
+import org.elasticsearch.search.aggregations.SearchContextAggregations;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.profile.ProfileShardResult;
@@ -61,8 +67,10 @@ import org.elasticsearch.search.rescore.RescoreSearchContext;
 import org.elasticsearch.search.sort.SortAndFormats;
 import org.elasticsearch.search.suggest.SuggestPhase;
 
+import java.io.IOException;
 import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -156,6 +164,10 @@ public class QueryPhase implements SearchPhase {
 
             assert query == searcher.rewrite(query); // already rewritten
 
+            if (searcher instanceof ContextIndexSearcher && canSearchSlicesConcurrently(searchContext, (ContextIndexSearcher) searcher)) {
+                return executeOnConcurrentSlices(searchContext, (ContextIndexSearcher) searcher, query);
+            }
+
             if (searchContext.size() == 0) { // no matter what the value of from is
                 final TotalHitCountCollector totalHitCountCollector = new TotalHitCountCollector();
                 collector = totalHitCountCollector;
@@ -369,6 +381,155 @@ public class QueryPhase implements SearchPhase {
         }
     }
 
+    /**
+     * Slices can only be searched concurrently if the results of their collectors can be merged: top docs or hit counts, optionally
+     * behind a post filter, a minimum score and a timeout, and aggregations that support it, see
+     * {@link SearchContextAggregations#supportsConcurrentSlices()}. Other aggregations, terminate_after, scrolls and profiling use
+     * the sequential path, as do plain hit counts which have their own shortcuts. So do queries, sorts and aggregations that use the
+     * search lookup, typically through scripts, since its doc values and source are positioned on a single document at a time.
+     */
+    private static boolean canSearchSlicesConcurrently(SearchContext searchContext, ContextIndexSearcher searcher) {
+        for (Class<?> queryCollector : searchContext.queryCollectors().keySet()) {
+            if (queryCollector != AggregationPhase.class) {
+                return false;
+            }
+        }
+        return searcher.hasConcurrentSlices()
+            && (searchContext.size() > 0 || searchContext.queryCollectors().isEmpty() == false)
+            && searchContext.getProfilers() == null
+            && (searchContext.aggregations() == null || searchContext.aggregations().supportsConcurrentSlices())
+            && searchContext.terminateAfter() == SearchContext.DEFAULT_TERMINATE_AFTER
+            && searchContext.scrollContext() == null
+            && searchContext.hasLookup() == false;
+    }
+
+    /**
+     * Searches the slices of the leaves concurrently with a top docs or hit count collector and aggregators per slice, and merges
+     * their top docs. The aggregations of the slices are merged by the {@link AggregationPhase}.
+     * @return whether the rescoring phase should be executed
+     */
+    private static boolean executeOnConcurrentSlices(SearchContext searchContext, ContextIndexSearcher searcher, Query query)
+            throws Exception {
+        final QuerySearchResult queryResult = searchContext.queryResult();
+        final int totalNumDocs = searcher.getIndexReader().numDocs();
+        final boolean countOnly = searchContext.size() == 0;
+        // top collectors don't like a size of 0
+        int numDocs = Math.max(1, Math.min(searchContext.from() + searchContext.size(), totalNumDocs));
+        boolean rescore = false;
+        final SortAndFormats sort = searchContext.sort();
+        if (sort == null && countOnly == false) {
+            rescore = !searchContext.rescore().isEmpty();
+            for (RescoreSearchContext rescoreContext : searchContext.rescore()) {
+                numDocs = Math.max(rescoreContext.window(), numDocs);
+            }
+        }
+        final int topN = numDocs;
+        final ScoreDoc after = searchContext.searchAfter();
+        final Weight postFilterWeight = searchContext.parsedPostFilter() == null ? null :
+            searcher.createNormalizedWeight(searchContext.parsedPostFilter().query(), false);
+        final SearchContextAggregations aggregations = searchContext.aggregations();
+        final boolean timeoutSet = searchContext.timeout() != null && !searchContext.timeout().equals(SearchService.NO_TIMEOUT);
+
+        // collectors are created on the calling thread, in slice order
+        final List<TopDocsCollector<?>> topDocsCollectors = new ArrayList<>();
+        final List<TotalHitCountCollector> totalHitCountCollectors = new ArrayList<>();
+        final CollectorManager<Collector, Void> collectorManager = new CollectorManager<Collector, Void>() {
+            @Override
+            public Collector newCollector() throws IOException {
+                Collector collector;
+                if (countOnly) {
+                    final TotalHitCountCollector totalHitCountCollector = new TotalHitCountCollector();
+                    totalHitCountCollectors.add(totalHitCountCollector);
+                    collector = totalHitCountCollector;
+                } else {
+                    final TopDocsCollector<?> topDocsCollector;
+                    if (sort != null) {
+                        topDocsCollector = TopFieldCollector.create(sort.sort, topN, (FieldDoc) after, true,
+                            searchContext.trackScores(), searchContext.trackScores());
+                    } else {
+                        topDocsCollector = TopScoreDocCollector.create(topN, after);
+                    }
+                    topDocsCollectors.add(topDocsCollector);
+                    collector = topDocsCollector;
+                }
+                if (postFilterWeight != null) {
+                    collector = new FilteredCollector(collector, postFilterWeight);
+                }
+                final BucketCollector aggregationsCollector = aggregations == null ? null : aggregations.createSliceCollector();
+                if (aggregationsCollector != null) {
+                    collector = MultiCollector.wrap(collector, aggregationsCollector);
+                }
+                // apply the minimum score after multi collector so we filter aggs as well
+                if (searchContext.minimumScore() != null) {
+                    collector = new MinimumScoreCollector(collector, searchContext.minimumScore());
+                }
+                collector = getCollector(searchContext, false, collector, timeoutSet);
+                return aggregationsCollector == null ? collector : new AggregationsSliceCollector(collector, aggregationsCollector);
+            }
+
+            @Override
+            public Void reduce(Collection<Collector> collectors) {
+                return null;
+            }
+        };
+
+        try {
+            searcher.search(query, collectorManager);
+        } catch (TimeLimitingCollector.TimeExceededException e) {
+            assert timeoutSet : "TimeExceededException thrown even though timeout wasn't set";
+            // the other slices were searched to completion or timed out too, so their results are the partial results
+            queryResult.searchTimedOut(true);
+        } finally {
+            searchContext.clearReleasables(SearchContext.Lifetime.COLLECTION);
+        }
+
+        final TopDocs topDocs;
+        if (countOnly) {
+            int totalHits = 0;
+            for (TotalHitCountCollector totalHitCountCollector : totalHitCountCollectors) {
+                totalHits += totalHitCountCollector.getTotalHits();
+            }
+            topDocs = new TopDocs(totalHits, Lucene.EMPTY_SCORE_DOCS, 0);
+        } else if (sort != null) {
+            final TopFieldDocs[] sliceTopDocs = new TopFieldDocs[topDocsCollectors.size()];
+            for (int i = 0; i < sliceTopDocs.length; i++) {
+                sliceTopDocs[i] = (TopFieldDocs) topDocsCollectors.get(i).topDocs();
+            }
+            topDocs = TopDocs.merge(sort.sort, topN, sliceTopDocs);
+        } else {
+            final TopDocs[] sliceTopDocs = new TopDocs[topDocsCollectors.size()];
+            for (int i = 0; i < sliceTopDocs.length; i++) {
+                sliceTopDocs[i] = topDocsCollectors.get(i).topDocs();
+            }
+            topDocs = TopDocs.merge(topN, sliceTopDocs);
+        }
+        for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+            // merging sets the slice index, the shard index is assigned when the shard results are merged
+            scoreDoc.shardIndex = -1;
+        }
+        queryResult.topDocs(topDocs, sort == null || countOnly ? new DocValueFormat[0] : sort.formats);
+        return rescore;
+    }
+
+    /**
+     * Finishes the collection of the aggregators of a slice on the thread that searched it, since some of them keep the doc values of
+     * the last leaf until then.
+     */
+    private static class AggregationsSliceCollector extends FilterCollector implements ContextIndexSearcher.SliceCollector {
+
+        private final BucketCollector aggregationsCollector;
+
+        AggregationsSliceCollector(Collector in, BucketCollector aggregationsCollector) {
+            super(in);
+            this.aggregationsCollector = aggregationsCollector;
+        }
+
+        @Override
+        public void postSliceCollection() throws IOException {
+            aggregationsCollector.postCollection();
+        }
+    }
+
     private static Collector getCollector(SearchContext searchContext, boolean doProfile, Collector collector, boolean timeoutSet) {
         if (timeoutSet && collector != null) { // collector might be null if no collection is actually needed
             final Collector child = collector;
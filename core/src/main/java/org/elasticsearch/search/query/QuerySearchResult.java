@@ -59,6 +59,9 @@ public class QuerySearchResult extends QuerySearchResultProvider {
     private boolean searchTimedOut;
     private Boolean terminatedEarly = null;
     private ProfileShardResult profileShardResults;
+    private int nodeQueueSize = -1;
+    private long serviceTimeEWMA = -1;
+    private long readerId = -1;
 
     public QuerySearchResult() {
 
@@ -138,6 +141,16 @@ public class QuerySearchResult extends QuerySearchResultProvider {
         this.aggregations = aggregations;
     }
 
+    /**
+     * Returns and nulls out the aggregations of this search result. This allows to free up memory once the aggregations
+     * have been consumed by an incremental reduce on the coordinating node.
+     */
+    public InternalAggregations consumeAggs() {
+        final InternalAggregations aggs = this.aggregations;
+        this.aggregations = null;
+        return aggs;
+    }
+
     /**
      * Returns the profiled results for this search, or potentially null if result was empty
      * @return The profiled results, or null
@@ -170,6 +183,44 @@ public class QuerySearchResult extends QuerySearchResultProvider {
         this.suggest = suggest;
     }
 
+    /**
+     * Returns the size of the search queue of the node that executed this request when it sent this result, or -1 if unknown.
+     */
+    public int nodeQueueSize() {
+        return nodeQueueSize;
+    }
+
+    public QuerySearchResult nodeQueueSize(int nodeQueueSize) {
+        this.nodeQueueSize = nodeQueueSize;
+        return this;
+    }
+
+    /**
+     * Returns the moving average of the time in nanoseconds the node that executed this request spends executing query
+     * phases, or -1 if unknown.
+     */
+    public long serviceTimeEWMA() {
+        return serviceTimeEWMA;
+    }
+
+    public QuerySearchResult serviceTimeEWMA(long serviceTimeEWMA) {
+        this.serviceTimeEWMA = serviceTimeEWMA;
+        return this;
+    }
+
+    /**
+     * Returns the id of the point-in-time reader this request was executed on, which is unique within the node that executed
+     * it, or -1 if the result of this request may change without the reader changing, e.g. because it depends on the current time.
+     */
+    public long readerId() {
+        return readerId;
+    }
+
+    public QuerySearchResult readerId(long readerId) {
+        this.readerId = readerId;
+        return this;
+    }
+
     public int from() {
         return from;
     }
@@ -236,6 +287,11 @@ public class QuerySearchResult extends QuerySearchResultProvider {
         if (in.getVersion().onOrAfter(Version.V_2_2_0) && in.readBoolean()) {
             profileShardResults = new ProfileShardResult(in);
         }
+        if (in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            nodeQueueSize = in.readInt();
+            serviceTimeEWMA = in.readZLong();
+            readerId = in.readZLong();
+        }
     }
 
     @Override
@@ -282,5 +338,10 @@ public class QuerySearchResult extends QuerySearchResultProvider {
                 profileShardResults.writeTo(out);
             }
         }
+        if (out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            out.writeInt(nodeQueueSize);
+            out.writeZLong(serviceTimeEWMA);
+            out.writeZLong(readerId);
+        }
     }
 }
@@ -176,6 +176,7 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
     // connections while no connect operations is going on... (this might help with 100% CPU when stopping the transport?)
     protected final ReadWriteLock globalLock = new ReentrantReadWriteLock();
     protected final boolean compress;
+    private final Compressor compressor;
     protected volatile BoundTransportAddress boundAddress;
     private final String transportName;
 
@@ -190,6 +191,7 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
         this.pingSchedule = PING_SCHEDULE.get(settings);
         this.namedWriteableRegistry = namedWriteableRegistry;
         this.compress = Transport.TRANSPORT_TCP_COMPRESS.get(settings);
+        this.compressor = Transport.TRANSPORT_TCP_COMPRESSION_TYPE.get(settings);
         this.networkService = networkService;
         this.transportName = transportName;
 
@@ -906,7 +908,7 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
             // the header part is compressed, and the "body" can't be extracted as compressed
             if (options.compress() && canCompress(request)) {
                 status = TransportStatus.setCompress(status);
-                stream = CompressorFactory.COMPRESSOR.streamOutput(stream);
+                stream = CompressorFactory.compressorForVersion(compressor, node.getVersion()).streamOutput(stream);
             }
 
             // we pick the smallest of the 2, to support both backward and forward compatibility
@@ -998,7 +1000,7 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
         try {
             if (options.compress()) {
                 status = TransportStatus.setCompress(status);
-                stream = CompressorFactory.COMPRESSOR.streamOutput(stream);
+                stream = CompressorFactory.compressorForVersion(compressor, nodeVersion).streamOutput(stream);
             }
             threadPool.getThreadContext().writeTo(stream);
             stream.setVersion(nodeVersion);
@@ -1166,12 +1168,24 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
      */
     public final void messageReceived(BytesReference reference, Channel channel, String profileName,
                                       InetSocketAddress remoteAddress, int messageLengthBytes) throws IOException {
+        messageReceived(reference, channel, profileName, remoteAddress, messageLengthBytes, () -> {});
+    }
+
+    /**
+     * This method handles the message receive part for both request and responses. The given releasable is closed once the
+     * bytes of the message are not used anymore: for a request that is once a response has been sent, which lets requests
+     * keep slices of the message (see {@link StreamInput#readSharedBytesReference()}), and for a response it is once it has
+     * been read.
+     */
+    public final void messageReceived(BytesReference reference, Channel channel, String profileName,
+                                      InetSocketAddress remoteAddress, int messageLengthBytes, Releasable onRelease) throws IOException {
         final int totalMessageSize = messageLengthBytes + TcpHeader.MARKER_BYTES_SIZE + TcpHeader.MESSAGE_LENGTH_SIZE;
         transportServiceAdapter.addBytesReceived(totalMessageSize);
         // we have additional bytes to read, outside of the header
         boolean hasMessageBytesToRead = (totalMessageSize - TcpHeader.HEADER_SIZE) > 0;
         StreamInput streamIn = reference.streamInput();
         boolean success = false;
+        boolean releaseMessage = true;
         try (ThreadContext.StoredContext tCtx = threadPool.getThreadContext().stashContext()) {
             long requestId = streamIn.readLong();
             byte status = streamIn.readByte();
@@ -1202,7 +1216,9 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
             streamIn.setVersion(version);
             threadPool.getThreadContext().readHeaders(streamIn);
             if (TransportStatus.isRequest(status)) {
-                handleRequest(channel, profileName, streamIn, requestId, messageLengthBytes, version, remoteAddress);
+                // from here on the request takes care of releasing the message
+                releaseMessage = false;
+                handleRequest(channel, profileName, streamIn, requestId, messageLengthBytes, version, remoteAddress, onRelease);
             } else {
                 final TransportResponseHandler<?> handler = transportServiceAdapter.onResponseReceived(requestId);
                 // ignore if its null, the adapter logs it
@@ -1223,10 +1239,16 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
             }
             success = true;
         } finally {
-            if (success) {
-                IOUtils.close(streamIn);
-            } else {
-                IOUtils.closeWhileHandlingException(streamIn);
+            try {
+                if (success) {
+                    IOUtils.close(streamIn);
+                } else {
+                    IOUtils.closeWhileHandlingException(streamIn);
+                }
+            } finally {
+                if (releaseMessage) {
+                    onRelease.close();
+                }
             }
         }
     }
@@ -1281,9 +1303,20 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
         });
     }
 
+    /**
+     * Reads a request and hands it to its handler. {@code onRelease} is closed once a response has been sent on the channel of
+     * the request, or right away if the request could not even be read up to its action name.
+     */
     protected String handleRequest(Channel channel, String profileName, final StreamInput stream, long requestId,
-                                   int messageLengthBytes, Version version, InetSocketAddress remoteAddress) throws IOException {
-        final String action = stream.readString();
+                                   int messageLengthBytes, Version version, InetSocketAddress remoteAddress,
+                                   Releasable onRelease) throws IOException {
+        final String action;
+        try {
+            action = stream.readString();
+        } catch (IOException | RuntimeException e) {
+            onRelease.close();
+            throw e;
+        }
         transportServiceAdapter.onRequestReceived(requestId, action);
         TransportChannel transportChannel = null;
         try {
@@ -1297,7 +1330,7 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
                 getInFlightRequestBreaker().addWithoutBreaking(messageLengthBytes);
             }
             transportChannel = new TcpTransportChannel<>(this, channel, transportName, action, requestId, version, profileName,
-                messageLengthBytes);
+                messageLengthBytes, onRelease);
             final TransportRequest request = reg.newRequest();
             request.remoteAddress(new InetSocketTransportAddress(remoteAddress));
             request.readFrom(stream);
@@ -1307,7 +1340,8 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
         } catch (Exception e) {
             // the circuit breaker tripped
             if (transportChannel == null) {
-                transportChannel = new TcpTransportChannel<>(this, channel, transportName, action, requestId, version, profileName, 0);
+                transportChannel = new TcpTransportChannel<>(this, channel, transportName, action, requestId, version, profileName, 0,
+                    onRelease);
             }
             try {
                 transportChannel.sendResponse(e);
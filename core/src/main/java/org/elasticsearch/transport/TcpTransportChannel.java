@@ -19,6 +19,7 @@
 package org.elasticsearch.transport;
 
 import org.elasticsearch.Version;
+import org.elasticsearch.common.lease.Releasable;
 
 import java.io.IOException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -30,12 +31,22 @@ public final class TcpTransportChannel<Channel> implements TransportChannel {
     protected final long requestId;
     private final String profileName;
     private final long reservedBytes;
+    private final Releasable onRelease;
     private final AtomicBoolean released = new AtomicBoolean();
     private final String channelType;
     private final Channel channel;
 
     public TcpTransportChannel(TcpTransport<Channel> transport, Channel channel, String channelType, String action,
                                long requestId, Version version, String profileName, long reservedBytes) {
+        this(transport, channel, channelType, action, requestId, version, profileName, reservedBytes, () -> {});
+    }
+
+    /**
+     * Creates a channel that closes {@code onRelease} once a response has been sent, for instance to hand the network buffer
+     * the request was read from back to the transport.
+     */
+    public TcpTransportChannel(TcpTransport<Channel> transport, Channel channel, String channelType, String action,
+                               long requestId, Version version, String profileName, long reservedBytes, Releasable onRelease) {
         this.version = version;
         this.channel = channel;
         this.transport = transport;
@@ -44,6 +55,7 @@ public final class TcpTransportChannel<Channel> implements TransportChannel {
         this.profileName = profileName;
         this.reservedBytes = reservedBytes;
         this.channelType = channelType;
+        this.onRelease = onRelease;
     }
 
     @Override
@@ -87,7 +99,11 @@ public final class TcpTransportChannel<Channel> implements TransportChannel {
         } else {
             assert (releaseBy = new Exception()) != null; // easier to debug if it's already closed
         }
-        transport.getInFlightRequestBreaker().addWithoutBreaking(-reservedBytes);
+        try {
+            transport.getInFlightRequestBreaker().addWithoutBreaking(-reservedBytes);
+        } finally {
+            onRelease.close();
+        }
     }
 
     @Override
@@ -0,0 +1,160 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.apache.lucene.util.Constants;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.DocumentRequest;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.test.ESTestCase;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.elasticsearch.test.StreamsUtils.copyToStringFromClasspath;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+public class IncrementalBulkRequestParserTests extends ESTestCase {
+
+    public void testFeedInRandomChunks() throws Exception {
+        String bulkAction = copyToStringFromClasspath("/org/elasticsearch/action/bulk/simple-bulk4.json") + "\n";
+        if (Constants.WINDOWS) {
+            bulkAction = Strings.replace(bulkAction, "\r\n", "\n");
+        }
+        byte[] bytes = bulkAction.getBytes(StandardCharsets.UTF_8);
+        BulkRequest expected = new BulkRequest();
+        expected.add(new BytesArray(bytes), null, null);
+
+        IncrementalBulkRequestParser parser = new IncrementalBulkRequestParser(new BulkRequest(), null, null, null, null, null,
+            null, true);
+        int added = 0;
+        int from = 0;
+        while (from < bytes.length) {
+            int length = Math.min(randomIntBetween(1, 64), bytes.length - from);
+            added += parser.feed(new BytesArray(bytes, from, length));
+            from += length;
+        }
+        assertThat(parser.bufferedBytes(), equalTo(0));
+        BulkRequest actual = parser.bulkRequest();
+        assertThat(added, equalTo(expected.numberOfActions()));
+        assertThat(actual.numberOfActions(), equalTo(4));
+        for (int i = 0; i < expected.numberOfActions(); i++) {
+            ActionRequest<?> expectedRequest = expected.requests().get(i);
+            ActionRequest<?> actualRequest = actual.requests().get(i);
+            assertThat(actualRequest, instanceOf(expectedRequest.getClass()));
+            if (expectedRequest instanceof DocumentRequest) {
+                assertThat(((DocumentRequest<?>) actualRequest).id(), equalTo(((DocumentRequest<?>) expectedRequest).id()));
+            }
+        }
+        assertThat(actual.requests().get(0), instanceOf(UpdateRequest.class));
+        assertThat(actual.requests().get(2), instanceOf(DeleteRequest.class));
+        assertThat(((IndexRequest) actual.requests().get(3)).source(), equalTo(new BytesArray("{ \"field1\" : \"value3\" }")));
+    }
+
+    public void testEmitsRequestsAsSoonAsTheyAreComplete() throws Exception {
+        IncrementalBulkRequestParser parser = new IncrementalBulkRequestParser(new BulkRequest(), "index", "type", null, null, null,
+            null, true);
+        assertThat(parser.feed(new BytesArray("{ \"index\" : { \"_id\" : \"1\" } }\n{ \"field\" ")), equalTo(0));
+        assertThat(parser.bufferedBytes(), equalTo(40));
+        assertThat(parser.feed(new BytesArray(": \"value\" }\n{ \"delete\" : { \"_id\" : \"2\" } }\n{ \"crea")), equalTo(2));
+        assertThat(parser.bufferedBytes(), equalTo(7));
+        assertThat(parser.feed(new BytesArray("te\" : { \"_id\" : \"3\" } }\n{}\n")), equalTo(1));
+        assertThat(parser.bufferedBytes(), equalTo(0));
+
+        BulkRequest bulkRequest = parser.bulkRequest();
+        assertThat(bulkRequest.numberOfActions(), equalTo(3));
+        IndexRequest first = (IndexRequest) bulkRequest.requests().get(0);
+        assertThat(first.index(), equalTo("index"));
+        assertThat(first.id(), equalTo("1"));
+        assertThat(first.source(), equalTo(new BytesArray("{ \"field\" : \"value\" }")));
+        assertThat(((DeleteRequest) bulkRequest.requests().get(1)).id(), equalTo("2"));
+        assertThat(((IndexRequest) bulkRequest.requests().get(2)).id(), equalTo("3"));
+    }
+
+    public void testExplicitIndexNotAllowed() throws Exception {
+        IncrementalBulkRequestParser parser = new IncrementalBulkRequestParser(new BulkRequest(), null, null, null, null, null,
+            null, false);
+        parser.feed(new BytesArray("{ \"index\" : { \"_index\" : \"index\", "));
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> parser.feed(new BytesArray("\"_type\" : \"type\", \"_id\" : \"1\" } }\n{}\n")));
+        assertThat(e.getMessage(), equalTo("explicit index in bulk is not allowed"));
+    }
+
+    public void testErrorsReportTheLineWithinTheWholeBody() throws Exception {
+        IncrementalBulkRequestParser parser = new IncrementalBulkRequestParser(new BulkRequest(), "index", "type", null, null, null,
+            null, true);
+        assertThat(parser.feed(new BytesArray("{ \"index\" : { \"_id\" : \"1\" } }\n{}\n{ \"delete\" : { \"_id\" : \"2\" } }\n")),
+            equalTo(2));
+        assertThat(parser.feed(new BytesArray("{ \"index\" : { \"_id\" : \"3\" } }\n{}\n")), equalTo(1));
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> parser.feed(new BytesArray("{ \"index\" : { \"_id\" : \"4\", \"unknown\" : \"value\" } }\n{}\n")));
+        assertThat(e.getMessage(), equalTo("Action/metadata line [6] contains an unknown parameter [unknown]"));
+    }
+
+    public void testFinishRejectsTruncatedEntry() throws Exception {
+        IncrementalBulkRequestParser parser = new IncrementalBulkRequestParser(new BulkRequest(), "index", "type", null, null, null,
+            null, true);
+        assertThat(parser.feed(new BytesArray("{ \"index\" : { \"_id\" : \"1\" } }\n{}\n")), equalTo(1));
+        assertThat(parser.feed(new BytesArray("{ \"index\" : { \"_id\" : \"2\" } }\n{ \"field\" : \"value\" }")), equalTo(0));
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, parser::finish);
+        assertThat(e.getMessage(), equalTo("Malformed bulk request, the entry starting at line [3] is incomplete, "
+            + "every line of a bulk request must be terminated by a newline"));
+
+        // trailing whitespace is fine
+        parser = new IncrementalBulkRequestParser(new BulkRequest(), "index", "type", null, null, null, null, true);
+        assertThat(parser.feed(new BytesArray("{ \"delete\" : { \"_id\" : \"1\" } }\n  ")), equalTo(1));
+        parser.finish();
+        assertThat(parser.bufferedBytes(), equalTo(0));
+        assertThat(parser.bulkRequest().numberOfActions(), equalTo(1));
+    }
+
+    public void testOnlyKeepsTheTrailingEntry() throws Exception {
+        IncrementalBulkRequestParser parser = new IncrementalBulkRequestParser(new BulkRequest(), "index", "type", null, null, null,
+            null, true);
+        StringBuilder source = new StringBuilder("{ \"field\" : \"");
+        for (int i = 0; i < 1000; i++) {
+            source.append("value");
+        }
+        source.append("\" }");
+        int numEntries = randomIntBetween(1, 10);
+        int added = 0;
+        for (int i = 0; i < numEntries; i++) {
+            String entry = "{ \"index\" : { \"_id\" : \"" + i + "\" } }\n" + source + "\n";
+            // a long source line in many chunks without a newline
+            for (int from = 0; from < entry.length(); ) {
+                int length = Math.min(randomIntBetween(1, 16), entry.length() - from);
+                added += parser.feed(new BytesArray(entry.substring(from, from + length)));
+                from += length;
+                assertThat(parser.bufferedBytes(), equalTo(from == entry.length() ? 0 : from));
+            }
+        }
+        parser.finish();
+        assertThat(added, equalTo(numEntries));
+        for (int i = 0; i < numEntries; i++) {
+            IndexRequest request = (IndexRequest) parser.bulkRequest().requests().get(i);
+            assertThat(request.id(), equalTo(Integer.toString(i)));
+            assertThat(request.source().utf8ToString(), equalTo(source.toString()));
+        }
+    }
+}
@@ -85,6 +85,39 @@ public class BulkRequestModifierTests extends ESTestCase {
         }
     }
 
+    public void testMarkItemAsFailed() {
+        BulkRequest originalBulkRequest = new BulkRequest();
+        for (int i = 0; i < 32; i++) {
+            originalBulkRequest.add(new IndexRequest("index", "type", String.valueOf(i)));
+        }
+
+        IngestActionFilter.BulkRequestModifier modifier = new IngestActionFilter.BulkRequestModifier(originalBulkRequest);
+        List<IndexRequest> indexRequests = new ArrayList<>();
+        while (modifier.hasNext()) {
+            indexRequests.add((IndexRequest) modifier.next());
+        }
+        // failures are reported once all requests were consumed, in the order of the requests
+        Set<Integer> failedSlots = new HashSet<>();
+        for (int i = 0; i < indexRequests.size(); i++) {
+            if (randomBoolean()) {
+                modifier.markItemAsFailed(indexRequests.get(i), new RuntimeException());
+                failedSlots.add(i);
+            }
+        }
+        if (failedSlots.isEmpty() == false) {
+            int lastFailedSlot = failedSlots.stream().mapToInt(Integer::intValue).max().getAsInt();
+            expectThrows(IllegalArgumentException.class,
+                () -> modifier.markItemAsFailed(indexRequests.get(lastFailedSlot), new RuntimeException()));
+        }
+
+        BulkRequest bulkRequest = modifier.getBulkRequest();
+        assertThat(bulkRequest.requests().size(), equalTo(32 - failedSlots.size()));
+        for (ActionRequest actionRequest : bulkRequest.requests()) {
+            int slot = Integer.parseInt(((IndexRequest) actionRequest).id());
+            assertThat(failedSlots.contains(slot), is(false));
+        }
+    }
+
     public void testPipelineFailures() {
         BulkRequest originalBulkRequest = new BulkRequest();
         for (int i = 0; i < 32; i++) {
@@ -0,0 +1,102 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchModule;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.Arrays;
+
+import static java.util.Collections.emptyList;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ExportRequestTests extends ESTestCase {
+
+    public void testSerialization() throws Exception {
+        ExportRequest request = new ExportRequest("index1", "index2").types("type").routing("routing").preference("_local")
+                .query(QueryBuilders.termQuery("field", "value")).fields("field1", "field2").size(randomIntBetween(1, 10000))
+                .keepAlive(TimeValue.timeValueSeconds(randomIntBetween(1, 100)));
+        if (randomBoolean()) {
+            request.cursor(randomAsciiOfLength(10));
+        }
+        NamedWriteableRegistry registry = new NamedWriteableRegistry(new SearchModule(Settings.EMPTY, false, emptyList())
+                .getNamedWriteables());
+        try (BytesStreamOutput output = new BytesStreamOutput()) {
+            request.writeTo(output);
+            try (StreamInput in = new NamedWriteableAwareStreamInput(output.bytes().streamInput(), registry)) {
+                ExportRequest deserialized = new ExportRequest();
+                deserialized.readFrom(in);
+                assertThat(deserialized.indices(), arrayContaining("index1", "index2"));
+                assertThat(deserialized.indicesOptions(), equalTo(request.indicesOptions()));
+                assertThat(deserialized.types(), arrayContaining("type"));
+                assertThat(deserialized.routing(), equalTo("routing"));
+                assertThat(deserialized.preference(), equalTo("_local"));
+                assertThat(deserialized.query(), equalTo(request.query()));
+                assertThat(deserialized.fields(), arrayContaining("field1", "field2"));
+                assertThat(deserialized.size(), equalTo(request.size()));
+                assertThat(deserialized.keepAlive(), equalTo(request.keepAlive()));
+                assertThat(deserialized.cursor(), equalTo(request.cursor()));
+            }
+        }
+    }
+
+    public void testValidation() {
+        assertThat(new ExportRequest("index").fields("field").validate(), nullValue());
+        assertThat(new ExportRequest().cursor("cursor").validate(), nullValue());
+
+        ActionRequestValidationException e = new ExportRequest("index").validate();
+        assertThat(e.validationErrors(), contains("fields are missing"));
+        e = new ExportRequest("index").fields("field").size(0).validate();
+        assertThat(e.validationErrors(), contains("size must be positive but was [0]"));
+    }
+
+    public void testResponseSerialization() throws Exception {
+        ExportResponse response = new ExportResponse(randomBoolean() ? null : randomAsciiOfLength(10), new String[] {"a", "b"},
+                Arrays.asList(new Object[] {1L, null}, new Object[] {"value", Arrays.asList(1.5d, 2.5d)}), 3, 2,
+                new ShardSearchFailure[] {new ShardSearchFailure(new IllegalStateException("boom"))}, 7);
+        try (BytesStreamOutput output = new BytesStreamOutput()) {
+            response.writeTo(output);
+            try (StreamInput in = output.bytes().streamInput()) {
+                ExportResponse deserialized = new ExportResponse();
+                deserialized.readFrom(in);
+                assertThat(deserialized.getCursor(), equalTo(response.getCursor()));
+                assertThat(deserialized.getFields(), arrayContaining("a", "b"));
+                assertThat(deserialized.getRows().size(), equalTo(2));
+                assertArrayEquals(new Object[] {1L, null}, deserialized.getRows().get(0));
+                assertArrayEquals(new Object[] {"value", Arrays.asList(1.5d, 2.5d)}, deserialized.getRows().get(1));
+                assertThat(deserialized.getTotalShards(), equalTo(3));
+                assertThat(deserialized.getSuccessfulShards(), equalTo(2));
+                assertThat(deserialized.getFailedShards(), equalTo(1));
+                assertThat(deserialized.getTook().millis(), equalTo(7L));
+            }
+        }
+    }
+}
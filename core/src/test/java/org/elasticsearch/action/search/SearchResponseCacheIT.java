@@ -0,0 +1,170 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.action.admin.cluster.node.stats.NodeStats;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class SearchResponseCacheIT extends ESIntegTestCase {
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return Settings.builder().put(super.nodeSettings(nodeOrdinal))
+            .put(SearchResponseCache.SEARCH_RESPONSE_CACHE_SIZE_SETTING.getKey(), "1mb").build();
+    }
+
+    public void testCacheReducedResponses() throws Exception {
+        assertAcked(prepareCreate("index").addMapping("type", "n", "type=long", "s", "type=keyword", "d", "type=date")
+            .setSettings(Settings.builder()
+                .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 3)
+                .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)));
+        for (int i = 0; i < 20; i++) {
+            client().prepareIndex("index", "type", Integer.toString(i)).setSource("n", i, "s", i % 2 == 0 ? "even" : "odd",
+                "d", "2016-03-19").get();
+        }
+        refresh();
+        ensureSearchable("index");
+
+        // the cache lives on the coordinating node
+        final String node = internalCluster().getNodeNames()[0];
+        final Client client = internalCluster().getInstance(Client.class, node);
+
+        final SearchResponse r1 = search(client);
+        assertSearchResponse(r1);
+        assertTopIds(r1, "19", "18", "17");
+        SearchResponseCacheStats stats = stats(node);
+        assertThat(stats.getMissCount(), equalTo(1L));
+        assertThat(stats.getHitCount(), equalTo(0L));
+        assertThat(stats.getCount(), equalTo(1L));
+        assertThat(stats.getMemorySizeInBytes(), greaterThan(0L));
+
+        for (int i = 0; i < 3; i++) {
+            final SearchResponse r2 = search(client);
+            assertSearchResponse(r2);
+            assertThat(r2.getHits().getTotalHits(), equalTo(r1.getHits().getTotalHits()));
+            assertTopIds(r2, "19", "18", "17");
+            for (int j = 0; j < r1.getHits().getHits().length; j++) {
+                assertThat(r2.getHits().getAt(j).getShard(), equalTo(r1.getHits().getAt(j).getShard()));
+                assertThat(r2.getHits().getAt(j).sourceAsMap(), equalTo(r1.getHits().getAt(j).sourceAsMap()));
+            }
+            final Terms terms = r2.getAggregations().get("s");
+            assertThat(terms.getBucketByKey("even").getDocCount(), equalTo(10L));
+            assertThat(terms.getBucketByKey("odd").getDocCount(), equalTo(10L));
+        }
+        stats = stats(node);
+        assertThat(stats.getMissCount(), equalTo(1L));
+        assertThat(stats.getHitCount(), equalTo(3L));
+
+        // requests that opt out of the request cache or depend on the current time are not looked up
+        assertSearchResponse(client.prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).setRequestCache(false)
+            .addSort("n", SortOrder.DESC).setSize(3).addAggregation(terms("s").field("s")).get());
+        assertSearchResponse(client.prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH)
+            .setQuery(QueryBuilders.rangeQuery("d").lte("now")).setSize(3).get());
+        stats = stats(node);
+        assertThat(stats.getMissCount(), equalTo(1L));
+        assertThat(stats.getHitCount(), equalTo(3L));
+
+        // a refresh with changes on any shard invalidates the response
+        client().prepareIndex("index", "type", "20").setSource("n", 20, "s", "even").get();
+        refresh();
+        final SearchResponse r3 = search(client);
+        assertSearchResponse(r3);
+        assertTopIds(r3, "20", "19", "18");
+        final Terms terms = r3.getAggregations().get("s");
+        assertThat(terms.getBucketByKey("even").getDocCount(), equalTo(11L));
+        stats = stats(node);
+        assertThat(stats.getMissCount(), equalTo(2L));
+        assertThat(stats.getHitCount(), equalTo(3L));
+    }
+
+    public void testFilteredAliasesAreNotCached() throws Exception {
+        assertAcked(prepareCreate("index").addMapping("type", "n", "type=long", "s", "type=keyword")
+            .setSettings(Settings.builder()
+                .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 2)
+                .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)));
+        assertAcked(client().admin().indices().prepareAliases()
+            .addAlias("index", "even", QueryBuilders.termQuery("s", "even"))
+            .addAlias("index", "odd", QueryBuilders.termQuery("s", "odd")));
+        for (int i = 0; i < 10; i++) {
+            client().prepareIndex("index", "type", Integer.toString(i)).setSource("n", i, "s", i % 2 == 0 ? "even" : "odd").get();
+        }
+        refresh();
+        ensureSearchable("index");
+
+        final String node = internalCluster().getNodeNames()[0];
+        final Client client = internalCluster().getInstance(Client.class, node);
+
+        for (int i = 0; i < 2; i++) {
+            final SearchResponse even = client.prepareSearch("even").setSearchType(SearchType.QUERY_THEN_FETCH)
+                .addSort("n", SortOrder.DESC).setSize(2).get();
+            assertSearchResponse(even);
+            assertThat(even.getHits().getTotalHits(), equalTo(5L));
+            assertTopIds(even, "8", "6");
+
+            // the same body through another filtered alias of the same shards must not see the other alias' response
+            final SearchResponse odd = client.prepareSearch("odd").setSearchType(SearchType.QUERY_THEN_FETCH)
+                .addSort("n", SortOrder.DESC).setSize(2).get();
+            assertSearchResponse(odd);
+            assertThat(odd.getHits().getTotalHits(), equalTo(5L));
+            assertTopIds(odd, "9", "7");
+        }
+        final SearchResponseCacheStats stats = stats(node);
+        assertThat(stats.getHitCount(), equalTo(0L));
+        assertThat(stats.getMissCount(), equalTo(0L));
+        assertThat(stats.getCount(), equalTo(0L));
+    }
+
+    public void testDisabledByDefault() throws Exception {
+        final SearchResponseCache cache = new SearchResponseCache(Settings.EMPTY, null);
+        assertNull(cache.cacheKey(new SearchRequest("index"), false, new AtomicArray<>(0), null));
+        assertThat(cache.stats().getCount(), equalTo(0L));
+    }
+
+    private static SearchResponse search(Client client) {
+        return client.prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).addSort("n", SortOrder.DESC).setSize(3)
+            .addAggregation(terms("s").field("s")).get();
+    }
+
+    private static SearchResponseCacheStats stats(String node) {
+        final NodeStats nodeStats = client().admin().cluster().prepareNodesStats(node).clear().setSearchResponseCache(true).get()
+            .getNodes().get(0);
+        return nodeStats.getSearchResponseCacheStats();
+    }
+
+    private static void assertTopIds(SearchResponse response, String... ids) {
+        assertThat(response.getHits().getHits().length, equalTo(ids.length));
+        for (int i = 0; i < ids.length; i++) {
+            assertThat(response.getHits().getAt(i).getId(), equalTo(ids[i]));
+        }
+    }
+}
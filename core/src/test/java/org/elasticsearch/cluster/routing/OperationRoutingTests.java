@@ -28,6 +28,7 @@ import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.test.ClusterServiceUtils;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.threadpool.TestThreadPool;
@@ -40,11 +41,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.object.HasToString.hasToString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
 
 public class OperationRoutingTests extends ESTestCase{
 
@@ -291,4 +294,58 @@ public class OperationRoutingTests extends ESTestCase{
         }
     }
 
+    public void testAdaptiveReplicaSelection() throws Exception {
+        TestThreadPool threadPool = null;
+        ClusterService clusterService = null;
+        try {
+            threadPool = new TestThreadPool("testAdaptiveReplicaSelection");
+            clusterService = ClusterServiceUtils.createClusterService(threadPool);
+            final String indexName = "test";
+            ClusterServiceUtils.setState(clusterService,
+                ClusterStateCreationUtils.state(indexName, randomBoolean(), ShardRoutingState.STARTED, ShardRoutingState.STARTED,
+                    ShardRoutingState.STARTED));
+            final ResponseCollectorService collector = new ResponseCollectorService(Settings.EMPTY, clusterService);
+            final OperationRouting operationRouting =
+                new OperationRouting(Settings.EMPTY, new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+            operationRouting.setUseAdaptiveReplicaSelection(true);
+            final String[] indices = new String[] { indexName };
+
+            // nodes without statistics are picked first so that they get ranked
+            final List<String> nodeIds = new ArrayList<>();
+            for (ShardRouting shard : operationRouting.searchShards(clusterService.state(), indices, null, null, collector).iterator()
+                    .next().asUnordered()) {
+                nodeIds.add(shard.currentNodeId());
+            }
+            assertThat(nodeIds.size(), equalTo(3));
+            final String slowNode = nodeIds.get(0);
+            final String busyNode = nodeIds.get(1);
+            final String fastNode = nodeIds.get(2);
+            for (String nodeId : nodeIds) {
+                collector.onRequestSent(nodeId);
+            }
+            collector.onResponse(slowNode, 0, TimeUnit.MILLISECONDS.toNanos(500), TimeUnit.MILLISECONDS.toNanos(400));
+            collector.onResponse(busyNode, 50, TimeUnit.MILLISECONDS.toNanos(20), TimeUnit.MILLISECONDS.toNanos(10));
+            collector.onResponse(fastNode, 0, TimeUnit.MILLISECONDS.toNanos(20), TimeUnit.MILLISECONDS.toNanos(10));
+
+            ShardIterator it = operationRouting.searchShards(clusterService.state(), indices, null, null, collector).iterator().next();
+            assertThat(it.nextOrNull().currentNodeId(), equalTo(fastNode));
+            assertThat(it.nextOrNull().currentNodeId(), equalTo(slowNode));
+            assertThat(it.nextOrNull().currentNodeId(), equalTo(busyNode));
+
+            // requests that are still in flight count against the fast node
+            for (int i = 0; i < 10; i++) {
+                collector.onRequestSent(fastNode);
+            }
+            it = operationRouting.searchShards(clusterService.state(), indices, null, null, collector).iterator().next();
+            assertThat(it.nextOrNull().currentNodeId(), not(equalTo(fastNode)));
+
+            // a preference takes precedence over ranking
+            it = operationRouting.searchShards(clusterService.state(), indices, null, "_only_nodes:" + slowNode, collector).iterator()
+                .next();
+            assertThat(it.nextOrNull().currentNodeId(), equalTo(slowNode));
+        } finally {
+            IOUtils.close(clusterService);
+            terminate(threadPool);
+        }
+    }
 }
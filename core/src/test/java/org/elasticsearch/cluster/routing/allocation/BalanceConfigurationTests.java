@@ -108,6 +108,60 @@ public class BalanceConfigurationTests extends ESAllocationTestCase {
 
     }
 
+    public void testIncrementalIndexBalance() {
+        final float balanceTreshold = 1.0f;
+        AllocationService strategy = createIncrementalAllocationService(1.0f, 0.0f, balanceTreshold);
+
+        ClusterState clusterState = initCluster(strategy);
+        assertIndexBalance(clusterState.getRoutingTable(), clusterState.getRoutingNodes(), numberOfNodes, numberOfIndices, numberOfReplicas, numberOfShards, balanceTreshold);
+
+        clusterState = replaceIndex(clusterState, strategy);
+        assertIndexBalance(clusterState.getRoutingTable(), clusterState.getRoutingNodes(), numberOfNodes, numberOfIndices, numberOfReplicas, numberOfShards, balanceTreshold);
+
+        clusterState = addNode(clusterState, strategy);
+        assertIndexBalance(clusterState.getRoutingTable(), clusterState.getRoutingNodes(), numberOfNodes + 1, numberOfIndices, numberOfReplicas, numberOfShards, balanceTreshold);
+    }
+
+    public void testIncrementalReplicaBalance() {
+        final float balanceTreshold = 1.0f;
+        AllocationService strategy = createIncrementalAllocationService(0.0f, 1.0f, balanceTreshold);
+
+        ClusterState clusterState = initCluster(strategy);
+        assertReplicaBalance(logger, clusterState.getRoutingNodes(), numberOfNodes, numberOfIndices, numberOfReplicas, numberOfShards, balanceTreshold);
+
+        clusterState = replaceIndex(clusterState, strategy);
+        assertReplicaBalance(logger, clusterState.getRoutingNodes(), numberOfNodes, numberOfIndices, numberOfReplicas, numberOfShards, balanceTreshold);
+
+        clusterState = addNode(clusterState, strategy);
+        assertReplicaBalance(logger, clusterState.getRoutingNodes(), numberOfNodes + 1, numberOfIndices, numberOfReplicas, numberOfShards, balanceTreshold);
+    }
+
+    private AllocationService createIncrementalAllocationService(float indexBalance, float replicaBalance, float balanceTreshold) {
+        Settings.Builder settings = Settings.builder();
+        settings.put(ClusterRebalanceAllocationDecider.CLUSTER_ROUTING_ALLOCATION_ALLOW_REBALANCE_SETTING.getKey(), ClusterRebalanceAllocationDecider.ClusterRebalanceType.ALWAYS.toString());
+        settings.put(BalancedShardsAllocator.INDEX_BALANCE_FACTOR_SETTING.getKey(), indexBalance);
+        settings.put(BalancedShardsAllocator.SHARD_BALANCE_FACTOR_SETTING.getKey(), replicaBalance);
+        settings.put(BalancedShardsAllocator.THRESHOLD_SETTING.getKey(), balanceTreshold);
+        settings.put(BalancedShardsAllocator.INCREMENTAL_SETTING.getKey(), true);
+        return createAllocationService(settings.build());
+    }
+
+    private ClusterState replaceIndex(ClusterState clusterState, AllocationService strategy) {
+        RoutingAllocation.Result routingResult = strategy.reroute(clusterState, "reroute");
+        assertFalse("a balanced cluster should not change", routingResult.changed());
+
+        logger.info("replace an index, the nodes it was allocated on have to be rebalanced");
+        final String removedIndex = "test" + randomIntBetween(0, numberOfIndices - 1);
+        IndexMetaData index = IndexMetaData.builder("new_test").settings(settings(Version.CURRENT)).numberOfShards(numberOfShards).numberOfReplicas(numberOfReplicas).build();
+        MetaData metaData = MetaData.builder(clusterState.metaData()).remove(removedIndex).put(index, false).build();
+        RoutingTable routingTable = RoutingTable.builder(clusterState.routingTable()).remove(removedIndex).addAsNew(index).build();
+        clusterState = ClusterState.builder(clusterState).metaData(metaData).routingTable(routingTable).build();
+
+        routingResult = strategy.reroute(clusterState, "reroute");
+        clusterState = ClusterState.builder(clusterState).routingResult(routingResult).build();
+        return applyStartedShardsUntilNoChange(clusterState, strategy);
+    }
+
     private ClusterState initCluster(AllocationService strategy) {
         MetaData.Builder metaDataBuilder = MetaData.builder();
         RoutingTable.Builder routingTableBuilder = RoutingTable.builder();
@@ -46,7 +46,9 @@ import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 public class CacheTests extends ESTestCase {
     private int numberOfEntries;
@@ -706,6 +708,125 @@ public class CacheTests extends ESTestCase {
         barrier.await();
     }
 
+    // keep accessing a set of hot keys while a scan of keys that are only accessed once goes through the cache; the
+    // TinyLFU eviction policy must not let the scan push out the hot keys
+    public void testTinyLfuRetainsFrequentlyAccessedEntries() {
+        int maximumWeight = randomIntBetween(100, 1000);
+        AtomicLong evictions = new AtomicLong();
+        Cache<Integer, String> cache =
+                CacheBuilder.<Integer, String>builder()
+                        .setMaximumWeight(maximumWeight)
+                        .setEvictionPolicy(Cache.EvictionPolicy.TINY_LFU)
+                        .removalListener(notification -> evictions.incrementAndGet())
+                        .build();
+        // too many hot keys for LRU to keep them cached while the scan goes through
+        int hotKeys = maximumWeight * 4 / 5;
+        for (int i = 0; i < hotKeys; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < hotKeys; j++) {
+                assertNotNull(cache.get(j));
+            }
+        }
+        int scannedKeys = randomIntBetween(10 * maximumWeight, 20 * maximumWeight);
+        long hotHits = 0;
+        for (int i = 0; i < scannedKeys; i++) {
+            cache.put(hotKeys + i, Integer.toString(hotKeys + i));
+            if (cache.get(i % hotKeys) != null) {
+                hotHits++;
+            }
+        }
+        assertThat(hotHits, greaterThanOrEqualTo((long) (0.9 * scannedKeys)));
+        assertThat(cache.weight(), lessThanOrEqualTo((long) maximumWeight));
+        assertEquals(hotKeys + scannedKeys, cache.count() + evictions.get());
+        assertEquals(evictions.get(), cache.stats().getEvictions());
+        int keys = 0;
+        for (Integer key : cache.keys()) {
+            keys++;
+        }
+        assertEquals(cache.count(), keys);
+    }
+
+    // the TinyLFU eviction policy has to honor the maximum weight even if some entries are heavier than the admission window
+    public void testTinyLfuWeigher() {
+        int maximumWeight = randomIntBetween(100, 1000);
+        AtomicLong evictions = new AtomicLong();
+        Cache<Integer, String> cache =
+                CacheBuilder.<Integer, String>builder()
+                        .setMaximumWeight(maximumWeight)
+                        .setEvictionPolicy(Cache.EvictionPolicy.TINY_LFU)
+                        .weigher((k, v) -> v.length())
+                        .removalListener(notification -> evictions.incrementAndGet())
+                        .build();
+        for (int i = 0; i < numberOfEntries; i++) {
+            cache.put(i, randomAsciiOfLength(randomIntBetween(1, 20)));
+            if (rarely()) {
+                cache.get(randomIntBetween(0, i));
+            }
+            assertThat(cache.weight(), lessThanOrEqualTo((long) maximumWeight));
+        }
+        assertEquals(numberOfEntries, cache.count() + evictions.get());
+        long weight = 0;
+        for (String value : cache.values()) {
+            weight += value.length();
+        }
+        assertEquals(cache.weight(), weight);
+        cache.invalidateAll();
+        assertEquals(0, cache.count());
+        assertEquals(0, cache.weight());
+        assertEquals(numberOfEntries, evictions.get());
+    }
+
+    // test that the cache is not corrupted when reads buffered by many threads race with writes
+    public void testTortureWithReads() throws BrokenBarrierException, InterruptedException {
+        int numberOfThreads = randomIntBetween(2, 32);
+        final Cache<Integer, String> cache =
+                CacheBuilder.<Integer, String>builder()
+                        .setMaximumWeight(1000)
+                        .setEvictionPolicy(randomFrom(Cache.EvictionPolicy.values()))
+                        .weigher((k, v) -> 2)
+                        .build();
+
+        CyclicBarrier barrier = new CyclicBarrier(1 + numberOfThreads);
+        for (int i = 0; i < numberOfThreads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                    Random random = new Random(random().nextLong());
+                    for (int j = 0; j < numberOfEntries; j++) {
+                        Integer key = random.nextInt(numberOfEntries);
+                        if (random.nextInt(10) == 0) {
+                            cache.put(key, Integer.toString(j));
+                        } else {
+                            cache.get(key);
+                        }
+                    }
+                    barrier.await();
+                } catch (BrokenBarrierException | InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            thread.start();
+        }
+
+        // wait for all threads to be ready
+        barrier.await();
+        // wait for all threads to finish
+        barrier.await();
+
+        cache.refresh();
+        assertThat(cache.count(), lessThanOrEqualTo(500));
+        List<Integer> keys = new ArrayList<>();
+        for (Integer key : cache.keys()) {
+            keys.add(key);
+        }
+        assertEquals(cache.count(), keys.size());
+        for (Integer key : keys) {
+            assertNotNull(cache.get(key));
+        }
+    }
+
     // test that the cache is not corrupted under lots of concurrent modifications, even hitting the same key
     // here be dragons: this test did catch one subtle bug during development; do not remove lightly
     public void testTorture() throws BrokenBarrierException, InterruptedException {
@@ -0,0 +1,68 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.cache;
+
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+
+public class FrequencySketchTests extends ESTestCase {
+    public void testFrequency() {
+        FrequencySketch sketch = new FrequencySketch();
+        sketch.ensureCapacity(randomIntBetween(16, 1024));
+        int key = randomInt();
+        int accesses = randomIntBetween(1, 15);
+        for (int i = 0; i < accesses; i++) {
+            sketch.increment(key);
+        }
+        // a count-min sketch may overestimate but never underestimates
+        assertThat(sketch.frequency(key), greaterThanOrEqualTo(accesses));
+        for (int i = 0; i < 100; i++) {
+            sketch.increment(key);
+        }
+        assertEquals(15, sketch.frequency(key));
+    }
+
+    public void testAging() {
+        FrequencySketch sketch = new FrequencySketch();
+        sketch.ensureCapacity(16);
+        int hot = randomInt();
+        for (int i = 0; i < 15; i++) {
+            sketch.increment(hot);
+        }
+        // enough accesses to other keys to halve all counters a few times
+        for (int i = 0; i < 1000; i++) {
+            sketch.increment(hot + 1 + i);
+        }
+        assertThat(sketch.frequency(hot), lessThan(15));
+    }
+
+    public void testGrowingKeepsFrequencies() {
+        FrequencySketch sketch = new FrequencySketch();
+        sketch.ensureCapacity(16);
+        int key = randomInt();
+        for (int i = 0; i < 10; i++) {
+            sketch.increment(key);
+        }
+        sketch.ensureCapacity(randomIntBetween(17, 1 << 20));
+        assertThat(sketch.frequency(key), greaterThanOrEqualTo(10));
+    }
+}
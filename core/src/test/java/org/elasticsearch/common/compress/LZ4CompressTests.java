@@ -0,0 +1,125 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Runs the streaming compression tests against {@link LZ4Compressor}
+ */
+public class LZ4CompressTests extends DeflateCompressTests {
+
+    @Override
+    protected Compressor newCompressor() {
+        return new LZ4Compressor();
+    }
+
+    public void testBlockRoundTrip() throws IOException {
+        final int length = randomIntBetween(0, LZ4Compressor.BLOCK_SIZE);
+        final byte[] bytes = new byte[length];
+        // a small alphabet so that the block contains matches of all lengths and distances
+        final int alphabet = randomIntBetween(1, 256);
+        for (int i = 0; i < length; ++i) {
+            bytes[i] = (byte) random().nextInt(alphabet);
+        }
+        final int offset = randomIntBetween(0, 10);
+        final byte[] compressed = new byte[offset + LZ4Compressor.maxCompressedLength(length)];
+        final int compressedLength = LZ4Compressor.compress(bytes, 0, length, compressed, offset, new int[1 << 12]);
+        assertTrue(compressedLength <= LZ4Compressor.maxCompressedLength(length));
+
+        final byte[] restored = new byte[length + 3];
+        LZ4Compressor.decompress(compressed, offset, compressedLength, restored, 3, length);
+        assertArrayEquals(bytes, Arrays.copyOfRange(restored, 3, restored.length));
+    }
+
+    public void testCompressesRepetitiveContent() throws IOException {
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 1000; ++i) {
+            json.append("{\"index\":{\"_index\":\"logs\",\"_type\":\"event\",\"_id\":\"").append(i).append("\"}}\n");
+        }
+        final BytesReference bytes = new BytesArray(json.toString());
+        final BytesReference compressed = compress(CompressorFactory.LZ4, bytes);
+        assertThat(compressed.length(), lessThan(bytes.length() / 5));
+        assertEquals(bytes, CompressorFactory.uncompress(compressed));
+    }
+
+    public void testIncompressibleBlocksAreStored() throws IOException {
+        final byte[] bytes = new byte[randomIntBetween(1, 3 * LZ4Compressor.BLOCK_SIZE)];
+        random().nextBytes(bytes);
+        final BytesReference compressed = compress(CompressorFactory.LZ4, new BytesArray(bytes));
+        // the header, the two vint lengths of every block and the end of stream marker
+        final int blocks = (bytes.length + LZ4Compressor.BLOCK_SIZE - 1) / LZ4Compressor.BLOCK_SIZE;
+        assertTrue(compressed.length() <= bytes.length + 4 + blocks * 6 + 1);
+        assertEquals(new BytesArray(bytes), CompressorFactory.uncompress(compressed));
+    }
+
+    public void testCorruptedBlock() throws IOException {
+        final byte[] bytes = new byte[1000];
+        Arrays.fill(bytes, (byte) 'a');
+        final byte[] compressed = BytesReference.toBytes(compress(CompressorFactory.LZ4, new BytesArray(bytes)));
+        // the header and the vint block lengths take 7 bytes, the token of the first sequence comes next
+        compressed[7] = (byte) 0xF0;
+        StreamInput in = CompressorFactory.LZ4.streamInput(new BytesArray(compressed).streamInput());
+        IOException e = expectThrows(IOException.class, () -> in.readBytes(new byte[bytes.length], 0, bytes.length));
+        assertThat(e.getMessage(), containsString("Corrupted LZ4 block"));
+    }
+
+    public void testDetection() throws IOException {
+        final BytesReference bytes = new BytesArray("{\"field\":\"value\"}");
+        assertThat(CompressorFactory.compressor(compress(CompressorFactory.LZ4, bytes)), sameInstance(CompressorFactory.LZ4));
+        assertThat(CompressorFactory.compressor(compress(CompressorFactory.DEFLATE, bytes)), sameInstance(CompressorFactory.DEFLATE));
+        assertNull(CompressorFactory.compressor(bytes));
+    }
+
+    public void testForName() {
+        assertThat(CompressorFactory.forName("lz4"), sameInstance(CompressorFactory.LZ4));
+        assertThat(CompressorFactory.forName("deflate"), sameInstance(CompressorFactory.DEFLATE));
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> CompressorFactory.forName("snappy"));
+        assertEquals("unknown compressor [snappy], must be one of [deflate, lz4]", e.getMessage());
+    }
+
+    public void testCompressorForVersion() {
+        assertThat(CompressorFactory.compressorForVersion(CompressorFactory.LZ4, Version.CURRENT), sameInstance(CompressorFactory.LZ4));
+        assertThat(CompressorFactory.compressorForVersion(CompressorFactory.LZ4, Version.V_5_0_0),
+            sameInstance(CompressorFactory.DEFLATE));
+        assertThat(CompressorFactory.compressorForVersion(CompressorFactory.DEFLATE, Version.CURRENT),
+            sameInstance(CompressorFactory.DEFLATE));
+    }
+
+    private static BytesReference compress(Compressor compressor, BytesReference bytes) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        try (StreamOutput compressed = compressor.streamOutput(out)) {
+            bytes.writeTo(compressed);
+        }
+        return out.bytes();
+    }
+}
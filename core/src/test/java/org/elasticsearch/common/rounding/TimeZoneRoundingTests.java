@@ -39,8 +39,10 @@ import java.util.concurrent.TimeUnit;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
 
 /**
  */
@@ -348,6 +350,55 @@ public class TimeZoneRoundingTests extends ESTestCase {
         }
     }
 
+    /**
+     * randomized test that {@link Rounding#prepare(long, long, int)} returns the same values as the rounding it was built from,
+     * both within the range it was prepared for and outside of it
+     */
+    public void testPreparedRoundingRandom() {
+        for (int i = 0; i < 100; i++) {
+            final DateTimeZone tz = randomDateTimeZone();
+            final Rounding rounding;
+            if (randomBoolean()) {
+                rounding = new Rounding.TimeUnitRounding(randomTimeUnit(), tz);
+            } else {
+                TimeUnit unit = randomFrom(new TimeUnit[] {TimeUnit.MINUTES, TimeUnit.HOURS, TimeUnit.DAYS});
+                rounding = new Rounding.TimeIntervalRounding(unit.toMillis(randomIntBetween(1, 365)), tz);
+            }
+            long min = Math.abs(randomLong() % (2 * (long) 10e11)); // 1970-01-01T00:00:00Z - 2033-05-18T05:33:20.000+02:00
+            if (randomBoolean()) {
+                min = nastyDate(min, tz, TimeUnit.DAYS.toMillis(1));
+            }
+            final long max = min + Math.abs(randomLong() % TimeUnit.DAYS.toMillis(randomFrom(1, 30, 365)));
+            final Rounding.Prepared prepared = rounding.prepare(min, max, randomIntBetween(1, 10000));
+            for (int j = 0; j < 1000; j++) {
+                final long date;
+                if (randomBoolean()) {
+                    date = min + Math.abs(randomLong() % (max - min + 1));
+                } else {
+                    date = randomBoolean() ? min - Math.abs(randomLong() % 1000000) : max + Math.abs(randomLong() % 1000000);
+                }
+                assertThat("rounding of " + new DateTime(date, tz) + " with " + rounding, prepared.round(date),
+                        equalTo(rounding.round(date)));
+            }
+        }
+    }
+
+    public void testPreparedRoundingUsesLookupTableAcrossTransitions() {
+        DateTimeZone tz = DateTimeZone.forID("Europe/Paris");
+        Rounding rounding = Rounding.builder(DateTimeUnit.HOUR_OF_DAY).timeZone(tz).build();
+        long min = time("2016-10-29T00:00:00", tz);
+        long max = time("2016-10-31T00:00:00", tz);
+        Rounding.Prepared prepared = rounding.prepare(min, max, 1000);
+        assertThat(prepared, instanceOf(Rounding.LookupTable.class));
+        // 48 local hours, plus the hour that is repeated when summer time ends, plus the hour that max falls in
+        assertThat(((Rounding.LookupTable) prepared).size(), equalTo(50));
+        for (long date = min - TimeUnit.HOURS.toMillis(2); date < max + TimeUnit.HOURS.toMillis(2); date += TimeUnit.MINUTES.toMillis(7)) {
+            assertThat(prepared.round(date), equalTo(rounding.round(date)));
+        }
+        // too many rounded values in the range
+        assertThat(rounding.prepare(min, max, 10), not(instanceOf(Rounding.LookupTable.class)));
+    }
+
     /**
      * Test that rounded values are always greater or equal to last rounded value if date is increasing.
      * The example covers an interval around 2011-10-30T02:10:00+01:00, time zone CET, interval: 2700000ms
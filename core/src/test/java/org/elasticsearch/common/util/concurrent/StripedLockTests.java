@@ -0,0 +1,120 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.common.util.concurrent;
+
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class StripedLockTests extends ESTestCase {
+
+    public void testNumStripes() {
+        assertThat(new StripedLock<String>(1).getNumStripes(), equalTo(1));
+        assertThat(new StripedLock<String>(3).getNumStripes(), equalTo(4));
+        assertThat(new StripedLock<String>(256).getNumStripes(), equalTo(256));
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> new StripedLock<String>(0));
+        assertThat(e.getMessage(), equalTo("number of stripes must be at least 1 but was [0]"));
+    }
+
+    public void testReentrant() {
+        StripedLock<String> lock = new StripedLock<>(1);
+        // both keys share the only stripe
+        try (Releasable ignored = lock.acquire("a")) {
+            assertTrue(lock.isHeldByCurrentThread("a"));
+            try (Releasable ignored2 = lock.acquire("b")) {
+                assertTrue(lock.isHeldByCurrentThread("b"));
+            }
+            assertTrue(lock.isHeldByCurrentThread("a"));
+        }
+        assertFalse(lock.isHeldByCurrentThread("a"));
+        assertThat(lock.getContendedCount(), equalTo(0L));
+    }
+
+    public void testMutualExclusion() throws InterruptedException {
+        StripedLock<String> lock = new StripedLock<>(randomIntBetween(1, 16));
+        String[] keys = new String[randomIntBetween(1, 40)];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = randomRealisticUnicodeOfLengthBetween(10, 20);
+        }
+        // the counters are only modified while holding the lock of their key
+        Map<String, int[]> counters = new HashMap<>();
+        for (String key : keys) {
+            counters.put(key, new int[1]);
+        }
+        AtomicInteger expected = new AtomicInteger();
+        CountDownLatch startLatch = new CountDownLatch(1);
+        Thread[] threads = new Thread[randomIntBetween(3, 10)];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    startLatch.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                int iterations = scaledRandomIntBetween(100, 1000);
+                for (int i = 0; i < iterations; i++) {
+                    String key = randomFrom(keys);
+                    try (Releasable ignored = lock.acquire(key)) {
+                        assertTrue(lock.isHeldByCurrentThread(key));
+                        counters.get(key)[0]++;
+                    }
+                    expected.incrementAndGet();
+                }
+            });
+            threads[t].start();
+        }
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        int total = 0;
+        for (int[] counter : counters.values()) {
+            total += counter[0];
+        }
+        assertThat(total, equalTo(expected.get()));
+    }
+
+    public void testContendedCount() throws Exception {
+        StripedLock<String> lock = new StripedLock<>(randomIntBetween(1, 16));
+        CountDownLatch acquiring = new CountDownLatch(1);
+        Thread thread;
+        try (Releasable ignored = lock.acquire("key")) {
+            thread = new Thread(() -> {
+                acquiring.countDown();
+                try (Releasable ignored2 = lock.acquire("key")) {
+                    assertTrue(lock.isHeldByCurrentThread("key"));
+                }
+            });
+            thread.start();
+            acquiring.await();
+            assertBusy(() -> assertThat(lock.getContendedCount(), greaterThan(0L)));
+        }
+        thread.join();
+        assertThat(lock.getContendedCount(), equalTo(1L));
+    }
+}
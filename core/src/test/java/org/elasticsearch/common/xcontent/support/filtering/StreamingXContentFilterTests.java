@@ -0,0 +1,171 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.common.xcontent.support.filtering;
+
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+public class StreamingXContentFilterTests extends ESTestCase {
+
+    private static final String[] KEYS = new String[] {"a", "b", "ab", "c.d"};
+
+    public void testIncludes() throws IOException {
+        Map<String, Object> source = new HashMap<>();
+        source.put("test1", "value1");
+        source.put("test2", "value2");
+        source.put("something_else", "value3");
+        source.put("obj", singletonMap("field", "value4"));
+
+        assertThat(filter(source, new String[] {"test1"}, Strings.EMPTY_ARRAY), equalTo(singletonMap("test1", "value1")));
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("test1", "value1");
+        expected.put("test2", "value2");
+        assertThat(filter(source, new String[] {"test*"}, Strings.EMPTY_ARRAY), equalTo(expected));
+        assertThat(filter(source, new String[] {"obj.field"}, Strings.EMPTY_ARRAY), equalTo(singletonMap("obj", source.get("obj"))));
+        assertThat(filter(source, new String[] {"*.field"}, Strings.EMPTY_ARRAY), equalTo(singletonMap("obj", source.get("obj"))));
+        assertThat(filter(source, new String[] {"missing"}, Strings.EMPTY_ARRAY), equalTo(emptyMap()));
+    }
+
+    public void testExcludes() throws IOException {
+        Map<String, Object> source = new HashMap<>();
+        source.put("test1", "value1");
+        source.put("obj", singletonMap("field", "value2"));
+
+        assertThat(filter(source, Strings.EMPTY_ARRAY, new String[] {"test1"}), equalTo(singletonMap("obj", source.get("obj"))));
+        // objects are kept when all their fields are excluded
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("test1", "value1");
+        expected.put("obj", emptyMap());
+        assertThat(filter(source, Strings.EMPTY_ARRAY, new String[] {"obj.field"}), equalTo(expected));
+        assertThat(filter(source, new String[] {"obj"}, new String[] {"obj.field"}), equalTo(singletonMap("obj", emptyMap())));
+    }
+
+    public void testArrays() throws IOException {
+        Map<String, Object> source = new HashMap<>();
+        source.put("empty", emptyList());
+        source.put("objects", Arrays.asList(singletonMap("a", 1), singletonMap("b", 2)));
+        source.put("scalars", Arrays.asList(1, 2));
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("objects", Arrays.asList(singletonMap("a", 1)));
+        expected.put("scalars", Arrays.asList(1, 2));
+        assertThat(filter(source, new String[] {"objects.a", "scalars.a"}, Strings.EMPTY_ARRAY), equalTo(expected));
+        assertThat(filter(source, new String[] {"empty"}, Strings.EMPTY_ARRAY), equalTo(singletonMap("empty", emptyList())));
+    }
+
+    public void testKeepsOrderOfKeys() throws IOException {
+        XContentBuilder builder = XContentFactory.jsonBuilder().startObject()
+            .field("c", 1)
+            .field("b", 2)
+            .field("excluded", 3)
+            .field("a", 4)
+            .endObject();
+        XContentBuilder filtered = XContentFactory.jsonBuilder();
+        try (XContentParser parser = XContentHelper.createParser(builder.bytes())) {
+            StreamingXContentFilter.filter(parser, filtered, Strings.EMPTY_ARRAY, new String[] {"excluded"});
+        }
+        try (XContentParser parser = XContentHelper.createParser(filtered.bytes())) {
+            assertThat(parser.mapOrdered().keySet(), contains("c", "b", "a"));
+        }
+    }
+
+    public void testMatchesMapFiltering() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            Map<String, Object> source = randomObject(0);
+            String[] includes = randomPatterns();
+            String[] excludes = randomPatterns();
+            assertThat("includes " + Arrays.toString(includes) + ", excludes " + Arrays.toString(excludes) + ", source " + source,
+                filter(source, includes, excludes), equalTo(XContentMapValues.filter(source, includes, excludes)));
+        }
+    }
+
+    private static Map<String, Object> filter(Map<String, Object> source, String[] includes, String[] excludes) throws IOException {
+        XContentType xContentType = randomFrom(XContentType.values());
+        BytesReference bytes = XContentFactory.contentBuilder(xContentType).map(source).bytes();
+        XContentBuilder builder = XContentFactory.contentBuilder(xContentType);
+        try (XContentParser parser = XContentHelper.createParser(bytes)) {
+            StreamingXContentFilter.filter(parser, builder, includes, excludes);
+        }
+        return XContentHelper.convertToMap(builder.bytes(), false).v2();
+    }
+
+    private static String[] randomPatterns() {
+        String[] patterns = new String[randomIntBetween(0, 2)];
+        for (int i = 0; i < patterns.length; i++) {
+            StringBuilder pattern = new StringBuilder();
+            int depth = randomIntBetween(1, 3);
+            for (int j = 0; j < depth; j++) {
+                if (j > 0) {
+                    pattern.append('.');
+                }
+                pattern.append(randomBoolean() ? randomFrom(KEYS) : randomFrom("*", "a*", "*b"));
+            }
+            patterns[i] = pattern.toString();
+        }
+        return patterns;
+    }
+
+    private static Map<String, Object> randomObject(int depth) {
+        Map<String, Object> object = new LinkedHashMap<>();
+        int numKeys = randomIntBetween(0, 4);
+        for (int i = 0; i < numKeys; i++) {
+            object.put(randomFrom(KEYS), randomValue(depth + 1));
+        }
+        return object;
+    }
+
+    private static Object randomValue(int depth) {
+        switch (depth < 4 ? randomIntBetween(0, 3) : 0) {
+            case 0:
+                return randomFrom(1, "value", true, null);
+            case 1:
+                return randomObject(depth);
+            default:
+                List<Object> list = new ArrayList<>();
+                int size = randomIntBetween(0, 3);
+                for (int i = 0; i < size; i++) {
+                    list.add(randomValue(depth + 1));
+                }
+                return list;
+        }
+    }
+}
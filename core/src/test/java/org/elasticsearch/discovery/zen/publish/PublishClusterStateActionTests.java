@@ -752,6 +752,42 @@ public class PublishClusterStateActionTests extends ESTestCase {
     }
 
 
+    public void testPublishingDoesNotWaitForInFlightStates() throws Exception {
+        Settings settings = Settings.builder()
+                .put(DiscoverySettings.PUBLISH_MAX_IN_FLIGHT_SETTING.getKey(), 1)
+                .put(DiscoverySettings.PUBLISH_TIMEOUT_SETTING.getKey(), "1h").build();
+        final CountDownLatch processing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Long> processedVersions = new CopyOnWriteArrayList<>();
+        MockNode master = createMockNode("master", settings, null).setAsMaster();
+        MockNode node = createMockNode("node", settings, new ClusterStateListener() {
+            @Override
+            public void clusterChanged(ClusterChangedEvent event) {
+                processing.countDown();
+                try {
+                    // if publishing waits for this node it will only return once we stop blocking
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                processedVersions.add(event.state().version());
+            }
+        });
+        ClusterState previousState = master.clusterState;
+        ClusterState firstState = ClusterState.builder(previousState).incrementVersion()
+                .nodes(DiscoveryNodes.builder(previousState.nodes()).add(node.discoveryNode)).build();
+        AssertingAckListener firstListener = publishState(master.action, firstState, previousState, 1);
+        assertTrue(processing.await(10, TimeUnit.SECONDS));
+        assertThat(processedVersions, emptyIterable());
+        release.countDown();
+
+        ClusterState secondState = ClusterState.builder(firstState).incrementVersion().build();
+        publishState(master.action, secondState, firstState, 1).await(1, TimeUnit.SECONDS);
+        firstListener.await(1, TimeUnit.SECONDS);
+        assertThat(processedVersions, equalTo(Arrays.asList(firstState.version(), secondState.version())));
+        assertSameState(node.clusterState, secondState);
+    }
+
     private MetaData buildMetaDataForVersion(MetaData metaData, long version) {
         ImmutableOpenMap.Builder<String, IndexMetaData> indices = ImmutableOpenMap.builder(metaData.indices());
         indices.put("test" + version, IndexMetaData.builder("test" + version).settings(Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT))
@@ -0,0 +1,138 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.RamUsageTester;
+import org.apache.lucene.util.TestUtil;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PagedLiveVersionMapTests extends ESTestCase {
+
+    public void testRamBytesUsed() throws Exception {
+        PagedLiveVersionMap map = new PagedLiveVersionMap(BigArrays.NON_RECYCLING_INSTANCE, randomIntBetween(1, 16));
+        for (int i = 0; i < 100000; ++i) {
+            BytesRefBuilder uid = new BytesRefBuilder();
+            uid.copyChars(TestUtil.randomSimpleString(random(), 10, 20));
+            VersionValue version = new VersionValue(randomLong());
+            map.putUnderLock(uid.toBytesRef(), version);
+        }
+        long actualRamBytesUsed = RamUsageTester.sizeOf(map);
+        long estimatedRamBytesUsed = map.ramBytesUsed();
+        // less than 25% off
+        assertEquals(actualRamBytesUsed, estimatedRamBytesUsed, actualRamBytesUsed / 4);
+
+        // now refresh
+        map.beforeRefresh();
+        map.afterRefresh(true);
+        assertEquals(0, map.ramBytesUsedForRefresh());
+
+        for (int i = 0; i < 100000; ++i) {
+            BytesRefBuilder uid = new BytesRefBuilder();
+            uid.copyChars(TestUtil.randomSimpleString(random(), 10, 20));
+            VersionValue version = new VersionValue(randomLong());
+            map.putUnderLock(uid.toBytesRef(), version);
+        }
+        actualRamBytesUsed = RamUsageTester.sizeOf(map);
+        estimatedRamBytesUsed = map.ramBytesUsed();
+        // less than 25% off
+        assertEquals(actualRamBytesUsed, estimatedRamBytesUsed, actualRamBytesUsed / 4);
+        map.clear();
+    }
+
+    /** Applies the same random operations to a {@link LiveVersionMap} and a {@link PagedLiveVersionMap} and checks they agree. */
+    public void testDuelWithLiveVersionMap() throws Exception {
+        MockBigArrays bigArrays = new MockBigArrays(Settings.EMPTY, new NoneCircuitBreakerService());
+        LiveVersionMap expected = new LiveVersionMap();
+        PagedLiveVersionMap actual = new PagedLiveVersionMap(bigArrays, randomIntBetween(1, 8));
+        List<BytesRef> uids = new ArrayList<>();
+        for (int i = randomIntBetween(1, 500); i > 0; i--) {
+            uids.add(new BytesRef(TestUtil.randomSimpleString(random(), 1, 20)));
+        }
+        Map<BytesRef, VersionValue> live = new HashMap<>();
+        final int iters = scaledRandomIntBetween(1000, 10000);
+        for (int i = 0; i < iters; i++) {
+            final BytesRef uid = BytesRef.deepCopyOf(randomFrom(uids));
+            switch (randomInt(9)) {
+                case 0:
+                    expected.beforeRefresh();
+                    actual.beforeRefresh();
+                    if (randomBoolean()) {
+                        expected.afterRefresh(true);
+                        actual.afterRefresh(true);
+                        live.clear();
+                    }
+                    break;
+                case 1:
+                    expected.removeTombstoneUnderLock(uid);
+                    actual.removeTombstoneUnderLock(uid);
+                    break;
+                case 2:
+                case 3:
+                    VersionValue delete = new DeleteVersionValue(randomIntBetween(0, Integer.MAX_VALUE), randomIntBetween(0, Integer.MAX_VALUE));
+                    expected.putUnderLock(uid, delete);
+                    actual.putUnderLock(uid, delete);
+                    live.put(uid, delete);
+                    break;
+                default:
+                    VersionValue index = new VersionValue(randomIntBetween(0, Integer.MAX_VALUE));
+                    expected.putUnderLock(uid, index);
+                    actual.putUnderLock(uid, index);
+                    live.put(uid, index);
+                    break;
+            }
+            final Term term = new Term("_uid", randomFrom(uids));
+            assertVersionValue(expected.getUnderLock(term), actual.getUnderLock(term));
+            assertVersionValue(expected.getTombstoneUnderLock(term.bytes()), actual.getTombstoneUnderLock(term.bytes()));
+            assertEquals(expected.ramBytesUsedTombstones.get(), actual.ramBytesUsedTombstones.get());
+        }
+        for (Map.Entry<BytesRef, VersionValue> entry : live.entrySet()) {
+            assertVersionValue(entry.getValue(), actual.getUnderLock(new Term("_uid", entry.getKey())));
+        }
+        actual.clear();
+        expected.clear();
+        assertNull(actual.getUnderLock(new Term("_uid", randomFrom(uids))));
+        // MockBigArrays checks that all pages have been released
+    }
+
+    private static void assertVersionValue(VersionValue expected, VersionValue actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertNotNull(actual);
+        assertEquals(expected.version(), actual.version());
+        assertEquals(expected.delete(), actual.delete());
+        if (expected.delete()) {
+            assertEquals(expected.time(), actual.time());
+        }
+    }
+}
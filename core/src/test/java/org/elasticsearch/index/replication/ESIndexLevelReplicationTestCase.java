@@ -227,7 +227,7 @@ public abstract class ESIndexLevelReplicationTestCase extends ESTestCase {
         final Engine.Warmer warmer = searcher -> {
         };
         return new IndexShard(shardRouting, indexSettings, shardPath, store, indexCache, mapperService, similarityService, null, null,
-            indexEventListener, null, threadPool, BigArrays.NON_RECYCLING_INSTANCE, warmer, Collections.emptyList(),
+            indexEventListener, null, threadPool, BigArrays.NON_RECYCLING_INSTANCE, warmer, null, Collections.emptyList(),
             Collections.emptyList());
     }
 
@@ -0,0 +1,40 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.shard;
+
+import org.elasticsearch.test.ESTestCase;
+
+public class InternalIndexingStatsTests extends ESTestCase {
+
+    public void testUidLockContentionIsOnlyReportedOnTheTotal() {
+        InternalIndexingStats indexingStats = new InternalIndexingStats();
+        indexingStats.noopUpdate("type1");
+        indexingStats.noopUpdate("type2");
+        IndexingStats stats = indexingStats.stats(false, 0, 7, "_all");
+        assertEquals(7, stats.getTotal().getUidLockContentionCount());
+        assertEquals(2, stats.getTypeStats().size());
+        long sum = 0;
+        for (IndexingStats.Stats typeStats : stats.getTypeStats().values()) {
+            assertEquals(1, typeStats.getNoopUpdateCount());
+            sum += typeStats.getUidLockContentionCount();
+        }
+        assertEquals(0, sum);
+    }
+}
@@ -22,10 +22,12 @@ package org.elasticsearch.indices;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.index.cache.request.RequestCacheStats;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
 import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
 import org.elasticsearch.search.aggregations.bucket.histogram.Histogram.Bucket;
+import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.test.ESIntegTestCase;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -417,4 +419,65 @@ public class IndicesRequestCacheIT extends ESIntegTestCase {
                 equalTo(5L));
     }
 
+    public void testCacheHits() throws Exception {
+        assertAcked(client().admin().indices().prepareCreate("index").addMapping("type", "n", "type=long")
+                .setSettings(IndicesRequestCache.INDEX_CACHE_HITS_ENABLED_SETTING.getKey(), true,
+                        IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1,
+                        IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+                .get());
+        indexRandom(true, client().prepareIndex("index", "type", "1").setSource("n", 1),
+                client().prepareIndex("index", "type", "2").setSource("n", 2),
+                client().prepareIndex("index", "type", "3").setSource("n", 3),
+                client().prepareIndex("index", "type", "4").setSource("n", 4));
+        ensureSearchable("index");
+
+        final SearchResponse r1 = client().prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).setSize(2)
+                .addSort("n", SortOrder.DESC).get();
+        assertSearchResponse(r1);
+        assertHitIds(r1, "4", "3");
+        // both the query result and the fetched hits were computed
+        RequestCacheStats stats = client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal()
+                .getRequestCache();
+        assertThat(stats.getHitsMissCount(), equalTo(2L));
+        assertThat(stats.getHitsHitCount(), equalTo(0L));
+        assertThat(stats.getHitsMemorySizeInBytes(), greaterThan(0L));
+        // the request cache is not used for requests with size > 0
+        assertThat(stats.getMissCount(), equalTo(0L));
+
+        for (int i = 0; i < 3; ++i) {
+            final SearchResponse r2 = client().prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).setSize(2)
+                    .addSort("n", SortOrder.DESC).get();
+            assertSearchResponse(r2);
+            assertHitIds(r2, "4", "3");
+            assertThat(r2.getHits().getTotalHits(), equalTo(4L));
+            assertThat(r2.getHits().getAt(0).getShard(), equalTo(r1.getHits().getAt(0).getShard()));
+        }
+        stats = client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache();
+        assertThat(stats.getHitsMissCount(), equalTo(2L));
+        assertThat(stats.getHitsHitCount(), equalTo(6L));
+
+        // opting out of the request cache also bypasses the cache of search hits
+        assertSearchResponse(client().prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).setSize(2)
+                .addSort("n", SortOrder.DESC).setRequestCache(false).get());
+        stats = client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache();
+        assertThat(stats.getHitsMissCount(), equalTo(2L));
+        assertThat(stats.getHitsHitCount(), equalTo(6L));
+
+        // a refresh that changes the index invalidates the cached hits
+        indexRandom(true, client().prepareIndex("index", "type", "5").setSource("n", 5));
+        final SearchResponse r3 = client().prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).setSize(2)
+                .addSort("n", SortOrder.DESC).get();
+        assertSearchResponse(r3);
+        assertHitIds(r3, "5", "4");
+        stats = client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache();
+        assertThat(stats.getHitsMissCount(), equalTo(4L));
+        assertThat(stats.getHitsHitCount(), equalTo(6L));
+    }
+
+    private static void assertHitIds(SearchResponse response, String... ids) {
+        assertThat(response.getHits().getHits().length, equalTo(ids.length));
+        for (int i = 0; i < ids.length; ++i) {
+            assertThat(response.getHits().getAt(i).getId(), equalTo(ids[i]));
+        }
+    }
 }
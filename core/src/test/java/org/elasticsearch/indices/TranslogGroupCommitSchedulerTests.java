@@ -0,0 +1,236 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+
+public class TranslogGroupCommitSchedulerTests extends ESTestCase {
+
+    private ThreadPool threadPool;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        threadPool = new TestThreadPool(getTestName());
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        super.tearDown();
+        terminate(threadPool);
+    }
+
+    private TranslogGroupCommitScheduler newScheduler(String maxLatency) {
+        return new TranslogGroupCommitScheduler(Settings.builder()
+            .put(TranslogGroupCommitScheduler.ENABLED_SETTING.getKey(), true)
+            .put(TranslogGroupCommitScheduler.MAX_LATENCY_SETTING.getKey(), maxLatency)
+            .build(), threadPool);
+    }
+
+    /** Records the locations it is asked to sync, one list per call. */
+    private static class RecordingSyncer implements TranslogGroupCommitScheduler.TranslogSyncer {
+        final List<List<Translog.Location>> calls = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void sync(List<Translog.Location> locations) throws IOException {
+            calls.add(new ArrayList<>(locations));
+        }
+    }
+
+    public void testDisabledByDefault() {
+        assertFalse(new TranslogGroupCommitScheduler(Settings.EMPTY, threadPool).isEnabled());
+        assertTrue(newScheduler("5ms").isEnabled());
+    }
+
+    public void testCoalescesSyncsOfAllShardsOnDataPath() throws Exception {
+        // a window that is long enough for all requests to make it in
+        TranslogGroupCommitScheduler scheduler = newScheduler("1s");
+        Path dataPath = createTempDir();
+        RecordingSyncer[] syncers = new RecordingSyncer[randomIntBetween(1, 5)];
+        for (int i = 0; i < syncers.length; i++) {
+            syncers[i] = new RecordingSyncer();
+        }
+        List<List<Translog.Location>> expected = new ArrayList<>();
+        int numRequests = 0;
+        for (RecordingSyncer syncer : syncers) {
+            List<Translog.Location> locations = new ArrayList<>();
+            for (int i = randomIntBetween(1, 10); i > 0; i--) {
+                locations.add(mock(Translog.Location.class));
+            }
+            expected.add(locations);
+            numRequests += locations.size();
+        }
+        CountDownLatch latch = new CountDownLatch(numRequests);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        for (int i = 0; i < syncers.length; i++) {
+            for (Translog.Location location : expected.get(i)) {
+                scheduler.sync(dataPath, syncers[i], location, e -> {
+                    if (e != null) {
+                        failure.set(e);
+                    }
+                    latch.countDown();
+                });
+            }
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertThat(failure.get(), nullValue());
+        assertThat(scheduler.groupCommits(dataPath), equalTo(1L));
+        for (int i = 0; i < syncers.length; i++) {
+            assertThat(syncers[i].calls.size(), equalTo(1));
+            assertThat(syncers[i].calls.get(0), equalTo(expected.get(i)));
+        }
+    }
+
+    public void testFailureIsOnlyReportedToRequestsOfFailingTranslog() throws Exception {
+        TranslogGroupCommitScheduler scheduler = newScheduler("100ms");
+        Path dataPath = createTempDir();
+        IOException exception = new IOException("boom");
+        TranslogGroupCommitScheduler.TranslogSyncer failing = locations -> {
+            throw exception;
+        };
+        RecordingSyncer succeeding = new RecordingSyncer();
+        CountDownLatch latch = new CountDownLatch(2);
+        AtomicReference<Exception> failingResult = new AtomicReference<>();
+        AtomicReference<Exception> succeedingResult = new AtomicReference<>();
+        scheduler.sync(dataPath, failing, mock(Translog.Location.class), e -> {
+            failingResult.set(e);
+            latch.countDown();
+        });
+        scheduler.sync(dataPath, succeeding, mock(Translog.Location.class), e -> {
+            succeedingResult.set(e);
+            latch.countDown();
+        });
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertThat(failingResult.get(), instanceOf(IOException.class));
+        assertThat(succeedingResult.get(), nullValue());
+        assertThat(succeeding.calls.size(), equalTo(1));
+    }
+
+    public void testDataPathsAreCommittedIndependently() throws Exception {
+        TranslogGroupCommitScheduler scheduler = newScheduler(randomFrom("0ms", "10ms"));
+        Path first = createTempDir();
+        Path second = createTempDir();
+        RecordingSyncer firstSyncer = new RecordingSyncer();
+        RecordingSyncer secondSyncer = new RecordingSyncer();
+        CountDownLatch latch = new CountDownLatch(2);
+        scheduler.sync(first, firstSyncer, mock(Translog.Location.class), e -> latch.countDown());
+        scheduler.sync(second, secondSyncer, mock(Translog.Location.class), e -> latch.countDown());
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertThat(scheduler.groupCommits(first), equalTo(1L));
+        assertThat(scheduler.groupCommits(second), equalTo(1L));
+        assertThat(firstSyncer.calls.size(), equalTo(1));
+        assertThat(secondSyncer.calls.size(), equalTo(1));
+    }
+
+    public void testRequestsArrivingDuringCommitAreCommittedNext() throws Exception {
+        TranslogGroupCommitScheduler scheduler = newScheduler(randomFrom("0ms", "10ms"));
+        Path dataPath = createTempDir();
+        CountDownLatch commitStarted = new CountDownLatch(1);
+        CountDownLatch releaseCommit = new CountDownLatch(1);
+        List<List<Translog.Location>> calls = new CopyOnWriteArrayList<>();
+        TranslogGroupCommitScheduler.TranslogSyncer blocking = locations -> {
+            calls.add(new ArrayList<>(locations));
+            commitStarted.countDown();
+            try {
+                releaseCommit.await();
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        };
+        Translog.Location first = mock(Translog.Location.class);
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.sync(dataPath, blocking, first, e -> done.countDown());
+        assertTrue(commitStarted.await(10, TimeUnit.SECONDS));
+
+        int numLate = randomIntBetween(1, 10);
+        List<Translog.Location> late = new ArrayList<>();
+        CountDownLatch lateDone = new CountDownLatch(numLate);
+        for (int i = 0; i < numLate; i++) {
+            Translog.Location location = mock(Translog.Location.class);
+            late.add(location);
+            scheduler.sync(dataPath, blocking, location, e -> lateDone.countDown());
+        }
+        // the first commit is still running, the late requests must wait for it
+        assertThat(lateDone.getCount(), equalTo((long) numLate));
+        releaseCommit.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(lateDone.await(10, TimeUnit.SECONDS));
+        assertThat(scheduler.groupCommits(dataPath), equalTo(2L));
+        assertThat(calls.size(), equalTo(2));
+        assertThat(calls.get(0), equalTo(Collections.singletonList(first)));
+        assertThat(calls.get(1), containsInAnyOrder(late.toArray()));
+    }
+
+    public void testConcurrentRequests() throws Exception {
+        TranslogGroupCommitScheduler scheduler = newScheduler(randomFrom("0ms", "1ms", "5ms"));
+        Path dataPath = createTempDir();
+        RecordingSyncer[] syncers = new RecordingSyncer[randomIntBetween(1, 4)];
+        for (int i = 0; i < syncers.length; i++) {
+            syncers[i] = new RecordingSyncer();
+        }
+        int numThreads = randomIntBetween(2, 8);
+        int numRequestsPerThread = randomIntBetween(10, 100);
+        CountDownLatch done = new CountDownLatch(numThreads * numRequestsPerThread);
+        Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < numRequestsPerThread; i++) {
+                    scheduler.sync(dataPath, randomFrom(syncers), mock(Translog.Location.class), e -> done.countDown());
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        int totalLocations = 0;
+        int totalCalls = 0;
+        for (RecordingSyncer syncer : syncers) {
+            totalCalls += syncer.calls.size();
+            for (List<Translog.Location> call : syncer.calls) {
+                totalLocations += call.size();
+            }
+        }
+        assertThat(totalLocations, equalTo(numThreads * numRequestsPerThread));
+        // every translog is synced at most once per group commit
+        assertThat((long) totalCalls, lessThanOrEqualTo(scheduler.groupCommits(dataPath) * syncers.length));
+    }
+}
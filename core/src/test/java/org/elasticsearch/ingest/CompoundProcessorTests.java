@@ -23,14 +23,17 @@ import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.test.ESTestCase;
 import org.junit.Before;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.sameInstance;
 
 public class CompoundProcessorTests extends ESTestCase {
@@ -206,4 +209,53 @@ public class CompoundProcessorTests extends ESTestCase {
         assertThat(onFailureProcessor.getInvokedCounter(), equalTo(1));
 
     }
+
+    public void testExecuteBatch() throws Exception {
+        TestProcessor firstProcessor = new TestProcessor("first", "first", ingestDocument -> {
+            if (ingestDocument.hasField("fail")) {
+                throw new RuntimeException("error");
+            }
+        });
+        TestProcessor secondProcessor = new TestProcessor("second", "second", ingestDocument -> {
+            ingestDocument.setFieldValue("second", true);
+        });
+        CompoundProcessor compoundProcessor = new CompoundProcessor(firstProcessor, secondProcessor);
+
+        List<IngestDocument> ingestDocuments = new ArrayList<>();
+        int numDocuments = randomIntBetween(1, 32);
+        int numFailures = 0;
+        for (int i = 0; i < numDocuments; i++) {
+            Map<String, Object> source = new HashMap<>();
+            if (randomBoolean()) {
+                source.put("fail", true);
+                numFailures++;
+            }
+            ingestDocuments.add(new IngestDocument(source, new HashMap<>()));
+        }
+        List<String> stages = new ArrayList<>();
+        int expectedFailures = numFailures;
+        Exception[] failures = compoundProcessor.execute(ingestDocuments, (stage, processor, documents, failed, tookInNanos) -> {
+            stages.add(processor.getType());
+            if (stage == 0) {
+                assertThat(documents, equalTo(numDocuments));
+                assertThat(failed, equalTo(expectedFailures));
+            } else {
+                assertThat(documents, equalTo(numDocuments - expectedFailures));
+                assertThat(failed, equalTo(0));
+            }
+        });
+        assertThat(firstProcessor.getInvokedCounter(), equalTo(numDocuments));
+        assertThat(secondProcessor.getInvokedCounter(), equalTo(numDocuments - numFailures));
+        assertThat(stages, equalTo(numFailures == numDocuments ? Collections.singletonList("first") : Arrays.asList("first", "second")));
+        for (int i = 0; i < numDocuments; i++) {
+            IngestDocument ingestDocument = ingestDocuments.get(i);
+            if (ingestDocument.hasField("fail")) {
+                assertThat(((ElasticsearchException) failures[i]).getRootCause().getMessage(), equalTo("error"));
+                assertThat(ingestDocument.hasField("second"), is(false));
+            } else {
+                assertThat(failures[i], nullValue());
+                assertThat(ingestDocument.hasField("second"), is(true));
+            }
+        }
+    }
 }
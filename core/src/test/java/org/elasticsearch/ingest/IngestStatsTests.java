@@ -24,7 +24,9 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.test.ESTestCase;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 public class IngestStatsTests extends ESTestCase {
@@ -59,6 +61,30 @@ public class IngestStatsTests extends ESTestCase {
         assertEquals(leftStats.getIngestCurrent(), rightStats.getIngestCurrent());
     }
 
+    public void testSerializationWithProcessorStats() throws IOException {
+        IngestStats.Stats total = new IngestStats.Stats(5, 10, 20, 30);
+        IngestStats.Stats foo = new IngestStats.Stats(5, 10, 20, 30);
+        List<IngestStats.ProcessorStats> processorStats = Arrays.asList(
+            new IngestStats.ProcessorStats("set", "my_tag", 5, 3, 1),
+            new IngestStats.ProcessorStats("grok", null, 4, 7, 0));
+        IngestStats ingestStats = new IngestStats(total, Collections.singletonMap("foo", foo),
+            Collections.singletonMap("foo", processorStats));
+        IngestStats serialize = serialize(ingestStats);
+
+        assertEquals(1, serialize.getProcessorStatsPerPipeline().size());
+        List<IngestStats.ProcessorStats> right = serialize.getProcessorStatsPerPipeline().get("foo");
+        assertEquals(processorStats.size(), right.size());
+        for (int i = 0; i < processorStats.size(); i++) {
+            IngestStats.ProcessorStats leftStats = processorStats.get(i);
+            IngestStats.ProcessorStats rightStats = right.get(i);
+            assertEquals(leftStats.getType(), rightStats.getType());
+            assertEquals(leftStats.getTag(), rightStats.getTag());
+            assertEquals(leftStats.getCount(), rightStats.getCount());
+            assertEquals(leftStats.getTimeInMillis(), rightStats.getTimeInMillis());
+            assertEquals(leftStats.getFailedCount(), rightStats.getFailedCount());
+        }
+    }
+
     private IngestStats serialize(IngestStats stats) throws IOException {
         BytesStreamOutput out = new BytesStreamOutput();
         stats.writeTo(out);
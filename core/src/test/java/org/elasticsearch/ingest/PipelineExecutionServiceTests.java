@@ -27,6 +27,7 @@ import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -35,8 +36,10 @@ import org.junit.Before;
 import org.mockito.ArgumentMatcher;
 import org.mockito.invocation.InvocationOnMock;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.BiConsumer;
@@ -45,6 +48,7 @@ import java.util.function.Consumer;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyString;
@@ -330,18 +334,138 @@ public class PipelineExecutionServiceTests extends ESTestCase {
             bulkRequest.add(request);
         }
 
-        CompoundProcessor processor = mock(CompoundProcessor.class);
-        when(processor.getProcessors()).thenReturn(Collections.singletonList(mock(Processor.class)));
+        Processor processor = mock(Processor.class);
         Exception error = new RuntimeException();
         doThrow(error).when(processor).execute(any());
-        when(store.get(pipelineId)).thenReturn(new Pipeline(pipelineId, null, processor));
+        when(store.get(pipelineId)).thenReturn(new Pipeline(pipelineId, null, new CompoundProcessor(processor)));
 
         BiConsumer<IndexRequest, Exception> requestItemErrorHandler = mock(BiConsumer.class);
         Consumer<Exception> completionHandler = mock(Consumer.class);
         executionService.executeBulkRequest(bulkRequest.requests(), requestItemErrorHandler, completionHandler);
 
-        verify(requestItemErrorHandler, times(numIndexRequests)).accept(any(IndexRequest.class), eq(error));
+        verify(requestItemErrorHandler, times(numIndexRequests)).accept(any(IndexRequest.class),
+            argThat(new CustomTypeSafeMatcher<Exception>("failure handler was not called with the processor failure") {
+                @Override
+                protected boolean matchesSafely(Exception e) {
+                    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                        if (cause == error) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            }));
+        verify(completionHandler, times(1)).accept(null);
+    }
+
+    public void testBulkRequestExecutionInBatches() throws Exception {
+        List<Runnable> forked = new ArrayList<>();
+        ThreadPool threadPool = mock(ThreadPool.class);
+        when(threadPool.executor(anyString())).thenReturn(forked::add);
+        int batchSize = randomIntBetween(1, 8);
+        Settings settings = Settings.builder().put(PipelineExecutionService.BULK_BATCH_SIZE_SETTING.getKey(), batchSize).build();
+        executionService = new PipelineExecutionService(settings, store, threadPool);
+
+        Processor processor = new Processor() {
+            @Override
+            public void execute(IngestDocument ingestDocument) throws Exception {
+                if (ingestDocument.getFieldValue("fail", Boolean.class)) {
+                    throw new IllegalStateException("failed document [" + ingestDocument.getFieldValue("doc", Integer.class) + "]");
+                }
+                ingestDocument.setFieldValue("processed", true);
+            }
+
+            @Override
+            public String getType() {
+                return "test";
+            }
+
+            @Override
+            public String getTag() {
+                return null;
+            }
+        };
+        when(store.get("_id")).thenReturn(new Pipeline("_id", null, new CompoundProcessor(processor)));
+
+        BulkRequest bulkRequest = new BulkRequest();
+        int numRequests = randomIntBetween(1, 64);
+        List<IndexRequest> expectedFailures = new ArrayList<>();
+        for (int i = 0; i < numRequests; i++) {
+            boolean fail = randomBoolean();
+            IndexRequest indexRequest = new IndexRequest("_index", "_type", "_id").setPipeline("_id");
+            indexRequest.source("doc", i, "fail", fail);
+            bulkRequest.add(indexRequest);
+            if (fail) {
+                expectedFailures.add(indexRequest);
+            }
+        }
+
+        List<IndexRequest> failures = new ArrayList<>();
+        @SuppressWarnings("unchecked")
+        Consumer<Exception> completionHandler = mock(Consumer.class);
+        executionService.executeBulkRequest(bulkRequest.requests(), (indexRequest, e) -> failures.add(indexRequest), completionHandler);
+        // the bulk request itself is forked first, then a worker for all batches but the first one
+        assertThat(forked.size(), equalTo(1));
+        forked.remove(0).run();
+        assertThat(forked.size(), equalTo((numRequests + batchSize - 1) / batchSize - 1));
+        // the forking thread takes the next pending batch whenever it is done with one, the workers find none left
+        Collections.shuffle(forked, random());
+        for (Runnable worker : forked) {
+            worker.run();
+        }
+        // failures are reported in the order of the requests
+        assertThat(failures, equalTo(expectedFailures));
         verify(completionHandler, times(1)).accept(null);
+        for (ActionRequest request : bulkRequest.requests()) {
+            IndexRequest indexRequest = (IndexRequest) request;
+            if (expectedFailures.contains(indexRequest)) {
+                assertThat(indexRequest.getPipeline(), equalTo("_id"));
+            } else {
+                assertThat(indexRequest.getPipeline(), nullValue());
+                assertThat(indexRequest.sourceAsMap().get("processed"), equalTo(true));
+            }
+        }
+
+        IngestStats.Stats totalStats = executionService.stats().getTotalStats();
+        assertThat(totalStats.getIngestCount(), equalTo((long) numRequests));
+        assertThat(totalStats.getIngestFailedCount(), equalTo((long) expectedFailures.size()));
+        assertThat(totalStats.getIngestCurrent(), equalTo(0L));
+    }
+
+    public void testBulkRequestExecutionIsBoundedByBulkThreadPoolSize() throws Exception {
+        List<Runnable> forked = new ArrayList<>();
+        ThreadPool threadPool = mock(ThreadPool.class);
+        when(threadPool.executor(anyString())).thenReturn(forked::add);
+        int poolSize = randomIntBetween(1, 4);
+        when(threadPool.info(ThreadPool.Names.BULK)).thenReturn(
+            new ThreadPool.Info(ThreadPool.Names.BULK, ThreadPool.ThreadPoolType.FIXED, poolSize));
+        Settings settings = Settings.builder().put(PipelineExecutionService.BULK_BATCH_SIZE_SETTING.getKey(), 1).build();
+        executionService = new PipelineExecutionService(settings, store, threadPool);
+        Processor processor = mock(Processor.class);
+        when(store.get("_id")).thenReturn(new Pipeline("_id", null, new CompoundProcessor(processor)));
+
+        BulkRequest bulkRequest = new BulkRequest();
+        int numRequests = randomIntBetween(1, 32);
+        for (int i = 0; i < numRequests; i++) {
+            bulkRequest.add(new IndexRequest("_index", "_type", "_id").source("field", i).setPipeline("_id"));
+        }
+        @SuppressWarnings("unchecked")
+        BiConsumer<IndexRequest, Exception> requestItemErrorHandler = mock(BiConsumer.class);
+        @SuppressWarnings("unchecked")
+        Consumer<Exception> completionHandler = mock(Consumer.class);
+        executionService.executeBulkRequest(bulkRequest.requests(), requestItemErrorHandler, completionHandler);
+        forked.remove(0).run();
+        // every document is its own batch, yet no more workers than the bulk thread pool has threads are forked
+        assertThat(forked.size(), equalTo(Math.min(numRequests, poolSize) - 1));
+        // the forking thread takes the next batch whenever it is done with one, so it processed all of them
+        verify(processor, times(numRequests)).execute(any());
+        verify(completionHandler, times(1)).accept(null);
+        for (Runnable worker : forked) {
+            worker.run();
+        }
+        verify(processor, times(numRequests)).execute(any());
+        verify(completionHandler, times(1)).accept(null);
+        verify(requestItemErrorHandler, never()).accept(any(), any());
     }
 
     public void testBulkRequestExecution() throws Exception {
@@ -404,6 +528,59 @@ public class PipelineExecutionServiceTests extends ESTestCase {
         assertThat(ingestStats.getTotalStats().getIngestCount(), equalTo(2L));
     }
 
+    public void testProcessorStats() throws Exception {
+        Processor processor1 = mock(Processor.class);
+        when(processor1.getType()).thenReturn("type1");
+        when(processor1.getTag()).thenReturn("tag1");
+        Processor processor2 = mock(Processor.class);
+        when(processor2.getType()).thenReturn("type2");
+        doThrow(new RuntimeException()).when(processor2).execute(any());
+        Processor processor3 = mock(Processor.class);
+        when(processor3.getType()).thenReturn("type3");
+        CompoundProcessor onFailure = new CompoundProcessor(false, Collections.singletonList(processor2),
+            Collections.singletonList(mock(Processor.class)));
+        when(store.get("_id")).thenReturn(new Pipeline("_id", null, new CompoundProcessor(processor1, onFailure, processor3)));
+        executionService.updatePipelineStats(new IngestMetadata(Collections.singletonMap("_id",
+            new PipelineConfiguration("_id", new BytesArray("{}")))));
+
+        BulkRequest bulkRequest = new BulkRequest();
+        int numRequests = randomIntBetween(1, 16);
+        for (int i = 0; i < numRequests; i++) {
+            bulkRequest.add(new IndexRequest("_index", "_type", "_id").source(Collections.emptyMap()).setPipeline("_id"));
+        }
+        @SuppressWarnings("unchecked")
+        BiConsumer<IndexRequest, Exception> requestItemErrorHandler = mock(BiConsumer.class);
+        @SuppressWarnings("unchecked")
+        Consumer<Exception> completionHandler = mock(Consumer.class);
+        executionService.executeBulkRequest(bulkRequest.requests(), requestItemErrorHandler, completionHandler);
+        verify(requestItemErrorHandler, never()).accept(any(), any());
+        verify(completionHandler, times(1)).accept(null);
+
+        IngestStats ingestStats = executionService.stats();
+        assertThat(ingestStats.getStatsPerPipeline().get("_id").getIngestCount(), equalTo((long) numRequests));
+        List<IngestStats.ProcessorStats> processorStats = ingestStats.getProcessorStatsPerPipeline().get("_id");
+        assertThat(processorStats.size(), equalTo(3));
+        assertThat(processorStats.get(0).getType(), equalTo("type1"));
+        assertThat(processorStats.get(0).getTag(), equalTo("tag1"));
+        assertThat(processorStats.get(0).getCount(), equalTo((long) numRequests));
+        assertThat(processorStats.get(0).getFailedCount(), equalTo(0L));
+        // the failure of the nested processor is handled by its on failure processors, so documents carry on
+        assertThat(processorStats.get(1).getType(), equalTo("compound"));
+        assertThat(processorStats.get(1).getCount(), equalTo((long) numRequests));
+        assertThat(processorStats.get(1).getFailedCount(), equalTo(0L));
+        assertThat(processorStats.get(2).getType(), equalTo("type3"));
+        assertThat(processorStats.get(2).getCount(), equalTo((long) numRequests));
+
+        // changing the processors of the pipeline resets its processor stats
+        when(store.get("_id")).thenReturn(new Pipeline("_id", null, new CompoundProcessor(processor3)));
+        bulkRequest = new BulkRequest();
+        bulkRequest.add(new IndexRequest("_index", "_type", "_id").source(Collections.emptyMap()).setPipeline("_id"));
+        executionService.executeBulkRequest(bulkRequest.requests(), requestItemErrorHandler, completionHandler);
+        processorStats = executionService.stats().getProcessorStatsPerPipeline().get("_id");
+        assertThat(processorStats.size(), equalTo(1));
+        assertThat(processorStats.get(0).getType(), equalTo("type3"));
+    }
+
     // issue: https://github.com/elastic/elasticsearch/issues/18126
     public void testUpdatingStatsWhenRemovingPipelineWorks() throws Exception {
         Map<String, PipelineConfiguration> configurationMap = new HashMap<>();
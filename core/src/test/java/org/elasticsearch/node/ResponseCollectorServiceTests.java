@@ -0,0 +1,127 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.node;
+
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.metrics.ExponentiallyWeightedMovingAverage;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.transport.LocalTransportAddress;
+import org.elasticsearch.test.ClusterServiceUtils;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.OptionalDouble;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.emptySet;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+
+public class ResponseCollectorServiceTests extends ESTestCase {
+
+    private ThreadPool threadPool;
+    private ClusterService clusterService;
+    private ResponseCollectorService collector;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        threadPool = new TestThreadPool("response_collector_tests");
+        clusterService = ClusterServiceUtils.createClusterService(threadPool);
+        collector = new ResponseCollectorService(Settings.EMPTY, clusterService);
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        super.tearDown();
+        IOUtils.close(clusterService);
+        terminate(threadPool);
+    }
+
+    public void testMovingAverage() {
+        ExponentiallyWeightedMovingAverage average = new ExponentiallyWeightedMovingAverage(0.5, 10);
+        assertEquals(10, average.getAverage(), 0d);
+        average.addValue(20);
+        assertEquals(15, average.getAverage(), 0d);
+        average.addValue(15);
+        assertEquals(15, average.getAverage(), 0d);
+        expectThrows(IllegalArgumentException.class, () -> new ExponentiallyWeightedMovingAverage(1.5, 0));
+    }
+
+    public void testRank() {
+        assertFalse(collector.rank("node").isPresent());
+        collector.onRequestSent("node");
+        // nodes only get ranked once they answered
+        assertFalse(collector.rank("node").isPresent());
+        collector.onResponse("node", 2, 100, 20);
+        // the response time minus the service time plus the service time of every queued request including this one
+        assertThat(collector.rank("node").getAsDouble(), closeTo(100 - 20 + 27 * 20, 0.001));
+
+        collector.onRequestSent("node");
+        assertThat(collector.rank("node").getAsDouble(), closeTo(100 - 20 + 64 * 20, 0.001));
+        collector.onFailure("node");
+        assertThat(collector.rank("node").getAsDouble(), closeTo(100 - 20 + 27 * 20, 0.001));
+
+        // slower responses and longer queues increase the rank
+        final double rank = collector.rank("node").getAsDouble();
+        collector.onRequestSent("node");
+        collector.onResponse("node", 5, 200, 20);
+        assertThat(collector.rank("node").getAsDouble(), greaterThan(rank));
+    }
+
+    public void testAdjustTowards() {
+        collector.onRequestSent("slow");
+        collector.onResponse("slow", 0, 1000, 10);
+        collector.onRequestSent("fast");
+        collector.onResponse("fast", 0, 100, 10);
+        final OptionalDouble fastRank = collector.rank("fast");
+        double previousRank = collector.rank("slow").getAsDouble();
+        for (int i = 0; i < 20; i++) {
+            collector.adjustTowards("slow", "fast");
+            final double rank = collector.rank("slow").getAsDouble();
+            assertThat(rank, lessThan(previousRank));
+            previousRank = rank;
+        }
+        assertThat(previousRank, closeTo(fastRank.getAsDouble(), 1));
+        // the node that was picked is left alone
+        assertEquals(fastRank, collector.rank("fast"));
+    }
+
+    public void testRemovedNodesAreForgotten() {
+        final DiscoveryNode node = new DiscoveryNode("node", LocalTransportAddress.buildUnique(), emptyMap(), emptySet(), Version.CURRENT);
+        final ClusterState previousState = ClusterState.builder(ClusterName.DEFAULT)
+            .nodes(DiscoveryNodes.builder().add(node).localNodeId(node.getId())).build();
+        final ClusterState state = ClusterState.builder(previousState).nodes(DiscoveryNodes.builder()).build();
+        collector.onRequestSent(node.getId());
+        collector.onResponse(node.getId(), 0, 100, 10);
+        assertTrue(collector.rank(node.getId()).isPresent());
+        collector.clusterChanged(new ClusterChangedEvent("test", state, previousState));
+        assertFalse(collector.rank(node.getId()).isPresent());
+    }
+}
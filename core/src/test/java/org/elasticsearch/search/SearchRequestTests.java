@@ -112,6 +112,10 @@ public class SearchRequestTests extends ESTestCase {
 
         e = expectThrows(NullPointerException.class, () -> searchRequest.scroll((TimeValue)null));
         assertEquals("keepAlive must not be null", e.getMessage());
+
+        IllegalArgumentException iae = expectThrows(IllegalArgumentException.class,
+                () -> searchRequest.setBatchedReduceSize(randomIntBetween(Integer.MIN_VALUE, 1)));
+        assertEquals("batchedReduceSize must be >= 2", iae.getMessage());
     }
 
     public void testEqualsAndHashcode() throws IOException {
@@ -196,6 +200,12 @@ public class SearchRequestTests extends ESTestCase {
                 changed = true;
             }
         }
+        if (randomBoolean()) {
+            secondSearchRequest.setBatchedReduceSize(randomIntBetween(2, 1024));
+            if (secondSearchRequest.getBatchedReduceSize() != firstSearchRequest.getBatchedReduceSize()) {
+                changed = true;
+            }
+        }
 
         if (changed) {
             assertNotEquals(firstSearchRequest, secondSearchRequest);
@@ -235,6 +245,9 @@ public class SearchRequestTests extends ESTestCase {
         if (randomBoolean()) {
             searchRequest.source(createSearchSourceBuilder());
         }
+        if (randomBoolean()) {
+            searchRequest.setBatchedReduceSize(randomIntBetween(2, 1024));
+        }
         return searchRequest;
     }
 
@@ -248,6 +261,7 @@ public class SearchRequestTests extends ESTestCase {
         result.routing(searchRequest.routing());
         result.requestCache(searchRequest.requestCache());
         result.scroll(searchRequest.scroll());
+        result.setBatchedReduceSize(searchRequest.getBatchedReduceSize());
         if (searchRequest.source() != null) {
             result.source(searchRequest.source());
         }
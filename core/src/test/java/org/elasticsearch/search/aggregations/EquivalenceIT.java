@@ -390,6 +390,7 @@ public class EquivalenceIT extends ESIntegTestCase {
                                 .field("values")
                                 .interval(interval)
                                 .minDocCount(1))
+                .setBatchedReduceSize(randomIntBetween(2, 5))
                 .execute().actionGet();
 
         assertSearchResponse(resp);
@@ -0,0 +1,155 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.search.aggregations.BucketCollector;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BestBucketsDeferringCollectorTests extends ESTestCase {
+
+    public void testReplay() throws Exception {
+        HierarchyCircuitBreakerService breakerService = new HierarchyCircuitBreakerService(Settings.EMPTY,
+                new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        try (Directory directory = newDirectory()) {
+            IndexReader reader = indexDocs(directory, randomIntBetween(1, 2000));
+            BestBucketsDeferringCollector deferringCollector = new BestBucketsDeferringCollector(aggregationContext(breakerService));
+            List<long[]> replayed = new ArrayList<>();
+            deferringCollector.setDeferredCollector(Collections.singleton(recordingCollector(replayed)));
+            deferringCollector.preCollection();
+            final int numBuckets = randomIntBetween(1, 100);
+            List<long[]> collected = new ArrayList<>();
+            for (LeafReaderContext ctx : reader.leaves()) {
+                LeafBucketCollector leafCollector = deferringCollector.getLeafCollector(ctx);
+                for (int doc = 0; doc < ctx.reader().maxDoc(); doc++) {
+                    if (randomBoolean()) {
+                        long bucket = randomInt(numBuckets - 1);
+                        leafCollector.collect(doc, bucket);
+                        collected.add(new long[] {ctx.docBase + doc, bucket});
+                    }
+                }
+            }
+            deferringCollector.postCollection();
+            assertTrue(breakerService.getBreaker(CircuitBreaker.REQUEST).getUsed() > 0);
+
+            long[] selectedBuckets = new long[randomIntBetween(1, numBuckets)];
+            for (int i = 0; i < selectedBuckets.length; i++) {
+                selectedBuckets[i] = i;
+            }
+            deferringCollector.replay(selectedBuckets);
+
+            List<long[]> expected = new ArrayList<>();
+            for (long[] docAndBucket : collected) {
+                // buckets are rebased on their position in the selected buckets
+                if (docAndBucket[1] < selectedBuckets.length) {
+                    expected.add(docAndBucket);
+                }
+            }
+            assertEquals(expected.size(), replayed.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertArrayEquals(expected.get(i), replayed.get(i));
+            }
+            // the recorded matches are released once replayed
+            assertEquals(0, breakerService.getBreaker(CircuitBreaker.REQUEST).getUsed());
+            reader.close();
+        }
+    }
+
+    public void testRecordedMatchesTripBreaker() throws Exception {
+        HierarchyCircuitBreakerService breakerService = new HierarchyCircuitBreakerService(Settings.builder()
+                .put(HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), 1, ByteSizeUnit.KB)
+                .build(),
+                new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        try (Directory directory = newDirectory()) {
+            IndexReader reader = indexDocs(directory, randomIntBetween(1, 10));
+            BestBucketsDeferringCollector deferringCollector = new BestBucketsDeferringCollector(aggregationContext(breakerService));
+            deferringCollector.setDeferredCollector(Collections.singleton(recordingCollector(new ArrayList<>())));
+            deferringCollector.preCollection();
+            expectThrows(CircuitBreakingException.class, () -> deferringCollector.getLeafCollector(reader.leaves().get(0)));
+            deferringCollector.close();
+            assertEquals(0, breakerService.getBreaker(CircuitBreaker.REQUEST).getUsed());
+            reader.close();
+        }
+    }
+
+    private IndexReader indexDocs(Directory directory, int numDocs) throws IOException {
+        try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+            for (int i = 0; i < numDocs; i++) {
+                indexWriter.addDocument(new Document());
+            }
+            return indexWriter.getReader();
+        }
+    }
+
+    private AggregationContext aggregationContext(HierarchyCircuitBreakerService breakerService) {
+        SearchContext searchContext = mock(SearchContext.class);
+        when(searchContext.bigArrays()).thenReturn(new BigArrays(null, breakerService, false).withCircuitBreaking());
+        return new AggregationContext(searchContext);
+    }
+
+    private BucketCollector recordingCollector(List<long[]> replayed) {
+        return new BucketCollector() {
+            @Override
+            public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
+                return new LeafBucketCollector() {
+                    @Override
+                    public void collect(int doc, long bucket) throws IOException {
+                        replayed.add(new long[] {ctx.docBase + doc, bucket});
+                    }
+                };
+            }
+
+            @Override
+            public void preCollection() throws IOException {
+            }
+
+            @Override
+            public void postCollection() throws IOException {
+            }
+
+            @Override
+            public boolean needsScores() {
+                return false;
+            }
+        };
+    }
+}
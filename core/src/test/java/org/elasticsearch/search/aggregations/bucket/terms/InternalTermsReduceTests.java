@@ -0,0 +1,109 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+public class InternalTermsReduceTests extends ESTestCase {
+
+    private static ReduceContext reduceContext() {
+        return new ReduceContext(new MockBigArrays(Settings.EMPTY, new NoneCircuitBreakerService()), null, null, randomBoolean());
+    }
+
+    public void testReduceLongTerms() {
+        Map<Long, Long> expected = new TreeMap<>();
+        List<InternalAggregation> shardResults = new ArrayList<>();
+        int numShards = randomIntBetween(1, 10);
+        for (int shard = 0; shard < numShards; shard++) {
+            List<LongTerms.Bucket> buckets = new ArrayList<>();
+            Set<Long> terms = new HashSet<>();
+            int numBuckets = randomIntBetween(0, 200);
+            for (int i = 0; i < numBuckets; i++) {
+                long term = randomIntBetween(-100, 100);
+                if (terms.add(term)) {
+                    long docCount = randomIntBetween(1, 10);
+                    expected.merge(term, docCount, Long::sum);
+                    buckets.add(new LongTerms.Bucket(term, docCount, InternalAggregations.EMPTY, false, 0, DocValueFormat.RAW));
+                }
+            }
+            shardResults.add(new LongTerms("terms", Terms.Order.term(true), Integer.MAX_VALUE, 1, Collections.emptyList(), null,
+                DocValueFormat.RAW, Integer.MAX_VALUE, false, 0, buckets, 0));
+        }
+        if (randomBoolean()) {
+            shardResults.add(0, new UnmappedTerms("terms", Terms.Order.term(true), Integer.MAX_VALUE, 1, Collections.emptyList(),
+                null));
+        }
+        InternalAggregation reduced = shardResults.get(0).reduce(shardResults, reduceContext());
+        assertThat(reduced, instanceOf(LongTerms.class));
+        List<Terms.Bucket> buckets = ((LongTerms) reduced).getBuckets();
+        assertThat(buckets.size(), equalTo(expected.size()));
+        int i = 0;
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertThat(buckets.get(i).getKey(), equalTo(entry.getKey()));
+            assertThat(buckets.get(i).getDocCount(), equalTo(entry.getValue()));
+            i++;
+        }
+    }
+
+    public void testReduceDoubleTerms() {
+        double[] values = new double[] {-1.5, -0.0, 0.0, 0.5, 3.0, Double.NaN, Double.POSITIVE_INFINITY};
+        Map<Double, Long> expected = new TreeMap<>();
+        List<InternalAggregation> shardResults = new ArrayList<>();
+        int numShards = randomIntBetween(1, 10);
+        for (int shard = 0; shard < numShards; shard++) {
+            List<DoubleTerms.Bucket> buckets = new ArrayList<>();
+            for (double value : values) {
+                if (randomBoolean()) {
+                    long docCount = randomIntBetween(1, 10);
+                    expected.merge(value, docCount, Long::sum);
+                    buckets.add(new DoubleTerms.Bucket(value, docCount, InternalAggregations.EMPTY, false, 0, DocValueFormat.RAW));
+                }
+            }
+            shardResults.add(new DoubleTerms("terms", Terms.Order.term(true), Integer.MAX_VALUE, 1, Collections.emptyList(), null,
+                DocValueFormat.RAW, Integer.MAX_VALUE, false, 0, buckets, 0));
+        }
+        InternalAggregation reduced = shardResults.get(0).reduce(shardResults, reduceContext());
+        assertThat(reduced, instanceOf(DoubleTerms.class));
+        List<Terms.Bucket> buckets = ((DoubleTerms) reduced).getBuckets();
+        // -0.0 and 0.0 are distinct terms, the same way they are distinct boxed keys
+        assertThat(buckets.size(), equalTo(expected.size()));
+        for (Terms.Bucket bucket : buckets) {
+            assertThat(bucket.getDocCount(), equalTo(expected.get((Double) bucket.getKey())));
+        }
+    }
+}
@@ -21,12 +21,19 @@ package org.elasticsearch.search.aggregations.metrics.cardinality;
 
 import com.carrotsearch.hppc.BitMixer;
 import com.carrotsearch.hppc.IntHashSet;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.VersionUtils;
+
+import java.io.IOException;
 
 import static org.elasticsearch.search.aggregations.metrics.cardinality.HyperLogLogPlusPlus.MAX_PRECISION;
 import static org.elasticsearch.search.aggregations.metrics.cardinality.HyperLogLogPlusPlus.MIN_PRECISION;
 import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.lessThan;
 
 public class HyperLogLogPlusPlusTests extends ESTestCase {
     public void testEncodeDecode() {
@@ -117,6 +124,48 @@ public class HyperLogLogPlusPlusTests extends ESTestCase {
         assertEquals(1, counts.cardinality(0));
     }
 
+    public void testSparseBucketsDoNotAllocateRegisters() {
+        final int p = randomIntBetween(14, MAX_PRECISION);
+        final int numBuckets = randomIntBetween(1000, 5000);
+        try (HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 1)) {
+            for (int bucket = 0; bucket < numBuckets; ++bucket) {
+                final int numValues = randomIntBetween(1, 20);
+                for (int i = 0; i < numValues; ++i) {
+                    counts.collect(bucket, BitMixer.mix64(randomInt()));
+                }
+            }
+            // a single bucket with registers would take 2^p bytes
+            assertThat(counts.ramBytesUsed(), lessThan(numBuckets * HyperLogLogPlusPlus.memoryUsage(p) / 16));
+        }
+    }
+
+    public void testSerialization() throws IOException {
+        final int p = randomIntBetween(MIN_PRECISION, MAX_PRECISION);
+        final long bucket = randomInt(20);
+        try (HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 1)) {
+            // from linear counting to sparse and dense registers
+            final int numValues = randomFrom(randomIntBetween(1, 10), randomIntBetween(10, 1000), randomIntBetween(1000, 100000));
+            for (int i = 0; i < numValues; ++i) {
+                counts.collect(bucket, BitMixer.mix64(randomInt()));
+            }
+            final Version version = randomBoolean() ? Version.CURRENT : VersionUtils.randomVersion(random());
+            final BytesStreamOutput out = new BytesStreamOutput();
+            out.setVersion(version);
+            counts.writeTo(bucket, out);
+            final StreamInput in = out.bytes().streamInput();
+            in.setVersion(version);
+            try (HyperLogLogPlusPlus copy = HyperLogLogPlusPlus.readFrom(in, BigArrays.NON_RECYCLING_INSTANCE)) {
+                assertEquals(p, copy.precision());
+                assertEquals(counts.cardinality(bucket), copy.cardinality(0));
+                try (HyperLogLogPlusPlus merged = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 1)) {
+                    merged.merge(0, copy, 0);
+                    merged.merge(0, counts, bucket);
+                    assertEquals(counts.cardinality(bucket), merged.cardinality(0));
+                }
+            }
+        }
+    }
+
     public void testPrecisionFromThreshold() {
         assertEquals(4, HyperLogLogPlusPlus.precisionFromThreshold(0));
         assertEquals(6, HyperLogLogPlusPlus.precisionFromThreshold(10));
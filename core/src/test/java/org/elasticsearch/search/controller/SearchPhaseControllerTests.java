@@ -21,12 +21,21 @@ package org.elasticsearch.search.controller;
 
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopDocs;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.terms.LongTerms;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.max.InternalMax;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.fetch.FetchSearchResult;
 import org.elasticsearch.search.fetch.FetchSearchResultProvider;
 import org.elasticsearch.search.internal.InternalSearchHit;
@@ -46,17 +55,22 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
 
 public class SearchPhaseControllerTests extends ESTestCase {
     private SearchPhaseController searchPhaseController;
 
     @Before
     public void setup() {
-        searchPhaseController = new SearchPhaseController(Settings.EMPTY, BigArrays.NON_RECYCLING_INSTANCE, null, null);
+        searchPhaseController = new SearchPhaseController(Settings.EMPTY, BigArrays.NON_RECYCLING_INSTANCE, null,
+            mock(ClusterService.class));
     }
 
     public void testSort() throws Exception {
@@ -118,6 +132,122 @@ public class SearchPhaseControllerTests extends ESTestCase {
         }
     }
 
+    public void testNewQueryPhaseResultConsumer() {
+        SearchRequest request = new SearchRequest();
+        int bufferSize = randomIntBetween(2, 10);
+        request.setBatchedReduceSize(bufferSize);
+        // no aggregations, nothing to consume
+        assertNull(searchPhaseController.newQueryPhaseResultConsumer(request, bufferSize + 1));
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.max("test").field("foo")));
+        // not more shards than the batched reduce size
+        assertNull(searchPhaseController.newQueryPhaseResultConsumer(request, randomIntBetween(1, bufferSize)));
+        assertNotNull(searchPhaseController.newQueryPhaseResultConsumer(request, bufferSize + randomIntBetween(1, 10)));
+    }
+
+    public void testConsumer() {
+        int bufferSize = randomIntBetween(2, 3);
+        int numShards = bufferSize + randomIntBetween(1, 10);
+        SearchRequest request = new SearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.max("test").field("foo")));
+        request.setBatchedReduceSize(bufferSize);
+        SearchPhaseController.QueryPhaseResultConsumer consumer = searchPhaseController.newQueryPhaseResultConsumer(request, numShards);
+        AtomicArray<QuerySearchResultProvider> queryResults = new AtomicArray<>(numShards);
+        double max = Double.NEGATIVE_INFINITY;
+        for (int shardIndex = 0; shardIndex < numShards; shardIndex++) {
+            QuerySearchResult result = new QuerySearchResult(shardIndex, new SearchShardTarget("node", new Index("a", "b"), shardIndex));
+            result.topDocs(new TopDocs(1, new ScoreDoc[] {new ScoreDoc(0, 1.0f)}, 1.0f), null);
+            double value = randomDouble();
+            max = Math.max(max, value);
+            result.aggregations(new InternalAggregations(Collections.singletonList(new InternalMax("test", value,
+                DocValueFormat.RAW, Collections.emptyList(), Collections.emptyMap()))));
+            result.size(1);
+            queryResults.set(shardIndex, result);
+            consumer.consume(result);
+            assertThat(result.aggregations(), nullValue());
+            assertTrue(consumer.getNumBuffered() <= bufferSize);
+        }
+        int expectedReducePhases = (numShards - bufferSize + bufferSize - 2) / (bufferSize - 1);
+        assertEquals(expectedReducePhases, consumer.getNumReducePhases());
+        InternalSearchResponse response = searchPhaseController.merge(false, SearchPhaseController.EMPTY_DOCS, queryResults, consumer,
+            new AtomicArray<>(numShards));
+        assertEquals(expectedReducePhases + 1, response.getNumReducePhases());
+        InternalMax internalMax = (InternalMax) response.aggregations().asList().get(0);
+        assertEquals(max, internalMax.getValue(), 0.0D);
+    }
+
+    public void testConsumerTermsDocCountError() {
+        int bufferSize = randomIntBetween(2, 3);
+        int numShards = bufferSize + randomIntBetween(1, 10);
+        int shardSize = 3;
+        SearchRequest request = new SearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.terms("test").field("foo")));
+        request.setBatchedReduceSize(bufferSize);
+        SearchPhaseController.QueryPhaseResultConsumer consumer = searchPhaseController.newQueryPhaseResultConsumer(request, numShards);
+        AtomicArray<QuerySearchResultProvider> queryResults = new AtomicArray<>(numShards);
+        for (int shardIndex = 0; shardIndex < numShards; shardIndex++) {
+            QuerySearchResult result = new QuerySearchResult(shardIndex, new SearchShardTarget("node", new Index("a", "b"), shardIndex));
+            result.topDocs(new TopDocs(1, new ScoreDoc[] {new ScoreDoc(0, 1.0f)}, 1.0f), null);
+            // every shard returns all of its terms, fewer than shard_size, so no shard can have missed any term
+            List<LongTerms.Bucket> buckets = new ArrayList<>();
+            buckets.add(new LongTerms.Bucket(shardIndex * 2, 2, InternalAggregations.EMPTY, true, 0, DocValueFormat.RAW));
+            buckets.add(new LongTerms.Bucket(shardIndex * 2 + 1, 1, InternalAggregations.EMPTY, true, 0, DocValueFormat.RAW));
+            result.aggregations(new InternalAggregations(Collections.singletonList(new LongTerms("test", Terms.Order.count(false),
+                shardSize, 1, Collections.emptyList(), Collections.emptyMap(), DocValueFormat.RAW, shardSize, true, 0, buckets, 0))));
+            result.size(1);
+            queryResults.set(shardIndex, result);
+            consumer.consume(result);
+        }
+        assertTrue(consumer.getNumReducePhases() >= 1);
+        InternalSearchResponse response = searchPhaseController.merge(false, SearchPhaseController.EMPTY_DOCS, queryResults, consumer,
+            new AtomicArray<>(numShards));
+        LongTerms terms = (LongTerms) response.aggregations().asList().get(0);
+        assertEquals(0, terms.getDocCountError());
+        assertEquals(shardSize, terms.getBuckets().size());
+        for (Terms.Bucket bucket : terms.getBuckets()) {
+            assertEquals(2, bucket.getDocCount());
+            assertEquals(0, bucket.getDocCountError());
+        }
+    }
+
+    public void testConsumerConcurrently() throws InterruptedException {
+        int bufferSize = randomIntBetween(2, 5);
+        int numShards = randomIntBetween(bufferSize + 1, 50);
+        SearchRequest request = new SearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.max("test").field("foo")));
+        request.setBatchedReduceSize(bufferSize);
+        SearchPhaseController.QueryPhaseResultConsumer consumer = searchPhaseController.newQueryPhaseResultConsumer(request, numShards);
+        AtomicArray<QuerySearchResultProvider> queryResults = new AtomicArray<>(numShards);
+        AtomicInteger max = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(numShards);
+        Thread[] threads = new Thread[numShards];
+        for (int i = 0; i < numShards; i++) {
+            final int shardIndex = i;
+            threads[i] = new Thread(() -> {
+                int number = randomIntBetween(1, 1000);
+                max.updateAndGet(prev -> Math.max(prev, number));
+                QuerySearchResult result = new QuerySearchResult(shardIndex,
+                    new SearchShardTarget("node", new Index("a", "b"), shardIndex));
+                result.topDocs(new TopDocs(1, new ScoreDoc[] {new ScoreDoc(0, number)}, number), null);
+                result.aggregations(new InternalAggregations(Collections.singletonList(new InternalMax("test", (double) number,
+                    DocValueFormat.RAW, Collections.emptyList(), Collections.emptyMap()))));
+                result.size(1);
+                queryResults.set(shardIndex, result);
+                consumer.consume(result);
+                latch.countDown();
+            });
+            threads[i].start();
+        }
+        latch.await();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(consumer.getNumReducePhases() >= 1);
+        InternalSearchResponse response = searchPhaseController.merge(false, SearchPhaseController.EMPTY_DOCS, queryResults, consumer,
+            new AtomicArray<>(numShards));
+        InternalMax internalMax = (InternalMax) response.aggregations().asList().get(0);
+        assertEquals(max.get(), internalMax.getValue(), 0.0D);
+    }
+
     private AtomicArray<QuerySearchResultProvider> generateQueryResults(int nShards,
                                                                         List<CompletionSuggestion> suggestions,
                                                                         int searchHitsSize) {
@@ -0,0 +1,177 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.export;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.ExportAction;
+import org.elasticsearch.action.search.ExportRequestBuilder;
+import org.elasticsearch.action.search.ExportResponse;
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.MergePolicyConfig;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.test.ESIntegTestCase;
+import org.elasticsearch.test.InternalSettingsPlugin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.emptyArray;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ExportIT extends ESIntegTestCase {
+
+    @Override
+    protected Collection<Class<? extends Plugin>> nodePlugins() {
+        return Collections.singletonList(InternalSettingsPlugin.class);
+    }
+
+    public void testExportsAllRowsAcrossPages() throws Exception {
+        createTestIndex();
+        int numDocs = indexTestDocs();
+
+        ExportResponse response = prepareExport().setFields("n", "tag", "missing").setSize(7).get();
+        assertThat(response.getFields(), arrayContaining("n", "tag", "missing"));
+        assertThat(response.getFailedShards(), equalTo(0));
+        Map<Long, Object[]> rows = new HashMap<>();
+        int pages = 1;
+        addRows(rows, response, 7);
+        while (response.getCursor() != null) {
+            response = prepareExport().setCursor(response.getCursor()).get();
+            assertThat(response.getFields(), emptyArray());
+            assertThat(response.getFailedShards(), equalTo(0));
+            addRows(rows, response, 7);
+            pages++;
+        }
+        assertThat(pages, greaterThan(1));
+        assertThat(rows.size(), equalTo(numDocs));
+        for (long n = 0; n < numDocs; n++) {
+            Object[] row = rows.get(n);
+            assertThat(row, notNullValue());
+            if (n % 5 == 0) {
+                assertThat(row[1], nullValue());
+            } else if (n % 2 == 0) {
+                assertThat(row[1], equalTo(Arrays.asList("even", "tag" + n)));
+            } else {
+                assertThat(row[1], equalTo("tag" + n));
+            }
+            assertThat(row[2], nullValue());
+        }
+        assertNoActiveContexts();
+    }
+
+    public void testExportsOnlyMatchingLiveDocs() throws Exception {
+        createTestIndex();
+        int numDocs = indexTestDocs();
+        for (int i = 0; i < numDocs; i += 3) {
+            client().prepareDelete("test", "type", Integer.toString(i)).get();
+        }
+        refresh();
+
+        ExportResponse response = prepareExport().setQuery(QueryBuilders.rangeQuery("n").gte(10)).setFields("n").setSize(5).get();
+        Map<Long, Object[]> rows = new HashMap<>();
+        addRows(rows, response, 5);
+        while (response.getCursor() != null) {
+            response = prepareExport().setCursor(response.getCursor()).get();
+            addRows(rows, response, 5);
+        }
+        List<Long> expected = new ArrayList<>();
+        for (long n = 10; n < numDocs; n++) {
+            if (n % 3 != 0) {
+                expected.add(n);
+            }
+        }
+        List<Long> exported = new ArrayList<>(rows.keySet());
+        Collections.sort(exported);
+        assertThat(exported, equalTo(expected));
+        assertNoActiveContexts();
+    }
+
+    public void testClearingTheCursorFreesTheShardContexts() throws Exception {
+        createTestIndex();
+        indexTestDocs();
+
+        ExportResponse response = prepareExport().setFields("n").setSize(2).get();
+        assertThat(response.getCursor(), notNullValue());
+        expectThrows(IllegalArgumentException.class, () -> client().prepareSearchScroll(response.getCursor()).get());
+
+        assertThat(client().prepareClearScroll().addScrollId(response.getCursor()).get().isSucceeded(), equalTo(true));
+        assertNoActiveContexts();
+        expectThrows(SearchPhaseExecutionException.class, () -> prepareExport().setCursor(response.getCursor()).get());
+    }
+
+    private static ExportRequestBuilder prepareExport() {
+        return new ExportRequestBuilder(client(), ExportAction.INSTANCE).setIndices("test");
+    }
+
+    private static void addRows(Map<Long, Object[]> rows, ExportResponse response, int size) {
+        assertThat(response.getRows().size(), lessThanOrEqualTo(size * response.getTotalShards()));
+        for (Object[] row : response.getRows()) {
+            assertThat("row of [" + row[0] + "] is exported twice", rows.put((Long) row[0], row), nullValue());
+        }
+    }
+
+    private void createTestIndex() {
+        assertAcked(prepareCreate("test").addMapping("type", "n", "type=long", "tag", "type=keyword")
+            .setSettings(Settings.builder()
+                .put("index.number_of_shards", between(1, 4))
+                .put("index.number_of_replicas", 0)
+                .put(MergePolicyConfig.INDEX_MERGE_ENABLED, false)));
+    }
+
+    /**
+     * Indexes the test docs in several refreshes so that the shards have several segments.
+     */
+    private int indexTestDocs() throws Exception {
+        int numDocs = between(30, 100);
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        for (int n = 0; n < numDocs; n++) {
+            Object tag = n % 5 == 0 ? null : n % 2 == 0 ? Arrays.asList("even", "tag" + n) : "tag" + n;
+            docs.add(client().prepareIndex("test", "type", Integer.toString(n)).setSource("n", n, "tag", tag));
+            if (docs.size() == 10) {
+                indexRandom(true, false, docs);
+                docs.clear();
+            }
+        }
+        if (docs.isEmpty() == false) {
+            indexRandom(true, false, docs);
+        }
+        return numDocs;
+    }
+
+    private static void assertNoActiveContexts() {
+        for (SearchService searchService : internalCluster().getInstances(SearchService.class)) {
+            assertThat(searchService.getActiveContexts(), equalTo(0));
+        }
+    }
+}
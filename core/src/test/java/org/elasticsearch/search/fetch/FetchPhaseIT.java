@@ -0,0 +1,200 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.fetch;
+
+import org.apache.lucene.search.join.ScoreMode;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.MergePolicyConfig;
+import org.elasticsearch.index.query.InnerHitBuilder;
+import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESIntegTestCase;
+import org.elasticsearch.test.InternalSettingsPlugin;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.common.xcontent.support.XContentMapValues.extractValue;
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.functionScoreQuery;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.nestedQuery;
+import static org.elasticsearch.index.query.functionscore.ScoreFunctionBuilders.fieldValueFactorFunction;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * The fetch phase loads hits in doc id order and puts them back at their position in the response, see {@link FetchPhase}.
+ */
+public class FetchPhaseIT extends ESIntegTestCase {
+
+    @Override
+    protected Collection<Class<? extends Plugin>> nodePlugins() {
+        return Collections.singletonList(InternalSettingsPlugin.class);
+    }
+
+    private void createTestIndex(String... mappingProperties) {
+        assertAcked(prepareCreate("test").addMapping("type", (Object[]) mappingProperties)
+            .setSettings(Settings.builder()
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0)
+                .put(MergePolicyConfig.INDEX_MERGE_ENABLED, false)));
+    }
+
+    /**
+     * Indexes the documents of the given sources in several segments.
+     */
+    private void indexInSegments(List<XContentBuilder> sources) {
+        for (int i = 0; i < sources.size(); i++) {
+            client().prepareIndex("test", "type", Integer.toString(i)).setSource(sources.get(i)).get();
+            if (i % 4 == 3 || rarely()) {
+                refresh();
+            }
+        }
+        refresh();
+    }
+
+    public void testHitsInSortOrder() throws Exception {
+        createTestIndex("n", "type=integer");
+        final int numDocs = randomIntBetween(10, 40);
+        final List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < numDocs; i++) {
+            values.add(i);
+        }
+        Collections.shuffle(values, random());
+        final List<XContentBuilder> sources = new ArrayList<>();
+        for (int value : values) {
+            sources.add(jsonBuilder().startObject().field("n", value).endObject());
+        }
+        indexInSegments(sources);
+
+        // the sort order is unrelated to the order of the doc ids of the hits, which are in several segments
+        final int size = randomIntBetween(1, numDocs);
+        final SortOrder order = randomFrom(SortOrder.values());
+        final SearchResponse response = client().prepareSearch("test").setQuery(matchAllQuery()).addSort("n", order).setSize(size).get();
+        assertSearchResponse(response);
+        assertHitCount(response, numDocs);
+        assertThat(response.getHits().getHits().length, equalTo(size));
+        for (int i = 0; i < size; i++) {
+            final int expected = order == SortOrder.ASC ? i : numDocs - 1 - i;
+            final SearchHit hit = response.getHits().getAt(i);
+            assertThat(hit.getId(), equalTo(Integer.toString(values.indexOf(expected))));
+            assertThat(hit.sourceAsMap().get("n"), equalTo(expected));
+        }
+    }
+
+    public void testHitsInScoreOrder() throws Exception {
+        createTestIndex("n", "type=integer");
+        final int numDocs = randomIntBetween(10, 40);
+        final List<XContentBuilder> sources = new ArrayList<>();
+        for (int i = 0; i < numDocs; i++) {
+            sources.add(jsonBuilder().startObject().field("n", i + 1).endObject());
+        }
+        indexInSegments(sources);
+
+        // the best hits have the highest doc ids
+        final int size = randomIntBetween(1, numDocs);
+        final SearchResponse response = client().prepareSearch("test")
+            .setQuery(functionScoreQuery(matchAllQuery(), fieldValueFactorFunction("n"))).setSize(size).get();
+        assertSearchResponse(response);
+        assertHitCount(response, numDocs);
+        assertThat(response.getHits().getHits().length, equalTo(size));
+        for (int i = 0; i < size; i++) {
+            final SearchHit hit = response.getHits().getAt(i);
+            assertThat(hit.getId(), equalTo(Integer.toString(numDocs - 1 - i)));
+            assertThat(hit.getScore(), equalTo((float) (numDocs - i)));
+            assertThat(hit.sourceAsMap().get("n"), equalTo(numDocs - i));
+        }
+    }
+
+    public void testNestedAndRootHits() throws Exception {
+        createTestIndex("n", "type=integer", "comments", "type=nested");
+        final int numDocs = randomIntBetween(10, 30);
+        final int[] numComments = new int[numDocs];
+        final List<XContentBuilder> sources = new ArrayList<>();
+        for (int i = 0; i < numDocs; i++) {
+            // some root documents have no nested documents at all
+            numComments[i] = i % 3 == 0 ? 0 : randomIntBetween(1, 5);
+            XContentBuilder source = jsonBuilder().startObject().field("n", i).startArray("comments");
+            for (int j = 0; j < numComments[i]; j++) {
+                source.startObject().field("message", "comment " + i + " " + j).field("rank", j).endObject();
+            }
+            sources.add(source.endArray().endObject());
+        }
+        indexInSegments(sources);
+
+        // the nested hits of a root document are sorted in the reverse order of their doc ids, and they share the source of
+        // their root document which must not leak from one nested hit into the other, or into the filtered nested hits
+        final SearchResponse response = client().prepareSearch("test")
+            .setQuery(boolQuery()
+                .should(matchAllQuery())
+                .should(nestedQuery("comments", matchAllQuery(), ScoreMode.None).innerHit(new InnerHitBuilder().setName("all")
+                    .setSize(5).addSort(new FieldSortBuilder("comments.rank").order(SortOrder.DESC))))
+                .should(nestedQuery("comments", matchAllQuery(), ScoreMode.None).innerHit(new InnerHitBuilder().setName("filtered")
+                    .setSize(5).addSort(new FieldSortBuilder("comments.rank").order(SortOrder.DESC))
+                    .setFetchSourceContext(new FetchSourceContext("comments.message")))))
+            .addSort("n", SortOrder.DESC).setSize(numDocs).get();
+        assertSearchResponse(response);
+        assertHitCount(response, numDocs);
+        for (int i = 0; i < numDocs; i++) {
+            final int root = numDocs - 1 - i;
+            final SearchHit hit = response.getHits().getAt(i);
+            assertThat(hit.getId(), equalTo(Integer.toString(root)));
+            assertThat(hit.sourceAsMap().get("n"), equalTo(root));
+            assertThat(((List<?>) hit.sourceAsMap().get("comments")).size(), equalTo(numComments[root]));
+            for (String name : new String[] {"all", "filtered"}) {
+                final SearchHits innerHits = hit.getInnerHits().get(name);
+                assertThat(innerHits.getTotalHits(), equalTo((long) numComments[root]));
+                assertThat(innerHits.getHits().length, equalTo(numComments[root]));
+                for (int j = 0; j < numComments[root]; j++) {
+                    final int rank = numComments[root] - 1 - j;
+                    final SearchHit innerHit = innerHits.getAt(j);
+                    assertThat(innerHit.getId(), equalTo(Integer.toString(root)));
+                    assertThat(innerHit.getNestedIdentity().getField().string(), equalTo("comments"));
+                    assertThat(innerHit.getNestedIdentity().getOffset(), equalTo(rank));
+                    if (name.equals("all")) {
+                        // the source of a nested hit is its nested object
+                        assertThat(innerHit.sourceAsMap().size(), equalTo(2));
+                        assertThat(innerHit.sourceAsMap().get("message"), equalTo("comment " + root + " " + rank));
+                        assertThat(innerHit.sourceAsMap().get("rank"), equalTo(rank));
+                    } else {
+                        // unless it is filtered, in which case it is the filtered nested object under its path
+                        assertThat(innerHit.sourceAsMap().size(), equalTo(1));
+                        assertThat(extractValue("comments.message", innerHit.sourceAsMap()), equalTo("comment " + root + " " + rank));
+                        assertThat(extractValue("comments.rank", innerHit.sourceAsMap()), nullValue());
+                    }
+                }
+            }
+        }
+    }
+}
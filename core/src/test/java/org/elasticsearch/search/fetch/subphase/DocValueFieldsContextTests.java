@@ -0,0 +1,69 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.fetch.subphase;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.index.fielddata.ScriptDocValues;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class DocValueFieldsContextTests extends ESTestCase {
+
+    public void testLeafValuesAreOnlyReusedForTheSameSegmentAndThread() throws Exception {
+        try (Directory dir = newDirectory();
+             IndexWriter w = new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+            w.addDocument(new Document());
+            w.commit();
+            w.addDocument(new Document());
+            w.commit();
+            try (DirectoryReader reader = DirectoryReader.open(w)) {
+                List<LeafReaderContext> leaves = reader.leaves();
+                assertEquals(2, leaves.size());
+                DocValueFieldsContext context = new DocValueFieldsContext();
+                assertNull(context.leafValues(leaves.get(0)));
+
+                ScriptDocValues<?>[] values = new ScriptDocValues<?>[1];
+                context.leafValues(leaves.get(0), values);
+                assertSame(values, context.leafValues(leaves.get(0)));
+                // switching to the next segment
+                assertNull(context.leafValues(leaves.get(1)));
+
+                // the next page of a scroll may be fetched by another thread, which must load its own doc values
+                AtomicReference<ScriptDocValues<?>[]> otherThreadValues = new AtomicReference<>(values);
+                Thread thread = new Thread(() -> otherThreadValues.set(context.leafValues(leaves.get(0))));
+                thread.start();
+                thread.join();
+                assertNull(otherThreadValues.get());
+                assertSame(values, context.leafValues(leaves.get(0)));
+
+                context.clearLeafValues();
+                assertNull(context.leafValues(leaves.get(0)));
+            }
+        }
+    }
+}
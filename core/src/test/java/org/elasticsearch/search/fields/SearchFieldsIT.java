@@ -27,8 +27,10 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.joda.Joda;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.index.MergePolicyConfig;
 import org.elasticsearch.index.fielddata.ScriptDocValues;
 import org.elasticsearch.index.mapper.TimestampFieldMapper;
 import org.elasticsearch.index.query.QueryBuilders;
@@ -43,6 +45,7 @@ import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.lookup.FieldLookup;
 import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.test.ESIntegTestCase;
+import org.elasticsearch.test.InternalSettingsPlugin;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 
@@ -72,6 +75,7 @@ import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFa
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
@@ -80,7 +84,7 @@ public class SearchFieldsIT extends ESIntegTestCase {
 
     @Override
     protected Collection<Class<? extends Plugin>> nodePlugins() {
-        return Arrays.asList(CustomScriptPlugin.class);
+        return Arrays.asList(CustomScriptPlugin.class, InternalSettingsPlugin.class);
     }
 
     public static class CustomScriptPlugin extends MockScriptPlugin {
@@ -824,6 +828,50 @@ public class SearchFieldsIT extends ESIntegTestCase {
         assertThat(searchResponse.getHits().getAt(0).fields().get("keyword_field").value(), equalTo("foo"));
     }
 
+    public void testDocValueFieldsAcrossSegmentsAndScrollPages() throws Exception {
+        assertAcked(prepareCreate("test").addMapping("type1", "l", "type=long", "s", "type=keyword", "ml", "type=long")
+            .setSettings(Settings.builder()
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0)
+                .put(MergePolicyConfig.INDEX_MERGE_ENABLED, false)));
+        final int numDocs = randomIntBetween(10, 30);
+        // several segments, which are switched between within a page as hits are sorted by descending value
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex("test", "type1", Integer.toString(i)).setSource("l", i, "s", "v" + i, "ml", new long[] {i, -i}).get();
+            if (i % 3 == 2 || rarely()) {
+                refresh();
+            }
+        }
+        refresh();
+        assertThat(client().admin().indices().prepareSegments("test").get().getIndices().get("test").getShards().get(0)
+            .getShards()[0].getSegments().size(), greaterThan(1));
+
+        final int pageSize = randomIntBetween(1, 5);
+        // every page of the scroll may be fetched by another thread of the search thread pool
+        SearchResponse response = client().prepareSearch("test").setQuery(matchAllQuery()).addSort("l", SortOrder.DESC)
+            .setSize(pageSize).setScroll(TimeValue.timeValueMinutes(1))
+            .addDocValueField("l").addDocValueField("s").addDocValueField("ml").addDocValueField("unmapped").get();
+        int expected = numDocs - 1;
+        try {
+            while (response.getHits().getHits().length > 0) {
+                assertSearchResponse(response);
+                for (SearchHit hit : response.getHits().getHits()) {
+                    assertThat(hit.getId(), equalTo(Integer.toString(expected)));
+                    assertThat(hit.getFields().get("l").getValues(), equalTo(Collections.<Object>singletonList((long) expected)));
+                    assertThat(hit.getFields().get("s").getValues(), equalTo(Collections.<Object>singletonList("v" + expected)));
+                    List<Object> multiValues = expected == 0 ? Arrays.asList(0L, 0L) : Arrays.asList((long) -expected, (long) expected);
+                    assertThat(hit.getFields().get("ml").getValues(), equalTo(multiValues));
+                    assertThat(hit.getFields().get("unmapped").getValues(), hasSize(0));
+                    expected--;
+                }
+                response = client().prepareSearchScroll(response.getScrollId()).setScroll(TimeValue.timeValueMinutes(1)).get();
+            }
+        } finally {
+            clearScroll(response.getScrollId());
+        }
+        assertThat(expected, equalTo(-1));
+    }
+
     public void testScriptFields() throws Exception {
         assertAcked(prepareCreate("index").addMapping("type",
                 "s", "type=keyword",
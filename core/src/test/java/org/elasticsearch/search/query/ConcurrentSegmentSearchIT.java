@@ -0,0 +1,235 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.query;
+
+import org.elasticsearch.action.admin.cluster.node.stats.NodeStats;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.MergePolicyConfig;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.script.MockScriptPlugin;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptService.ScriptType;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.filters.Filters;
+import org.elasticsearch.search.aggregations.bucket.filters.FiltersAggregator.KeyedFilter;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.bucket.range.Range;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.avg.Avg;
+import org.elasticsearch.search.aggregations.metrics.cardinality.Cardinality;
+import org.elasticsearch.search.aggregations.metrics.stats.Stats;
+import org.elasticsearch.search.sort.ScriptSortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESIntegTestCase;
+import org.elasticsearch.test.InternalSettingsPlugin;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.threadpool.ThreadPoolStats;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.elasticsearch.search.aggregations.AggregationBuilders.avg;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.cardinality;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.dateHistogram;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.filters;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.histogram;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.range;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.stats;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class ConcurrentSegmentSearchIT extends ESIntegTestCase {
+
+    @Override
+    protected Collection<Class<? extends Plugin>> nodePlugins() {
+        return Arrays.asList(InternalSettingsPlugin.class, CustomScriptPlugin.class);
+    }
+
+    public static class CustomScriptPlugin extends MockScriptPlugin {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected Map<String, Function<Map<String, Object>, Object>> pluginScripts() {
+            Map<String, Function<Map<String, Object>, Object>> scripts = new HashMap<>();
+            scripts.put("_source.n", vars -> XContentMapValues.extractValue("n", (Map<String, Object>) vars.get("_source")));
+            scripts.put("_source.n % 3 == 0", vars -> {
+                final Number n = (Number) XContentMapValues.extractValue("n", (Map<String, Object>) vars.get("_source"));
+                return n.intValue() % 3 == 0;
+            });
+            return scripts;
+        }
+    }
+
+    public void testScriptsReadingSourceUseSequentialSearch() throws Exception {
+        assertAcked(prepareCreate("index").addMapping("type", "n", "type=integer")
+            .setSettings(Settings.builder()
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0)
+                .put(MergePolicyConfig.INDEX_MERGE_ENABLED, false)
+                .put(IndexSettings.CONCURRENT_SEGMENT_SEARCH_SETTING.getKey(), true)));
+        // one segment per document, so that the shard is searched in several slices
+        final int numDocs = randomIntBetween(20, 40);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex("index", "type", Integer.toString(i)).setSource("n", i).get();
+            refresh();
+        }
+
+        // a plain query is searched concurrently
+        final long completedBefore = completedSearchWorkerTasks();
+        SearchResponse response = client().prepareSearch("index").setQuery(QueryBuilders.matchAllQuery())
+            .addSort("n", SortOrder.DESC).setSize(3).get();
+        assertSearchResponse(response);
+        assertHitCount(response, numDocs);
+        assertThat(completedSearchWorkerTasks(), greaterThan(completedBefore));
+
+        // scripts of the query and of the sort read the source of the current document of the lookup that all slices would share
+        final long completedAfterPlainSearch = completedSearchWorkerTasks();
+        final Script filter = new Script("_source.n % 3 == 0", ScriptType.INLINE, CustomScriptPlugin.NAME, null);
+        final Script sort = new Script("_source.n", ScriptType.INLINE, CustomScriptPlugin.NAME, null);
+        for (int i = 0; i < 5; i++) {
+            response = client().prepareSearch("index").setQuery(QueryBuilders.scriptQuery(filter))
+                .addSort(SortBuilders.scriptSort(sort, ScriptSortBuilder.ScriptSortType.NUMBER).order(SortOrder.DESC))
+                .setSize(numDocs).get();
+            assertSearchResponse(response);
+            assertHitCount(response, (numDocs + 2) / 3);
+            int expected = (numDocs - 1) / 3 * 3;
+            for (SearchHit hit : response.getHits().getHits()) {
+                assertThat(hit.getId(), equalTo(Integer.toString(expected)));
+                expected -= 3;
+            }
+        }
+        assertThat(completedSearchWorkerTasks(), equalTo(completedAfterPlainSearch));
+    }
+
+    public void testAggregationsAreCollectedConcurrently() throws Exception {
+        createTestIndex("concurrent", true);
+        createTestIndex("sequential", false);
+        // one segment per document, so that the concurrent index is searched in several slices
+        final int numDocs = randomIntBetween(20, 40);
+        for (int i = 0; i < numDocs; i++) {
+            for (String index : new String[] {"concurrent", "sequential"}) {
+                client().prepareIndex(index, "type", Integer.toString(i))
+                    .setSource("n", i, "date", 1483228800000L + i * 15 * 60 * 1000, "tag", "tag" + (i % 3)).get();
+            }
+            refresh();
+        }
+
+        // terms aggregations keep all buckets on a partial reduce, so they are collected sequentially
+        final long completedBefore = completedSearchWorkerTasks();
+        SearchResponse response = client().prepareSearch("concurrent").setSize(0).addAggregation(terms("tags").field("tag")).get();
+        assertSearchResponse(response);
+        assertThat(((Terms) response.getAggregations().get("tags")).getBuckets().size(), equalTo(3));
+        assertThat(completedSearchWorkerTasks(), equalTo(completedBefore));
+
+        final SearchResponse[] responses = new SearchResponse[2];
+        final String[] indices = new String[] {"concurrent", "sequential"};
+        for (int i = 0; i < indices.length; i++) {
+            responses[i] = client().prepareSearch(indices[i])
+                .setQuery(QueryBuilders.rangeQuery("n").gte(2))
+                .setSize(randomBoolean() ? 0 : 3)
+                .addAggregation(histogram("histogram").field("n").interval(5).subAggregation(avg("avg").field("n")))
+                .addAggregation(dateHistogram("dates").field("date").dateHistogramInterval(DateHistogramInterval.HOUR))
+                .addAggregation(range("range").field("n").addUnboundedTo(10).addUnboundedFrom(10))
+                .addAggregation(filters("filters", new KeyedFilter("even", QueryBuilders.termsQuery("n", new int[] {2, 4, 6, 8})))
+                    .subAggregation(stats("stats").field("n")))
+                .addAggregation(stats("stats").field("n"))
+                .addAggregation(cardinality("cardinality").field("tag"))
+                .get();
+            assertSearchResponse(responses[i]);
+        }
+        assertThat(completedSearchWorkerTasks(), greaterThan(completedBefore));
+
+        final Aggregations concurrent = responses[0].getAggregations();
+        final Aggregations sequential = responses[1].getAggregations();
+        assertThat(responses[0].getHits().getTotalHits(), equalTo(responses[1].getHits().getTotalHits()));
+        for (String name : new String[] {"histogram", "dates"}) {
+            List<? extends Histogram.Bucket> concurrentBuckets = ((Histogram) concurrent.get(name)).getBuckets();
+            List<? extends Histogram.Bucket> sequentialBuckets = ((Histogram) sequential.get(name)).getBuckets();
+            assertThat(concurrentBuckets.size(), equalTo(sequentialBuckets.size()));
+            for (int i = 0; i < concurrentBuckets.size(); i++) {
+                assertThat(concurrentBuckets.get(i).getKeyAsString(), equalTo(sequentialBuckets.get(i).getKeyAsString()));
+                assertThat(concurrentBuckets.get(i).getDocCount(), equalTo(sequentialBuckets.get(i).getDocCount()));
+            }
+        }
+        List<? extends Histogram.Bucket> histogramBuckets = ((Histogram) concurrent.get("histogram")).getBuckets();
+        for (int i = 0; i < histogramBuckets.size(); i++) {
+            Avg concurrentAvg = histogramBuckets.get(i).getAggregations().get("avg");
+            Avg sequentialAvg = ((Histogram) sequential.get("histogram")).getBuckets().get(i).getAggregations().get("avg");
+            assertThat(concurrentAvg.getValue(), equalTo(sequentialAvg.getValue()));
+        }
+        List<? extends Range.Bucket> concurrentRanges = ((Range) concurrent.get("range")).getBuckets();
+        List<? extends Range.Bucket> sequentialRanges = ((Range) sequential.get("range")).getBuckets();
+        for (int i = 0; i < concurrentRanges.size(); i++) {
+            assertThat(concurrentRanges.get(i).getDocCount(), equalTo(sequentialRanges.get(i).getDocCount()));
+        }
+        Filters.Bucket concurrentEven = ((Filters) concurrent.get("filters")).getBucketByKey("even");
+        Filters.Bucket sequentialEven = ((Filters) sequential.get("filters")).getBucketByKey("even");
+        assertThat(concurrentEven.getDocCount(), equalTo(4L));
+        assertThat(concurrentEven.getDocCount(), equalTo(sequentialEven.getDocCount()));
+        assertStats(concurrentEven.getAggregations().get("stats"), sequentialEven.getAggregations().get("stats"));
+        assertStats(concurrent.get("stats"), sequential.get("stats"));
+        assertThat(((Stats) concurrent.get("stats")).getCount(), equalTo((long) numDocs - 2));
+        assertThat(((Cardinality) concurrent.get("cardinality")).getValue(), equalTo(3L));
+    }
+
+    private static void assertStats(Stats concurrent, Stats sequential) {
+        assertThat(concurrent.getCount(), equalTo(sequential.getCount()));
+        assertThat(concurrent.getMin(), equalTo(sequential.getMin()));
+        assertThat(concurrent.getMax(), equalTo(sequential.getMax()));
+        assertThat(concurrent.getSum(), equalTo(sequential.getSum()));
+    }
+
+    private void createTestIndex(String index, boolean concurrentSegmentSearch) {
+        assertAcked(prepareCreate(index).addMapping("type", "n", "type=integer", "date", "type=date", "tag", "type=keyword")
+            .setSettings(Settings.builder()
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0)
+                .put(MergePolicyConfig.INDEX_MERGE_ENABLED, false)
+                .put(IndexSettings.CONCURRENT_SEGMENT_SEARCH_SETTING.getKey(), concurrentSegmentSearch)));
+    }
+
+    private static long completedSearchWorkerTasks() {
+        long completed = 0;
+        for (NodeStats nodeStats : client().admin().cluster().prepareNodesStats().clear().setThreadPool(true).get().getNodes()) {
+            for (ThreadPoolStats.Stats stats : nodeStats.getThreadPool()) {
+                if (stats.getName().equals(ThreadPool.Names.SEARCH_WORKER)) {
+                    completed += stats.getCompleted();
+                }
+            }
+        }
+        return completed;
+    }
+}
@@ -21,6 +21,7 @@ package org.elasticsearch.search.query;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriterConfig;
@@ -37,17 +38,33 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.query.ParsedQuery;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.search.rescore.RescoreSearchContext;
+import org.elasticsearch.search.sort.SortAndFormats;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.TestSearchContext;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import static org.mockito.Mockito.mock;
+
 public class QueryPhaseTests extends ESTestCase {
 
     private void countTestCase(Query query, IndexReader reader, boolean shouldCollect) throws Exception {
@@ -165,4 +182,97 @@ public class QueryPhaseTests extends ESTestCase {
         assertTrue(collected.get());
     }
 
+    public void testConcurrentSlicesMatchSequentialSearch() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+        final int numDocs = scaledRandomIntBetween(200, 500);
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            for (String value : new String[] {"a", "b", "c"}) {
+                if (randomBoolean()) {
+                    doc.add(new StringField("foo", value, Store.NO));
+                }
+            }
+            doc.add(new NumericDocValuesField("rank", randomIntBetween(0, 50)));
+            w.addDocument(doc);
+            if (rarely()) {
+                w.commit();
+            }
+        }
+        // make sure there are enough segments to get several slices
+        for (int i = 0; i < 20; ++i) {
+            w.addDocument(new Document());
+            w.commit();
+        }
+        final IndexReader reader = w.getReader();
+        final ExecutorService executor = Executors.newFixedThreadPool(randomIntBetween(1, 4));
+        try {
+            final ContextIndexSearcher sequentialSearcher = new ContextIndexSearcher(new Engine.Searcher("test", new IndexSearcher(reader)),
+                null, IndexSearcher.getDefaultQueryCachingPolicy());
+            final ContextIndexSearcher concurrentSearcher = new ContextIndexSearcher(new Engine.Searcher("test", new IndexSearcher(reader)),
+                null, IndexSearcher.getDefaultQueryCachingPolicy());
+            concurrentSearcher.setSliceExecutor(executor);
+            assertTrue(concurrentSearcher.hasConcurrentSlices());
+            assertFalse(sequentialSearcher.hasConcurrentSlices());
+
+            final Query query = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term("foo", "a")), Occur.SHOULD)
+                .add(new TermQuery(new Term("foo", "b")), Occur.SHOULD)
+                .add(new TermQuery(new Term("foo", "c")), Occur.SHOULD)
+                .build();
+            final int size = randomIntBetween(1, numDocs);
+            final SortAndFormats sort = randomBoolean() ? null :
+                new SortAndFormats(new Sort(new SortField("rank", SortField.Type.LONG)), new DocValueFormat[] {DocValueFormat.RAW});
+            final ParsedQuery postFilter = randomBoolean() ? null : new ParsedQuery(new TermQuery(new Term("foo", "a")));
+
+            final TopDocs expected = searchTopDocs(sequentialSearcher, query, size, sort, postFilter);
+            final TopDocs actual = searchTopDocs(concurrentSearcher, query, size, sort, postFilter);
+            assertEquals(expected.totalHits, actual.totalHits);
+            assertEquals(expected.getMaxScore(), actual.getMaxScore(), 0f);
+            assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+            for (int i = 0; i < expected.scoreDocs.length; i++) {
+                assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+                assertEquals(expected.scoreDocs[i].score, actual.scoreDocs[i].score, 0f);
+                assertEquals(expected.scoreDocs[i].shardIndex, actual.scoreDocs[i].shardIndex);
+            }
+        } finally {
+            terminate(executor);
+            reader.close();
+            w.close();
+            dir.close();
+        }
+    }
+
+    private static TopDocs searchTopDocs(ContextIndexSearcher searcher, Query query, int size, SortAndFormats sort,
+                                         ParsedQuery postFilter) throws Exception {
+        final ShardSearchRequest request = mock(ShardSearchRequest.class);
+        TestSearchContext context = new TestSearchContext(null) {
+            @Override
+            public List<RescoreSearchContext> rescore() {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public TimeValue timeout() {
+                return SearchService.NO_TIMEOUT;
+            }
+
+            @Override
+            public SortAndFormats sort() {
+                return sort;
+            }
+
+            @Override
+            public ShardSearchRequest request() {
+                return request;
+            }
+        };
+        context.parsedQuery(new ParsedQuery(query));
+        context.parsedPostFilter(postFilter);
+        context.setSize(size);
+        QueryPhase.execute(context, searcher);
+        assertFalse(context.queryResult().searchTimedOut());
+        return context.queryResult().topDocs();
+    }
 }
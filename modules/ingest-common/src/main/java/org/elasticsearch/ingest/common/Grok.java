@@ -19,6 +19,8 @@
 
 package org.elasticsearch.ingest.common;
 
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.cache.Cache;
 import org.jcodings.specific.UTF8Encoding;
 import org.joni.Matcher;
 import org.joni.NameEntry;
@@ -29,10 +31,13 @@ import org.joni.Syntax;
 import org.joni.exception.ValueException;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 final class Grok {
 
@@ -58,20 +63,46 @@ final class Grok {
     private final boolean namedCaptures;
     private final Regex compiledExpression;
     private final String expression;
+    // the literal prefixes one of which the text must start with in order to match, null if the expression isn't anchored
+    private final byte[][] anchoredPrefixes;
 
 
     public Grok(Map<String, String> patternBank, String grokPattern) {
         this(patternBank, grokPattern, true);
     }
 
-    @SuppressWarnings("unchecked")
     public Grok(Map<String, String> patternBank, String grokPattern, boolean namedCaptures) {
+        this(patternBank, grokPattern, namedCaptures, null);
+    }
+
+    /**
+     * @param regexCache a cache of compiled expressions keyed by the regex the grok pattern expands to, that is shared
+     *                   with other grok instances. May be <code>null</code> in which case the expression is always compiled.
+     */
+    Grok(Map<String, String> patternBank, String grokPattern, boolean namedCaptures, Cache<String, Regex> regexCache) {
         this.patternBank = patternBank;
         this.namedCaptures = namedCaptures;
 
         this.expression = toRegex(grokPattern);
+        if (regexCache == null) {
+            this.compiledExpression = compile(expression);
+        } else {
+            try {
+                this.compiledExpression = regexCache.computeIfAbsent(expression, Grok::compile);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new ElasticsearchException(cause);
+            }
+        }
+        this.anchoredPrefixes = anchoredPrefixes(expression);
+    }
+
+    private static Regex compile(String expression) {
         byte[] expressionBytes = expression.getBytes(StandardCharsets.UTF_8);
-        this.compiledExpression = new Regex(expressionBytes, 0, expressionBytes.length, Option.DEFAULT, UTF8Encoding.INSTANCE);
+        return new Regex(expressionBytes, 0, expressionBytes.length, Option.DEFAULT, UTF8Encoding.INSTANCE);
     }
 
 
@@ -126,13 +157,20 @@ final class Grok {
     }
 
     public boolean match(String text) {
-        Matcher matcher = compiledExpression.matcher(text.getBytes(StandardCharsets.UTF_8));
+        byte[] textAsBytes = text.getBytes(StandardCharsets.UTF_8);
+        if (cannotMatch(textAsBytes)) {
+            return false;
+        }
+        Matcher matcher = compiledExpression.matcher(textAsBytes);
         int result = matcher.search(0, text.length(), Option.DEFAULT);
         return (result != -1);
     }
 
     public Map<String, Object> captures(String text) {
         byte[] textAsBytes = text.getBytes(StandardCharsets.UTF_8);
+        if (cannotMatch(textAsBytes)) {
+            return null;
+        }
         Map<String, Object> fields = new HashMap<>();
         Matcher matcher = compiledExpression.matcher(textAsBytes);
         int result = matcher.search(0, textAsBytes.length, Option.DEFAULT);
@@ -157,5 +195,193 @@ final class Grok {
         }
         return null;
     }
-}
 
+    /**
+     * Returns true if the text can be rejected without running the regex because the expression is anchored at the start
+     * and the text starts with none of its literal prefixes. Since <code>^</code> also matches at the start of every line,
+     * texts spanning several lines are always handed to the regex.
+     */
+    private boolean cannotMatch(byte[] text) {
+        if (anchoredPrefixes == null) {
+            return false;
+        }
+        for (byte[] prefix : anchoredPrefixes) {
+            if (startsWith(text, prefix)) {
+                return false;
+            }
+        }
+        for (byte b : text) {
+            if (b == '\n') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWith(byte[] text, byte[] prefix) {
+        if (text.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (text[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Extracts the literal text that follows the <code>^</code> anchor of each top-level alternative of the given regex,
+     * looking through groups that open an alternative. Returns <code>null</code> if any alternative isn't anchored,
+     * doesn't start with a literal, or uses a construct this simple scan doesn't understand.
+     */
+    static byte[][] anchoredPrefixes(String expression) {
+        List<String> alternatives = splitTopLevelAlternatives(expression);
+        if (alternatives == null) {
+            return null;
+        }
+        byte[][] prefixes = new byte[alternatives.size()][];
+        for (int i = 0; i < prefixes.length; i++) {
+            String prefix = anchoredPrefix(alternatives.get(i));
+            if (prefix == null || prefix.isEmpty()) {
+                return null;
+            }
+            prefixes[i] = prefix.getBytes(StandardCharsets.UTF_8);
+        }
+        return prefixes;
+    }
+
+    private static List<String> splitTopLevelAlternatives(String expression) {
+        List<String> alternatives = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                i = skipCharacterClass(expression, i);
+                if (i == -1) {
+                    return null;
+                }
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                if (--depth < 0) {
+                    return null;
+                }
+            } else if (c == '|' && depth == 0) {
+                alternatives.add(expression.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (depth != 0) {
+            return null;
+        }
+        alternatives.add(expression.substring(start));
+        return alternatives;
+    }
+
+    /**
+     * Returns the index of the bracket that closes the character class opened at the given index, or -1 if the class
+     * starts with a closing bracket or isn't closed.
+     */
+    private static int skipCharacterClass(String expression, int open) {
+        int depth = 0;
+        for (int i = open; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                depth++;
+                int next = expression.startsWith("^", i + 1) ? i + 2 : i + 1;
+                if (expression.startsWith("]", next)) {
+                    return -1;
+                }
+            } else if (c == ']') {
+                if (--depth == 0) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static String anchoredPrefix(String alternative) {
+        int i = 0;
+        // look through non-capturing and named groups that wrap the alternative as long as they are not quantified
+        while (alternative.startsWith("(?:", i) || alternative.startsWith("(?<", i)) {
+            int close = closingParenthesis(alternative, i);
+            if (close == -1 || isQuantifier(alternative, close + 1)) {
+                return null;
+            }
+            if (alternative.startsWith("(?:", i)) {
+                i += 3;
+            } else {
+                int nameEnd = alternative.indexOf('>', i);
+                // lookbehinds are written as (?<= and (?<!
+                if (nameEnd == -1 || nameEnd > close || alternative.startsWith("(?<=", i) || alternative.startsWith("(?<!", i)) {
+                    return null;
+                }
+                i = nameEnd + 1;
+            }
+            // an alternation within the group means that the anchor is only part of one of its branches
+            List<String> groupAlternatives = splitTopLevelAlternatives(alternative.substring(i, close));
+            if (groupAlternatives == null || groupAlternatives.size() > 1) {
+                return null;
+            }
+        }
+        if (alternative.startsWith("^", i) == false) {
+            return null;
+        }
+        i++;
+        StringBuilder prefix = new StringBuilder();
+        while (i < alternative.length()) {
+            int c = alternative.codePointAt(i);
+            if (c == '\\') {
+                if (i + 1 >= alternative.length() || Character.isLetterOrDigit(alternative.charAt(i + 1))) {
+                    // character classes, anchors and back references
+                    break;
+                }
+                c = alternative.codePointAt(i + 1);
+                i += 1 + Character.charCount(c);
+            } else if ("^$.|?*+()[]{}".indexOf(c) == -1) {
+                i += Character.charCount(c);
+            } else {
+                break;
+            }
+            if (isQuantifier(alternative, i)) {
+                // the last literal is optional or repeated, so it doesn't belong to the prefix
+                break;
+            }
+            prefix.appendCodePoint(c);
+        }
+        return prefix.toString();
+    }
+
+    private static int closingParenthesis(String expression, int open) {
+        int depth = 0;
+        for (int i = open; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                i = skipCharacterClass(expression, i);
+                if (i == -1) {
+                    return -1;
+                }
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                if (--depth == 0) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isQuantifier(String expression, int index) {
+        return index < expression.length() && "?*+{".indexOf(expression.charAt(index)) != -1;
+    }
+}
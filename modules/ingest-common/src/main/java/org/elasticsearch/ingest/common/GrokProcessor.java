@@ -19,10 +19,12 @@
 
 package org.elasticsearch.ingest.common;
 
+import org.elasticsearch.common.cache.Cache;
 import org.elasticsearch.ingest.AbstractProcessor;
 import org.elasticsearch.ingest.ConfigurationUtils;
 import org.elasticsearch.ingest.IngestDocument;
 import org.elasticsearch.ingest.Processor;
+import org.joni.Regex;
 
 import java.util.HashMap;
 import java.util.List;
@@ -45,9 +47,14 @@ public final class GrokProcessor extends AbstractProcessor {
     }
 
     public GrokProcessor(String tag, Map<String, String> patternBank, List<String> matchPatterns, String matchField, boolean traceMatch) {
+        this(tag, patternBank, matchPatterns, matchField, traceMatch, null);
+    }
+
+    GrokProcessor(String tag, Map<String, String> patternBank, List<String> matchPatterns, String matchField, boolean traceMatch,
+                  Cache<String, Regex> regexCache) {
         super(tag);
         this.matchField = matchField;
-        this.grok = new Grok(patternBank, combinePatterns(matchPatterns, traceMatch));
+        this.grok = new Grok(patternBank, combinePatterns(matchPatterns, traceMatch), true, regexCache);
         this.traceMatch = traceMatch;
     }
 
@@ -117,9 +124,19 @@ public final class GrokProcessor extends AbstractProcessor {
     public static final class Factory implements Processor.Factory {
 
         private final Map<String, String> builtinPatterns;
+        private final Cache<String, Regex> regexCache;
 
         public Factory(Map<String, String> builtinPatterns) {
+            this(builtinPatterns, null);
+        }
+
+        /**
+         * @param regexCache the node wide cache of compiled grok expressions, so that processors that expand to the same
+         *                   regex share a single compiled instance, also across rebuilds of the pipelines
+         */
+        public Factory(Map<String, String> builtinPatterns, Cache<String, Regex> regexCache) {
             this.builtinPatterns = builtinPatterns;
+            this.regexCache = regexCache;
         }
 
         @Override
@@ -133,13 +150,14 @@ public final class GrokProcessor extends AbstractProcessor {
                 throw newConfigurationException(TYPE, processorTag, "patterns", "List of patterns must not be empty");
             }
             Map<String, String> customPatternBank = ConfigurationUtils.readOptionalMap(TYPE, processorTag, config, "pattern_definitions");
-            Map<String, String> patternBank = new HashMap<>(builtinPatterns);
+            Map<String, String> patternBank = builtinPatterns;
             if (customPatternBank != null) {
+                patternBank = new HashMap<>(builtinPatterns);
                 patternBank.putAll(customPatternBank);
             }
 
             try {
-                return new GrokProcessor(processorTag, patternBank, matchPatterns, matchField, traceMatch);
+                return new GrokProcessor(processorTag, patternBank, matchPatterns, matchField, traceMatch, regexCache);
             } catch (Exception e) {
                 throw newConfigurationException(TYPE, processorTag, "patterns",
                     "Invalid regex pattern found in: " + matchPatterns + ". " + e.getMessage());
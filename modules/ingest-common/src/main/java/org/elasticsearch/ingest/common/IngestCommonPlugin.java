@@ -26,14 +26,25 @@ import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.ingest.Processor;
 import org.elasticsearch.plugins.IngestPlugin;
 import org.elasticsearch.plugins.Plugin;
+import org.joni.Regex;
 
 public class IngestCommonPlugin extends Plugin implements IngestPlugin {
 
+    /**
+     * The maximum number of compiled grok expressions that are kept on a node, <code>0</code> disables the cache.
+     */
+    public static final Setting<Integer> GROK_CACHE_SIZE =
+        Setting.intSetting("ingest.grok.cache_size", 1000, 0, Setting.Property.NodeScope);
+
     private final Map<String, String> builtinPatterns;
 
     public IngestCommonPlugin() throws IOException {
@@ -59,11 +70,21 @@ public class IngestCommonPlugin extends Plugin implements IngestPlugin {
         processors.put(ForEachProcessor.TYPE, new ForEachProcessor.Factory());
         processors.put(DateIndexNameProcessor.TYPE, new DateIndexNameProcessor.Factory());
         processors.put(SortProcessor.TYPE, new SortProcessor.Factory());
-        processors.put(GrokProcessor.TYPE, new GrokProcessor.Factory(builtinPatterns));
+        processors.put(GrokProcessor.TYPE, new GrokProcessor.Factory(builtinPatterns, createGrokCache(parameters)));
         processors.put(ScriptProcessor.TYPE, new ScriptProcessor.Factory(parameters.scriptService));
         return Collections.unmodifiableMap(processors);
     }
 
+    @Override
+    public List<Setting<?>> getSettings() {
+        return Collections.singletonList(GROK_CACHE_SIZE);
+    }
+
+    private static Cache<String, Regex> createGrokCache(Processor.Parameters parameters) {
+        int size = GROK_CACHE_SIZE.get(parameters.env.settings());
+        return size == 0 ? null : CacheBuilder.<String, Regex>builder().setMaximumWeight(size).build();
+    }
+
     // Code for loading built-in grok patterns packaged with the jar file:
 
     private static final String[] PATTERN_NAMES = new String[] {
@@ -20,7 +20,10 @@
 package org.elasticsearch.ingest.common;
 
 import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
 import org.elasticsearch.test.ESTestCase;
+import org.joni.Regex;
 
 import java.util.Collections;
 import java.util.HashMap;
@@ -101,4 +104,23 @@ public class GrokProcessorFactoryTests extends ESTestCase {
         assertThat(e.getMessage(),
             equalTo("[patterns] Invalid regex pattern found in: [%{MY_PATTERN:name}!]. premature end of char-class"));
     }
+
+    public void testBuildWithRegexCache() throws Exception {
+        Cache<String, Regex> cache = CacheBuilder.<String, Regex>builder().setMaximumWeight(10).build();
+        GrokProcessor.Factory factory = new GrokProcessor.Factory(Collections.singletonMap("WORD", "\\w+"), cache);
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> config = new HashMap<>();
+            config.put("field", "_field");
+            config.put("patterns", Collections.singletonList("%{WORD:foo}"));
+            GrokProcessor processor = factory.create(null, null, config);
+            assertThat(processor.getGrok().match("bar"), equalTo(true));
+        }
+        assertThat(cache.count(), equalTo(1));
+
+        Map<String, Object> config = new HashMap<>();
+        config.put("field", "_field");
+        config.put("patterns", Collections.singletonList("%{WORD:foo}!"));
+        factory.create(null, null, config);
+        assertThat(cache.count(), equalTo(2));
+    }
 }
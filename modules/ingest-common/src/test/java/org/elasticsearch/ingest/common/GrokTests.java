@@ -19,17 +19,24 @@
 
 package org.elasticsearch.ingest.common;
 
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
 import org.elasticsearch.test.ESTestCase;
+import org.joni.Regex;
 import org.junit.Before;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 
 
@@ -307,4 +314,56 @@ public class GrokTests extends ESTestCase {
         Grok grok = new Grok(bank, "%{MONTHDAY:greatday}");
         assertThat(grok.captures("nomatch"), nullValue());
     }
+
+    public void testAnchoredPrefixes() {
+        assertThat(prefixes("^GET /"), equalTo(Collections.singletonList("GET /")));
+        assertThat(prefixes("^\\[INFO\\] (?<message>.*)"), equalTo(Collections.singletonList("[INFO] ")));
+        assertThat(prefixes("^abc?"), equalTo(Collections.singletonList("ab")));
+        assertThat(prefixes("^ab\\d+"), equalTo(Collections.singletonList("ab")));
+        assertThat(prefixes("(?:^GET )|(?:^POST )"), equalTo(Arrays.asList("GET ", "POST ")));
+        assertThat(prefixes("(?<_ingest._grok_match_index.0>^GET )|(?<_ingest._grok_match_index.1>^PUT )"),
+            equalTo(Arrays.asList("GET ", "PUT ")));
+
+        // not anchored, or the anchor is optional or only part of some of the alternatives
+        assertThat(Grok.anchoredPrefixes("GET /"), nullValue());
+        assertThat(Grok.anchoredPrefixes("^GET |POST "), nullValue());
+        assertThat(Grok.anchoredPrefixes("(?:^GET )?POST "), nullValue());
+        assertThat(Grok.anchoredPrefixes("(?:^GET |POST )"), nullValue());
+        assertThat(Grok.anchoredPrefixes("(?i)^GET "), nullValue());
+        assertThat(Grok.anchoredPrefixes("^\\d+"), nullValue());
+        assertThat(Grok.anchoredPrefixes("^a+"), nullValue());
+        assertThat(Grok.anchoredPrefixes("[|]^GET "), nullValue());
+    }
+
+    public void testAnchoredPrefixMismatch() {
+        Grok grok = new Grok(basePatterns, "^GET %{URIPATH:path}");
+        assertThat(grok.captures("GET /index.html").get("path"), equalTo("/index.html"));
+        assertThat(grok.captures("POST /index.html"), nullValue());
+        assertThat(grok.match("POST /index.html"), is(false));
+        assertThat(grok.captures("GE"), nullValue());
+        // the anchor also matches at the start of every line
+        assertThat(grok.captures("POST /index.html\nGET /other.html").get("path"), equalTo("/other.html"));
+    }
+
+    public void testSharedRegexCache() {
+        Cache<String, Regex> cache = CacheBuilder.<String, Regex>builder().setMaximumWeight(10).build();
+        Grok first = new Grok(basePatterns, "%{IP:client} %{WORD:method}", true, cache);
+        Grok second = new Grok(basePatterns, "%{IP:client} %{WORD:method}", true, cache);
+        Grok other = new Grok(basePatterns, "%{IP:client}", true, cache);
+        assertThat(cache.count(), equalTo(2));
+        assertThat(cache.stats().getHits(), equalTo(1L));
+        assertThat(first.captures("127.0.0.1 GET").get("method"), equalTo("GET"));
+        assertThat(second.captures("127.0.0.1 GET").get("method"), equalTo("GET"));
+        assertThat(other.captures("127.0.0.1").get("client"), equalTo("127.0.0.1"));
+    }
+
+    private static List<String> prefixes(String expression) {
+        byte[][] prefixes = Grok.anchoredPrefixes(expression);
+        assertThat(prefixes, notNullValue());
+        List<String> result = new ArrayList<>();
+        for (byte[] prefix : prefixes) {
+            result.add(new String(prefix, StandardCharsets.UTF_8));
+        }
+        return result;
+    }
 }
@@ -32,11 +32,18 @@ final class ByteBufBytesReference extends BytesReference {
     private final ByteBuf buffer;
     private final int length;
     private final int offset;
+    // true if the transport keeps the buffer until the request read from it has been handled, see StreamInput#readSharedBytesReference
+    private final boolean shareable;
 
     ByteBufBytesReference(ByteBuf buffer, int length) {
+        this(buffer, length, false);
+    }
+
+    ByteBufBytesReference(ByteBuf buffer, int length, boolean shareable) {
         this.buffer = buffer;
         this.length = length;
         this.offset = buffer.readerIndex();
+        this.shareable = shareable;
         assert length <= buffer.readableBytes() : "length[" + length +"] > " + buffer.readableBytes();
     }
 
@@ -52,12 +59,12 @@ final class ByteBufBytesReference extends BytesReference {
 
     @Override
     public BytesReference slice(int from, int length) {
-        return new ByteBufBytesReference(buffer.slice(offset + from, length), length);
+        return new ByteBufBytesReference(buffer.slice(offset + from, length), length, shareable);
     }
 
     @Override
     public StreamInput streamInput() {
-        return new ByteBufStreamInput(buffer.duplicate(), length);
+        return new ByteBufStreamInput(buffer.duplicate(), length, shareable);
     }
 
     @Override
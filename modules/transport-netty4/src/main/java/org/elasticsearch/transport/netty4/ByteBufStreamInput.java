@@ -34,17 +34,37 @@ class ByteBufStreamInput extends StreamInput {
     private final ByteBuf buffer;
     private final int startIndex;
     private final int endIndex;
+    private final boolean shareable;
 
     public ByteBufStreamInput(ByteBuf buffer, int length) {
+        this(buffer, length, false);
+    }
+
+    /**
+     * @param shareable whether the buffer is kept until the request read from it has been handled, in which case
+     *                  {@link #readSharedBytesReference()} returns slices of the buffer instead of copies
+     */
+    public ByteBufStreamInput(ByteBuf buffer, int length, boolean shareable) {
         if (length > buffer.readableBytes()) {
             throw new IndexOutOfBoundsException();
         }
         this.buffer = buffer;
+        this.shareable = shareable;
         startIndex = buffer.readerIndex();
         endIndex = startIndex + length;
         buffer.markReaderIndex();
     }
 
+    @Override
+    public BytesReference readSharedBytesReference() throws IOException {
+        final int length = readVInt();
+        if (shareable) {
+            return readBytesReference(length);
+        }
+        // the buffer might be reused as soon as the message has been read, so the bytes must be copied out of it
+        return super.readBytesReference(length);
+    }
+
     @Override
     public BytesReference readBytesReference(int length) throws IOException {
         BytesReference ref = Netty4Utils.toBytesReference(buffer.slice(buffer.readerIndex(), length));
@@ -28,6 +28,7 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.transport.TcpHeader;
 import org.elasticsearch.transport.TransportServiceAdapter;
 import org.elasticsearch.transport.Transports;
+import org.elasticsearch.transport.support.TransportStatus;
 
 import java.net.InetSocketAddress;
 
@@ -63,18 +64,23 @@ final class Netty4MessageChannelHandler extends ChannelDuplexHandler {
             ctx.fireChannelRead(msg);
             return;
         }
+        // a retained slice holding exactly one message, see Netty4SizeHeaderFrameDecoder
         final ByteBuf buffer = (ByteBuf) msg;
-        final int remainingMessageSize = buffer.getInt(buffer.readerIndex() - TcpHeader.MESSAGE_LENGTH_SIZE);
-        final int expectedReaderIndex = buffer.readerIndex() + remainingMessageSize;
+        final int messageSize = buffer.readableBytes();
         InetSocketAddress remoteAddress = (InetSocketAddress) ctx.channel().remoteAddress();
+        boolean handedOver = false;
         try {
-            // netty always copies a buffer, either in NioWorker in its read handler, where it copies to a fresh
-            // buffer, or in the cumulation buffer, which is cleaned each time so it could be bigger than the actual size
-            BytesReference reference = Netty4Utils.toBytesReference(buffer, remainingMessageSize);
-            transport.messageReceived(reference, ctx.channel(), profileName, remoteAddress, remainingMessageSize);
+            // requests can read their payloads as slices of the buffer since the transport only releases it once a response has
+            // been sent, responses however may be used for an unbounded time after they were read, so their payloads are copied
+            final byte status = buffer.getByte(buffer.readerIndex() + TcpHeader.REQUEST_ID_SIZE);
+            final BytesReference reference = new ByteBufBytesReference(buffer, messageSize, TransportStatus.isRequest(status));
+            // from here on the transport takes care of releasing the buffer
+            handedOver = true;
+            transport.messageReceived(reference, ctx.channel(), profileName, remoteAddress, messageSize, buffer::release);
         } finally {
-            // Set the expected position of the buffer, no matter what happened
-            buffer.readerIndex(expectedReaderIndex);
+            if (handedOver == false) {
+                buffer.release();
+            }
         }
     }
 
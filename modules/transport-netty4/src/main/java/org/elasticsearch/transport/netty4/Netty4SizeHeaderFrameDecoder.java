@@ -34,9 +34,13 @@ final class Netty4SizeHeaderFrameDecoder extends ByteToMessageDecoder {
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
         try {
             boolean continueProcessing = TcpTransport.validateMessageHeader(Netty4Utils.toBytesReference(in));
-            final ByteBuf message = in.skipBytes(TcpHeader.MARKER_BYTES_SIZE + TcpHeader.MESSAGE_LENGTH_SIZE);
+            in.skipBytes(TcpHeader.MARKER_BYTES_SIZE + TcpHeader.MESSAGE_LENGTH_SIZE);
             if (!continueProcessing) return;
-            out.add(message);
+            final int messageLength = in.getInt(in.readerIndex() - TcpHeader.MESSAGE_LENGTH_SIZE);
+            // hand out a retained slice rather than the cumulation buffer itself so that the message outlives this call: requests
+            // may keep slices of it until they have been handled, and Netty does not reuse a cumulation buffer that is still
+            // referenced; the message handler is responsible for releasing the slice
+            out.add(in.readRetainedSlice(messageLength));
         } catch (IllegalArgumentException ex) {
             throw new TooLongFrameException(ex);
         } catch (IllegalStateException ex) {
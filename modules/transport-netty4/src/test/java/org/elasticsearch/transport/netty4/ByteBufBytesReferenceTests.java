@@ -22,7 +22,9 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.bytes.AbstractBytesReferenceTestCase;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 
 import java.io.IOException;
@@ -76,4 +78,24 @@ public class ByteBufBytesReferenceTests extends AbstractBytesReferenceTestCase {
         assertEquals(utf8ToString, byteBufBytesReference.utf8ToString());
     }
 
+    public void testReadSharedBytesReference() throws IOException {
+        byte[] payload = new byte[randomIntBetween(1, 3 * PAGE_SIZE)];
+        random().nextBytes(payload);
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeBytesReference(new BytesArray(payload));
+        BytesRef message = out.bytes().toBytesRef();
+
+        // a request may keep a slice of its message, so writes to the network buffer show through
+        ByteBuf buffer = Unpooled.wrappedBuffer(message.bytes, message.offset, message.length);
+        BytesReference shared = new ByteBufBytesReference(buffer, message.length, true).streamInput().readSharedBytesReference();
+        assertEquals(new BytesArray(payload), shared);
+        buffer.setByte(message.length - 1, ~payload[payload.length - 1]);
+        assertEquals((byte) ~payload[payload.length - 1], shared.get(payload.length - 1));
+
+        // any other message must not be referenced after it has been read, so its payloads are copied
+        buffer = Unpooled.wrappedBuffer(BytesRef.deepCopyOf(message).bytes);
+        BytesReference copied = new ByteBufBytesReference(buffer, message.length, false).streamInput().readSharedBytesReference();
+        buffer.setByte(message.length - 1, ~payload[payload.length - 1]);
+        assertEquals(new BytesArray(payload), copied);
+    }
 }
@@ -28,6 +28,7 @@ import org.elasticsearch.cluster.health.ClusterHealthStatus;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.network.NetworkModule;
 import org.elasticsearch.common.network.NetworkService;
 import org.elasticsearch.common.settings.Settings;
@@ -102,9 +103,9 @@ public class Netty4TransportIT extends ESNetty4IntegTestCase {
 
         protected String handleRequest(Channel channel, String profileName,
                                        StreamInput stream, long requestId, int messageLengthBytes, Version version,
-                                       InetSocketAddress remoteAddress) throws IOException {
+                                       InetSocketAddress remoteAddress, Releasable onRelease) throws IOException {
             String action = super.handleRequest(channel, profileName, stream, requestId, messageLengthBytes, version,
-                    remoteAddress);
+                    remoteAddress, onRelease);
             channelProfileName = TransportSettings.DEFAULT_PROFILE;
             return action;
         }
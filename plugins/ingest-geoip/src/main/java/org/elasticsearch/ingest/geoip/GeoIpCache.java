@@ -0,0 +1,120 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.ingest.geoip;
+
+import java.net.InetAddress;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import com.maxmind.geoip2.model.AbstractResponse;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+
+/**
+ * A node wide cache of database lookups, keyed by the ip address and the database file that was queried. Addresses that
+ * are not in a database are cached as well, so that repeatedly looking them up stays cheap.
+ */
+public final class GeoIpCache {
+
+    // a marker for addresses that the database doesn't know about since the cache doesn't accept null values
+    private static final Object NO_RESPONSE = new Object();
+
+    private final Cache<CacheKey, Object> cache;
+
+    /**
+     * @param maxSize the maximum number of lookups to keep, caching is disabled if <code>0</code>
+     */
+    public GeoIpCache(long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("geoip max cache size must be 0 or greater");
+        }
+        this.cache = maxSize == 0 ? null : CacheBuilder.<CacheKey, Object>builder().setMaximumWeight(maxSize).build();
+    }
+
+    /**
+     * Returns the cached response of the given database for the given ip address, and invokes the retrieve function
+     * on a cache miss. The retrieve function returns <code>null</code> if the address is not in the database, in which
+     * case <code>null</code> is returned as well.
+     */
+    @SuppressWarnings("unchecked")
+    <T extends AbstractResponse> T putIfAbsent(InetAddress ip, String databaseFile, Function<InetAddress, T> retrieveFunction) {
+        if (cache == null) {
+            return retrieveFunction.apply(ip);
+        }
+        final Object response;
+        try {
+            response = cache.computeIfAbsent(new CacheKey(ip, databaseFile), key -> {
+                T result = retrieveFunction.apply(key.ip);
+                return result == null ? NO_RESPONSE : result;
+            });
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ElasticsearchException(cause);
+        }
+        return response == NO_RESPONSE ? null : (T) response;
+    }
+
+    /**
+     * The number of lookups currently held by the cache.
+     */
+    public int count() {
+        return cache == null ? 0 : cache.count();
+    }
+
+    /**
+     * The hits, misses and evictions of the cache, or <code>null</code> if caching is disabled.
+     */
+    public Cache.CacheStats stats() {
+        return cache == null ? null : cache.stats();
+    }
+
+    private static final class CacheKey {
+
+        private final InetAddress ip;
+        private final String databaseFile;
+
+        private CacheKey(InetAddress ip, String databaseFile) {
+            this.ip = ip;
+            this.databaseFile = databaseFile;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return ip.equals(other.ip) && databaseFile.equals(other.databaseFile);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * ip.hashCode() + databaseFile.hashCode();
+        }
+    }
+}
@@ -62,14 +62,19 @@ public final class GeoIpProcessor extends AbstractProcessor {
     private final String field;
     private final String targetField;
     private final DatabaseReader dbReader;
+    private final String databaseFile;
     private final Set<Property> properties;
+    private final GeoIpCache cache;
 
-    GeoIpProcessor(String tag, String field, DatabaseReader dbReader, String targetField, Set<Property> properties) throws IOException {
+    GeoIpProcessor(String tag, String field, DatabaseReader dbReader, String databaseFile, String targetField,
+                   Set<Property> properties, GeoIpCache cache) throws IOException {
         super(tag);
         this.field = field;
         this.targetField = targetField;
         this.dbReader = dbReader;
+        this.databaseFile = databaseFile;
         this.properties = properties;
+        this.cache = cache;
     }
 
     @Override
@@ -80,18 +85,10 @@ public final class GeoIpProcessor extends AbstractProcessor {
         Map<String, Object> geoData;
         switch (dbReader.getMetadata().getDatabaseType()) {
             case CITY_DB_TYPE:
-                try {
-                    geoData = retrieveCityGeoData(ipAddress);
-                } catch (AddressNotFoundRuntimeException e) {
-                    geoData = Collections.emptyMap();
-                }
+                geoData = retrieveCityGeoData(ipAddress);
                 break;
             case COUNTRY_DB_TYPE:
-                try {
-                    geoData = retrieveCountryGeoData(ipAddress);
-                } catch (AddressNotFoundRuntimeException e) {
-                    geoData = Collections.emptyMap();
-                }
+                geoData = retrieveCountryGeoData(ipAddress);
                 break;
             default:
                 throw new ElasticsearchParseException("Unsupported database type [" + dbReader.getMetadata().getDatabaseType()
@@ -117,6 +114,10 @@ public final class GeoIpProcessor extends AbstractProcessor {
         return dbReader;
     }
 
+    String getDatabaseFile() {
+        return databaseFile;
+    }
+
     Set<Property> getProperties() {
         return properties;
     }
@@ -126,15 +127,19 @@ public final class GeoIpProcessor extends AbstractProcessor {
         if (sm != null) {
             sm.checkPermission(new SpecialPermission());
         }
-        CityResponse response = AccessController.doPrivileged((PrivilegedAction<CityResponse>) () -> {
-            try {
-                return dbReader.city(ipAddress);
-            } catch (AddressNotFoundException e) {
-                throw new AddressNotFoundRuntimeException(e);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        });
+        CityResponse response = cache.putIfAbsent(ipAddress, databaseFile, ip ->
+            AccessController.doPrivileged((PrivilegedAction<CityResponse>) () -> {
+                try {
+                    return dbReader.city(ip);
+                } catch (AddressNotFoundException e) {
+                    return null;
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        if (response == null) {
+            return Collections.emptyMap();
+        }
 
         Country country = response.getCountry();
         City city = response.getCity();
@@ -182,15 +187,19 @@ public final class GeoIpProcessor extends AbstractProcessor {
         if (sm != null) {
             sm.checkPermission(new SpecialPermission());
         }
-        CountryResponse response = AccessController.doPrivileged((PrivilegedAction<CountryResponse>) () -> {
-            try {
-                return dbReader.country(ipAddress);
-            } catch (AddressNotFoundException e) {
-                throw new AddressNotFoundRuntimeException(e);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        });
+        CountryResponse response = cache.putIfAbsent(ipAddress, databaseFile, ip ->
+            AccessController.doPrivileged((PrivilegedAction<CountryResponse>) () -> {
+                try {
+                    return dbReader.country(ip);
+                } catch (AddressNotFoundException e) {
+                    return null;
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        if (response == null) {
+            return Collections.emptyMap();
+        }
 
         Country country = response.getCountry();
         Continent continent = response.getContinent();
@@ -223,9 +232,11 @@ public final class GeoIpProcessor extends AbstractProcessor {
         static final Set<Property> DEFAULT_COUNTRY_PROPERTIES = EnumSet.of(Property.CONTINENT_NAME, Property.COUNTRY_ISO_CODE);
 
         private final Map<String, DatabaseReader> databaseReaders;
+        private final GeoIpCache cache;
 
-        public Factory(Map<String, DatabaseReader> databaseReaders) {
+        public Factory(Map<String, DatabaseReader> databaseReaders, GeoIpCache cache) {
             this.databaseReaders = databaseReaders;
+            this.cache = cache;
         }
 
         @Override
@@ -265,17 +276,7 @@ public final class GeoIpProcessor extends AbstractProcessor {
                 }
             }
 
-            return new GeoIpProcessor(processorTag, ipField, databaseReader, targetField, properties);
-        }
-    }
-
-    // Geoip2's AddressNotFoundException is checked and due to the fact that we need run their code
-    // inside a PrivilegedAction code block, we are forced to catch any checked exception and rethrow
-    // it with an unchecked exception.
-    private static final class AddressNotFoundRuntimeException extends RuntimeException {
-
-        public AddressNotFoundRuntimeException(Throwable cause) {
-            super(cause);
+            return new GeoIpProcessor(processorTag, ipField, databaseReader, databaseFile, targetField, properties, cache);
         }
     }
 
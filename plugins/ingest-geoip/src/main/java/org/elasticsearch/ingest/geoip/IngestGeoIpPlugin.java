@@ -29,19 +29,33 @@ import java.nio.file.StandardOpenOption;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 import java.util.zip.GZIPInputStream;
 
+import com.maxmind.db.Reader;
 import com.maxmind.geoip2.DatabaseReader;
 import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.SuppressForbidden;
+import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.ingest.Processor;
 import org.elasticsearch.plugins.IngestPlugin;
 import org.elasticsearch.plugins.Plugin;
 
 public class IngestGeoIpPlugin extends Plugin implements IngestPlugin, Closeable {
 
+    public static final Setting<Long> CACHE_SIZE =
+        Setting.longSetting("ingest.geoip.cache_size", 1000, 0, Setting.Property.NodeScope);
+
     private Map<String, DatabaseReader> databaseReaders;
+    // holds the decompressed copies of the gzipped databases so that they can be memory mapped
+    private Path databaseDirectory;
+
+    @Override
+    public List<Setting<?>> getSettings() {
+        return Collections.singletonList(CACHE_SIZE);
+    }
 
     @Override
     public Map<String, Processor.Factory> getProcessors(Processor.Parameters parameters) {
@@ -49,40 +63,70 @@ public class IngestGeoIpPlugin extends Plugin implements IngestPlugin, Closeable
             throw new IllegalStateException("called onModule twice for geoip plugin!!");
         }
         Path geoIpConfigDirectory = parameters.env.configFile().resolve("ingest-geoip");
+        GeoIpCache cache = new GeoIpCache(CACHE_SIZE.get(parameters.env.settings()));
         try {
-            databaseReaders = loadDatabaseReaders(geoIpConfigDirectory);
+            databaseDirectory = Files.createTempDirectory(parameters.env.tmpFile(), "ingest-geoip");
+            databaseReaders = loadDatabaseReaders(geoIpConfigDirectory, databaseDirectory);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
-        return Collections.singletonMap(GeoIpProcessor.TYPE, new GeoIpProcessor.Factory(databaseReaders));
+        return Collections.singletonMap(GeoIpProcessor.TYPE, new GeoIpProcessor.Factory(databaseReaders, cache));
     }
 
-    static Map<String, DatabaseReader> loadDatabaseReaders(Path geoIpConfigDirectory) throws IOException {
+    /**
+     * Opens all <code>*.mmdb</code> and <code>*.mmdb.gz</code> databases of the given config directory in memory mapped
+     * mode, so that they are paged in by the operating system instead of being held on the heap. Gzipped databases are
+     * decompressed into the given database directory first, which the caller has to remove once the readers are closed.
+     */
+    static Map<String, DatabaseReader> loadDatabaseReaders(Path geoIpConfigDirectory, Path databaseDirectory) throws IOException {
         if (Files.exists(geoIpConfigDirectory) == false && Files.isDirectory(geoIpConfigDirectory)) {
             throw new IllegalStateException("the geoip directory [" + geoIpConfigDirectory  + "] containing databases doesn't exist");
         }
 
         Map<String, DatabaseReader> databaseReaders = new HashMap<>();
+        boolean success = false;
         try (Stream<Path> databaseFiles = Files.list(geoIpConfigDirectory)) {
-            PathMatcher pathMatcher = geoIpConfigDirectory.getFileSystem().getPathMatcher("glob:**.mmdb.gz");
+            PathMatcher gzipPathMatcher = geoIpConfigDirectory.getFileSystem().getPathMatcher("glob:**.mmdb.gz");
+            PathMatcher pathMatcher = geoIpConfigDirectory.getFileSystem().getPathMatcher("glob:**.mmdb");
             // Use iterator instead of forEach otherwise IOException needs to be caught twice...
             Iterator<Path> iterator = databaseFiles.iterator();
             while (iterator.hasNext()) {
                 Path databasePath = iterator.next();
-                if (Files.isRegularFile(databasePath) && pathMatcher.matches(databasePath)) {
+                if (Files.isRegularFile(databasePath) == false) {
+                    continue;
+                }
+                String databaseFile = databasePath.getFileName().toString();
+                if (gzipPathMatcher.matches(databasePath)) {
+                    Path decompressedPath = databaseDirectory.resolve(databaseFile.substring(0, databaseFile.length() - ".gz".length()));
                     try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(databasePath, StandardOpenOption.READ))) {
-                        databaseReaders.put(databasePath.getFileName().toString(), new DatabaseReader.Builder(inputStream).build());
+                        Files.copy(inputStream, decompressedPath);
                     }
+                    databaseReaders.put(databaseFile, openMemoryMapped(decompressedPath));
+                } else if (pathMatcher.matches(databasePath)) {
+                    databaseReaders.put(databaseFile, openMemoryMapped(databasePath));
                 }
             }
+            success = true;
+        } finally {
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(databaseReaders.values());
+            }
         }
         return Collections.unmodifiableMap(databaseReaders);
     }
 
+    @SuppressForbidden(reason = "the maxmind reader only memory maps java.io.File instances")
+    private static DatabaseReader openMemoryMapped(Path databasePath) throws IOException {
+        return new DatabaseReader.Builder(databasePath.toFile()).fileMode(Reader.FileMode.MEMORY_MAPPED).build();
+    }
+
     @Override
     public void close() throws IOException {
         if (databaseReaders != null) {
             IOUtils.close(databaseReaders.values());
         }
+        if (databaseDirectory != null) {
+            IOUtils.rm(databaseDirectory);
+        }
     }
 }
@@ -0,0 +1,110 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.ingest.geoip;
+
+import com.maxmind.geoip2.model.AbstractResponse;
+import org.elasticsearch.common.network.InetAddresses;
+import org.elasticsearch.test.ESTestCase;
+
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class GeoIpCacheTests extends ESTestCase {
+
+    public void testCachesLookups() {
+        GeoIpCache cache = new GeoIpCache(1);
+        AtomicInteger lookups = new AtomicInteger();
+        AbstractResponse response = new AbstractResponse() {};
+        InetAddress ip = InetAddresses.forString("8.8.8.8");
+
+        assertThat(cache.putIfAbsent(ip, "db", address -> {
+            lookups.incrementAndGet();
+            return response;
+        }), sameInstance(response));
+        assertThat(cache.putIfAbsent(ip, "db", address -> {
+            lookups.incrementAndGet();
+            return response;
+        }), sameInstance(response));
+        assertThat(lookups.get(), equalTo(1));
+        assertThat(cache.count(), equalTo(1));
+        assertThat(cache.stats().getHits(), equalTo(1L));
+        assertThat(cache.stats().getMisses(), equalTo(1L));
+
+        // another database is cached separately and evicts the previous lookup
+        AbstractResponse other = cache.putIfAbsent(ip, "other_db", address -> {
+            lookups.incrementAndGet();
+            return response;
+        });
+        assertThat(other, sameInstance(response));
+        assertThat(lookups.get(), equalTo(2));
+        assertThat(cache.count(), equalTo(1));
+        assertThat(cache.stats().getEvictions(), equalTo(1L));
+    }
+
+    public void testCachesMissingAddresses() {
+        GeoIpCache cache = new GeoIpCache(randomIntBetween(1, 10));
+        AtomicInteger lookups = new AtomicInteger();
+        InetAddress ip = InetAddresses.forString("127.0.0.1");
+        for (int i = 0; i < 3; i++) {
+            AbstractResponse response = cache.putIfAbsent(ip, "db", address -> {
+                lookups.incrementAndGet();
+                return null;
+            });
+            assertThat(response, nullValue());
+        }
+        assertThat(lookups.get(), equalTo(1));
+    }
+
+    public void testDisabled() {
+        GeoIpCache cache = new GeoIpCache(0);
+        AtomicInteger lookups = new AtomicInteger();
+        InetAddress ip = InetAddresses.forString("8.8.8.8");
+        for (int i = 0; i < 3; i++) {
+            cache.putIfAbsent(ip, "db", address -> {
+                lookups.incrementAndGet();
+                return null;
+            });
+        }
+        assertThat(lookups.get(), equalTo(3));
+        assertThat(cache.count(), equalTo(0));
+        assertThat(cache.stats(), nullValue());
+    }
+
+    public void testInvalidMaxSize() {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> new GeoIpCache(-1));
+        assertThat(e.getMessage(), equalTo("geoip max cache size must be 0 or greater"));
+    }
+
+    public void testRuntimeExceptionsArePropagated() {
+        GeoIpCache cache = new GeoIpCache(randomIntBetween(0, 10));
+        InetAddress ip = InetAddresses.forString("8.8.8.8");
+        IllegalStateException e = expectThrows(IllegalStateException.class,
+            () -> cache.putIfAbsent(ip, "db", address -> {
+                throw new IllegalStateException("boom");
+            }));
+        assertThat(e.getMessage(), equalTo("boom"));
+        assertThat(cache.count(), equalTo(0));
+    }
+}
@@ -39,7 +39,8 @@ public class GeoIpProcessorTests extends ESTestCase {
     public void testCity() throws Exception {
         InputStream database = getDatabaseFileInputStream("/GeoLite2-City.mmdb.gz");
         GeoIpProcessor processor = new GeoIpProcessor(randomAsciiOfLength(10), "source_field",
-                new DatabaseReader.Builder(database).build(), "target_field", EnumSet.allOf(GeoIpProcessor.Property.class));
+                new DatabaseReader.Builder(database).build(), "GeoLite2-City.mmdb.gz", "target_field",
+                EnumSet.allOf(GeoIpProcessor.Property.class), new GeoIpCache(randomIntBetween(0, 1000)));
 
         Map<String, Object> document = new HashMap<>();
         document.put("source_field", "8.8.8.8");
@@ -66,7 +67,8 @@ public class GeoIpProcessorTests extends ESTestCase {
     public void testCountry() throws Exception {
         InputStream database = getDatabaseFileInputStream("/GeoLite2-Country.mmdb.gz");
         GeoIpProcessor processor = new GeoIpProcessor(randomAsciiOfLength(10), "source_field",
-                new DatabaseReader.Builder(database).build(), "target_field", EnumSet.allOf(GeoIpProcessor.Property.class));
+                new DatabaseReader.Builder(database).build(), "GeoLite2-Country.mmdb.gz", "target_field",
+                EnumSet.allOf(GeoIpProcessor.Property.class), new GeoIpCache(randomIntBetween(0, 1000)));
 
         Map<String, Object> document = new HashMap<>();
         document.put("source_field", "82.170.213.79");
@@ -86,7 +88,8 @@ public class GeoIpProcessorTests extends ESTestCase {
     public void testAddressIsNotInTheDatabase() throws Exception {
         InputStream database = getDatabaseFileInputStream("/GeoLite2-City.mmdb.gz");
         GeoIpProcessor processor = new GeoIpProcessor(randomAsciiOfLength(10), "source_field",
-                new DatabaseReader.Builder(database).build(), "target_field", EnumSet.allOf(GeoIpProcessor.Property.class));
+                new DatabaseReader.Builder(database).build(), "GeoLite2-City.mmdb.gz", "target_field",
+                EnumSet.allOf(GeoIpProcessor.Property.class), new GeoIpCache(randomIntBetween(0, 1000)));
 
         Map<String, Object> document = new HashMap<>();
         document.put("source_field", "127.0.0.1");
@@ -101,7 +104,8 @@ public class GeoIpProcessorTests extends ESTestCase {
     public void testInvalid() throws Exception {
         InputStream database = getDatabaseFileInputStream("/GeoLite2-City.mmdb.gz");
         GeoIpProcessor processor = new GeoIpProcessor(randomAsciiOfLength(10), "source_field",
-                new DatabaseReader.Builder(database).build(), "target_field", EnumSet.allOf(GeoIpProcessor.Property.class));
+                new DatabaseReader.Builder(database).build(), "GeoLite2-City.mmdb.gz", "target_field",
+                EnumSet.allOf(GeoIpProcessor.Property.class), new GeoIpCache(randomIntBetween(0, 1000)));
 
         Map<String, Object> document = new HashMap<>();
         document.put("source_field", "www.google.com");
@@ -525,6 +525,11 @@ public class TestSearchContext extends SearchContext {
         return new SearchLookup(mapperService(), fieldData(), null);
     }
 
+    @Override
+    public boolean hasLookup() {
+        return false;
+    }
+
     @Override
     public DfsSearchResult dfsResult() {
         return null;